@@ -0,0 +1,79 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.core.CommentCache;
+import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.Fixtures;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The CommentCacheBenchmark class measures CommentCache.get when the comments are cached
+ * and when they have to be retrieved from the stub server (over loopback, so the time is
+ * what the client spends, not what the network does). Misses go through a cache too
+ * small to hold more than one thread, cycling through the issues of a recorded page.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentCacheBenchmark {
+
+  private StubGitHubServer server;
+  private List<Issue> issues;
+  private Issue cachedIssue;
+  private CommentCache hitCache;
+  private CommentCache missCache;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(Fixtures.REPOSITORY, Fixtures.ISSUE_COUNT);
+    GitHubApiHandler apiHandler = new GitHubApiHandler(server.rewrite(new UrlConnectionTransport("")), null);
+    issues = new IssueMapper().map(new ByteArrayInputStream(Fixtures.read(Fixtures.ISSUES_100)));
+
+    cachedIssue = issues.get(0);
+    hitCache = new CommentCache(apiHandler);
+    hitCache.get(cachedIssue);
+    missCache = new CommentCache(apiHandler, 1, 0);
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.close();
+  }
+
+  @Benchmark
+  public List<Comment> hit() throws IOException {
+    return hitCache.get(cachedIssue);
+  }
+
+  @Benchmark
+  public List<Comment> miss() throws IOException {
+    next = (next + 1) % issues.size();
+    return missCache.get(issues.get(next));
+  }
+
+}
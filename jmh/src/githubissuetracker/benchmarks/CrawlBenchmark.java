@@ -0,0 +1,93 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.core.GitHubPageNavigator;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The CrawlBenchmark class measures the end-to-end time of retrieving every issue of a
+ * repository of 3000 issues with getAllPages (4 pages at a time) at different page sizes,
+ * and the time until the first page the user sees has arrived. The "adaptive" size
+ * retrieves a first page of 10 issues and then everything at 100 per page. The stub
+ * server stands in for the network with 50 ms of latency and 2.5 MB/s (i.e. 20 Mbit/s)
+ * per response.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CrawlBenchmark {
+
+  private static final String REPOSITORY = "rails/rails";
+  private static final int ISSUE_COUNT = 3000;
+  private static final int PARALLELISM = 4;
+  private static final int ADAPTIVE_FIRST_PAGE_SIZE = 10;
+
+  @Param({"30", "50", "100", "adaptive"})
+  public String pageSize;
+
+  private StubGitHubServer server;
+  private GitHubApiHandler apiHandler;
+  private GitHubPageNavigator<Issue> navigator;
+
+  @Setup(Level.Trial)
+  public void startServer() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, ISSUE_COUNT);
+    server.setLatencyMillis(50);
+    server.setBandwidth(2500000);
+    apiHandler = new GitHubApiHandler(server.rewrite(new UrlConnectionTransport("")), null);
+  }
+
+  @Setup(Level.Invocation)
+  public void createNavigator() {
+    navigator = apiHandler.getIssues("rails", "rails");
+    if (pageSize.equals("adaptive")) {
+      navigator.enableAdaptivePageSize(ADAPTIVE_FIRST_PAGE_SIZE);
+    } else {
+      navigator.setPageSize(Integer.parseInt(pageSize));
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeNavigator() {
+    navigator.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    server.close();
+  }
+
+  @Benchmark
+  public int crawl() throws IOException {
+    return navigator.getAllPages(PARALLELISM).size();
+  }
+
+  @Benchmark
+  public int firstPage() throws IOException {
+    return navigator.initialize().size();
+  }
+
+}
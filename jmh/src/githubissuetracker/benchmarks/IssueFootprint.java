@@ -0,0 +1,111 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Issue;
+import githubissuetracker.models.IssueTable;
+import githubissuetracker.testing.Fixtures;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IssueFootprint class measures how much heap 100k issues retain, as Issue objects
+ * with their bodies decoded eagerly or lazily (before and after every body has been
+ * asked for), and as an IssueTable. The issues are read
+ * from the recorded page of 100 issues, mapped over and over by a single mapper (i.e. the
+ * way a navigator maps every page of a repository), so the authors are interned the same
+ * way. It isn't a JMH benchmark since JMH measures allocations rather than retained heap;
+ * run it with "gradle :jmh:footprint -Pharness=IssueFootprint [-Pargs=issueCount]".
+ *
+ * @author justinsvegliato
+ */
+public class IssueFootprint {
+
+  private static final int DEFAULT_ISSUE_COUNT = 100000;
+  private static final int ISSUES_PER_PAGE = 100;
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+  private IssueFootprint() {
+  }
+
+  /**
+   * Runs the harness.
+   *
+   * @param args the number of issues to read (100k by default)
+   * @throws IOException if the fixture can't be mapped
+   */
+  public static void main(String[] args) throws IOException {
+    int issueCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ISSUE_COUNT;
+    byte[] page = Fixtures.read(Fixtures.ISSUES_100);
+
+    // Warms up the mappers so that their caches aren't counted
+    readIssues(page, ISSUES_PER_PAGE, false);
+    readIssues(page, ISSUES_PER_PAGE, true);
+
+    // Each result is used after it's measured so that it can't be collected before
+    long baseline = getRetainedHeap();
+    List<Issue> eagerIssues = readIssues(page, issueCount, false);
+    report("Issue objects (eager bodies)", issueCount, getRetainedHeap() - baseline);
+    checkSize(eagerIssues.size(), issueCount);
+    eagerIssues = null;
+
+    baseline = getRetainedHeap();
+    List<Issue> lazyIssues = readIssues(page, issueCount, true);
+    report("Issue objects (lazy bodies)", issueCount, getRetainedHeap() - baseline);
+
+    // A decoded body is kept in place of its bytes
+    for (Issue issue : lazyIssues) {
+      issue.getBody();
+    }
+    report("Issue objects (lazy, all decoded)", issueCount, getRetainedHeap() - baseline);
+    checkSize(lazyIssues.size(), issueCount);
+    lazyIssues = null;
+
+    baseline = getRetainedHeap();
+    IssueTable table = new IssueTable();
+    table.addAll(readIssues(page, issueCount, true));
+    report("IssueTable (lazy bodies)", issueCount, getRetainedHeap() - baseline);
+    checkSize(table.size(), issueCount);
+  }
+
+  private static void checkSize(int size, int issueCount) {
+    if (size != issueCount) {
+      throw new IllegalStateException("Read " + size + " issues instead of " + issueCount);
+    }
+  }
+
+  private static List<Issue> readIssues(byte[] page, int issueCount, boolean lazyBodies) throws IOException {
+    IssueMapper mapper = new IssueMapper(lazyBodies);
+    List<Issue> issues = new ArrayList<>(issueCount);
+    while (issues.size() < issueCount) {
+      List<Issue> pageIssues = mapper.map(new ByteArrayInputStream(page));
+      issues.addAll(pageIssues.subList(0, Math.min(pageIssues.size(), issueCount - issues.size())));
+    }
+    return issues;
+  }
+
+  // Collects until the heap stops shrinking, since a single collection may leave garbage behind
+  private static long getRetainedHeap() {
+    long usedHeap = Long.MAX_VALUE;
+    for (int i = 0; i < 10; i++) {
+      System.gc();
+      long currentHeap = memory.getHeapMemoryUsage().getUsed();
+      if (currentHeap >= usedHeap) {
+        break;
+      }
+      usedHeap = currentHeap;
+    }
+    return usedHeap;
+  }
+
+  private static void report(String name, int issueCount, long retainedBytes) {
+    System.out.println(String.format("%-32s %8.1f MB per 100k issues (%d bytes per issue)", name,
+            retainedBytes / BYTES_PER_MEGABYTE * DEFAULT_ISSUE_COUNT / issueCount, retainedBytes / issueCount));
+  }
+
+}
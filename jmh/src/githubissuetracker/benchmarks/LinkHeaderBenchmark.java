@@ -0,0 +1,97 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.testing.Fixtures;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.ResponseHeaders;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The LinkHeaderBenchmark class measures how long parsing the Link header of a page in
+ * the middle of a query (with all four relation types) takes: the way GitHubPageNavigator
+ * used to (a regular expression per relation type, each scanning the whole header), with
+ * ResponseHeaders.parseLinks, and with ResponseHeaders parsing every header it knows
+ * (i.e. the rate limit and the validators too).
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkHeaderBenchmark {
+
+  private static final Pattern PREVIOUS_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"prev\"");
+  private static final Pattern NEXT_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"next\"");
+  private static final Pattern FIRST_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"first\"");
+  private static final Pattern LAST_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"last\"");
+
+  private final List<String> values = Fixtures.LINK_HEADER;
+  private final Map<String, List<String>> headerFields = new HashMap<>();
+  private HttpResponse response;
+
+  @Setup
+  public void setUp() {
+    headerFields.put("Link", values);
+    headerFields.put("X-RateLimit-Limit", Collections.singletonList("5000"));
+    headerFields.put("X-RateLimit-Remaining", Collections.singletonList("4987"));
+    headerFields.put("X-RateLimit-Reset", Collections.singletonList("1434567890"));
+    headerFields.put("ETag", Collections.singletonList("W/\"a00049ba79152d03380c34652f2cb612\""));
+    headerFields.put("Last-Modified", Collections.singletonList("Mon, 01 Jun 2015 12:00:00 GMT"));
+    response = new HttpResponse(200, headerFields, new ByteArrayInputStream(new byte[0]));
+  }
+
+  @Benchmark
+  public List<String> fourRegexes() {
+    return Arrays.asList(getPageUrl(FIRST_PAGE_PATTERN), getPageUrl(PREVIOUS_PAGE_PATTERN),
+            getPageUrl(NEXT_PAGE_PATTERN), getPageUrl(LAST_PAGE_PATTERN));
+  }
+
+  @Benchmark
+  public Map<String, String> parseLinks() {
+    return ResponseHeaders.parseLinks(values);
+  }
+
+  @Benchmark
+  public ResponseHeaders parseHeaders() {
+    return new ResponseHeaders(response);
+  }
+
+  // The way GitHubPageNavigator used to find each link, which only looked at the first value
+  private String getPageUrl(Pattern pattern) {
+    if (!headerFields.containsKey("Link")) {
+      return null;
+    }
+
+    String navigationLink = headerFields.get("Link").get(0);
+    if (navigationLink == null) {
+      return null;
+    }
+
+    Matcher matcher = pattern.matcher(navigationLink);
+    if (!matcher.find()) {
+      return null;
+    }
+    return matcher.group(1);
+  }
+
+}
@@ -0,0 +1,58 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.mappers.CommentMapper;
+import githubissuetracker.mappers.GitHubMapper;
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.testing.Fixtures;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The MapperBenchmark class measures how long the mappers take to turn a recorded page
+ * of issues or comments into objects, with bodies decoded eagerly or lazily. Run it with
+ * "-prof gc" to see how much each page allocates.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+  @Param({Fixtures.ISSUES_30, Fixtures.ISSUES_100, Fixtures.COMMENTS_30, Fixtures.COMMENTS_100})
+  public String fixture;
+
+  @Param({"false", "true"})
+  public boolean lazyBodies;
+
+  private byte[] data;
+  private GitHubMapper<?> mapper;
+
+  @Setup
+  public void setUp() {
+    data = Fixtures.read(fixture);
+    mapper = fixture.startsWith("issues") ? new IssueMapper(lazyBodies) : new CommentMapper(lazyBodies);
+  }
+
+  @Benchmark
+  public List<?> mapStream() throws IOException {
+    return mapper.map(new ByteArrayInputStream(data));
+  }
+
+}
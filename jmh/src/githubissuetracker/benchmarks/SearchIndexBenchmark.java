@@ -0,0 +1,60 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.core.SearchIndex;
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.Fixtures;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SearchIndexBenchmark class measures how long it takes to index the recorded page
+ * of 100 issues, with their bodies kept encoded the way the application maps them. The
+ * issues are mapped again before every invocation, so no body has been decoded yet. Run
+ * it with "-prof gc" to see how much indexing a page allocates.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+  private final IssueMapper mapper = new IssueMapper(true);
+  private byte[] data;
+  private List<Issue> issues;
+
+  @Setup
+  public void readFixture() {
+    data = Fixtures.read(Fixtures.ISSUES_100);
+  }
+
+  @Setup(Level.Invocation)
+  public void mapIssues() throws IOException {
+    issues = mapper.map(new ByteArrayInputStream(data));
+  }
+
+  @Benchmark
+  public SearchIndex addIssues() {
+    SearchIndex index = new SearchIndex();
+    index.addIssues(issues);
+    return index;
+  }
+
+}
@@ -0,0 +1,114 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.core.GitHubPageNavigator;
+import githubissuetracker.core.PageStore;
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The StoreStartupBenchmark class measures how long a freshly started application takes
+ * to show the first page of issues and to page through the first ten pages, with an
+ * empty (cold) page store and with one left behind by a previous run (warm). The stub
+ * server adds the given latency to every request to stand in for the network.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StoreStartupBenchmark {
+
+  private static final String REPOSITORY = "rails/rails";
+  private static final int PAGE_COUNT = 10;
+
+  @Param({"cold", "warm"})
+  public String store;
+
+  @Param({"50"})
+  public long latencyMillis;
+
+  private StubGitHubServer server;
+  private File directory;
+
+  @Setup(Level.Trial)
+  public void startServer() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, 5000);
+    server.setLatencyMillis(latencyMillis);
+  }
+
+  @Setup(Level.Invocation)
+  public void prepareStore() throws IOException {
+    directory = Files.createTempDirectory("page-store").toFile();
+    if (store.equals("warm")) {
+      server.setLatencyMillis(0);
+      browse();
+      server.setLatencyMillis(latencyMillis);
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteStore() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    server.close();
+  }
+
+  @Benchmark
+  public int firstPage() throws IOException {
+    GitHubPageNavigator<Issue> navigator = createNavigator();
+    return navigator.initialize().size();
+  }
+
+  @Benchmark
+  public int firstTenPages() throws IOException {
+    return browse();
+  }
+
+  private int browse() throws IOException {
+    GitHubPageNavigator<Issue> navigator = createNavigator();
+    List<Issue> issues = navigator.initialize();
+    int count = issues.size();
+    for (int i = 1; i < PAGE_COUNT; i++) {
+      count += navigator.getNextPage().size();
+    }
+    return count;
+  }
+
+  private GitHubPageNavigator<Issue> createNavigator() throws IOException {
+    GitHubApiHandler apiHandler = new GitHubApiHandler(server.rewrite(new UrlConnectionTransport("")), 
+            new PageStore(directory));
+    return apiHandler.getIssues("rails", "rails", new PageSize(100));
+  }
+
+}
@@ -0,0 +1,78 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.mappers.CommentMapper;
+import githubissuetracker.mappers.GitHubMapper;
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.testing.Fixtures;
+import githubissuetracker.util.UrlConnectionHandler;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The StreamParsingBenchmark class compares the two ways a page is parsed: reading the
+ * whole body into a String with UrlConnectionHandler.getUrlText and mapping the text
+ * (as pages used to be parsed), and mapping the body straight from the stream. The body
+ * comes from memory, so only the parsing is measured. Run it with "-prof gc" to see how
+ * much each way allocates.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamParsingBenchmark {
+
+  @Param({Fixtures.ISSUES_100, Fixtures.COMMENTS_100})
+  public String fixture;
+
+  private byte[] data;
+  private GitHubMapper<?> mapper;
+  private URL url;
+
+  @Setup
+  public void setUp() throws IOException {
+    data = Fixtures.read(fixture);
+    mapper = fixture.startsWith("issues") ? new IssueMapper() : new CommentMapper();
+    url = new URL("https://api.github.com/repos/rails/rails/issues");
+  }
+
+  @Benchmark
+  public List<?> mapText() throws IOException {
+    URLConnection connection = new URLConnection(url) {
+      @Override
+      public void connect() {
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(data);
+      }
+    };
+    return mapper.map(UrlConnectionHandler.getUrlText(connection));
+  }
+
+  @Benchmark
+  public List<?> mapStream() throws IOException {
+    return mapper.map(new ByteArrayInputStream(data));
+  }
+
+}
@@ -0,0 +1,94 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.UrlConnectionHandler;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The TransportBenchmark class measures how many pages of 100 issues per second are
+ * retrieved and mapped by four threads (as many as a bulk load uses), the way pages used
+ * to be retrieved (a connection from UrlConnectionHandler read into a String) and through
+ * UrlConnectionTransport (which asks for gzip and maps the body as a stream). The stub
+ * server stands in for the network: "loopback" is unlimited, while "broadband" adds 20 ms
+ * of latency and limits responses to 2.5 MB/s (i.e. 20 Mbit/s) per connection.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=8")
+public class TransportBenchmark {
+
+  private static final String REPOSITORY = "rails/rails";
+  private static final int PAGE_COUNT = 50;
+
+  @Param({"handler", "transport"})
+  public String client;
+
+  @Param({"loopback", "broadband"})
+  public String network;
+
+  private final AtomicInteger pageCounter = new AtomicInteger();
+  private StubGitHubServer server;
+  private HttpTransport transport;
+  private IssueMapper mapper;
+  private String pageUrlPrefix;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, PAGE_COUNT * 100);
+    if (network.equals("broadband")) {
+      server.setLatencyMillis(20);
+      server.setBandwidth(2500000);
+    }
+    transport = new UrlConnectionTransport("");
+    mapper = new IssueMapper();
+    pageUrlPrefix = server.getBaseUrl() + "/repos/" + REPOSITORY + "/issues?per_page=100&page=";
+  }
+
+  @TearDown
+  public void tearDown() {
+    server.close();
+  }
+
+  @Benchmark
+  public List<Issue> getPage() throws IOException {
+    String url = pageUrlPrefix + (pageCounter.getAndIncrement() % PAGE_COUNT + 1);
+    if (client.equals("handler")) {
+      return mapper.map(UrlConnectionHandler.getUrlText(UrlConnectionHandler.getAuthenticatedUrlConnection(url, "")));
+    }
+
+    try (HttpResponse response = transport.get(url, Collections.<String, String>emptyMap(), RequestPriority.INTERACTIVE)) {
+      return mapper.map(response.getBody());
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+package githubissuetracker.benchmarks;
+
+import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.core.GitHubPageNavigator;
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.IssueState;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.queryparameters.QueryParameter;
+import githubissuetracker.queryparameters.SortCriteria;
+import githubissuetracker.queryparameters.SortDirection;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.RequestPriority;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The UrlBuildingBenchmark class measures how long building the query URL of an issue
+ * navigator takes. The navigator is created along with it, since that's the only way
+ * the URL is built, but creating one sends no requests.
+ *
+ * @author justinsvegliato
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBuildingBenchmark {
+
+  private GitHubApiHandler apiHandler;
+  private QueryParameter[] parameters;
+
+  @Setup
+  public void setUp() {
+    apiHandler = new GitHubApiHandler(new HttpTransport() {
+      @Override
+      public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority) {
+        throw new UnsupportedOperationException();
+      }
+    }, null);
+    parameters = new QueryParameter[] {
+      IssueState.OPEN, SortCriteria.UPDATED, SortDirection.DESC,
+      new PageSize(100)
+    };
+  }
+
+  @Benchmark
+  public GitHubPageNavigator<Issue> getIssues() {
+    return apiHandler.getIssues("rails", "rails", parameters);
+  }
+
+}
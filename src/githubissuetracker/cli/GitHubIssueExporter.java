@@ -0,0 +1,155 @@
+package githubissuetracker.cli;
+
+import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.core.IssueExporter;
+import githubissuetracker.core.RequestScheduler;
+import githubissuetracker.mappers.RecordWriter;
+import githubissuetracker.util.RetryingTransport;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The GitHubIssueExporter class exports every issue and comment of a repository to a
+ * newline-delimited JSON file without starting the user interface (see IssueExporter):
+ *
+ * GitHubIssueExporter [--gzip] [--parallelism N] owner repository output
+ *
+ * The output is written to standard output if it's "-", and it's compressed if --gzip
+ * is given or the file name ends with ".gz". The parallelism is the number of issues
+ * whose comments are retrieved at once (8 by default). The authentication token is read
+ * from the GITHUB_TOKEN environment variable or, if that isn't set, from the same
+ * properties file as the application.
+ *
+ * @author justinsvegliato
+ */
+public class GitHubIssueExporter {
+
+  private static final Logger logger = Logger.getLogger(GitHubIssueExporter.class.getName());
+  private static final String PROPERTIES_PATH = "githubissuetracker/config/github.properties";
+  private static final String TOKEN_VARIABLE = "GITHUB_TOKEN";
+  private static final String USAGE = "Usage: GitHubIssueExporter [--gzip] [--parallelism N] owner repository output";
+  private static final String STANDARD_OUTPUT = "-";
+  private static final String GZIP_SUFFIX = ".gz";
+  private static final int DEFAULT_PARALLELISM = 8;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int BACKGROUND_RESERVE = 100;
+  private static final int PACING_THRESHOLD = 500;
+  private static final int ISSUE_PAGE_REQUESTS = 4;
+
+  /**
+   * Runs the export. The process exits with status 1 if the export fails and 2 if the
+   * arguments are invalid.
+   *
+   * @param args the command-line arguments
+   */
+  public static void main(String[] args) {
+    boolean compressed = false;
+    int parallelism = DEFAULT_PARALLELISM;
+    String[] positionalArgs = new String[3];
+    int positionalCount = 0;
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("--gzip")) {
+          compressed = true;
+        } else if (args[i].equals("--parallelism") && i + 1 < args.length) {
+          parallelism = Integer.parseInt(args[++i]);
+        } else if (!args[i].startsWith("--") && positionalCount < positionalArgs.length) {
+          positionalArgs[positionalCount++] = args[i];
+        } else {
+          exitWithUsage();
+        }
+      }
+    } catch (NumberFormatException ex) {
+      exitWithUsage();
+    }
+
+    if (positionalCount < positionalArgs.length || parallelism < 1) {
+      exitWithUsage();
+    }
+
+    String owner = positionalArgs[0];
+    String repository = positionalArgs[1];
+    String output = positionalArgs[2];
+    compressed |= output.endsWith(GZIP_SUFFIX);
+
+    String token = getAuthenticationToken();
+    if (token == null) {
+      logger.log(Level.WARNING, "No authentication token is configured, so GitHub will reject the requests");
+    }
+
+    // Leaves room for the issue pages on top of the comment requests
+    RequestScheduler scheduler = new RequestScheduler(new UrlConnectionTransport(token),
+            parallelism + ISSUE_PAGE_REQUESTS, BACKGROUND_RESERVE, PACING_THRESHOLD);
+    GitHubApiHandler apiHandler = new GitHubApiHandler(new RetryingTransport(scheduler), null);
+    IssueExporter exporter = new IssueExporter(apiHandler, parallelism);
+
+    long startTime = System.currentTimeMillis();
+    try (RecordWriter writer = new RecordWriter(openOutput(output, compressed))) {
+      long recordCount = exporter.export(owner, repository, writer);
+      logger.log(Level.INFO, "Wrote {0} records to {1} in {2} ms",
+              new Object[] {recordCount, output, System.currentTimeMillis() - startTime});
+    } catch (IOException ex) {
+      logger.log(Level.SEVERE, "Failed to export the issues of " + owner + "/" + repository, ex);
+      System.exit(1);
+    }
+  }
+
+  private static OutputStream openOutput(String output, boolean compressed) throws IOException {
+    OutputStream out;
+    if (output.equals(STANDARD_OUTPUT)) {
+      // Closing the writer mustn't close standard output
+      out = new FilterOutputStream(System.out) {
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+          this.out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+          flush();
+        }
+      };
+    } else {
+      out = new FileOutputStream(output);
+    }
+
+    if (compressed) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+    return new BufferedOutputStream(out, BUFFER_SIZE);
+  }
+
+  // The environment takes precedence so that the token doesn't have to be in a file
+  private static String getAuthenticationToken() {
+    String token = System.getenv(TOKEN_VARIABLE);
+    if (token != null && !token.trim().isEmpty()) {
+      return token.trim();
+    }
+
+    Properties properties = new Properties();
+    try (InputStream inputStream = GitHubIssueExporter.class.getClassLoader().getResourceAsStream(PROPERTIES_PATH)) {
+      if (inputStream != null) {
+        properties.load(inputStream);
+      }
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Failed to load GitHub API properties", ex);
+    }
+    return properties.getProperty("authenticationToken");
+  }
+
+  private static void exitWithUsage() {
+    System.err.println(USAGE);
+    System.exit(2);
+  }
+
+}
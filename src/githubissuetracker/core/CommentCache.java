@@ -2,20 +2,76 @@ package githubissuetracker.core;
 
 import githubissuetracker.models.Comment;
 import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.util.Cache;
+import githubissuetracker.util.CacheStatistics;
+import githubissuetracker.util.Counter;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.DaemonThreadFactory;
+import githubissuetracker.util.MetricsRegistry;
+import githubissuetracker.util.RequestPriority;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The CommentStore class retrieves and store comments from GitHub. This primarily reduces 
- * network overhead by minimizing the amount of calls made to the GitHub API.
+ * network overhead by minimizing the amount of calls made to the GitHub API. If the API
+ * handler has a PageStore, the comment pages are also persisted across restarts.
+ * 
+ * The comments are kept in a bounded cache that's weighed by a rough estimate of the
+ * memory used by the comments, so issues with huge threads are evicted sooner.
+ * 
+ * The cache is safe to use from several threads at once. If multiple callers ask for the
+ * comments of the same issue while they're being retrieved, only one of them fetches
+ * the comments and the rest wait for (and share) its result. This includes prefetches
+ * (see CommentPrefetcher), so an issue that's opened while its comments are being
+ * prefetched usually doesn't retrieve them twice. Since a prefetch may be held back by the
+ * scheduler until the rate limit resets, the user only waits briefly for it before it's
+ * cancelled and the comments are retrieved at interactive priority instead.
  *
  * @author justinsvegliato
  */
 public class CommentCache {
 
-  private final Map<Integer, List<Comment>> commentsMap = new HashMap<>();
+  private static final Logger logger = Logger.getLogger(CommentCache.class.getName());
+  private static final int PAGE_PARALLELISM = 4;
+  private static final int FIRST_PAGE_SIZE = 10;
+  private static final long DEFAULT_MAXIMUM_BYTES = 64L * 1024 * 1024;
+  private static final long COMMENT_OVERHEAD_BYTES = 200;
+  private static final int LOADER_THREAD_COUNT = 4;
+  private static final long PREFETCH_WAIT_MILLIS = 500;
+  private static final Counter cacheHitCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.COMMENT_CACHE_HITS);
+  private static final Counter cacheMissCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.COMMENT_CACHE_MISSES);
+  private static final Counter prefetchCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.COMMENT_PREFETCHES);
+
+  private final Cache<Integer, CommentThread> commentsMap;
+  private final ConcurrentMap<Integer, PendingThread> pendingThreads = new ConcurrentHashMap<>();
+  private final List<BiConsumer<Issue, List<Comment>>> commentListeners = new CopyOnWriteArrayList<>();
+
+  // Asynchronous loads of every cache share one pool, whose idle threads are let go after a minute
+  private static final ThreadPoolExecutor loaderExecutor = new ThreadPoolExecutor(LOADER_THREAD_COUNT, 
+          LOADER_THREAD_COUNT, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+          new DaemonThreadFactory("CommentCache-loader"));
+
+  static {
+    loaderExecutor.allowCoreThreadTimeOut(true);
+  }
 
   private final GitHubApiHandler apiHandler;
 
@@ -26,7 +82,24 @@ public class CommentCache {
    * @param apiHandler the API handler that'll retrieve comments from GitHub
    */
   public CommentCache(GitHubApiHandler apiHandler) {
+    this(apiHandler, DEFAULT_MAXIMUM_BYTES, 0);
+  }
+
+  /**
+   * Creates a new CommentCache with the given bounds.
+   *
+   * @param apiHandler the API handler that'll retrieve comments from GitHub
+   * @param maximumBytes the estimated number of bytes the cached comments may take up
+   * @param timeToLiveMillis the time after which comments are retrieved again, or 0 for never
+   */
+  public CommentCache(GitHubApiHandler apiHandler, long maximumBytes, long timeToLiveMillis) {
     this.apiHandler = apiHandler;
+    this.commentsMap = new LruCache<>(maximumBytes, timeToLiveMillis, new LruCache.Weigher<CommentThread>() {
+      @Override
+      public long weigh(CommentThread thread) {
+        return estimateBytes(thread.comments);
+      }
+    });
   }
 
   /**
@@ -38,22 +111,284 @@ public class CommentCache {
    * @throws IOException if the comments can't be retrieved
    */
   public List<Comment> get(Issue issue) throws IOException {
-    if (!commentsMap.containsKey(issue.getId())) {
-      commentsMap.put(issue.getId(), getComments(issue));
+    return get(issue, null);
+  }
+
+  /**
+   * Gets the list of comments for a given issue, handing the comments to the given consumer
+   * one page at a time as they arrive. This lets a caller show the first page of comments
+   * before the rest have been retrieved. If the comments are already cached (or another 
+   * caller is retrieving them), the consumer receives them all at once. The consumer is 
+   * called on the calling thread.
+   *
+   * @param issue the issue to retrieve comments for
+   * @param pageConsumer the consumer of each page of comments, or null
+   * @return the list of comments for the given issue
+   * @throws IOException if the comments can't be retrieved
+   */
+  public List<Comment> get(Issue issue, Consumer<List<Comment>> pageConsumer) throws IOException {
+    CommentThread thread = commentsMap.get(issue.getId());
+    if (thread != null) {
+      cacheHitCounter.increment();
+      return consumeAll(thread.comments, pageConsumer);
+    }
+    cacheMissCounter.increment();
+    return load(issue, pageConsumer, RequestPriority.INTERACTIVE);
+  }
+
+  /**
+   * Gets the list of comments for a given issue without blocking the calling thread. The 
+   * comments are retrieved on a background thread if they haven't been retrieved yet.
+   *
+   * @param issue the issue to retrieve comments for
+   * @return a future that completes with the list of comments for the given issue, or 
+   *     completes exceptionally with an IOException if they can't be retrieved
+   */
+  public CompletableFuture<List<Comment>> getAsync(final Issue issue) {
+    CommentThread thread = commentsMap.get(issue.getId());
+    if (thread != null) {
+      cacheHitCounter.increment();
+      return CompletableFuture.completedFuture(thread.comments);
+    }
+
+    return CompletableFuture.supplyAsync(new Supplier<List<Comment>>() {
+      @Override
+      public List<Comment> get() {
+        try {
+          return CommentCache.this.get(issue);
+        } catch (IOException ex) {
+          throw new CompletionException(ex);
+        }
+      }
+    }, loaderExecutor);
+  }
+
+  /**
+   * Retrieves the comments of the given issue ahead of time so that they're cached by the
+   * time the issue is opened. The requests are sent with background priority, so they
+   * never hold up the ones the user is waiting on, and the comments are retrieved with the
+   * largest pages since nobody needs the first few early. Nothing is retrieved if the 
+   * comments are already cached or being retrieved. Unlike get, this doesn't count as a 
+   * cache hit or miss. If the issue is opened in the meantime, get waits for the prefetch
+   * for a moment, and then interrupts it (i.e. this throws an IOException) and retrieves
+   * the comments itself.
+   *
+   * @param issue the issue to retrieve comments for
+   * @return true if the comments were retrieved, or false if they didn't need to be
+   * @throws IOException if the comments can't be retrieved
+   */
+  public boolean prefetch(Issue issue) throws IOException {
+    if (pendingThreads.containsKey(issue.getId()) || commentsMap.get(issue.getId()) != null) {
+      return false;
+    }
+
+    load(issue, null, RequestPriority.BACKGROUND);
+    prefetchCounter.increment();
+    return true;
+  }
+
+  /**
+   * Revalidates the comments of the given issue with conditional requests. Comment pages
+   * that haven't changed aren't downloaded again.
+   *
+   * @param issue the issue to refresh the comments of
+   * @return the up-to-date list of comments for the given issue
+   * @throws IOException if the comments can't be retrieved
+   */
+  public List<Comment> refresh(Issue issue) throws IOException {
+    CommentThread thread = commentsMap.get(issue.getId());
+    if (thread == null) {
+      return get(issue);
+    }
+    
+    thread.navigator.refresh();
+    thread = new CommentThread(thread.navigator, thread.navigator.getAllPages(PAGE_PARALLELISM));
+    commentsMap.put(issue.getId(), thread);
+    notifyCommentListeners(issue, thread.comments);
+    return thread.comments;
+  }
+
+  /**
+   * Returns true if the comments of the given issue are cached, in which case get returns
+   * them without retrieving anything.
+   *
+   * @param issue the issue whose comments to look up
+   * @return true if the comments are cached
+   */
+  public boolean isCached(Issue issue) {
+    return commentsMap.get(issue.getId()) != null;
+  }
+
+  /**
+   * Registers a listener that's given every comment of an issue whenever they have been
+   * retrieved from GitHub (or the page store), including by a refresh. Listeners are 
+   * called on whichever thread retrieved the comments, so they must be thread-safe.
+   *
+   * @param commentListener the listener to register
+   */
+  public void addCommentListener(BiConsumer<Issue, List<Comment>> commentListener) {
+    commentListeners.add(commentListener);
+  }
+
+  /**
+   * Gets the hit, miss and eviction counts of the cache.
+   *
+   * @return the statistics
+   */
+  public CacheStatistics getStatistics() {
+    return commentsMap.getStatistics();
+  }
+
+  // Joins the fetch that's already in flight for this issue if there is one
+  private List<Comment> load(Issue issue, Consumer<List<Comment>> pageConsumer, RequestPriority priority) 
+          throws IOException {
+    PendingThread pending = new PendingThread(priority);
+    PendingThread pendingThread;
+    while ((pendingThread = pendingThreads.putIfAbsent(issue.getId(), pending)) != null) {
+      CommentThread thread = await(issue, pendingThread, priority);
+      if (thread != null) {
+        return consumeAll(thread.comments, pageConsumer);
+      }
+    }
+
+    try {
+      // Checks again in case another caller finished just before this one registered
+      CommentThread thread = commentsMap.get(issue.getId());
+      if (thread == null) {
+        thread = getComments(issue, pageConsumer, priority);
+        commentsMap.put(issue.getId(), thread);
+      } else {
+        consumeAll(thread.comments, pageConsumer);
+      }
+      pending.future.complete(thread);
+      return thread.comments;
+    } catch (IOException | RuntimeException ex) {
+      pending.future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      pending.finish();
+      pendingThreads.remove(issue.getId(), pending);
     }
-    return commentsMap.get(issue.getId());
   }
 
-  private List<Comment> getComments(Issue issue) throws IOException {
+  private CommentThread getComments(Issue issue, Consumer<List<Comment>> pageConsumer, RequestPriority priority) 
+          throws IOException {
     GitHubPageNavigator<Comment> commentNavigator = apiHandler.getComments(issue);
+    
+    // The first few comments are all that fit on screen, so they're retrieved on their own first
+    if (priority == RequestPriority.INTERACTIVE) {
+      commentNavigator.enableAdaptivePageSize(FIRST_PAGE_SIZE);
+    } else {
+      commentNavigator.setPageSize(PageSize.MAXIMUM_SIZE);
+    }
 
-    // Iterates through every page in the query result
-    List<Comment> comments = commentNavigator.initialize();
-    while (commentNavigator.hasNextPage()) {
-      comments.addAll(commentNavigator.getNextPage());
+    // Retrieves every page in the query result (concurrently if possible)
+    CommentThread thread = new CommentThread(commentNavigator, 
+            commentNavigator.getAllPages(PAGE_PARALLELISM, pageConsumer, priority));
+    notifyCommentListeners(issue, thread.comments);
+    return thread;
+  }
+
+  private void notifyCommentListeners(Issue issue, List<Comment> comments) {
+    for (BiConsumer<Issue, List<Comment>> commentListener : commentListeners) {
+      commentListener.accept(issue, comments);
     }
+  }
 
+  private List<Comment> consumeAll(List<Comment> comments, Consumer<List<Comment>> pageConsumer) {
+    if (pageConsumer != null) {
+      pageConsumer.accept(comments);
+    }
     return comments;
   }
+
+  // Waits for the fetch in flight, or returns null if it was a prefetch that has been given up on
+  private CommentThread await(Issue issue, PendingThread pendingThread, RequestPriority priority) 
+          throws IOException {
+    boolean prefetch = pendingThread.priority == RequestPriority.BACKGROUND;
+    try {
+      if (prefetch && priority == RequestPriority.INTERACTIVE) {
+        return pendingThread.future.get(PREFETCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      return pendingThread.future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the comments of issue " + issue.getNumber(), ex);
+    } catch (TimeoutException ex) {
+      logger.log(Level.FINE, "The comments of issue {0} are still being prefetched, retrieving them directly", 
+              issue.getNumber());
+      pendingThread.cancel();
+      pendingThreads.remove(issue.getId(), pendingThread);
+      return null;
+    } catch (CancellationException ex) {
+      logger.log(Level.FINE, "The prefetch of the comments of issue {0} was cancelled, retrying", issue.getNumber());
+      return null;
+    } catch (ExecutionException ex) {
+      if (prefetch) {
+        logger.log(Level.WARNING, "Failed to prefetch the comments of issue " + issue.getNumber() + ", retrying", 
+                ex.getCause());
+        return null;
+      }
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException("Failed to retrieve the comments of issue " + issue.getNumber(), ex.getCause());
+    }
+  }
+
+  // The raw length of a body is roughly what it takes up whether it has been decoded or not, 
+  // and it's known without decoding the body (which this is called under the cache's lock for)
+  private static long estimateBytes(List<Comment> comments) {
+    long bytes = 0;
+    for (Comment comment : comments) {
+      bytes += COMMENT_OVERHEAD_BYTES;
+      if (comment.getBodyText() != null) {
+        bytes += comment.getBodyText().getRawLength();
+      }
+    }
+    return bytes;
+  }
+
+  // A fetch in flight, along with the priority of its requests and the thread sending them. A
+  // CompletableFuture can't interrupt the thread that completes it, so cancelling does that 
+  // too, as long as the thread hasn't moved on to something else
+  private static class PendingThread {
+
+    private final CompletableFuture<CommentThread> future = new CompletableFuture<>();
+    private final RequestPriority priority;
+    private final Thread loader = Thread.currentThread();
+
+    // Guarded by this
+    private boolean finished = false;
+
+    private PendingThread(RequestPriority priority) {
+      this.priority = priority;
+    }
+
+    private synchronized void cancel() {
+      if (!finished) {
+        future.cancel(true);
+        loader.interrupt();
+      }
+    }
+
+    private synchronized void finish() {
+      finished = true;
+    }
+
+  }
+
+  // The navigator is kept since it holds the validators needed to refresh the comments
+  private static class CommentThread {
+
+    private final GitHubPageNavigator<Comment> navigator;
+    private final List<Comment> comments;
+
+    private CommentThread(GitHubPageNavigator<Comment> navigator, List<Comment> comments) {
+      this.navigator = navigator;
+      this.comments = comments;
+    }
+
+  }
   
 }
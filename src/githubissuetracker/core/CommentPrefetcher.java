@@ -0,0 +1,193 @@
+package githubissuetracker.core;
+
+import githubissuetracker.models.Issue;
+import githubissuetracker.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The CommentPrefetcher class warms a CommentCache with the comments of the issues the
+ * user is looking at, so that opening one of them usually doesn't have to wait for the
+ * network at all. No more than the given number of issues are prefetched at once, and
+ * their requests are sent with background priority (see CommentCache.prefetch).
+ *
+ * The issues are prefetched in order of how likely they are to be opened next: the issue
+ * under the mouse pointer first, then the selected issue, then the issues with comments
+ * before the ones without, and within each of those the most recently updated first
+ * (breaking ties by the number of comments). The order is decided whenever an issue is
+ * about to be prefetched, so hovering over an issue moves it to the front right away.
+ *
+ * Giving the prefetcher a new set of issues (i.e. when the user pages away) cancels the
+ * prefetches that haven't started yet. The ones in progress are left to finish since
+ * their requests have already been sent, and they never hold up the user's requests
+ * anyway.
+ *
+ * @author justinsvegliato
+ */
+public class CommentPrefetcher implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(CommentPrefetcher.class.getName());
+  private static final int HOVERED_TIER = 3;
+  private static final int SELECTED_TIER = 2;
+  private static final int COMMENTED_TIER = 1;
+  private static final int UNCOMMENTED_TIER = 0;
+
+  private final CommentCache commentCache;
+  private final ExecutorService executor;
+
+  // Guarded by this
+  private final List<Issue> candidates = new ArrayList<>();
+  private Issue hoveredIssue = null;
+  private Issue selectedIssue = null;
+  private int queuedTasks = 0;
+
+  /**
+   * Creates a new CommentPrefetcher.
+   *
+   * @param commentCache the cache to retrieve the comments into
+   * @param parallelism the maximum number of issues to prefetch at once
+   */
+  public CommentPrefetcher(CommentCache commentCache, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+    this.commentCache = commentCache;
+    this.executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("CommentPrefetcher"));
+  }
+
+  /**
+   * Prefetches the comments of the given issues (i.e. the ones on the current page) in
+   * place of the issues given before. The prefetches of the previous issues that haven't
+   * started yet are cancelled, and the hovered and selected issues are forgotten.
+   *
+   * @param issues the issues to prefetch the comments of
+   */
+  public synchronized void prefetch(List<Issue> issues) {
+    candidates.clear();
+    candidates.addAll(issues);
+    hoveredIssue = null;
+    selectedIssue = null;
+
+    // A task only picks its issue once it runs, so there's one task for every candidate at most
+    while (queuedTasks < candidates.size()) {
+      try {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            prefetchNext();
+          }
+        });
+        queuedTasks++;
+      } catch (RejectedExecutionException ex) {
+        logger.log(Level.FINE, "The prefetcher has been closed", ex);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Sets the issue under the mouse pointer, which is prefetched before any other.
+   *
+   * @param issue the hovered issue, or null if there isn't one
+   */
+  public synchronized void setHoveredIssue(Issue issue) {
+    hoveredIssue = issue;
+  }
+
+  /**
+   * Sets the selected issue, which is prefetched before any other but the hovered issue.
+   *
+   * @param issue the selected issue, or null if there isn't one
+   */
+  public synchronized void setSelectedIssue(Issue issue) {
+    selectedIssue = issue;
+  }
+
+  /**
+   * Cancels the prefetches that haven't started yet.
+   */
+  public synchronized void cancel() {
+    candidates.clear();
+  }
+
+  /**
+   * Cancels every prefetch and stops the background threads. Prefetches that are in
+   * progress are interrupted.
+   */
+  @Override
+  public synchronized void close() {
+    candidates.clear();
+    executor.shutdownNow();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("{candidates=[%d], queuedTasks=[%d]}", candidates.size(), queuedTasks);
+  }
+
+  private void prefetchNext() {
+    Issue issue = takeNextCandidate();
+    if (issue == null) {
+      return;
+    }
+
+    try {
+      if (commentCache.prefetch(issue)) {
+        logger.log(Level.FINE, "Prefetched the comments of issue {0}", issue.getNumber());
+      }
+    } catch (IOException ex) {
+      // The comments are simply retrieved again if the issue is opened
+      logger.log(Level.FINE, "Failed to prefetch the comments of issue " + issue.getNumber(), ex);
+    }
+  }
+
+  // Removes the issue that's most likely to be opened next from the candidates
+  private synchronized Issue takeNextCandidate() {
+    queuedTasks--;
+    if (candidates.isEmpty()) {
+      return null;
+    }
+
+    int bestIndex = 0;
+    for (int i = 1; i < candidates.size(); i++) {
+      if (compare(candidates.get(i), candidates.get(bestIndex)) > 0) {
+        bestIndex = i;
+      }
+    }
+    return candidates.remove(bestIndex);
+  }
+
+  // Returns a positive number if the first issue should be prefetched before the second
+  private int compare(Issue first, Issue second) {
+    int tierComparison = Integer.compare(getTier(first), getTier(second));
+    if (tierComparison != 0) {
+      return tierComparison;
+    }
+
+    if (first.getUpdatedAt() != null && second.getUpdatedAt() != null) {
+      int recencyComparison = first.getUpdatedAt().compareTo(second.getUpdatedAt());
+      if (recencyComparison != 0) {
+        return recencyComparison;
+      }
+    }
+    return Integer.compare(first.getComments(), second.getComments());
+  }
+
+  private int getTier(Issue issue) {
+    if (hoveredIssue != null && hoveredIssue.getId() == issue.getId()) {
+      return HOVERED_TIER;
+    }
+    if (selectedIssue != null && selectedIssue.getId() == issue.getId()) {
+      return SELECTED_TIER;
+    }
+    return issue.getComments() > 0 ? COMMENTED_TIER : UNCOMMENTED_TIER;
+  }
+
+}
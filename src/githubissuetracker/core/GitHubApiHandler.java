@@ -3,8 +3,13 @@ package githubissuetracker.core;
 import githubissuetracker.mappers.CommentMapper;
 import githubissuetracker.mappers.IssueMapper;
 import githubissuetracker.models.Comment;
+import githubissuetracker.models.GitHubPage;
 import githubissuetracker.models.Issue;
 import githubissuetracker.queryparameters.QueryParameter;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.RetryingTransport;
+import githubissuetracker.util.UrlConnectionTransport;
 
 /**
  * The GitHubApiHandler class provides functions that retrieve data from the GitHub API. Every call
@@ -12,16 +17,25 @@ import githubissuetracker.queryparameters.QueryParameter;
  * by a particular query. For instance, if we call getIssues, we receive a GitHubPageNavigator object
  * that traverses through the pages returned from the query.
  *
+ * The handler builds REST API URLs, but the requests are answered by whatever transport
+ * it's given. Giving it a GraphQLTransport retrieves the same issues and comments from the
+ * GraphQL API instead, with the first comments of every issue in the same request.
+ *
  * @author justinsvegliato
  */
 public class GitHubApiHandler {
 
   private static final String REPOSITORY_ISSUE_URL_TEMPLATE = "https://api.github.com/repos/%s/%s/issues";
-  private static final String QUERY_PARAMETER_TEMPLATE = "%s=%s";
+  private static final String QUERY_ASSIGNMENT_TOKEN = "=";
   private static final String QUERY_START_TOKEN = "?";
   private static final String QUERY_CONJUNCTION_TOKEN = "&";
+  private static final int ESTIMATED_PARAMETER_LENGTH = 24;
+  private static final int NAVIGATOR_CACHE_SIZE = 50;
+
+  private final HttpTransport transport;
+  private final PageStore pageStore;
 
-  private final String authenticationToken;
+  private volatile boolean lazyBodies = false;
 
   /**
    * Creates a new GitHubApiHandler.
@@ -29,9 +43,52 @@ public class GitHubApiHandler {
    * @param authenticationToken the token used to authenticate GitHub requests
    */
   public GitHubApiHandler(String authenticationToken) {
-    this.authenticationToken = authenticationToken;
+    this(authenticationToken, null);
+  }
+
+  /**
+   * Creates a new GitHubApiHandler whose navigators persist their pages to the given store.
+   * The requests of every navigator go through a single RequestScheduler, and failed
+   * requests are retried.
+   * 
+   * @param authenticationToken the token used to authenticate GitHub requests
+   * @param pageStore the store that pages are read from and written to, or null for none
+   */
+  public GitHubApiHandler(String authenticationToken, PageStore pageStore) {
+    this(new RetryingTransport(new RequestScheduler(new UrlConnectionTransport(authenticationToken))), pageStore);
+  }
+
+  /**
+   * Creates a new GitHubApiHandler whose navigators send every request through the given
+   * transport. Sharing one transport lets every navigator share its connections.
+   * 
+   * @param transport the transport that sends the (authenticated) requests
+   * @param pageStore the store that pages are read from and written to, or null for none
+   */
+  public GitHubApiHandler(HttpTransport transport, PageStore pageStore) {
+    this.transport = transport;
+    this.pageStore = pageStore;
   }
   
+  /**
+   * Gets the transport that every navigator sends its requests through.
+   * 
+   * @return the shared transport
+   */
+  public HttpTransport getTransport() {
+    return transport;
+  }
+  
+  /**
+   * Sets whether the bodies of issues and comments are kept encoded until they're accessed
+   * (see LazyText). This applies to the navigators created afterwards.
+   * 
+   * @param lazyBodies true to decode the bodies lazily
+   */
+  public void setLazyBodies(boolean lazyBodies) {
+    this.lazyBodies = lazyBodies;
+  }
+
   /**
    * Gets issues from the specified repository.
    *
@@ -43,7 +100,8 @@ public class GitHubApiHandler {
   public GitHubPageNavigator<Issue> getIssues(String owner, String repository, QueryParameter... parameters) {
     String url = String.format(REPOSITORY_ISSUE_URL_TEMPLATE, owner, repository);     
     String modifiedUrl = addQueryParameters(url, parameters);
-    return new GitHubPageNavigator<>(modifiedUrl, authenticationToken, new IssueMapper());
+    return new GitHubPageNavigator<>(modifiedUrl, transport, new IssueMapper(lazyBodies), pageStore, 
+            new LruCache<Integer, GitHubPage<Issue>>(NAVIGATOR_CACHE_SIZE));
   }
 
   /**
@@ -55,18 +113,28 @@ public class GitHubApiHandler {
    */
   public GitHubPageNavigator<Comment> getComments(Issue issue, QueryParameter... parameters) {
     String url = addQueryParameters(issue.getCommentsUrl(), parameters);
-    return new GitHubPageNavigator<>(url, authenticationToken, new CommentMapper());
+    return new GitHubPageNavigator<>(url, transport, new CommentMapper(lazyBodies), pageStore, 
+            new LruCache<Integer, GitHubPage<Comment>>(NAVIGATOR_CACHE_SIZE));
   }
   
+  // Builds the URL in a single buffer (rather than a new string and a format call per
+  // parameter) and without a trailing conjunction
   private String addQueryParameters(String url, QueryParameter... parameters) {
-    if (parameters.length > 0) {
-      url += QUERY_START_TOKEN;
-      for (QueryParameter parameter : parameters) {
-        String query = String.format(QUERY_PARAMETER_TEMPLATE, parameter.getParameterName(), parameter.getParameterValue());
-        url += query + QUERY_CONJUNCTION_TOKEN;
-      }
+    if (parameters.length == 0) {
+      return url;
+    }
+
+    StringBuilder builder = new StringBuilder(url.length() + parameters.length * ESTIMATED_PARAMETER_LENGTH);
+    builder.append(url);
+    String separator = url.contains(QUERY_START_TOKEN) ? QUERY_CONJUNCTION_TOKEN : QUERY_START_TOKEN;
+    for (QueryParameter parameter : parameters) {
+      builder.append(separator)
+              .append(parameter.getParameterName())
+              .append(QUERY_ASSIGNMENT_TOKEN)
+              .append(parameter.getParameterValue());
+      separator = QUERY_CONJUNCTION_TOKEN;
     }
-    return url;
+    return builder.toString();
   }
 
 }
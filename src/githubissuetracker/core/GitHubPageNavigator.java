@@ -2,12 +2,44 @@ package githubissuetracker.core;
 
 import githubissuetracker.mappers.GitHubMapper;
 import githubissuetracker.models.GitHubPage;
-import githubissuetracker.util.UrlConnectionHandler;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.util.Cache;
+import githubissuetracker.util.CacheStatistics;
+import githubissuetracker.util.Counter;
+import githubissuetracker.util.DaemonThreadFactory;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.MetricsRegistry;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.ResponseHeaders;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.URLConnection;
+import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,12 +47,18 @@ import java.util.regex.Pattern;
  * The GitHubPageNavigator class handles traversing through page data 
  * returned by a GitHub API query. That is, it allows users to go backward or 
  * forward through the results returned by a query. This class is necessary since 
- * the data returned by GitHub is always paged. Typically, the pages range from 30 
- * to 100 entries; however, since this is just a rough iteration, the page size 
- * can't be changed. 
+ * the data returned by GitHub is always paged. The pages hold 30 entries by default,
+ * which can be raised to 100 with setPageSize to need fewer requests. In the adaptive
+ * mode (see enableAdaptivePageSize), the first page is kept small so it arrives quickly,
+ * and bulk loads use the largest pages.
  * 
  * The pages are also cached and loaded lazily to avoid network overhead and increase
- * the responsiveness of the user interface. 
+ * the responsiveness of the user interface. The cache is bounded (by default, it keeps
+ * the most recently used pages), so evicted pages are simply loaded again if revisited.
+ * Optionally, the navigator can prefetch the pages ahead of the current page in the 
+ * background so that paging forward is usually just a cache lookup (see enablePrefetching).
+ * If the navigator is given a PageStore, the pages are read from and written through to 
+ * disk as well.
  * 
  * Note that it's pretty similar to ListIterator (or Iterator) but ListIterator
  * provides too many method (e.g. remove and add) and Iterator only provides next and 
@@ -30,20 +68,41 @@ import java.util.regex.Pattern;
  * @author justinsvegliato
  * @param <T> the type of data returned by the URL (i.e. issues or comments)
  */
-public class GitHubPageNavigator<T> {
+public class GitHubPageNavigator<T> implements Closeable {
 
-  private static final Pattern PREVIOUS_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"prev\"");
-  private static final Pattern NEXT_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"next\"");
-  private static final Pattern FIRST_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"first\"");
-  private static final Pattern LAST_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s+rel=\"last\"");
+  private static final Logger logger = Logger.getLogger(GitHubPageNavigator.class.getName());
 
-  private final String queryUrl;
-  private final String authenticationToken;
-  private final GitHubMapper mapper;
+  private static final Pattern PAGE_NUMBER_PATTERN = Pattern.compile("([?&]page=)(\\d+)(?=&|$)");
+  private static final Pattern PAGE_SIZE_PATTERN = Pattern.compile("([?&]per_page=)(\\d+)(?=&|$)");
+  private static final int UNKNOWN_PAGE_NUMBER = -1;
+  private static final int DEFAULT_CACHE_SIZE = 50;
+  private static final long PREFETCH_WAIT_MILLIS = 500;
+  private static final Counter cacheHitCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.PAGE_CACHE_HITS);
+  private static final Counter cacheMissCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.PAGE_CACHE_MISSES);
+
+  // Bulk loads of every navigator share one pool, whose idle threads are let go after a minute
+  private static final ExecutorService bulkExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, 
+          TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory("GitHubPageNavigator-bulk"));
+
+  private final String baseQueryUrl;
+  private final HttpTransport transport;
+  private final GitHubMapper<T> mapper;
+  private final PageStore pageStore;
+  private final Cache<Integer, GitHubPage<T>> cache;
   
-  private final Map<Integer, GitHubPage<T>> cache = new HashMap<>();
+  private final Map<Integer, Future<GitHubPage<T>>> pendingPages = new ConcurrentHashMap<>();
+  private final List<Consumer<List<T>>> pageListeners = new CopyOnWriteArrayList<>();
+
+  // Guarded by this, but never held while a page is retrieved
+  private GitHubPage<T> currentPage;
 
-  private GitHubPage currentPage;
+  // The URL of the pages the user navigates through and, in the adaptive mode, of bulk loads
+  private String queryUrl;
+  private String bulkQueryUrl;
+  private GitHubPageNavigator<T> bulkNavigator;
+
+  private int prefetchDepth = 0;
+  private ExecutorService prefetchExecutor;
 
   /**
    * Creates a new GitHubPageNavigator.
@@ -52,10 +111,44 @@ public class GitHubPageNavigator<T> {
    * @param authenticationToken the token needed to authenticate the request
    * @param mapper the mapper that converts the retrieved text to a specific object
    */
-  public GitHubPageNavigator(String queryUrl, String authenticationToken, GitHubMapper mapper) {
+  public GitHubPageNavigator(String queryUrl, String authenticationToken, GitHubMapper<T> mapper) {
+    this(queryUrl, authenticationToken, mapper, null);
+  }
+
+  /**
+   * Creates a new GitHubPageNavigator that reads through the given page store. Pages 
+   * found in the store are used without contacting the GitHub API, and pages retrieved 
+   * from the API are saved to the store.
+   * 
+   * @param queryUrl the URL to retrieve paginated data from
+   * @param authenticationToken the token needed to authenticate the request
+   * @param mapper the mapper that converts the retrieved text to a specific object
+   * @param pageStore the store to persist pages to, or null to keep them in memory only
+   */
+  public GitHubPageNavigator(String queryUrl, String authenticationToken, GitHubMapper<T> mapper, 
+          PageStore pageStore) {
+    this(queryUrl, new UrlConnectionTransport(authenticationToken), mapper, pageStore, 
+            new LruCache<Integer, GitHubPage<T>>(DEFAULT_CACHE_SIZE));
+  }
+
+  /**
+   * Creates a new GitHubPageNavigator that sends its requests through the given transport 
+   * and keeps its pages in the given cache.
+   * 
+   * @param queryUrl the URL to retrieve paginated data from
+   * @param transport the transport that sends the (authenticated) requests
+   * @param mapper the mapper that converts the retrieved text to a specific object
+   * @param pageStore the store to persist pages to, or null to keep them in memory only
+   * @param cache the cache that holds the loaded pages by their id
+   */
+  public GitHubPageNavigator(String queryUrl, HttpTransport transport, GitHubMapper<T> mapper, 
+          PageStore pageStore, Cache<Integer, GitHubPage<T>> cache) {
+    this.baseQueryUrl = queryUrl;
     this.queryUrl = queryUrl;
-    this.authenticationToken = authenticationToken;
+    this.transport = transport;
     this.mapper = mapper;
+    this.pageStore = pageStore;
+    this.cache = cache;
   }
 
   /**
@@ -69,8 +162,9 @@ public class GitHubPageNavigator<T> {
    */
   public List<T> initialize() throws IOException {
     // Gets the first page of the query URL
-    currentPage = getPage(1, queryUrl);
-    return currentPage.getEntries();
+    GitHubPage<T> page = getPage(1, queryUrl, RequestPriority.INTERACTIVE);
+    setCurrentPage(page);
+    return page.getEntries();
   }
 
   /**
@@ -81,8 +175,10 @@ public class GitHubPageNavigator<T> {
    */
   public List<T> getNextPage() throws IOException {
     // Gets the next page of the query URL
-    currentPage = getPage(currentPage.getId() + 1, currentPage.getNextPageUrl());
-    return currentPage.getEntries();
+    GitHubPage<T> page = getCurrentPage();
+    page = getPage(page.getId() + 1, page.getNextPageUrl(), RequestPriority.INTERACTIVE);
+    setCurrentPage(page);
+    return page.getEntries();
   }
 
   /**
@@ -92,8 +188,12 @@ public class GitHubPageNavigator<T> {
    * @throws IOException if the data can't be retrieved from the GitHub API
    */
   public List<T> getPreviousPage() throws IOException {
-    currentPage = getPage(currentPage.getId() - 1, currentPage.getPreviousPageUrl());
-    return currentPage.getEntries();
+    GitHubPage<T> page = getCurrentPage();
+    page = getPage(page.getId() - 1, page.getPreviousPageUrl(), RequestPriority.INTERACTIVE);
+    synchronized (this) {
+      currentPage = page;
+    }
+    return page.getEntries();
   }
 
   /**
@@ -101,7 +201,7 @@ public class GitHubPageNavigator<T> {
    * 
    * @return true if there's another page 
    */
-  public boolean hasNextPage() {   
+  public synchronized boolean hasNextPage() {   
     return currentPage.getNextPageUrl() != null;
   }
 
@@ -110,7 +210,7 @@ public class GitHubPageNavigator<T> {
    * 
    * @return true if there's another page 
    */
-  public boolean hasPreviousPage() {
+  public synchronized boolean hasPreviousPage() {
     return currentPage.getPreviousPageUrl() != null;
   }
 
@@ -119,49 +219,590 @@ public class GitHubPageNavigator<T> {
    * 
    * @return the size
    */
-  public int getPageSize() {
+  public synchronized int getPageSize() {
     return currentPage == null ? 0 : currentPage.getEntries().size();
   }
+
+  /**
+   * Revalidates every page that has been loaded so far. Each page is requested again with
+   * its ETag and Last-Modified validators, and GitHub replies with 304 Not Modified (which 
+   * doesn't count against the rate limit) if it hasn't changed. Unchanged pages are reused
+   * as they are, so only pages that actually changed are downloaded and parsed again.
+   * Since nobody is waiting on a refresh, its requests are sent with background priority.
+   * 
+   * @return the entries of the current page, which are the same list as before if the
+   *     current page hasn't changed
+   * @throws IOException if the data can't be retrieved from the GitHub API
+   */
+  public List<T> refresh() throws IOException {
+    if (bulkNavigator != null) {
+      bulkNavigator.refresh();
+    }
+
+    // The current page is refreshed even if it has been evicted from the cache
+    List<GitHubPage<T>> pages = new ArrayList<>(cache.values());
+    GitHubPage<T> startPage = getCurrentPage();
+    if (startPage != null && !pages.contains(startPage)) {
+      pages.add(startPage);
+    }
+    
+    for (GitHubPage<T> page : pages) {
+      if (page.getUrl() == null) {
+        continue;
+      }
+      
+      GitHubPage<T> refreshedPage = loadPageFromApi(page.getId(), page.getUrl(), page, RequestPriority.BACKGROUND);
+      if (refreshedPage != page) {
+        logger.log(Level.FINE, "Page {0} has changed", page.getId());
+        cache.put(page.getId(), refreshedPage);
+        savePage(refreshedPage);
+        notifyPageListeners(refreshedPage);
+        replaceCurrentPage(page, refreshedPage);
+      }
+    }
+    
+    GitHubPage<T> page = getCurrentPage();
+    return page == null ? null : page.getEntries();
+  }
+
+  /**
+   * Gets the hit, miss and eviction counts of the page cache.
+   * 
+   * @return the statistics
+   */
+  public CacheStatistics getCacheStatistics() {
+    return cache.getStatistics();
+  }
   
-  private GitHubPage getPage(int id, String url) throws IOException {
-    if (!cache.containsKey(id)) {
-      cache.put(id, loadPageFromApi(id, url));
+  /**
+   * Enables prefetching. Whenever a page is loaded, the navigator follows the next page 
+   * links on a background thread and caches up to the given number of pages ahead of
+   * the current page. A depth of 0 disables prefetching.
+   * 
+   * @param depth the number of pages to keep loaded ahead of the current page
+   */
+  public synchronized void enablePrefetching(int depth) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("The prefetch depth must not be negative");
+    }
+    
+    prefetchDepth = depth;
+    if (depth > 0 && prefetchExecutor == null) {
+      prefetchExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("GitHubPageNavigator-prefetch"));
     }
-    return cache.get(id);    
   }
 
-  private GitHubPage<T> loadPageFromApi(int id, String url) throws IOException {
-    URLConnection connection = UrlConnectionHandler.getAuthenticatedUrlConnection(url, authenticationToken);
-    Map<String, List<String>> headerFields = connection.getHeaderFields();
+  /**
+   * Registers a listener that's given the entries of every page as soon as the page has
+   * been loaded from the page store or the GitHub API. This includes pages that are 
+   * prefetched, loaded in bulk or changed by a refresh, so a listener sees every entry 
+   * the navigator retrieves (i.e. to index them). Listeners are called on whichever 
+   * thread loaded the page, so they must be thread-safe.
+   * 
+   * @param pageListener the listener to register
+   */
+  public void addPageListener(Consumer<List<T>> pageListener) {
+    pageListeners.add(pageListener);
+  }
+
+  /**
+   * Sets the number of entries on each page. This has to be called before the navigator 
+   * is initialized since the pages that have been loaded already can't be resized.
+   * 
+   * @param pageSize the number of entries on each page, from 1 to 100
+   */
+  public synchronized void setPageSize(int pageSize) {
+    checkNotInitialized();
+    queryUrl = getQueryUrl(new PageSize(pageSize));
+    bulkQueryUrl = null;
+  }
+
+  /**
+   * Enables the adaptive page size. The pages the user navigates through hold the given
+   * number of entries, which should be small enough for the first page to arrive quickly.
+   * getAllPages still hands over that small first page right away, but then retrieves
+   * everything with the largest pages (100 entries) to need as few requests as possible.
+   * This has to be called before the navigator is initialized.
+   * 
+   * @param interactivePageSize the number of entries on the pages the user navigates through
+   */
+  public synchronized void enableAdaptivePageSize(int interactivePageSize) {
+    checkNotInitialized();
+    queryUrl = getQueryUrl(new PageSize(interactivePageSize));
+    bulkQueryUrl = interactivePageSize < PageSize.MAXIMUM_SIZE ? getQueryUrl(new PageSize(PageSize.MAXIMUM_SIZE)) : null;
+  }
+
+  /**
+   * Retrieves the entries of every page of the query results. If the URL of the last page 
+   * contains a numeric "page" parameter, the URLs of the pages in between are derived from 
+   * it and the pages are fetched concurrently. Otherwise, there's no safe way to guess the 
+   * URLs, so the next page links are followed one page at a time. 
+   * 
+   * Note that this doesn't move the current page of the navigator.
+   * 
+   * @param parallelism the maximum number of pages to request at once
+   * @return a list of entries from every page, in page order
+   * @throws IOException if the data can't be retrieved from the GitHub API
+   */
+  public List<T> getAllPages(int parallelism) throws IOException {
+    return getAllPages(parallelism, null);
+  }
+
+  /**
+   * Retrieves the entries of every page of the query results like getAllPages(int), but 
+   * also hands each page to the given consumer as soon as it and every page before it
+   * have arrived. This lets callers show the first page without waiting for the rest.
+   * The consumer is called on the calling thread.
+   * 
+   * @param parallelism the maximum number of pages to request at once
+   * @param pageConsumer the consumer of the entries of each page, in page order, or null
+   * @return a list of entries from every page, in page order
+   * @throws IOException if the data can't be retrieved from the GitHub API
+   */
+  public List<T> getAllPages(int parallelism, Consumer<List<T>> pageConsumer) throws IOException {
+    return getAllPages(parallelism, pageConsumer, RequestPriority.INTERACTIVE);
+  }
+
+  /**
+   * Retrieves the entries of every page of the query results like getAllPages(int, Consumer),
+   * but sends the requests with the given priority. Nobody is waiting on a prefetch, for
+   * instance, so its requests shouldn't hold up the ones the user is waiting on.
+   * 
+   * @param parallelism the maximum number of pages to request at once
+   * @param pageConsumer the consumer of the entries of each page, in page order, or null
+   * @param priority how urgently the pages are needed
+   * @return a list of entries from every page, in page order
+   * @throws IOException if the data can't be retrieved from the GitHub API
+   */
+  public List<T> getAllPages(int parallelism, Consumer<List<T>> pageConsumer, RequestPriority priority) 
+          throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
     
-    String firstPageUrl = getPageUrl(FIRST_PAGE_PATTERN, headerFields);
-    String previousPageUrl = getPageUrl(PREVIOUS_PAGE_PATTERN, headerFields);
-    String nextPageUrl = getPageUrl(NEXT_PAGE_PATTERN, headerFields);
-    String lastPageUrl = getPageUrl(LAST_PAGE_PATTERN, headerFields);
-    List<T> items = mapper.map(UrlConnectionHandler.getUrlText(connection));
+    if (bulkQueryUrl != null) {
+      return getAllPagesAdaptively(parallelism, pageConsumer, priority);
+    }
+    
+    GitHubPage<T> firstPage = getPage(1, queryUrl, priority);
+    int lastPageId = getPageNumber(firstPage.getLastPageUrl());
+    
+    // Cursor-based pages (i.e. from the GraphQL API) link to the next page but not the last
+    if (firstPage.getNextPageUrl() != null && (firstPage.getLastPageUrl() == null || lastPageId == UNKNOWN_PAGE_NUMBER)) {
+      logger.log(Level.FINE, "Unable to derive the page URLs from {0}, following the links instead", firstPage.getLastPageUrl());
+      return getAllPagesSequentially(firstPage, pageConsumer, priority);
+    }
+    
+    List<T> entries = new ArrayList<>();
+    addEntries(entries, firstPage, pageConsumer);
+    loadPagesConcurrently(firstPage.getLastPageUrl(), lastPageId, parallelism, entries, pageConsumer, priority);
+    return entries;
+  }
 
-    return new GitHubPage(id, firstPageUrl, previousPageUrl, nextPageUrl, lastPageUrl, items);
+  /**
+   * Hands the entries of every page to the given consumer in page order without keeping
+   * them. Unlike getAllPages, the pages aren't cached and the entries aren't collected, so
+   * the memory this takes doesn't grow with the number of pages: no more than the given
+   * number of pages are held at once. If the URL of the last page contains a numeric 
+   * "page" parameter, the pages ahead of the one being consumed are requested concurrently.
+   * Otherwise, the next page links are followed one page at a time. The consumer is called 
+   * on the calling thread.
+   * 
+   * Note that this doesn't move the current page of the navigator.
+   * 
+   * @param parallelism the maximum number of pages to request (and hold) at once
+   * @param pageConsumer the consumer of each page of entries
+   * @return the number of entries
+   * @throws IOException if the data can't be retrieved from the GitHub API
+   */
+  public long forEachPage(int parallelism, Consumer<List<T>> pageConsumer) throws IOException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+    
+    GitHubPage<T> page = loadPage(1, queryUrl, RequestPriority.INTERACTIVE);
+    pageConsumer.accept(page.getEntries());
+    long entryCount = page.getEntries().size();
+    
+    int lastPageId = getPageNumber(page.getLastPageUrl());
+    if (page.getLastPageUrl() != null && lastPageId != UNKNOWN_PAGE_NUMBER && parallelism > 1) {
+      return entryCount + streamPagesConcurrently(page.getLastPageUrl(), lastPageId, parallelism, pageConsumer);
+    }
+    
+    while (page.getNextPageUrl() != null) {
+      page = loadPage(page.getId() + 1, page.getNextPageUrl(), RequestPriority.INTERACTIVE);
+      pageConsumer.accept(page.getEntries());
+      entryCount += page.getEntries().size();
+    }
+    return entryCount;
+  }
+
+  /**
+   * Cancels any prefetches that are still in progress and stops the background thread. 
+   * This should be called once the navigator is no longer needed. The pages that have 
+   * already been cached are still available afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    prefetchDepth = 0;
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdownNow();
+      prefetchExecutor = null;
+    }
+    for (Future<GitHubPage<T>> pendingPage : pendingPages.values()) {
+      pendingPage.cancel(true);
+    }
+    pendingPages.clear();
+    if (bulkNavigator != null) {
+      bulkNavigator.close();
+    }
+  }
+  
+  private GitHubPage<T> getPage(int id, String url, RequestPriority priority) throws IOException {
+    GitHubPage<T> page = cache.get(id);
+    if (page != null) {
+      cacheHitCounter.increment();
+      return page;
+    }
+    cacheMissCounter.increment();
+
+    // Waits for the page if it's already being prefetched rather than requesting it twice.
+    // A prefetch is sent at background priority, which the scheduler may hold back until
+    // the rate limit resets, so the user only waits briefly for it before the prefetch is
+    // cancelled and the page is requested at the caller's priority instead.
+    Future<GitHubPage<T>> pendingPage = pendingPages.get(id);
+    if (pendingPage != null) {
+      try {
+        if (priority == RequestPriority.INTERACTIVE) {
+          return pendingPage.get(PREFETCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return pendingPage.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for page " + id, ex);
+      } catch (TimeoutException ex) {
+        logger.log(Level.FINE, "Page {0} is still being prefetched, requesting it directly", id);
+        pendingPage.cancel(true);
+        pendingPages.remove(id, pendingPage);
+      } catch (ExecutionException ex) {
+        logger.log(Level.WARNING, "Failed to prefetch page " + id + ", retrying", ex.getCause());
+      } catch (CancellationException ex) {
+        logger.log(Level.FINE, "The prefetch of page {0} was cancelled, retrying", id);
+      }
+    }
+
+    page = loadPage(id, url, priority);
+    cache.put(id, page);
+    return page;
+  }
+
+  // Loads a page from the page store if possible, falling back to the GitHub API
+  private GitHubPage<T> loadPage(int id, String url, RequestPriority priority) throws IOException {
+    if (pageStore != null) {
+      try {
+        GitHubPage<T> storedPage = pageStore.load(queryUrl, id, mapper);
+        if (storedPage != null) {
+          notifyPageListeners(storedPage);
+          return storedPage;
+        }
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Failed to read page " + id + " from the page store", ex);
+      }
+    }
+
+    GitHubPage<T> page = loadPageFromApi(id, url, null, priority);
+    savePage(page);
+    notifyPageListeners(page);
+    return page;
+  }
+
+  private void notifyPageListeners(GitHubPage<T> page) {
+    for (Consumer<List<T>> pageListener : pageListeners) {
+      pageListener.accept(page.getEntries());
+    }
+  }
+
+  private void savePage(GitHubPage<T> page) {
+    if (pageStore != null) {
+      try {
+        pageStore.save(queryUrl, page, mapper);
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Failed to write page " + page.getId() + " to the page store", ex);
+      }
+    }
+  }
+
+  // Hands over the small first page right away, then loads every page at the largest size
+  private List<T> getAllPagesAdaptively(int parallelism, final Consumer<List<T>> pageConsumer, 
+          RequestPriority priority) throws IOException {
+    GitHubPage<T> firstPage = getPage(1, queryUrl, priority);
+    if (firstPage.getNextPageUrl() == null) {
+      List<T> entries = new ArrayList<>();
+      addEntries(entries, firstPage, pageConsumer);
+      return entries;
+    }
+
+    // The large first page starts with the entries the consumer has already been given
+    Consumer<List<T>> remainingPageConsumer = null;
+    if (pageConsumer != null) {
+      pageConsumer.accept(firstPage.getEntries());
+      final int consumedEntries = firstPage.getEntries().size();
+      remainingPageConsumer = new Consumer<List<T>>() {
+        private int skippedEntries = 0;
+
+        @Override
+        public void accept(List<T> entries) {
+          int skip = Math.min(consumedEntries - skippedEntries, entries.size());
+          skippedEntries += skip;
+          if (skip < entries.size()) {
+            pageConsumer.accept(entries.subList(skip, entries.size()));
+          }
+        }
+      };
+    }
+
+    return getBulkNavigator().getAllPages(parallelism, remainingPageConsumer, priority);
+  }
+
+  // The large pages are kept in a navigator of their own since their ids don't line up with the small pages
+  private synchronized GitHubPageNavigator<T> getBulkNavigator() {
+    if (bulkNavigator == null) {
+      bulkNavigator = new GitHubPageNavigator<>(bulkQueryUrl, transport, mapper, pageStore, 
+              new LruCache<Integer, GitHubPage<T>>(DEFAULT_CACHE_SIZE));
+      bulkNavigator.addPageListener(new Consumer<List<T>>() {
+        @Override
+        public void accept(List<T> entries) {
+          for (Consumer<List<T>> pageListener : pageListeners) {
+            pageListener.accept(entries);
+          }
+        }
+      });
+    }
+    return bulkNavigator;
+  }
+
+  private synchronized GitHubPage<T> getCurrentPage() {
+    return currentPage;
   }
 
-  private String getPageUrl(Pattern pattern, Map<String, List<String>> headerFields) {
-    // HTTP header must contain the "Link" as an attribute
-    if (!headerFields.containsKey("Link")) {
-      return null;
+  // Moves to the given page and prefetches the pages after it
+  private synchronized void setCurrentPage(GitHubPage<T> page) {
+    currentPage = page;
+    prefetch(page, prefetchDepth);
+  }
+
+  // Only replaces the current page if nobody has moved to another page since it was read
+  private synchronized void replaceCurrentPage(GitHubPage<T> page, GitHubPage<T> refreshedPage) {
+    if (currentPage == page) {
+      currentPage = refreshedPage;
+    }
+  }
+
+  private void checkNotInitialized() {
+    if (currentPage != null || bulkNavigator != null) {
+      throw new IllegalStateException("The page size can't be changed once pages have been loaded");
+    }
+  }
+
+  // Replaces the page size in the query URL if it's already there
+  private String getQueryUrl(PageSize pageSize) {
+    Matcher matcher = PAGE_SIZE_PATTERN.matcher(baseQueryUrl);
+    if (matcher.find()) {
+      return matcher.replaceFirst("$1" + pageSize.getParameterValue());
+    }
+
+    String separator = baseQueryUrl.endsWith("?") || baseQueryUrl.endsWith("&") ? "" : baseQueryUrl.contains("?") ? "&" : "?";
+    return baseQueryUrl + separator + pageSize.getParameterName() + "=" + pageSize.getParameterValue();
+  }
+
+  private List<T> getAllPagesSequentially(GitHubPage<T> firstPage, Consumer<List<T>> pageConsumer, 
+          RequestPriority priority) throws IOException {
+    List<T> entries = new ArrayList<>();
+    addEntries(entries, firstPage, pageConsumer);
+    GitHubPage<T> page = firstPage;
+    while (page.getNextPageUrl() != null) {
+      page = getPage(page.getId() + 1, page.getNextPageUrl(), priority);
+      addEntries(entries, page, pageConsumer);
+    }
+    return entries;
+  }
+
+  private void addEntries(List<T> entries, GitHubPage<T> page, Consumer<List<T>> pageConsumer) {
+    entries.addAll(page.getEntries());
+    if (pageConsumer != null) {
+      pageConsumer.accept(page.getEntries());
+    }
+  }
+
+  // Fetches pages 2 to the last page in parallel using URLs derived from the last page URL
+  private void loadPagesConcurrently(String lastPageUrl, int lastPageId, int parallelism, final List<T> entries, 
+          final Consumer<List<T>> pageConsumer, RequestPriority priority) throws IOException {
+    try {
+      loadPagesInOrder(lastPageUrl, lastPageId, parallelism, true, priority, new Consumer<GitHubPage<T>>() {
+        @Override
+        public void accept(GitHubPage<T> page) {
+          addEntries(entries, page, pageConsumer);
+        }
+      });
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading every page", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException("Failed to load every page", ex.getCause());
+    }
+  }
+
+  // Like loadPagesConcurrently, but the pages bypass the cache and aren't collected
+  private long streamPagesConcurrently(String lastPageUrl, int lastPageId, int parallelism, 
+          final Consumer<List<T>> pageConsumer) throws IOException {
+    final long[] entryCount = new long[1];
+    try {
+      loadPagesInOrder(lastPageUrl, lastPageId, parallelism, false, RequestPriority.INTERACTIVE, 
+              new Consumer<GitHubPage<T>>() {
+        @Override
+        public void accept(GitHubPage<T> page) {
+          pageConsumer.accept(page.getEntries());
+          entryCount[0] += page.getEntries().size();
+        }
+      });
+      return entryCount[0];
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while streaming every page", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException("Failed to stream every page", ex.getCause());
+    }
+  }
+
+  // Keeps a window of up to parallelism requests in flight on the shared executor ahead of the 
+  // page that's being consumed, so the pages are handed over in order and few are held at once
+  private void loadPagesInOrder(String lastPageUrl, int lastPageId, int parallelism, final boolean cached, 
+          final RequestPriority priority, Consumer<GitHubPage<T>> consumer) 
+          throws InterruptedException, ExecutionException {
+    Deque<Future<GitHubPage<T>>> window = new ArrayDeque<>();
+    try {
+      int nextId = 2;
+      while (nextId <= lastPageId || !window.isEmpty()) {
+        for (; nextId <= lastPageId && window.size() < parallelism; nextId++) {
+          final int pageId = nextId;
+          final String pageUrl = getPageUrl(lastPageUrl, pageId);
+          window.add(bulkExecutor.submit(new Callable<GitHubPage<T>>() {
+            @Override
+            public GitHubPage<T> call() throws IOException {
+              return cached ? getPage(pageId, pageUrl, priority) : loadPage(pageId, pageUrl, priority);
+            }
+          }));
+        }
+        consumer.accept(window.poll().get());
+      }
+    } finally {
+      // The pages still in flight are only left over if a page failed (or the caller was interrupted)
+      for (Future<GitHubPage<T>> future : window) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  // Loads the pages after the given page in the background until the depth is exhausted
+  private synchronized void prefetch(GitHubPage<T> page, final int remainingDepth) {
+    if (remainingDepth <= 0 || prefetchExecutor == null || page.getNextPageUrl() == null) {
+      return;
+    }
+
+    final int nextId = page.getId() + 1;
+    final String nextUrl = page.getNextPageUrl();
+
+    GitHubPage<T> nextPage = cache.get(nextId);
+    if (nextPage != null) {
+      prefetch(nextPage, remainingDepth - 1);
+      return;
+    }
+
+    FutureTask<GitHubPage<T>> task = new FutureTask<>(new Callable<GitHubPage<T>>() {
+      @Override
+      public GitHubPage<T> call() throws IOException {
+        try {
+          logger.log(Level.FINE, "Prefetching page {0}...", nextId);
+          GitHubPage<T> loadedPage = loadPage(nextId, nextUrl, RequestPriority.BACKGROUND);
+          cache.put(nextId, loadedPage);
+          prefetch(loadedPage, remainingDepth - 1);
+          return loadedPage;
+        } finally {
+          pendingPages.remove(nextId);
+        }
+      }
+    });
+
+    if (pendingPages.putIfAbsent(nextId, task) == null) {
+      try {
+        prefetchExecutor.execute(task);
+      } catch (RejectedExecutionException ex) {
+        pendingPages.remove(nextId);
+      }
+    }
+  }
+
+  // Sends a conditional request if a previous version of the page is given and reuses it if unchanged
+  private GitHubPage<T> loadPageFromApi(int id, String url, GitHubPage<T> previousVersion, 
+          RequestPriority priority) throws IOException {
+    Map<String, String> requestHeaders = new HashMap<>();
+    if (previousVersion != null) {
+      // A 304 reply to these doesn't count against the rate limit
+      if (previousVersion.getEntityTag() != null) {
+        requestHeaders.put("If-None-Match", previousVersion.getEntityTag());
+      }
+      if (previousVersion.getLastModified() != null) {
+        requestHeaders.put("If-Modified-Since", previousVersion.getLastModified());
+      }
     }
     
-    // Ensure that there are other navigation pages
-    String navigationLink = headerFields.get("Link").get(0);
-    if (navigationLink == null) {
-      return null;
+    try (HttpResponse response = transport.get(url, requestHeaders, priority)) {
+      if (previousVersion != null && response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        logger.log(Level.FINE, "Page {0} hasn't changed", id);
+        return previousVersion;
+      }
+      
+      if (!response.isSuccessful()) {
+        throw new IOException(String.format("Failed to retrieve %s (HTTP %d)", url, response.getStatusCode()));
+      }
+      
+      ResponseHeaders headers = new ResponseHeaders(response);
+      
+      // Parses the body straight from the connection rather than reading it into a string first
+      List<T> items = mapper.map(response.getBody());
+      
+      return new GitHubPage<>(id, url, headers.getFirstPageUrl(), headers.getPreviousPageUrl(), 
+              headers.getNextPageUrl(), headers.getLastPageUrl(), items, headers.getEntityTag(), 
+              headers.getLastModified());
+    }
+  }
+
+  private int getPageNumber(String url) {
+    if (url == null) {
+      return 1;
     }
     
-    // Pulls the link from the data
-    Matcher matcher = pattern.matcher(navigationLink);
+    Matcher matcher = PAGE_NUMBER_PATTERN.matcher(url);
     if (!matcher.find()) {
-      return null;
+      return UNKNOWN_PAGE_NUMBER;
     }
     
-    return matcher.group(1);
+    try {
+      return Integer.parseInt(matcher.group(2));
+    } catch (NumberFormatException ex) {
+      return UNKNOWN_PAGE_NUMBER;
+    }
+  }
+
+  private String getPageUrl(String templateUrl, int pageId) {
+    Matcher matcher = PAGE_NUMBER_PATTERN.matcher(templateUrl);
+    return matcher.replaceFirst("$1" + pageId);
   }
 
 }
\ No newline at end of file
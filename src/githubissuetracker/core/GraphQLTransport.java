@@ -0,0 +1,429 @@
+package githubissuetracker.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import githubissuetracker.util.Cache;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.RequestPriority;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The GraphQLTransport class answers the REST requests for issues and comments with the
+ * GraphQL API instead, so the navigators, mappers and page store work with either API.
+ * Every other request is passed on to the underlying transport unchanged.
+ *
+ * The point of it is the number of round trips. The REST API needs one request for a page
+ * of issues and at least one more for the comments of every issue that's opened. Here, a
+ * page of issues comes with the first comments of every issue on it (and their authors)
+ * in a single request. These comments are kept for a while, and the first page of the
+ * comments of an issue is answered with them without contacting GitHub at all. If the
+ * thread is longer, the next page continues from the last of them. The queries only
+ * ask for the fields that Issue, Comment and User hold, and they rename them with aliases
+ * so that the result already has the shape the mappers expect.
+ *
+ * The pages are linked by cursors rather than numbers, so the Link headers of the
+ * translated responses carry "after" and "before" cursors and have no "last" link (the
+ * navigators follow the links one page at a time). GraphQL responses have no validators,
+ * so every page gets an ETag computed from its content. A revalidation still queries
+ * GitHub, but an unchanged page is answered with 304 Not Modified and isn't parsed again.
+ *
+ * Note that, unlike the REST API, the GraphQL API doesn't list pull requests as issues.
+ *
+ * @author justinsvegliato
+ */
+public class GraphQLTransport implements HttpTransport {
+
+  /**
+   * The URL of GitHub's GraphQL API.
+   */
+  public static final String DEFAULT_ENDPOINT = "https://api.github.com/graphql";
+
+  private static final Logger logger = Logger.getLogger(GraphQLTransport.class.getName());
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+  private static final Pattern ISSUES_URL_PATTERN = Pattern.compile("^(.*/repos/([^/?]+)/([^/?]+)/issues)(?:/(\\d+)/comments)?/?(?:\\?(.*))?$");
+  private static final int DEFAULT_EMBEDDED_COMMENT_COUNT = 20;
+  private static final int DEFAULT_PAGE_SIZE = 30;
+  private static final long STASH_MAXIMUM_BYTES = 16L * 1024 * 1024;
+  private static final long STASH_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final String COMMENTS_URL_TEMPLATE = "%s/%d/comments";
+  private static final String LINK_TEMPLATE = "<%s>; rel=\"%s\"";
+
+  // Only the fields the models hold, under the names the mappers expect
+  private static final String USER_FIELDS = "login ... on User { id: databaseId }";
+  private static final String COMMENT_FIELDS = "id: databaseId body created_at: createdAt user: author { " + USER_FIELDS + " }";
+  private static final String ISSUE_FIELDS = "id: databaseId number title body state created_at: createdAt "
+          + "updated_at: updatedAt user: author { " + USER_FIELDS + " } "
+          + "comments(first: $commentCount) { totalCount pageInfo { hasNextPage endCursor } nodes { " 
+          + COMMENT_FIELDS + " } }";
+  private static final String PAGE_INFO_FIELDS = "pageInfo { hasNextPage hasPreviousPage startCursor endCursor }";
+  private static final String ISSUES_QUERY = "query($owner: String!, $name: String!, $first: Int, $after: String, "
+          + "$last: Int, $before: String, $states: [IssueState!], $orderBy: IssueOrder, $since: DateTime, "
+          + "$commentCount: Int!) { repository(owner: $owner, name: $name) { issues(first: $first, after: $after, "
+          + "last: $last, before: $before, states: $states, orderBy: $orderBy, filterBy: {since: $since}) { "
+          + PAGE_INFO_FIELDS + " nodes { " + ISSUE_FIELDS + " } } } }";
+  private static final String COMMENTS_QUERY = "query($owner: String!, $name: String!, $number: Int!, $first: Int, "
+          + "$after: String, $last: Int, $before: String) { repository(owner: $owner, name: $name) { "
+          + "issue(number: $number) { comments(first: $first, after: $after, last: $last, before: $before) { "
+          + PAGE_INFO_FIELDS + " nodes { " + COMMENT_FIELDS + " } } } } }";
+
+  private final HttpTransport transport;
+  private final String endpoint;
+  private final int embeddedCommentCount;
+
+  // The first comments that came with the issues, by their comments URL
+  private final Cache<String, StashedComments> commentStash = new LruCache<>(STASH_MAXIMUM_BYTES, 
+          STASH_TIME_TO_LIVE_MILLIS, new LruCache.Weigher<StashedComments>() {
+            @Override
+            public long weigh(StashedComments comments) {
+              return comments.data.length;
+            }
+          });
+
+  /**
+   * Creates a new GraphQLTransport that sends its queries to GitHub's GraphQL API and
+   * retrieves the first 20 comments of every issue along with it.
+   *
+   * @param transport the transport that sends the (authenticated) queries
+   */
+  public GraphQLTransport(HttpTransport transport) {
+    this(transport, DEFAULT_ENDPOINT, DEFAULT_EMBEDDED_COMMENT_COUNT);
+  }
+
+  /**
+   * Creates a new GraphQLTransport.
+   *
+   * @param transport the transport that sends the (authenticated) queries
+   * @param endpoint the URL of the GraphQL API
+   * @param embeddedCommentCount the number of comments retrieved with every issue, from 0 to 100
+   */
+  public GraphQLTransport(HttpTransport transport, String endpoint, int embeddedCommentCount) {
+    if (embeddedCommentCount < 0 || embeddedCommentCount > 100) {
+      throw new IllegalArgumentException("The number of embedded comments must be between 0 and 100");
+    }
+    this.transport = transport;
+    this.endpoint = endpoint;
+    this.embeddedCommentCount = embeddedCommentCount;
+  }
+
+  @Override
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+          throws IOException {
+    Matcher matcher = ISSUES_URL_PATTERN.matcher(url);
+    if (!matcher.matches()) {
+      return transport.get(url, requestHeaders, priority);
+    }
+
+    String issuesUrl = matcher.group(1);
+    String owner = decode(matcher.group(2));
+    String name = decode(matcher.group(3));
+    Map<String, String> parameters = parseParameters(matcher.group(5));
+
+    if (matcher.group(4) == null) {
+      return getIssues(url, issuesUrl, owner, name, parameters, requestHeaders, priority);
+    }
+
+    // The first page can be answered with the comments that came with the issue, unless 
+    // it's being revalidated (which means those comments have been seen already)
+    String commentsUrl = String.format(COMMENTS_URL_TEMPLATE, issuesUrl, Integer.parseInt(matcher.group(4)));
+    if (requestHeaders.containsKey("If-None-Match")) {
+      commentStash.remove(commentsUrl);
+    } else if (!parameters.containsKey("after") && !parameters.containsKey("before")) {
+      StashedComments comments = commentStash.get(commentsUrl);
+      if (comments != null) {
+        logger.log(Level.FINE, "Answered {0} with the comments that came with the issue", url);
+        Map<String, List<String>> links = comments.endCursor == null ? Collections.<String, List<String>>emptyMap()
+                : getLinks(withCursor(url, "after", comments.endCursor), "next");
+        return answer(comments.data, links, requestHeaders);
+      }
+    }
+    return getComments(url, owner, name, Integer.parseInt(matcher.group(4)), parameters, requestHeaders, priority);
+  }
+
+  @Override
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    return transport.post(url, requestHeaders, body, priority);
+  }
+
+  private HttpResponse getIssues(String url, String issuesUrl, String owner, String name, Map<String, String> parameters,
+          Map<String, String> requestHeaders, RequestPriority priority) throws IOException {
+    ObjectNode variables = getPageVariables(owner, name, parameters);
+    variables.put("commentCount", embeddedCommentCount);
+
+    // The REST API lists open issues by default, newest first
+    String state = getParameter(parameters, "state", "open");
+    if (!state.equals("all")) {
+      variables.putArray("states").add(state.toUpperCase(Locale.ROOT));
+    }
+    ObjectNode orderBy = variables.putObject("orderBy");
+    orderBy.put("field", getOrderField(getParameter(parameters, "sort", "created")));
+    orderBy.put("direction", getParameter(parameters, "direction", "desc").toUpperCase(Locale.ROOT));
+    if (parameters.containsKey("since")) {
+      variables.put("since", parameters.get("since"));
+    }
+
+    JsonNode root = query(ISSUES_QUERY, variables, priority);
+    if (root == null) {
+      return error(url);
+    }
+    JsonNode connection = root.path("data").path("repository").path("issues");
+    if (!connection.isObject()) {
+      return error(url);
+    }
+
+    // Turns each issue into its REST shape and keeps the comments that came with it
+    ArrayNode issues = (ArrayNode) connection.path("nodes");
+    for (JsonNode node : issues) {
+      ObjectNode issue = (ObjectNode) node;
+      int number = issue.path("number").asInt();
+      String commentsUrl = String.format(COMMENTS_URL_TEMPLATE, issuesUrl, number);
+      JsonNode comments = issue.path("comments");
+      int commentCount = comments.path("totalCount").asInt();
+      JsonNode pageInfo = comments.path("pageInfo");
+      String endCursor = pageInfo.path("hasNextPage").asBoolean() ? pageInfo.path("endCursor").textValue() : null;
+      // An empty thread is kept too, so opening an issue without comments costs nothing either
+      if (embeddedCommentCount > 0 && (endCursor != null || comments.path("nodes").size() >= commentCount)) {
+        commentStash.put(commentsUrl, new StashedComments(mapper.writeValueAsBytes(comments.path("nodes")), endCursor));
+      }
+
+      issue.put("comments", commentCount);
+      issue.put("comments_url", commentsUrl);
+      issue.put("state", issue.path("state").asText().toLowerCase(Locale.ROOT));
+    }
+
+    return answer(mapper.writeValueAsBytes(issues), getLinks(url, connection.path("pageInfo"), parameters),
+            requestHeaders);
+  }
+
+  private HttpResponse getComments(String url, String owner, String name, int number, Map<String, String> parameters,
+          Map<String, String> requestHeaders, RequestPriority priority) throws IOException {
+    ObjectNode variables = getPageVariables(owner, name, parameters);
+    variables.put("number", number);
+
+    JsonNode root = query(COMMENTS_QUERY, variables, priority);
+    if (root == null) {
+      return error(url);
+    }
+    JsonNode connection = root.path("data").path("repository").path("issue").path("comments");
+    if (!connection.isObject()) {
+      return error(url);
+    }
+
+    return answer(mapper.writeValueAsBytes(connection.path("nodes")),
+            getLinks(url, connection.path("pageInfo"), parameters), requestHeaders);
+  }
+
+  // Pages forward from the "after" cursor, or backward from the "before" cursor
+  private ObjectNode getPageVariables(String owner, String name, Map<String, String> parameters) {
+    ObjectNode variables = nodeFactory.objectNode();
+    variables.put("owner", owner);
+    variables.put("name", name);
+
+    int pageSize = Integer.parseInt(getParameter(parameters, "per_page", String.valueOf(DEFAULT_PAGE_SIZE)));
+    if (parameters.containsKey("before")) {
+      variables.put("last", pageSize);
+      variables.put("before", parameters.get("before"));
+    } else {
+      variables.put("first", pageSize);
+      if (parameters.containsKey("after")) {
+        variables.put("after", parameters.get("after"));
+      }
+    }
+    return variables;
+  }
+
+  // Returns null if GitHub answered with an error, which has been logged
+  private JsonNode query(String query, ObjectNode variables, RequestPriority priority) throws IOException {
+    ObjectNode request = nodeFactory.objectNode();
+    request.put("query", query);
+    request.set("variables", variables);
+
+    Map<String, String> requestHeaders = new HashMap<>();
+    requestHeaders.put("Content-Type", "application/json");
+    try (HttpResponse response = transport.post(endpoint, requestHeaders, mapper.writeValueAsBytes(request), priority)) {
+      if (!response.isSuccessful()) {
+        logger.log(Level.WARNING, "The GraphQL API answered with HTTP {0}", response.getStatusCode());
+        return null;
+      }
+
+      JsonNode root = mapper.readTree(response.getBody());
+      if (root.has("errors")) {
+        logger.log(Level.WARNING, "The GraphQL API reported errors: {0}", root.get("errors"));
+      }
+      return root;
+    }
+  }
+
+  private Map<String, List<String>> getLinks(String url, JsonNode pageInfo, Map<String, String> parameters) {
+    // GitHub only reports the side of the page that the query paged from reliably
+    boolean hasNextPage = pageInfo.path("hasNextPage").asBoolean() || parameters.containsKey("before");
+    boolean hasPreviousPage = pageInfo.path("hasPreviousPage").asBoolean() || parameters.containsKey("after");
+
+    List<String> links = new ArrayList<>();
+    if (hasNextPage && pageInfo.hasNonNull("endCursor")) {
+      links.add(withCursor(url, "after", pageInfo.get("endCursor").asText()));
+      links.add("next");
+    }
+    if (hasPreviousPage && pageInfo.hasNonNull("startCursor")) {
+      links.add(withCursor(url, "before", pageInfo.get("startCursor").asText()));
+      links.add("prev");
+    }
+    return getLinks(links.toArray(new String[links.size()]));
+  }
+
+  // Takes pairs of URLs and their relation (i.e. "next")
+  private Map<String, List<String>> getLinks(String... urlsAndRelations) {
+    if (urlsAndRelations.length == 0) {
+      return Collections.emptyMap();
+    }
+
+    StringBuilder links = new StringBuilder();
+    for (int i = 0; i < urlsAndRelations.length; i += 2) {
+      if (i > 0) {
+        links.append(", ");
+      }
+      links.append(String.format(LINK_TEMPLATE, urlsAndRelations[i], urlsAndRelations[i + 1]));
+    }
+    return Collections.singletonMap("Link", Collections.singletonList(links.toString()));
+  }
+
+  // Answers with 304 Not Modified if the caller already has this version of the page
+  private HttpResponse answer(byte[] body, Map<String, List<String>> headers, 
+          Map<String, String> requestHeaders) {
+    Map<String, List<String>> headerFields = new HashMap<>(headers);
+    String entityTag = getEntityTag(body);
+    headerFields.put("ETag", Collections.singletonList(entityTag));
+    if (entityTag.equals(requestHeaders.get("If-None-Match"))) {
+      return new HttpResponse(HttpURLConnection.HTTP_NOT_MODIFIED, headerFields, new ByteArrayInputStream(new byte[0]));
+    }
+    return new HttpResponse(HttpURLConnection.HTTP_OK, headerFields, new ByteArrayInputStream(body));
+  }
+
+  private HttpResponse error(String url) {
+    logger.log(Level.WARNING, "The GraphQL API didn't return the data for {0}", url);
+    InputStream body = new ByteArrayInputStream(new byte[0]);
+    return new HttpResponse(HttpURLConnection.HTTP_BAD_REQUEST, Collections.<String, List<String>>emptyMap(), body);
+  }
+
+  private String getOrderField(String sort) {
+    switch (sort) {
+      case "updated":
+        return "UPDATED_AT";
+      case "comments":
+        return "COMMENTS";
+      default:
+        return "CREATED_AT";
+    }
+  }
+
+  // Replaces any cursor in the URL with the given one
+  private String withCursor(String url, String name, String cursor) {
+    int queryStart = url.indexOf('?');
+    StringBuilder builder = new StringBuilder(url.length() + cursor.length() + 16);
+    builder.append(queryStart < 0 ? url : url.substring(0, queryStart));
+
+    char separator = '?';
+    if (queryStart >= 0) {
+      for (String parameter : url.substring(queryStart + 1).split("&")) {
+        if (parameter.isEmpty() || parameter.startsWith("after=") || parameter.startsWith("before=")) {
+          continue;
+        }
+        builder.append(separator).append(parameter);
+        separator = '&';
+      }
+    }
+    return builder.append(separator).append(name).append('=').append(encode(cursor)).toString();
+  }
+
+  private Map<String, String> parseParameters(String query) {
+    Map<String, String> parameters = new LinkedHashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+
+    for (String parameter : query.split("&")) {
+      int assignment = parameter.indexOf('=');
+      if (assignment > 0) {
+        parameters.put(decode(parameter.substring(0, assignment)), decode(parameter.substring(assignment + 1)));
+      }
+    }
+    return parameters;
+  }
+
+  private String getParameter(Map<String, String> parameters, String name, String defaultValue) {
+    String value = parameters.get(name);
+    return value == null ? defaultValue : value;
+  }
+
+  private String getEntityTag(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(body);
+      StringBuilder builder = new StringBuilder("\"");
+      for (byte b : hash) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.append('"').toString();
+    } catch (NoSuchAlgorithmException ex) {
+      // Every Java platform is required to support SHA-1
+      throw new AssertionError(ex);
+    }
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException ex) {
+      // Every Java platform is required to support UTF-8
+      throw new AssertionError(ex);
+    }
+  }
+
+  private static String decode(String value) {
+    try {
+      return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  // The first comments of an issue, and the cursor to continue from if there are more
+  private static class StashedComments {
+
+    private final byte[] data;
+    private final String endCursor;
+
+    private StashedComments(byte[] data, String endCursor) {
+      this.data = data;
+      this.endCursor = endCursor;
+    }
+
+  }
+
+}
@@ -0,0 +1,227 @@
+package githubissuetracker.core;
+
+import githubissuetracker.mappers.RecordWriter;
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.IssueState;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.queryparameters.SortCriteria;
+import githubissuetracker.queryparameters.SortDirection;
+import githubissuetracker.util.DaemonThreadFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The IssueExporter class writes every issue (open and closed) of a repository and every
+ * comment on them to a RecordWriter, without a user interface. Each line is either an
+ * issue record ({"type":"issue","issue":{...}}) or a comment record
+ * ({"type":"comment","issue_number":1,"comment":{...}}). The issues are written in the
+ * order they were created, each one as soon as its page has been parsed. The comments of
+ * an issue follow it, but they're retrieved concurrently with other issues, so comment
+ * records of different issues can be interleaved.
+ *
+ * The memory an export takes doesn't grow with the size of the repository: the pages
+ * are streamed rather than cached or collected, and no more than twice the parallelism
+ * of issues wait for their comments at once (the crawl of the issues simply waits for
+ * the comments to catch up). Issues without comments don't need a request at all.
+ *
+ * @author justinsvegliato
+ */
+public class IssueExporter {
+
+  private static final Logger logger = Logger.getLogger(IssueExporter.class.getName());
+  private static final int ISSUE_PAGE_PARALLELISM = 4;
+  private static final int COMMENT_PAGE_PARALLELISM = 1;
+  private static final int PENDING_ISSUES_PER_THREAD = 2;
+  private static final String ISSUE_TYPE = "issue";
+  private static final String COMMENT_TYPE = "comment";
+
+  private final GitHubApiHandler apiHandler;
+  private final int parallelism;
+
+  /**
+   * Creates a new IssueExporter.
+   *
+   * @param apiHandler the API handler that retrieves the issues and comments
+   * @param parallelism the number of issues whose comments are retrieved at once
+   */
+  public IssueExporter(GitHubApiHandler apiHandler, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+    this.apiHandler = apiHandler;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Writes every issue of the given repository and every comment on them. The writer
+   * isn't closed. If anything fails, the export stops and the records written so far
+   * are left in the writer.
+   *
+   * @param owner the repository owner
+   * @param repository the repository name
+   * @param writer the writer to write the records to
+   * @return the number of records written
+   * @throws IOException if the issues or comments can't be retrieved or written
+   */
+  public long export(String owner, String repository, final RecordWriter writer) throws IOException {
+    final ExecutorService commentExecutor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("IssueExporter"));
+    final Semaphore pendingIssues = new Semaphore(parallelism * PENDING_ISSUES_PER_THREAD);
+    final AtomicReference<IOException> failure = new AtomicReference<>();
+    final AtomicLong recordCount = new AtomicLong();
+
+    logger.log(Level.INFO, "Exporting the issues of {0}/{1}...", new Object[] {owner, repository});
+
+    try (GitHubPageNavigator<Issue> navigator = apiHandler.getIssues(owner, repository, IssueState.ALL,
+            SortCriteria.CREATED, SortDirection.ASC)) {
+      navigator.setPageSize(PageSize.MAXIMUM_SIZE);
+      navigator.forEachPage(ISSUE_PAGE_PARALLELISM, new Consumer<List<Issue>>() {
+        @Override
+        public void accept(List<Issue> issues) {
+          for (final Issue issue : issues) {
+            throwIfFailed(failure);
+            write(writer, new IssueRecord(issue), recordCount);
+            if (issue.getComments() == 0) {
+              continue;
+            }
+
+            acquire(pendingIssues);
+            commentExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  if (failure.get() == null) {
+                    exportComments(issue, writer, recordCount);
+                  }
+                } catch (IOException | UncheckedIOException ex) {
+                  failure.compareAndSet(null, ex instanceof IOException ? (IOException) ex : ((UncheckedIOException) ex).getCause());
+                } finally {
+                  pendingIssues.release();
+                }
+              }
+            });
+          }
+        }
+      });
+
+      commentExecutor.shutdown();
+      awaitTermination(commentExecutor);
+      throwIfFailed(failure);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    } finally {
+      commentExecutor.shutdownNow();
+    }
+
+    logger.log(Level.INFO, "Exported {0} records from {1}/{2}", new Object[] {recordCount.get(), owner, repository});
+    return recordCount.get();
+  }
+
+  private void exportComments(final Issue issue, final RecordWriter writer, final AtomicLong recordCount) throws IOException {
+    try (GitHubPageNavigator<Comment> navigator = apiHandler.getComments(issue)) {
+      navigator.setPageSize(PageSize.MAXIMUM_SIZE);
+      navigator.forEachPage(COMMENT_PAGE_PARALLELISM, new Consumer<List<Comment>>() {
+        @Override
+        public void accept(List<Comment> comments) {
+          for (Comment comment : comments) {
+            write(writer, new CommentRecord(issue.getNumber(), comment), recordCount);
+          }
+        }
+      });
+    }
+  }
+
+  // The consumers can't throw checked exceptions, so failures are passed through unchecked
+  private void write(RecordWriter writer, Object record, AtomicLong recordCount) {
+    try {
+      writer.write(record);
+      recordCount.incrementAndGet();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void throwIfFailed(AtomicReference<IOException> failure) {
+    IOException ex = failure.get();
+    if (ex != null) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  private void acquire(Semaphore semaphore) {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException(new IOException("Interrupted while waiting for comments", ex));
+    }
+  }
+
+  private void awaitTermination(ExecutorService executor) throws IOException {
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.log(Level.FINE, "Waiting for the remaining comments...");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for comments", ex);
+    }
+  }
+
+  // The line written for an issue (the type is a field so that it's written first)
+  private static class IssueRecord {
+
+    private final String type = ISSUE_TYPE;
+    private final Issue issue;
+
+    private IssueRecord(Issue issue) {
+      this.issue = issue;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public Issue getIssue() {
+      return issue;
+    }
+
+  }
+
+  // The line written for a comment, which refers to its issue by number
+  private static class CommentRecord {
+
+    private final String type = COMMENT_TYPE;
+    private final int issueNumber;
+    private final Comment comment;
+
+    private CommentRecord(int issueNumber, Comment comment) {
+      this.issueNumber = issueNumber;
+      this.comment = comment;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public int getIssueNumber() {
+      return issueNumber;
+    }
+
+    public Comment getComment() {
+      return comment;
+    }
+
+  }
+
+}
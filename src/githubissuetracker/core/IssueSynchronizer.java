@@ -0,0 +1,245 @@
+package githubissuetracker.core;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.IssueState;
+import githubissuetracker.queryparameters.PageSize;
+import githubissuetracker.queryparameters.QueryParameter;
+import githubissuetracker.queryparameters.Since;
+import githubissuetracker.queryparameters.SortCriteria;
+import githubissuetracker.queryparameters.SortDirection;
+import githubissuetracker.util.HttpTransport;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The IssueSynchronizer class keeps an up-to-date copy of every issue (open and closed)
+ * of a repository. The first sync walks every page of issues. Every later sync only asks
+ * for the issues updated since the previous one (using the "since" parameter), which is
+ * usually a single small page, and merges them into the copy by their id.
+ *
+ * The time of the last sync is taken from the issues themselves (i.e. the latest update
+ * time seen so far) rather than the local clock, so a skewed clock can't cause updates to
+ * be missed. Since "since" is inclusive, the latest issue is simply retrieved again.
+ *
+ * The descriptions are kept encoded until they're accessed since most of them never are.
+ *
+ * If a state file is given, the issues and the time of the last sync are saved to it
+ * after every sync, so the next run of the application can continue incrementally. 
+ * Callers that only need the changes (i.e. to update the issues they show) can skip the 
+ * first walk with startFrom.
+ *
+ * @author justinsvegliato
+ */
+public class IssueSynchronizer {
+
+  private static final Logger logger = Logger.getLogger(IssueSynchronizer.class.getName());
+  private static final int FORMAT_VERSION = 1;
+  private static final int PAGE_PARALLELISM = 4;
+  private static final long NEVER_SYNCED = -1;
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  private final GitHubApiHandler apiHandler;
+  private final String owner;
+  private final String repository;
+  private final File stateFile;
+  private final IssueMapper mapper = new IssueMapper(true);
+
+  // The issues by their id, guarded by this
+  private final Map<Integer, Issue> issues = new LinkedHashMap<>();
+  private long lastSyncTime = NEVER_SYNCED;
+
+  /**
+   * Creates a new IssueSynchronizer. Nothing is retrieved until sync is called.
+   *
+   * @param transport the transport that sends the (authenticated) requests
+   * @param owner the repository owner
+   * @param repository the repository name
+   * @param stateFile the file that the issues are saved to between runs, or null to keep
+   *     them in memory only
+   */
+  public IssueSynchronizer(HttpTransport transport, String owner, String repository, File stateFile) {
+    // The pages of a sync are never revisited, so they aren't written to a page store
+    this.apiHandler = new GitHubApiHandler(transport, null);
+    this.apiHandler.setLazyBodies(true);
+    this.owner = owner;
+    this.repository = repository;
+    this.stateFile = stateFile;
+
+    if (stateFile != null) {
+      try {
+        loadState();
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Failed to read the sync state from " + stateFile + ", starting over", ex);
+        issues.clear();
+        lastSyncTime = NEVER_SYNCED;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the issues that have been updated since the last sync (or every issue if
+   * there hasn't been one) and merges them into the issues retrieved before.
+   *
+   * @return the issues that were added or updated by this sync (i.e. not the latest issue
+   *     of the previous sync, which is retrieved again)
+   * @throws IOException if the issues can't be retrieved from the GitHub API
+   */
+  public synchronized List<Issue> sync() throws IOException {
+    List<QueryParameter> parameters = new ArrayList<>();
+    Collections.addAll(parameters, IssueState.ALL, SortCriteria.UPDATED, SortDirection.DESC);
+    if (lastSyncTime != NEVER_SYNCED) {
+      parameters.add(new Since(new Date(lastSyncTime)));
+    }
+
+    logger.log(Level.INFO, "Syncing the issues of {0}/{1} updated since {2}...",
+            new Object[] {owner, repository, lastSyncTime == NEVER_SYNCED ? "the beginning" : new Date(lastSyncTime)});
+
+    List<Issue> updatedIssues;
+    try (GitHubPageNavigator<Issue> navigator = apiHandler.getIssues(owner, repository,
+            parameters.toArray(new QueryParameter[parameters.size()]))) {
+      navigator.setPageSize(PageSize.MAXIMUM_SIZE);
+      updatedIssues = navigator.getAllPages(PAGE_PARALLELISM);
+    }
+
+    List<Issue> changedIssues = new ArrayList<>();
+    for (Issue issue : updatedIssues) {
+      // A stale copy is replaced, but a newer one is never replaced by an older one
+      Issue existingIssue = issues.get(issue.getId());
+      if (existingIssue == null || getUpdateTime(existingIssue) <= getUpdateTime(issue)) {
+        issues.put(issue.getId(), issue);
+        if (existingIssue == null || getUpdateTime(existingIssue) < getUpdateTime(issue)) {
+          changedIssues.add(issue);
+        }
+      }
+      lastSyncTime = Math.max(lastSyncTime, getUpdateTime(issue));
+    }
+
+    logger.log(Level.INFO, "Synced {0} updated issues ({1} in total)", new Object[] {changedIssues.size(), issues.size()});
+
+    if (stateFile != null) {
+      try {
+        saveState();
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Failed to write the sync state to " + stateFile, ex);
+      }
+    }
+
+    return changedIssues;
+  }
+
+  /**
+   * Takes the given issues (i.e. the first page shown to the user) as the current copy if
+   * there hasn't been a sync yet, so that the first sync only asks for the issues updated
+   * since the newest of them rather than walking every issue. Since they're retrieved at 
+   * once, nothing that changes after them can be older than the newest of them.
+   *
+   * @param currentIssues the issues as they are now
+   */
+  public synchronized void startFrom(List<Issue> currentIssues) {
+    if (lastSyncTime != NEVER_SYNCED) {
+      return;
+    }
+
+    for (Issue issue : currentIssues) {
+      issues.put(issue.getId(), issue);
+      lastSyncTime = Math.max(lastSyncTime, getUpdateTime(issue));
+    }
+  }
+
+  /**
+   * Gets every issue retrieved so far, with the most recently updated first.
+   *
+   * @return a list of issues
+   */
+  public synchronized List<Issue> getIssues() {
+    List<Issue> sortedIssues = new ArrayList<>(issues.values());
+    Collections.sort(sortedIssues, new Comparator<Issue>() {
+      @Override
+      public int compare(Issue a, Issue b) {
+        return Long.compare(getUpdateTime(b), getUpdateTime(a));
+      }
+    });
+    return sortedIssues;
+  }
+
+  /**
+   * Gets the update time of the latest issue seen by the last sync.
+   *
+   * @return the time of the last sync, or null if there hasn't been one
+   */
+  public synchronized Date getLastSyncTime() {
+    return lastSyncTime == NEVER_SYNCED ? null : new Date(lastSyncTime);
+  }
+
+  private long getUpdateTime(Issue issue) {
+    return issue.getUpdatedAt() == null ? NEVER_SYNCED : issue.getUpdatedAt().getTime();
+  }
+
+  private void loadState() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+      // State written by an older version is simply retrieved again
+      if (in.readInt() != FORMAT_VERSION) {
+        return;
+      }
+
+      long storedSyncTime = in.readLong();
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+
+      for (Issue issue : mapper.map(new ByteArrayInputStream(data))) {
+        issues.put(issue.getId(), issue);
+      }
+      lastSyncTime = storedSyncTime;
+    } catch (FileNotFoundException ex) {
+      // There's nothing to load before the first sync
+    }
+  }
+
+  // Writes to a temporary file first so that a crash never leaves a half-written state behind.
+  // The file is unique so that instances sharing a directory don't write to the same one
+  private void saveState() throws IOException {
+    byte[] data = mapper.write(new ArrayList<>(issues.values()));
+
+    // In the same directory, so that the move is atomic
+    Path temporaryFile = Files.createTempFile(stateFile.getAbsoluteFile().getParentFile().toPath(), 
+            stateFile.getName() + "-", TEMPORARY_FILE_SUFFIX);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(lastSyncTime);
+      out.writeInt(data.length);
+      out.write(data);
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+
+    try {
+      Files.move(temporaryFile, stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+  }
+
+}
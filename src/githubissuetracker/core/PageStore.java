@@ -0,0 +1,294 @@
+package githubissuetracker.core;
+
+import githubissuetracker.mappers.GitHubMapper;
+import githubissuetracker.models.GitHubPage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The PageStore class persists pages retrieved from the GitHub API to disk so that they
+ * survive restarts of the application. Pages are keyed by the URL of the query that
+ * produced them and their id within that query.
+ *
+ * Each page is kept in its own small binary file: a header with the navigation links and
+ * the validators of the response followed by the entries as a length-prefixed block of 
+ * JSON. Files are written to a temporary file first and then moved into place, so a crash 
+ * never leaves a half-written page behind. Every save gets its own temporary file, so 
+ * several threads (or several instances of the application) can save the same page at once.
+ *
+ * The store is bounded both by its size on disk and by the age of the pages. Pages older
+ * than the maximum age are treated as missing, and once the store grows beyond its
+ * maximum size the pages written longest ago are deleted. This also cleans up pages that
+ * are never read again (i.e. those of queries that are no longer made).
+ *
+ * @author justinsvegliato
+ */
+public class PageStore {
+
+  private static final Logger logger = Logger.getLogger(PageStore.class.getName());
+
+  private static final int FORMAT_VERSION = 2;
+  private static final String PAGE_FILE_TEMPLATE = "%s-%d.page";
+  private static final String PAGE_FILE_SUFFIX = ".page";
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+  private static final long DEFAULT_MAXIMUM_BYTES = 256L * 1024 * 1024;
+  private static final long DEFAULT_MAXIMUM_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+  private static final long TEMPORARY_FILE_MAXIMUM_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final double EVICTION_TARGET = 0.9;
+
+  private final File directory;
+  private final long maximumBytes;
+  private final long maximumAgeMillis;
+
+  // An estimate of the size of the store, which is corrected whenever pages are evicted
+  private final AtomicLong storedBytes = new AtomicLong();
+
+  /**
+   * Creates a new PageStore that keeps up to 256 MB of pages for up to 30 days. The 
+   * directory is created if it doesn't exist yet.
+   *
+   * @param directory the directory that the pages are stored in
+   * @throws IOException if the directory can't be created
+   */
+  public PageStore(File directory) throws IOException {
+    this(directory, DEFAULT_MAXIMUM_BYTES, DEFAULT_MAXIMUM_AGE_MILLIS);
+  }
+
+  /**
+   * Creates a new PageStore with the given bounds. The directory is created if it doesn't 
+   * exist yet, and the pages in it that are out of bounds are deleted.
+   *
+   * @param directory the directory that the pages are stored in
+   * @param maximumBytes the size the pages may take up on disk
+   * @param maximumAgeMillis the time after which a page is retrieved again, or 0 for never
+   * @throws IOException if the directory can't be created
+   */
+  public PageStore(File directory, long maximumBytes, long maximumAgeMillis) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Failed to create the page store directory " + directory);
+    }
+    this.directory = directory;
+    this.maximumBytes = maximumBytes;
+    this.maximumAgeMillis = maximumAgeMillis;
+    evict();
+  }
+
+  /**
+   * Loads a page from disk.
+   *
+   * @param <T> the type of the page entries
+   * @param queryUrl the URL of the query that the page belongs to
+   * @param id the id of the page within the query
+   * @param mapper the mapper that converts the stored data back to objects
+   * @return the page, or null if the page hasn't been stored
+   * @throws IOException if the page exists but can't be read
+   */
+  public <T> GitHubPage<T> load(String queryUrl, int id, GitHubMapper<T> mapper) throws IOException {
+    File pageFile = getPageFile(queryUrl, id);
+    if (isExpired(pageFile, System.currentTimeMillis())) {
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pageFile)))) {
+      // Pages written by an older version are simply retrieved again
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+
+      int storedId = in.readInt();
+      String url = readNullableString(in);
+      String firstPageUrl = readNullableString(in);
+      String previousPageUrl = readNullableString(in);
+      String nextPageUrl = readNullableString(in);
+      String lastPageUrl = readNullableString(in);
+      String entityTag = readNullableString(in);
+      String lastModified = readNullableString(in);
+
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+      List<T> entries = mapper.map(new ByteArrayInputStream(data));
+
+      return new GitHubPage<>(storedId, url, firstPageUrl, previousPageUrl, nextPageUrl, lastPageUrl, entries, 
+              entityTag, lastModified);
+    } catch (FileNotFoundException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Saves a page to disk, replacing any previously stored version of it.
+   *
+   * @param <T> the type of the page entries
+   * @param queryUrl the URL of the query that the page belongs to
+   * @param page the page to store
+   * @param mapper the mapper that converts the entries to data
+   * @throws IOException if the page can't be written
+   */
+  public <T> void save(String queryUrl, GitHubPage<T> page, GitHubMapper<T> mapper) throws IOException {
+    File pageFile = getPageFile(queryUrl, page.getId());
+    byte[] data = mapper.write(page.getEntries());
+
+    // A unique temporary file in the same directory, so that the move is atomic
+    Path temporaryFile = Files.createTempFile(directory.toPath(), pageFile.getName() + "-", TEMPORARY_FILE_SUFFIX);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(page.getId());
+      writeNullableString(out, page.getUrl());
+      writeNullableString(out, page.getFirstPageUrl());
+      writeNullableString(out, page.getPreviousPageUrl());
+      writeNullableString(out, page.getNextPageUrl());
+      writeNullableString(out, page.getLastPageUrl());
+      writeNullableString(out, page.getEntityTag());
+      writeNullableString(out, page.getLastModified());
+      out.writeInt(data.length);
+      out.write(data);
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+
+    long replacedBytes = pageFile.length();
+    long writtenBytes = Files.size(temporaryFile);
+    try {
+      Files.move(temporaryFile, pageFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      Files.deleteIfExists(temporaryFile);
+      throw ex;
+    }
+
+    if (storedBytes.addAndGet(writtenBytes - replacedBytes) > maximumBytes) {
+      evict();
+    }
+  }
+
+  /**
+   * Gets the estimated size of the stored pages.
+   *
+   * @return the size in bytes
+   */
+  public long getStoredBytes() {
+    return storedBytes.get();
+  }
+
+  /**
+   * Deletes the pages that are older than the maximum age, then the pages written longest 
+   * ago until the store is comfortably within its maximum size. Temporary files left 
+   * behind by a crash are deleted as well.
+   */
+  public synchronized void evict() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    List<File> pageFiles = new ArrayList<>();
+    long totalBytes = 0;
+    int deletedCount = 0;
+    for (File file : files) {
+      String name = file.getName();
+      if (name.endsWith(TEMPORARY_FILE_SUFFIX)) {
+        if (now - file.lastModified() > TEMPORARY_FILE_MAXIMUM_AGE_MILLIS && file.delete()) {
+          deletedCount++;
+        }
+      } else if (name.endsWith(PAGE_FILE_SUFFIX)) {
+        if (isExpired(file, now) && file.delete()) {
+          deletedCount++;
+        } else {
+          pageFiles.add(file);
+          totalBytes += file.length();
+        }
+      }
+    }
+
+    if (totalBytes > maximumBytes) {
+      // The modification times are read once, since they can change while sorting
+      final Map<File, Long> modificationTimes = new HashMap<>();
+      for (File file : pageFiles) {
+        modificationTimes.put(file, file.lastModified());
+      }
+      Collections.sort(pageFiles, new Comparator<File>() {
+        @Override
+        public int compare(File first, File second) {
+          return Long.compare(modificationTimes.get(first), modificationTimes.get(second));
+        }
+      });
+
+      long targetBytes = (long) (maximumBytes * EVICTION_TARGET);
+      for (File file : pageFiles) {
+        if (totalBytes <= targetBytes) {
+          break;
+        }
+        long length = file.length();
+        if (file.delete()) {
+          totalBytes -= length;
+          deletedCount++;
+        }
+      }
+    }
+
+    storedBytes.set(totalBytes);
+    if (deletedCount > 0) {
+      logger.log(Level.FINE, "Evicted {0} files from the page store, {1} bytes remain", 
+              new Object[] {deletedCount, totalBytes});
+    }
+  }
+
+  private boolean isExpired(File pageFile, long now) {
+    return maximumAgeMillis > 0 && now - pageFile.lastModified() > maximumAgeMillis;
+  }
+
+  // Hashes the URL since it can contain characters that aren't allowed in file names
+  private File getPageFile(String queryUrl, int id) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      byte[] hash = digest.digest(queryUrl.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder builder = new StringBuilder();
+      for (byte b : hash) {
+        builder.append(String.format("%02x", b));
+      }
+
+      return new File(directory, String.format(PAGE_FILE_TEMPLATE, builder, id));
+    } catch (NoSuchAlgorithmException ex) {
+      // Every Java platform is required to support SHA-1
+      throw new AssertionError(ex);
+    }
+  }
+
+  private String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private void writeNullableString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+}
@@ -0,0 +1,201 @@
+package githubissuetracker.core;
+
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.QueryParameter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The RepositoryRegistry class keeps track of the repositories whose issues are shown. Every
+ * repository gets its own issue navigator, but they all retrieve their pages through the
+ * same GitHubApiHandler, so they share one fetch engine: the transport (and with it the
+ * connection pool, the RequestScheduler and its rate limit budget) and the PageStore. The
+ * scheduler lets the repositories take turns, so tracking a huge repository doesn't slow
+ * down the others.
+ *
+ * Every repository also gets an IssueSynchronizer, so that the issues updated since the
+ * last look can be retrieved with a single small request (see sync). It starts from the
+ * first page its navigator loads rather than walking every issue.
+ *
+ * Repositories are identified by their full name (i.e. "owner/name"), which GitHub
+ * doesn't tell apart by case.
+ *
+ * @author justinsvegliato
+ */
+public class RepositoryRegistry implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(RepositoryRegistry.class.getName());
+  private static final String NAME_SEPARATOR = "/";
+
+  private final GitHubApiHandler apiHandler;
+  private final QueryParameter[] parameters;
+  private final int prefetchDepth;
+
+  // Guarded by this, in the order the repositories were added
+  private final Map<String, GitHubPageNavigator<Issue>> navigators = new LinkedHashMap<>();
+  private final Map<String, String> fullNames = new LinkedHashMap<>();
+  private final Map<String, IssueSynchronizer> synchronizers = new HashMap<>();
+
+  /**
+   * Creates a new RepositoryRegistry.
+   *
+   * @param apiHandler the API handler that every repository retrieves its issues through
+   * @param prefetchDepth the number of pages each navigator prefetches, or 0 for none
+   * @param parameters the query parameters of every issue query (i.e. the sort order)
+   */
+  public RepositoryRegistry(GitHubApiHandler apiHandler, int prefetchDepth, QueryParameter... parameters) {
+    this.apiHandler = apiHandler;
+    this.prefetchDepth = prefetchDepth;
+    this.parameters = parameters.clone();
+  }
+
+  /**
+   * Starts tracking the given repository. Adding a repository that's already tracked
+   * returns its navigator.
+   *
+   * @param fullName the full name of the repository (i.e. "owner/name")
+   * @return the navigator over the issues of the repository
+   * @throws IllegalArgumentException if the name isn't of the form "owner/name"
+   */
+  public synchronized GitHubPageNavigator<Issue> add(String fullName) {
+    String[] parts = fullName.trim().split(NAME_SEPARATOR, -1);
+    if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+      throw new IllegalArgumentException("Not a repository name of the form owner/name: " + fullName);
+    }
+
+    String key = getKey(fullName);
+    GitHubPageNavigator<Issue> navigator = navigators.get(key);
+    if (navigator == null) {
+      logger.log(Level.CONFIG, "Tracking the repository {0}", fullName.trim());
+      navigator = apiHandler.getIssues(parts[0], parts[1], parameters);
+      if (prefetchDepth > 0) {
+        navigator.enablePrefetching(prefetchDepth);
+      }
+
+      final IssueSynchronizer synchronizer = new IssueSynchronizer(apiHandler.getTransport(), parts[0], parts[1], null);
+      navigator.addPageListener(new Consumer<List<Issue>>() {
+        @Override
+        public void accept(List<Issue> issues) {
+          synchronizer.startFrom(issues);
+        }
+      });
+      navigators.put(key, navigator);
+      fullNames.put(key, parts[0] + NAME_SEPARATOR + parts[1]);
+      synchronizers.put(key, synchronizer);
+    }
+    return navigator;
+  }
+
+  /**
+   * Stops tracking the given repository and closes its navigator.
+   *
+   * @param fullName the full name of the repository
+   * @return true if the repository was tracked
+   */
+  public synchronized boolean remove(String fullName) {
+    String key = getKey(fullName);
+    GitHubPageNavigator<Issue> navigator = navigators.remove(key);
+    fullNames.remove(key);
+    synchronizers.remove(key);
+    if (navigator == null) {
+      return false;
+    }
+    navigator.close();
+    return true;
+  }
+
+  /**
+   * Gets the navigator over the issues of the given repository.
+   *
+   * @param fullName the full name of the repository
+   * @return the navigator, or null if the repository isn't tracked
+   */
+  public synchronized GitHubPageNavigator<Issue> get(String fullName) {
+    return navigators.get(getKey(fullName));
+  }
+
+  /**
+   * Retrieves the issues of the given repository that have been added or updated since 
+   * the last sync (or since its navigator loaded its first page), which usually takes a 
+   * single request. Nothing is retrieved before the navigator has loaded a page.
+   *
+   * @param fullName the full name of the repository
+   * @return the added or updated issues, which replace the issues with the same id
+   * @throws IOException if the issues can't be retrieved from the GitHub API
+   * @throws IllegalArgumentException if the repository isn't tracked
+   */
+  public List<Issue> sync(String fullName) throws IOException {
+    IssueSynchronizer synchronizer;
+    synchronized (this) {
+      synchronizer = synchronizers.get(getKey(fullName));
+    }
+    if (synchronizer == null) {
+      throw new IllegalArgumentException("Not a tracked repository: " + fullName);
+    }
+
+    if (synchronizer.getLastSyncTime() == null) {
+      return Collections.<Issue>emptyList();
+    }
+    return synchronizer.sync();
+  }
+
+  /**
+   * Gets the full names of the tracked repositories in the order they were added.
+   *
+   * @return the names of the repositories
+   */
+  public synchronized List<String> getRepositories() {
+    return new ArrayList<>(fullNames.values());
+  }
+
+  /**
+   * Gets the number of tracked repositories.
+   *
+   * @return the number of repositories
+   */
+  public synchronized int size() {
+    return navigators.size();
+  }
+
+  /**
+   * Gets the API handler that every repository retrieves its issues through.
+   *
+   * @return the shared API handler
+   */
+  public GitHubApiHandler getApiHandler() {
+    return apiHandler;
+  }
+
+  /**
+   * Closes the navigators of every repository, which stops their prefetching.
+   */
+  @Override
+  public synchronized void close() {
+    for (GitHubPageNavigator<Issue> navigator : navigators.values()) {
+      navigator.close();
+    }
+    navigators.clear();
+    fullNames.clear();
+    synchronizers.clear();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("{repositories=[%s]}", fullNames.values());
+  }
+
+  private String getKey(String fullName) {
+    return fullName.trim().toLowerCase(Locale.ROOT);
+  }
+
+}
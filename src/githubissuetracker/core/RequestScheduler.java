@@ -0,0 +1,404 @@
+package githubissuetracker.core;
+
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.MetricsRegistry;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.ResponseHeaders;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The RequestScheduler class sends every GitHub API request through a single queue that
+ * respects the rate limit. GitHub reports the remaining request budget (and when it's
+ * reset) in the X-RateLimit headers of every response, and asks clients to wait with
+ * Retry-After when they're sending too many requests. The scheduler keeps track of both
+ * and holds requests back rather than letting them fail:
+ *
+ * (1) Interactive requests (i.e. the page the user asked for) are always sent before
+ *     background requests (i.e. prefetching and refreshing).
+ * (2) Background requests stop once the remaining budget drops to a reserve, so that
+ *     prefetching can never use up the requests the user needs.
+ * (3) Once the budget is low, the remaining requests are spread out evenly until the
+ *     reset rather than being sent in a burst.
+ * (4) If GitHub rejects a request because of the rate limit anyway, the scheduler waits
+ *     until the limit resets (or for as long as Retry-After says) and sends it again.
+ * (5) Requests of the same priority for different repositories take turns, so that a
+ *     huge repository with hundreds of queued pages can't starve the others. Requests
+ *     that aren't for a repository (i.e. GraphQL queries) all share one turn.
+ *
+ * The queue depth and the remaining budget can be read at any time to monitor it, and
+ * they can be registered as gauges with a MetricsRegistry (see registerMetrics).
+ *
+ * @author justinsvegliato
+ */
+public class RequestScheduler implements HttpTransport {
+
+  private static final Logger logger = Logger.getLogger(RequestScheduler.class.getName());
+  private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+  private static final int DEFAULT_BACKGROUND_RESERVE = 100;
+  private static final int DEFAULT_PACING_THRESHOLD = 500;
+  private static final int MAX_RATE_LIMIT_RETRIES = 3;
+  private static final long DEFAULT_BACKOFF_MILLIS = 60000;
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
+  private static final int UNKNOWN = ResponseHeaders.UNKNOWN;
+  private static final String REPOSITORY_PATH = "/repos/";
+  private static final String NO_REPOSITORY = "";
+
+  private final HttpTransport transport;
+  private final int maxConcurrentRequests;
+  private final int backgroundReserve;
+  private final int pacingThreshold;
+
+  // Everything below is guarded by this
+  private final int[] queuedRequests = new int[RequestPriority.values().length];
+  private final List<Map<String, Integer>> queuedRepositories = new ArrayList<>();
+  private int activeRequests = 0;
+  private int rateLimit = UNKNOWN;
+  private int remainingRequests = UNKNOWN;
+  private long resetTimeMillis = 0;
+  private long blockedUntilMillis = 0;
+  private long nextRequestTimeMillis = 0;
+
+  /**
+   * Creates a new RequestScheduler with the default limits.
+   *
+   * @param transport the transport that actually sends the requests
+   */
+  public RequestScheduler(HttpTransport transport) {
+    this(transport, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_BACKGROUND_RESERVE, DEFAULT_PACING_THRESHOLD);
+  }
+
+  /**
+   * Creates a new RequestScheduler.
+   *
+   * @param transport the transport that actually sends the requests
+   * @param maxConcurrentRequests the maximum number of requests sent at once
+   * @param backgroundReserve the number of remaining requests kept for interactive requests
+   * @param pacingThreshold the remaining budget below which requests are spread out until the reset
+   */
+  public RequestScheduler(HttpTransport transport, int maxConcurrentRequests, int backgroundReserve,
+          int pacingThreshold) {
+    if (maxConcurrentRequests < 1) {
+      throw new IllegalArgumentException("At least one request must be allowed at once");
+    }
+
+    this.transport = transport;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.backgroundReserve = backgroundReserve;
+    this.pacingThreshold = pacingThreshold;
+
+    // The repositories with queued requests of each priority in the order of their turns
+    for (int i = 0; i < RequestPriority.values().length; i++) {
+      queuedRepositories.add(new LinkedHashMap<String, Integer>());
+    }
+  }
+
+  @Override
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+          throws IOException {
+    return send(url, requestHeaders, null, priority);
+  }
+
+  @Override
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    return send(url, requestHeaders, body, priority);
+  }
+
+  /**
+   * Gets the number of requests waiting to be sent.
+   *
+   * @return the number of queued requests
+   */
+  public synchronized int getQueueDepth() {
+    int queueDepth = 0;
+    for (int count : queuedRequests) {
+      queueDepth += count;
+    }
+    return queueDepth;
+  }
+
+  /**
+   * Gets the number of requests of the given priority waiting to be sent.
+   *
+   * @param priority the priority of the requests
+   * @return the number of queued requests
+   */
+  public synchronized int getQueueDepth(RequestPriority priority) {
+    return queuedRequests[priority.ordinal()];
+  }
+
+  /**
+   * Gets the number of repositories that have requests waiting to be sent.
+   *
+   * @return the number of repositories with queued requests
+   */
+  public synchronized int getQueuedRepositoryCount() {
+    int repositoryCount = 0;
+    for (Map<String, Integer> repositories : queuedRepositories) {
+      repositoryCount += repositories.size();
+    }
+    return repositoryCount;
+  }
+
+  /**
+   * Gets the number of requests that have been sent but haven't been answered yet.
+   *
+   * @return the number of active requests
+   */
+  public synchronized int getActiveRequests() {
+    return activeRequests;
+  }
+
+  /**
+   * Gets the number of requests allowed per rate limit window, as last reported by GitHub.
+   *
+   * @return the rate limit, or -1 if it isn't known yet
+   */
+  public synchronized int getRateLimit() {
+    return rateLimit;
+  }
+
+  /**
+   * Gets the number of requests left in the current rate limit window, as last reported
+   * by GitHub.
+   *
+   * @return the remaining budget, or -1 if it isn't known (or the window has been reset)
+   */
+  public synchronized int getRemainingRequests() {
+    return System.currentTimeMillis() < resetTimeMillis ? remainingRequests : UNKNOWN;
+  }
+
+  /**
+   * Gets the time the current rate limit window is reset.
+   *
+   * @return the reset time in milliseconds since the epoch, or 0 if it isn't known
+   */
+  public synchronized long getResetTimeMillis() {
+    return resetTimeMillis;
+  }
+
+  /**
+   * Registers the queue depth, the number of active requests and the remaining budget of
+   * this scheduler as gauges with the given registry, so they can be watched over JMX.
+   *
+   * @param metricsRegistry the registry to register the gauges with
+   */
+  public void registerMetrics(MetricsRegistry metricsRegistry) {
+    metricsRegistry.gauge(MetricsRegistry.SCHEDULER_QUEUE_DEPTH, new LongSupplier() {
+      @Override
+      public long getAsLong() {
+        return getQueueDepth();
+      }
+    });
+    metricsRegistry.gauge(MetricsRegistry.SCHEDULER_ACTIVE_REQUESTS, new LongSupplier() {
+      @Override
+      public long getAsLong() {
+        return getActiveRequests();
+      }
+    });
+    metricsRegistry.gauge(MetricsRegistry.SCHEDULER_REMAINING_REQUESTS, new LongSupplier() {
+      @Override
+      public long getAsLong() {
+        return getRemainingRequests();
+      }
+    });
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("{queued=[%d], repositories=[%d], active=[%d], remaining=[%d], limit=[%d]}", getQueueDepth(),
+            getQueuedRepositoryCount(), activeRequests, getRemainingRequests(), rateLimit);
+  }
+
+  // A request without a body is a GET, otherwise it's a POST
+  private HttpResponse send(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    String repository = getRepository(url);
+    for (int attempt = 0; ; attempt++) {
+      acquire(priority, repository);
+      HttpResponse response = null;
+      ResponseHeaders headers = null;
+      try {
+        response = body == null ? transport.get(url, requestHeaders, priority) 
+                : transport.post(url, requestHeaders, body, priority);
+        headers = new ResponseHeaders(response);
+      } finally {
+        release(response, headers);
+      }
+
+      if (!isRateLimited(response, headers) || attempt >= MAX_RATE_LIMIT_RETRIES) {
+        return response;
+      }
+
+      logger.log(Level.WARNING, "Rate limited by GitHub, waiting to retry {0}", url);
+      response.close();
+    }
+  }
+
+  // Blocks until a request of the given priority for the given repository may be sent
+  private synchronized void acquire(RequestPriority priority, String repository) throws IOException {
+    Map<String, Integer> repositories = queuedRepositories.get(priority.ordinal());
+    Integer repositoryQueueDepth = repositories.get(repository);
+    repositories.put(repository, repositoryQueueDepth == null ? 1 : repositoryQueueDepth + 1);
+    queuedRequests[priority.ordinal()]++;
+
+    boolean acquired = false;
+    try {
+      while (true) {
+        long delay = getDelay(priority, System.currentTimeMillis());
+        if (delay <= 0 && activeRequests < maxConcurrentRequests && !isHigherPriorityQueued(priority)
+                && isTurnOf(repositories, repository)) {
+          break;
+        }
+        wait(Math.max(delay, 0));
+      }
+      acquired = true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to send a request");
+    } finally {
+      queuedRequests[priority.ordinal()]--;
+      dequeue(repositories, repository, acquired);
+      notifyAll();
+    }
+
+    activeRequests++;
+    nextRequestTimeMillis = System.currentTimeMillis() + getPacingInterval(System.currentTimeMillis());
+  }
+
+  // The repository whose turn it is goes to the back of the line once it has sent a request
+  private void dequeue(Map<String, Integer> repositories, String repository, boolean sent) {
+    int repositoryQueueDepth = repositories.get(repository) - 1;
+    if (repositoryQueueDepth == 0 || sent) {
+      repositories.remove(repository);
+    }
+    if (repositoryQueueDepth > 0) {
+      repositories.put(repository, repositoryQueueDepth);
+    }
+  }
+
+  private boolean isTurnOf(Map<String, Integer> repositories, String repository) {
+    return repositories.keySet().iterator().next().equals(repository);
+  }
+
+  private synchronized void release(HttpResponse response, ResponseHeaders headers) {
+    activeRequests--;
+    if (headers != null) {
+      update(response, headers);
+    }
+    notifyAll();
+  }
+
+  // Returns how long a request of the given priority has to wait for the rate limit
+  private long getDelay(RequestPriority priority, long now) {
+    if (now < blockedUntilMillis) {
+      return blockedUntilMillis - now;
+    }
+
+    // The budget is only known until the window is reset
+    if (remainingRequests == UNKNOWN || now >= resetTimeMillis) {
+      return 0;
+    }
+
+    int reserve = priority == RequestPriority.INTERACTIVE ? 0 : backgroundReserve;
+    if (remainingRequests - activeRequests <= reserve) {
+      return resetTimeMillis - now;
+    }
+
+    if (remainingRequests < pacingThreshold && now < nextRequestTimeMillis) {
+      return nextRequestTimeMillis - now;
+    }
+
+    return 0;
+  }
+
+  // Spreads the remaining budget evenly over the rest of the window once it's low
+  private long getPacingInterval(long now) {
+    if (remainingRequests == UNKNOWN || remainingRequests >= pacingThreshold || now >= resetTimeMillis) {
+      return 0;
+    }
+    return (resetTimeMillis - now) / Math.max(remainingRequests, 1);
+  }
+
+  private boolean isHigherPriorityQueued(RequestPriority priority) {
+    for (int i = 0; i < priority.ordinal(); i++) {
+      if (queuedRequests[i] > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Extracts "owner/name" from a repository URL (i.e. ".../repos/owner/name/issues?page=2")
+  private String getRepository(String url) {
+    int ownerIndex = url.indexOf(REPOSITORY_PATH);
+    if (ownerIndex < 0) {
+      return NO_REPOSITORY;
+    }
+    ownerIndex += REPOSITORY_PATH.length();
+
+    int nameIndex = url.indexOf('/', ownerIndex) + 1;
+    if (nameIndex == 0) {
+      return NO_REPOSITORY;
+    }
+
+    int endIndex = nameIndex;
+    while (endIndex < url.length() && "/?#".indexOf(url.charAt(endIndex)) < 0) {
+      endIndex++;
+    }
+
+    // GitHub doesn't tell owners and names apart by case
+    return url.substring(ownerIndex, endIndex).toLowerCase(Locale.ROOT);
+  }
+
+  private void update(HttpResponse response, ResponseHeaders headers) {
+    long now = System.currentTimeMillis();
+
+    int limit = headers.getRateLimit();
+    if (limit != UNKNOWN) {
+      rateLimit = limit;
+    }
+
+    int remaining = headers.getRateLimitRemaining();
+    long reset = headers.getRateLimitReset();
+    if (remaining != UNKNOWN && reset != UNKNOWN) {
+      long reportedResetTimeMillis = reset * 1000L;
+
+      // Responses can arrive out of order, so an older count from the same window is ignored
+      if (reportedResetTimeMillis != resetTimeMillis || remainingRequests == UNKNOWN) {
+        remainingRequests = remaining;
+      } else {
+        remainingRequests = Math.min(remainingRequests, remaining);
+      }
+      resetTimeMillis = reportedResetTimeMillis;
+    }
+
+    int retryAfter = headers.getRetryAfter();
+    if (retryAfter != UNKNOWN) {
+      blockedUntilMillis = Math.max(blockedUntilMillis, now + retryAfter * 1000L);
+    } else if (isRateLimited(response, headers)) {
+      blockedUntilMillis = Math.max(blockedUntilMillis, now < resetTimeMillis ? resetTimeMillis : now + DEFAULT_BACKOFF_MILLIS);
+    }
+  }
+
+  // GitHub rejects requests over the limit with 403 (primary limit) or 429 (secondary limit)
+  private boolean isRateLimited(HttpResponse response, ResponseHeaders headers) {
+    if (response.getStatusCode() == HTTP_TOO_MANY_REQUESTS) {
+      return true;
+    }
+    return response.getStatusCode() == HttpURLConnection.HTTP_FORBIDDEN
+            && (headers.getRateLimitRemaining() == 0 || headers.getRetryAfter() != UNKNOWN);
+  }
+
+}
@@ -0,0 +1,652 @@
+package githubissuetracker.core;
+
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.Issue;
+import githubissuetracker.models.IssueTable;
+import githubissuetracker.models.LazyText;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PrimitiveIterator;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SearchIndex class is an in-memory full-text index of issues and their comments.
+ * It's built incrementally as issues and comments are retrieved, and covers the title,
+ * the description, the comments and the logins of the authors.
+ *
+ * A query is a list of words that must all match. A word matches an issue if it appears
+ * anywhere in it, a word ending in "*" matches any word that starts with it, and words in
+ * quotes must appear next to each other in that order (i.e. "null pointer" exception*).
+ * The results are ranked by how often and where the words appear: a match in the title
+ * counts three times as much as a match in the description or a comment.
+ *
+ * Internally, each field of an issue and each comment is indexed as a separate unit,
+ * numbered in the order they were added. For every word, the index keeps the units it
+ * appears in along with its positions, delta and variable-length encoded in a single
+ * byte array. Since units are only ever appended, an issue that changes is simply indexed
+ * again under new units and its old units are skipped from then on. Once at least half of
+ * the units have been skipped like that, the postings are rewritten without them.
+ *
+ * The index doesn't keep the Issue objects it's given. It refers to issues by their id,
+ * and keeps their fields column by column in an IssueTable (see getIssue), so that
+ * indexing every issue of a large repository doesn't retain an object graph per issue.
+ *
+ * @author justinsvegliato
+ */
+public class SearchIndex {
+
+  private static final Logger logger = Logger.getLogger(SearchIndex.class.getName());
+  private static final byte TITLE_FIELD = 0;
+  private static final byte BODY_FIELD = 1;
+  private static final byte AUTHOR_FIELD = 2;
+  private static final byte COMMENT_FIELD = 3;
+  private static final float[] FIELD_WEIGHTS = {3.0f, 1.0f, 1.0f, 1.0f};
+  private static final int MAX_TERM_LENGTH = 64;
+  private static final int MAX_PREFIX_TERMS = 1000;
+  private static final int INITIAL_UNIT_CAPACITY = 1024;
+  private static final int MIN_COMPACTION_UNITS = 4096;
+  private static final long NO_UPDATE_TIME = -1;
+
+  // Everything below is guarded by this
+  private final NavigableMap<String, Postings> postingsByTerm = new TreeMap<>();
+  private final Map<Integer, Document> documentsByIssueId = new HashMap<>();
+  private final List<Document> documents = new ArrayList<>();
+  private final IssueTable issues = new IssueTable();
+  private int[] unitDocuments = new int[INITIAL_UNIT_CAPACITY];
+  private byte[] unitFields = new byte[INITIAL_UNIT_CAPACITY];
+  private int unitCount = 0;
+  private final BitSet deletedUnits = new BitSet();
+  private int deletedUnitCount = 0;
+
+  /**
+   * Adds issues to the index. An issue that has already been indexed is indexed again
+   * if it has been updated since.
+   *
+   * @param issues the issues to add
+   */
+  public synchronized void addIssues(List<Issue> issues) {
+    for (Issue issue : issues) {
+      addIssue(issue);
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Sets the comments of an issue, replacing any comments indexed for it before unless
+   * they're the same comments (i.e. a thread that was retrieved again). The issue itself
+   * is added too if it hasn't been indexed yet.
+   *
+   * @param issue the issue the comments belong to
+   * @param comments every comment of the issue
+   */
+  public synchronized void setComments(Issue issue, List<Comment> comments) {
+    Document document = addIssue(issue);
+    long commentsSignature = getSignature(comments);
+    if (document.hasComments && document.commentsSignature == commentsSignature) {
+      return;
+    }
+
+    document.hasComments = true;
+    document.commentsSignature = commentsSignature;
+    deleteUnits(document.firstCommentUnit, document.commentUnitCount);
+
+    document.firstCommentUnit = unitCount;
+    for (Comment comment : comments) {
+      indexUnit(document, COMMENT_FIELD, comment.getBodyText());
+      if (comment.getUser() != null) {
+        indexUnit(document, AUTHOR_FIELD, comment.getUser().getLogin());
+      }
+    }
+    document.commentUnitCount = unitCount - document.firstCommentUnit;
+    compactIfNeeded();
+  }
+
+  /**
+   * Finds the issues that match the given query.
+   *
+   * @param query the words to search for (see the class description for the syntax)
+   * @return the matching issues, best match first
+   */
+  public synchronized List<Issue> search(String query) {
+    List<Clause> clauses = parse(query);
+    if (clauses.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // An issue only matches if every clause gives it a score
+    final float[] scores = new float[documents.size()];
+    BitSet matches = null;
+    for (Clause clause : clauses) {
+      float[] clauseScores = new float[documents.size()];
+      score(clause, clauseScores);
+
+      BitSet clauseMatches = new BitSet(clauseScores.length);
+      for (int i = 0; i < clauseScores.length; i++) {
+        if (clauseScores[i] > 0) {
+          clauseMatches.set(i);
+          scores[i] += clauseScores[i];
+        }
+      }
+
+      if (matches == null) {
+        matches = clauseMatches;
+      } else {
+        matches.and(clauseMatches);
+      }
+    }
+
+    List<Integer> matchingDocuments = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      matchingDocuments.add(i);
+    }
+
+    Collections.sort(matchingDocuments, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Float.compare(scores[b], scores[a]);
+      }
+    });
+
+    // The issues are only created for the results
+    List<Issue> results = new ArrayList<>(matchingDocuments.size());
+    for (int document : matchingDocuments) {
+      results.add(issues.getIssue(document));
+    }
+    return results;
+  }
+
+  /**
+   * Gets the number of issues in the index.
+   *
+   * @return the number of issues
+   */
+  public synchronized int getIssueCount() {
+    return documents.size();
+  }
+
+  /**
+   * Gets the latest copy of an indexed issue.
+   *
+   * @param issueId the id of the issue
+   * @return the issue, or null if it hasn't been indexed
+   */
+  public synchronized Issue getIssue(int issueId) {
+    Document document = documentsByIssueId.get(issueId);
+    return document == null ? null : issues.getIssue(document.number);
+  }
+
+  /**
+   * Gets the number of distinct words in the index.
+   *
+   * @return the number of words
+   */
+  public synchronized int getTermCount() {
+    return postingsByTerm.size();
+  }
+
+  /**
+   * Gets the number of units (i.e. fields and comments) the postings refer to, including
+   * the units of issues and comments that have been indexed again since.
+   *
+   * @return the number of units
+   */
+  public synchronized int getUnitCount() {
+    return unitCount;
+  }
+
+  private Document addIssue(Issue issue) {
+    long updateTime = issue.getUpdatedAt() == null ? NO_UPDATE_TIME : issue.getUpdatedAt().getTime();
+    Document document = documentsByIssueId.get(issue.getId());
+    if (document == null) {
+      document = new Document(documents.size());
+      documents.add(document);
+      documentsByIssueId.put(issue.getId(), document);
+      issues.add(issue);
+    } else if (updateTime != NO_UPDATE_TIME && updateTime == document.updateTime) {
+      // The same page is often loaded more than once (i.e. from the page store and then the API)
+      return document;
+    } else {
+      issues.set(document.number, issue);
+    }
+
+    document.updateTime = updateTime;
+    deleteUnits(document.firstIssueUnit, document.issueUnitCount);
+
+    document.firstIssueUnit = unitCount;
+    indexUnit(document, TITLE_FIELD, issue.getTitle());
+    indexUnit(document, BODY_FIELD, issue.getBodyText());
+    if (issue.getUser() != null) {
+      indexUnit(document, AUTHOR_FIELD, issue.getUser().getLogin());
+    }
+    document.issueUnitCount = unitCount - document.firstIssueUnit;
+
+    return document;
+  }
+
+  private void deleteUnits(int firstUnit, int count) {
+    if (count > 0) {
+      deletedUnits.set(firstUnit, firstUnit + count);
+      deletedUnitCount += count;
+    }
+  }
+
+  // The comments are compared by id and body (i.e. edits count as changes) without keeping them
+  private long getSignature(List<Comment> comments) {
+    long signature = comments.size();
+    for (Comment comment : comments) {
+      signature = signature * 1000003 + comment.getId();
+      signature = signature * 1000003 + (comment.getBodyText() == null ? 0 : comment.getBodyText().getTextHashCode());
+    }
+    return signature;
+  }
+
+  private void compactIfNeeded() {
+    if (deletedUnitCount >= MIN_COMPACTION_UNITS && deletedUnitCount * 2 >= unitCount) {
+      compact();
+    }
+  }
+
+  // Rewrites the postings without the deleted units, numbering the remaining units anew
+  private void compact() {
+    int[] newUnits = new int[unitCount];
+    int newUnitCount = 0;
+    for (int unit = 0; unit < unitCount; unit++) {
+      if (deletedUnits.get(unit)) {
+        newUnits[unit] = -1;
+      } else {
+        unitDocuments[newUnitCount] = unitDocuments[unit];
+        unitFields[newUnitCount] = unitFields[unit];
+        newUnits[unit] = newUnitCount++;
+      }
+    }
+
+    Iterator<Map.Entry<String, Postings>> iterator = postingsByTerm.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Postings> entry = iterator.next();
+      Postings compactedPostings = new Postings();
+      PostingsReader reader = new PostingsReader(entry.getValue());
+      while (reader.next()) {
+        if (newUnits[reader.unit] >= 0) {
+          int[] positions = reader.readPositions();
+          compactedPostings.add(newUnits[reader.unit], positions, positions.length);
+        }
+      }
+
+      if (compactedPostings.unitCount == 0) {
+        iterator.remove();
+      } else {
+        entry.setValue(compactedPostings);
+      }
+    }
+
+    // The units of a document are never deleted one at a time, so its ranges stay contiguous
+    for (Document document : documents) {
+      document.firstIssueUnit = document.issueUnitCount > 0 ? newUnits[document.firstIssueUnit] : newUnitCount;
+      document.firstCommentUnit = document.commentUnitCount > 0 ? newUnits[document.firstCommentUnit] : newUnitCount;
+    }
+
+    logger.log(Level.FINE, "Compacted the search index from {0} to {1} units", new Object[] {unitCount, newUnitCount});
+    unitCount = newUnitCount;
+    deletedUnits.clear();
+    deletedUnitCount = 0;
+  }
+
+  private void indexUnit(Document document, byte field, String text) {
+    indexUnit(document, field, LazyText.of(text));
+  }
+
+  // The bodies are tokenized as they're decoded, so indexing them doesn't decode them for good
+  private void indexUnit(Document document, byte field, LazyText text) {
+    List<String> tokens = text == null ? Collections.<String>emptyList() : tokenize(text.chars());
+    if (tokens.isEmpty()) {
+      return;
+    }
+
+    if (unitCount == unitDocuments.length) {
+      unitDocuments = Arrays.copyOf(unitDocuments, unitCount * 2);
+      unitFields = Arrays.copyOf(unitFields, unitCount * 2);
+    }
+    int unit = unitCount++;
+    unitDocuments[unit] = document.number;
+    unitFields[unit] = field;
+
+    // Groups the positions by term so that each term gets a single entry for this unit
+    Map<String, Positions> positionsByTerm = new LinkedHashMap<>();
+    for (int position = 0; position < tokens.size(); position++) {
+      Positions positions = positionsByTerm.get(tokens.get(position));
+      if (positions == null) {
+        positions = new Positions();
+        positionsByTerm.put(tokens.get(position), positions);
+      }
+      positions.add(position);
+    }
+
+    for (Map.Entry<String, Positions> entry : positionsByTerm.entrySet()) {
+      Postings postings = postingsByTerm.get(entry.getKey());
+      if (postings == null) {
+        postings = new Postings();
+        postingsByTerm.put(entry.getKey(), postings);
+      }
+      postings.add(unit, entry.getValue());
+    }
+  }
+
+  private void score(Clause clause, float[] scores) {
+    if (clause.prefix) {
+      String prefix = clause.terms.get(0);
+      int termCount = 0;
+      for (Postings postings : postingsByTerm.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+        scoreTerm(postings, scores);
+        if (++termCount == MAX_PREFIX_TERMS) {
+          break;
+        }
+      }
+    } else if (clause.terms.size() == 1) {
+      Postings postings = postingsByTerm.get(clause.terms.get(0));
+      if (postings != null) {
+        scoreTerm(postings, scores);
+      }
+    } else {
+      scorePhrase(clause.terms, scores);
+    }
+  }
+
+  private void scoreTerm(Postings postings, float[] scores) {
+    float inverseFrequency = getInverseFrequency(postings);
+    PostingsReader reader = new PostingsReader(postings);
+    while (reader.next()) {
+      if (!deletedUnits.get(reader.unit)) {
+        scores[unitDocuments[reader.unit]] += getWeight(reader.unit, reader.frequency) * inverseFrequency;
+      }
+    }
+  }
+
+  // Walks the postings of every term of the phrase in step, since they're all sorted by unit
+  private void scorePhrase(List<String> terms, float[] scores) {
+    PostingsReader[] readers = new PostingsReader[terms.size()];
+    float inverseFrequency = 0;
+    for (int i = 0; i < readers.length; i++) {
+      Postings postings = postingsByTerm.get(terms.get(i));
+      if (postings == null) {
+        return;
+      }
+      readers[i] = new PostingsReader(postings);
+      inverseFrequency += getInverseFrequency(postings);
+    }
+
+    for (PostingsReader reader : readers) {
+      if (!reader.next()) {
+        return;
+      }
+    }
+
+    int[][] positions = new int[readers.length][];
+    while (true) {
+      int unit = 0;
+      for (PostingsReader reader : readers) {
+        unit = Math.max(unit, reader.unit);
+      }
+
+      boolean aligned = true;
+      for (PostingsReader reader : readers) {
+        while (reader.unit < unit) {
+          if (!reader.next()) {
+            return;
+          }
+        }
+        aligned &= reader.unit == unit;
+      }
+      if (!aligned) {
+        continue;
+      }
+
+      if (!deletedUnits.get(unit)) {
+        for (int i = 0; i < readers.length; i++) {
+          positions[i] = readers[i].readPositions();
+        }
+        int phraseCount = countPhrases(positions);
+        if (phraseCount > 0) {
+          scores[unitDocuments[unit]] += getWeight(unit, phraseCount) * inverseFrequency;
+        }
+      }
+
+      if (!readers[0].next()) {
+        return;
+      }
+    }
+  }
+
+  // Counts the positions of the first term that are followed by the rest of the terms in order
+  private int countPhrases(int[][] positions) {
+    int phraseCount = 0;
+    for (int start : positions[0]) {
+      boolean found = true;
+      for (int i = 1; i < positions.length && found; i++) {
+        found = Arrays.binarySearch(positions[i], start + i) >= 0;
+      }
+      if (found) {
+        phraseCount++;
+      }
+    }
+    return phraseCount;
+  }
+
+  private float getWeight(int unit, int frequency) {
+    return FIELD_WEIGHTS[unitFields[unit]] * (1.0f + (float) Math.log(frequency));
+  }
+
+  // Rare terms say more about an issue than common ones
+  private float getInverseFrequency(Postings postings) {
+    return (float) Math.log(1.0 + (double) unitCount / postings.unitCount);
+  }
+
+  private List<Clause> parse(String query) {
+    List<Clause> clauses = new ArrayList<>();
+    int index = 0;
+    while (index < query.length()) {
+      char c = query.charAt(index);
+      if (Character.isWhitespace(c)) {
+        index++;
+        continue;
+      }
+
+      int end;
+      List<String> terms;
+      boolean prefix = false;
+      if (c == '"') {
+        end = query.indexOf('"', index + 1);
+        end = end < 0 ? query.length() : end;
+        terms = tokenize(query.substring(index + 1, end).chars().iterator());
+        end++;
+      } else {
+        end = index;
+        while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+          end++;
+        }
+        String word = query.substring(index, end);
+        prefix = word.endsWith("*");
+        terms = tokenize(word.chars().iterator());
+      }
+      index = end;
+
+      if (terms.isEmpty()) {
+        continue;
+      }
+
+      // A word like "foo-bar*" is split into the phrase "foo" and the prefix "bar"
+      if (prefix && terms.size() > 1) {
+        clauses.add(new Clause(terms.subList(0, terms.size() - 1), false));
+        terms = terms.subList(terms.size() - 1, terms.size());
+      }
+      clauses.add(new Clause(terms, prefix));
+    }
+    return clauses;
+  }
+
+  private static List<String> tokenize(PrimitiveIterator.OfInt chars) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder token = new StringBuilder();
+    boolean hasNext;
+    do {
+      hasNext = chars.hasNext();
+      char c = hasNext ? (char) chars.nextInt() : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        token.append(Character.toLowerCase(c));
+      } else if (token.length() > 0) {
+        if (token.length() <= MAX_TERM_LENGTH) {
+          tokens.add(token.toString());
+        }
+        token.setLength(0);
+      }
+    } while (hasNext);
+    return tokens;
+  }
+
+  // An issue in the index (its row in the issue table) and the units it was indexed under
+  private static class Document {
+
+    private final int number;
+    private long updateTime = NO_UPDATE_TIME;
+    private boolean hasComments = false;
+    private long commentsSignature;
+    private int firstIssueUnit;
+    private int issueUnitCount = 0;
+    private int firstCommentUnit;
+    private int commentUnitCount = 0;
+
+    private Document(int number) {
+      this.number = number;
+    }
+
+  }
+
+  // A clause of a query: a single term, a prefix or a phrase
+  private static class Clause {
+
+    private final List<String> terms;
+    private final boolean prefix;
+
+    private Clause(List<String> terms, boolean prefix) {
+      this.terms = terms;
+      this.prefix = prefix;
+    }
+
+  }
+
+  // The positions of a term within a unit while the unit is being indexed
+  private static class Positions {
+
+    private int[] values = new int[4];
+    private int count = 0;
+
+    private void add(int position) {
+      if (count == values.length) {
+        values = Arrays.copyOf(values, count * 2);
+      }
+      values[count++] = position;
+    }
+
+  }
+
+  // Entries of (unit delta, frequency, position deltas...) as variable-length integers
+  private static class Postings {
+
+    private byte[] data = new byte[8];
+    private int length = 0;
+    private int lastUnit = 0;
+    private int unitCount = 0;
+
+    private void add(int unit, Positions positions) {
+      add(unit, positions.values, positions.count);
+    }
+
+    private void add(int unit, int[] positions, int count) {
+      write(unit - lastUnit);
+      write(count);
+      int lastPosition = 0;
+      for (int i = 0; i < count; i++) {
+        write(positions[i] - lastPosition);
+        lastPosition = positions[i];
+      }
+      lastUnit = unit;
+      unitCount++;
+    }
+
+    private void write(int value) {
+      if (length + 5 > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+      }
+      while ((value & ~0x7F) != 0) {
+        data[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      data[length++] = (byte) value;
+    }
+
+  }
+
+  // Reads the entries of a postings list one unit at a time
+  private static class PostingsReader {
+
+    private final Postings postings;
+    private int offset = 0;
+    private int unit = 0;
+    private int frequency = 0;
+    private int unreadPositions = 0;
+
+    private PostingsReader(Postings postings) {
+      this.postings = postings;
+    }
+
+    private boolean next() {
+      while (unreadPositions > 0) {
+        read();
+        unreadPositions--;
+      }
+      if (offset >= postings.length) {
+        return false;
+      }
+
+      unit += read();
+      frequency = read();
+      unreadPositions = frequency;
+      return true;
+    }
+
+    private int[] readPositions() {
+      int[] positions = new int[unreadPositions];
+      int position = 0;
+      for (int i = 0; i < positions.length; i++) {
+        position += read();
+        positions[i] = position;
+      }
+      unreadPositions = 0;
+      return positions;
+    }
+
+    private int read() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = postings.data[offset++];
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+  }
+
+}
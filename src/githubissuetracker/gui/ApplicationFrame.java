@@ -1,54 +1,131 @@
 package githubissuetracker.gui;
 
 import githubissuetracker.core.CommentCache;
+import githubissuetracker.core.CommentPrefetcher;
 import githubissuetracker.core.GitHubApiHandler;
+import githubissuetracker.core.GitHubPageNavigator;
+import githubissuetracker.core.GraphQLTransport;
+import githubissuetracker.core.PageStore;
+import githubissuetracker.core.RepositoryRegistry;
+import githubissuetracker.core.RequestScheduler;
+import githubissuetracker.core.SearchIndex;
 import githubissuetracker.models.Comment;
 import githubissuetracker.models.Issue;
 import githubissuetracker.queryparameters.SortCriteria;
+import githubissuetracker.util.Counter;
+import githubissuetracker.util.HedgingTransport;
+import githubissuetracker.util.Histogram;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.MetricsRegistry;
+import githubissuetracker.util.RetryingTransport;
+import githubissuetracker.util.UrlConnectionTransport;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableColumn;
 
 /**
  * The ApplicationFrame is the primary frame that contains all other components.
  *
+ * Any number of repositories can be tracked at once, and the repository whose issues are
+ * shown is picked from a list above the table. The repositories share one fetch engine
+ * (see RepositoryRegistry), and each one's first page is only retrieved once it's shown.
+ * Search covers the issues of every repository retrieved so far.
+ *
+ * The comments of the issues in the table are prefetched in the background (starting
+ * with the issue under the mouse pointer), so opening an issue usually shows its
+ * comments right away.
+ *
+ * Pressing F12 shows (or hides) a status bar with the most important metrics: request
+ * latency and volume, parse time, cache hit ratios and how long it takes from a click
+ * until its result has been painted.
+ *
  * @author justinsvegliato
  */
 public class ApplicationFrame extends JFrame {
 
   private static final Logger logger = Logger.getLogger(ApplicationFrame.class.getName());
-  private static final String FRAME_TITLE_TEMPLATE = "GitHub Issue Tracker - Repository %s/%s";
+  private static final String FRAME_TITLE_TEMPLATE = "GitHub Issue Tracker - Repository %s";
   private static final int FRAME_WIDTH = 1000;
   private static final int FRAME_HEIGHT = 580;
   private static final int MARGIN_WIDTH = 10;
+  private static final int PREFETCH_DEPTH = 2;
+  private static final int COMMENT_PREFETCH_PARALLELISM = 2;
+  private static final int REFRESH_INTERVAL = 60000;
+  private static final int SEARCH_DELAY = 200;
+  private static final int STATUS_INTERVAL = 1000;
+  private static final String STATUS_BAR_ACTION = "toggleStatusBar";
+  private static final String GRAPHQL_STORE_DIRECTORY = "graphql";
+  private static final Histogram pageRenderTimer = MetricsRegistry.getDefault().timer(MetricsRegistry.PAGE_RENDER_TIME);
+  private static final Histogram commentsRenderTimer = MetricsRegistry.getDefault().timer(MetricsRegistry.COMMENTS_RENDER_TIME);
 
-  private final GitHubApiHandler apiHandler;
-  private final IssueTableModel tableModel;
+  private final RequestScheduler requestScheduler;
+  private final RetryingTransport retryingTransport;
+  private final HedgingTransport hedgingTransport;
+  private final RepositoryRegistry repositoryRegistry;
   private final CommentCache commentCache;
+  private final CommentPrefetcher commentPrefetcher;
+  private final SearchIndex searchIndex = new SearchIndex();
 
+  private final JTable issueTable;
+  private final JComboBox<String> repositoryBox;
   private final JLabel loadingLabel;
   private final JButton previousButton;
   private final JButton nextButton;
+  private final JTextField searchField;
+  private final JLabel searchLabel;
+  private final JLabel statusLabel;
+  private final Timer statusTimer;
+
+  // The table model of each repository that has been shown, only accessed on the event thread
+  private final Map<String, IssueTableModel> tableModels = new HashMap<>();
+
+  // The model of the repository that's shown, which is only replaced on the event thread
+  private volatile IssueTableModel tableModel;
+
+  // Identifies the latest search so that the results of an older, slower one are dropped
+  private int searchCount = 0;
 
   /**
    * Creates a new ApplicationFrame.
@@ -56,61 +133,281 @@ public class ApplicationFrame extends JFrame {
    * @param owner the repository owner
    * @param repository the repository name
    * @param authenticationToken the token used to authenticate GitHub requests
+   * @param storeDirectory the directory that retrieved pages are persisted to
+   */
+  public ApplicationFrame(String owner, String repository, String authenticationToken, File storeDirectory) {
+    this(owner, repository, authenticationToken, storeDirectory, false);
+  }
+
+  /**
+   * Creates a new ApplicationFrame that retrieves the issues and comments from either the
+   * REST API or the GraphQL API (see GraphQLTransport).
+   *
+   * @param owner the repository owner
+   * @param repository the repository name
+   * @param authenticationToken the token used to authenticate GitHub requests
+   * @param storeDirectory the directory that retrieved pages are persisted to
+   * @param graphQL true to use the GraphQL API
+   */
+  public ApplicationFrame(String owner, String repository, String authenticationToken, File storeDirectory,
+          boolean graphQL) {
+    this(Collections.singletonList(owner + "/" + repository), authenticationToken, storeDirectory, graphQL);
+  }
+
+  /**
+   * Creates a new ApplicationFrame that tracks the given repositories, showing the first
+   * one. Names that aren't of the form "owner/name" are skipped.
+   *
+   * @param repositories the full names of the repositories (i.e. "owner/name")
+   * @param authenticationToken the token used to authenticate GitHub requests
+   * @param storeDirectory the directory that retrieved pages are persisted to
+   * @param graphQL true to use the GraphQL API
+   * @throws IllegalArgumentException if none of the repository names are valid
    */
-  public ApplicationFrame(String owner, String repository, String authenticationToken) {
-    super(String.format(FRAME_TITLE_TEMPLATE, owner, repository));
+  public ApplicationFrame(List<String> repositories, String authenticationToken, File storeDirectory,
+          boolean graphQL) {
     setSize(FRAME_WIDTH, FRAME_HEIGHT);
     setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     setLocationRelativeTo(null);
     setResizable(false);
     setContentPane(getContentContainer());
 
-    apiHandler = new GitHubApiHandler(authenticationToken);
-    tableModel = new IssueTableModel(apiHandler.getIssues(owner, repository, SortCriteria.UPDATED));
+    // Hedging sits below the scheduler so that it only times (and duplicates) requests on the wire
+    hedgingTransport = new HedgingTransport(new UrlConnectionTransport(authenticationToken));
+    requestScheduler = new RequestScheduler(hedgingTransport);
+    requestScheduler.registerMetrics(MetricsRegistry.getDefault());
+    retryingTransport = new RetryingTransport(requestScheduler);
+    GitHubApiHandler apiHandler;
+    if (graphQL) {
+      // The pages split the issues differently (there are no pull requests), so they're stored apart
+      HttpTransport graphQLTransport = new GraphQLTransport(retryingTransport);
+      apiHandler = new GitHubApiHandler(graphQLTransport, getPageStore(new File(storeDirectory, GRAPHQL_STORE_DIRECTORY)));
+    } else {
+      apiHandler = new GitHubApiHandler(retryingTransport, getPageStore(storeDirectory));
+    }
+    apiHandler.setLazyBodies(true);
+    repositoryRegistry = getRepositoryRegistry(apiHandler, repositories);
     commentCache = new CommentCache(apiHandler);
+    commentPrefetcher = new CommentPrefetcher(commentCache, COMMENT_PREFETCH_PARALLELISM);
 
+    // Everything that's retrieved is indexed right away so that it can be searched
+    commentCache.addCommentListener(new BiConsumer<Issue, List<Comment>>() {
+      @Override
+      public void accept(Issue issue, List<Comment> comments) {
+        searchIndex.setComments(issue, comments);
+      }
+    });
+
+    issueTable = getIssueTable();
+    repositoryBox = getRepositoryBox();
     loadingLabel = getLoadingLabel();
     previousButton = getPreviousButton();
     nextButton = getNextButton();
+    searchLabel = new JLabel();
+    searchField = getSearchField();
+    statusLabel = getStatusLabel();
+    statusTimer = new Timer(STATUS_INTERVAL, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        updateStatusBar();
+      }
+    });
 
     add(getButtonPanel(), BorderLayout.NORTH);
-    add(getIssueDisplay(), BorderLayout.CENTER);
+    add(new JScrollPane(issueTable), BorderLayout.CENTER);
+    add(getBottomPanel(), BorderLayout.SOUTH);
+    addStatusBarToggle();
+
+    showRepository((String) repositoryBox.getSelectedItem());
+    startRefreshTimer();
+  }
+
+  // Names that can't be tracked are skipped rather than failing the whole application
+  private RepositoryRegistry getRepositoryRegistry(GitHubApiHandler apiHandler, List<String> repositories) {
+    RepositoryRegistry registry = new RepositoryRegistry(apiHandler, PREFETCH_DEPTH, SortCriteria.UPDATED);
+    for (String repository : repositories) {
+      try {
+        registry.add(repository);
+      } catch (IllegalArgumentException ex) {
+        logger.log(Level.WARNING, "Skipping the repository " + repository, ex);
+      }
+    }
+
+    if (registry.size() == 0) {
+      throw new IllegalArgumentException("There are no repositories to track");
+    }
+    return registry;
+  }
+
+  // Shows the issues of the given repository, retrieving its first page if it hasn't been shown yet
+  private void showRepository(String repository) {
+    logger.log(Level.INFO, "Showing the issues of the repository {0}", repository);
+    setTitle(String.format(FRAME_TITLE_TEMPLATE, repository));
+
+    IssueTableModel model = tableModels.get(repository);
+    boolean populated = model != null;
+    if (!populated) {
+      model = getTableModel(repositoryRegistry.get(repository));
+      tableModels.put(repository, model);
+    }
+
+    tableModel = model;
+    issueTable.setModel(model);
+    setColumnWidths(issueTable);
+    commentPrefetcher.prefetch(model.getIssues());
+
+    if (!populated) {
+      previousButton.setEnabled(false);
+      nextButton.setEnabled(false);
+      populate(model);
+    } else {
+      loadingLabel.setVisible(false);
+      previousButton.setEnabled(model.hasPreviousPage());
+      nextButton.setEnabled(model.hasNextPage());
+    }
+
+    // The search results of the previous repository are shown in the new one instead
+    if (!searchField.getText().trim().isEmpty()) {
+      search(searchField.getText());
+    }
+  }
+
+  private IssueTableModel getTableModel(GitHubPageNavigator<Issue> issueNavigator) {
+    final IssueTableModel model = new IssueTableModel(issueNavigator);
+
+    // Whatever the table shows now replaces the issues that were being prefetched
+    model.addTableModelListener(new TableModelListener() {
+      @Override
+      public void tableChanged(TableModelEvent e) {
+        if (model == tableModel) {
+          commentPrefetcher.prefetch(model.getIssues());
+        }
+      }
+    });
 
-    populate();
+    // Everything that's retrieved is indexed right away so that it can be searched
+    issueNavigator.addPageListener(new Consumer<List<Issue>>() {
+      @Override
+      public void accept(List<Issue> issues) {
+        searchIndex.addIssues(issues);
+      }
+    });
+    return model;
   }
 
   // Populates the data in the background to avoid freezing the UI
-  private void populate() {
+  private void populate(final IssueTableModel model) {
     logger.log(Level.INFO, "Loading the initial page of issues...");
-    new SwingWorker<Boolean, Void>() {
+    loadingLabel.setVisible(true);
+    new SwingWorker<List<Issue>, Void>() {
       @Override
-      protected Boolean doInBackground() throws IOException {
+      protected List<Issue> doInBackground() throws IOException {
         logger.log(Level.FINE, "Retrieving the initial page of issues in the background...");
-        loadingLabel.setVisible(true);        
-        return tableModel.populate();
+        return model.loadInitialPage();
       }
 
       @Override
       protected void done() {
         logger.log(Level.FINE, "Retrieved the initial page of issues");
+        boolean hasNextPage = false;
         try {
-          nextButton.setEnabled(get());
+          model.showPage(get());
+          hasNextPage = model.hasNextPage();
         } catch (InterruptedException | ExecutionException ex) {
           logger.log(Level.SEVERE, "Failed to get the initial issue page", ex);
         }
-        loadingLabel.setVisible(false);
+
+        // Another repository may have been picked in the meantime
+        if (model == tableModel) {
+          nextButton.setEnabled(hasNextPage && !model.isShowingSearchResults());
+          loadingLabel.setVisible(false);
+        }
       }
     }.execute();
   }
 
+  // Periodically retrieves the issues updated since the last refresh of every repository that 
+  // has been shown (usually a single request), and only then revalidates its loaded pages
+  private void startRefreshTimer() {
+    Timer refreshTimer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        final List<String> repositories = new ArrayList<>(tableModels.keySet());
+        final List<IssueTableModel> models = new ArrayList<>();
+        final int[] pageChangeCounts = new int[repositories.size()];
+        for (int i = 0; i < repositories.size(); i++) {
+          models.add(tableModels.get(repositories.get(i)));
+          pageChangeCounts[i] = models.get(i).getPageChangeCount();
+        }
+        
+        // The pages are retrieved in the background but shown on the event dispatch thread
+        new SwingWorker<List<List<Issue>>, Void>() {
+          private final List<List<Issue>> updatedIssues = new ArrayList<>();
+
+          @Override
+          protected List<List<Issue>> doInBackground() {
+            logger.log(Level.FINE, "Refreshing the issues in the background (requests: {0}, retries: {1}, hedges: {2})...", 
+                    new Object[] {requestScheduler, retryingTransport.getRetryCount(), hedgingTransport.getHedgeCount()});
+            List<List<Issue>> refreshedPages = new ArrayList<>();
+            for (int i = 0; i < repositories.size(); i++) {
+              // A repository that fails is simply refreshed again next time, without holding up the rest
+              List<Issue> issues = Collections.emptyList();
+              List<Issue> refreshedPage = null;
+              try {
+                // The loaded pages only have to be revalidated if an issue has been updated since
+                issues = repositoryRegistry.sync(repositories.get(i));
+                searchIndex.addIssues(issues);
+                if (!issues.isEmpty()) {
+                  refreshedPage = models.get(i).loadRefreshedPage();
+                }
+              } catch (IOException ex) {
+                logger.log(Level.WARNING, "Failed to refresh the issues of " + repositories.get(i), ex);
+              }
+              updatedIssues.add(issues);
+              refreshedPages.add(refreshedPage);
+            }
+            return refreshedPages;
+          }
+
+          @Override
+          protected void done() {
+            try {
+              List<List<Issue>> refreshedPages = get();
+              for (int i = 0; i < models.size(); i++) {
+                models.get(i).showUpdatedIssues(updatedIssues.get(i));
+                if (refreshedPages.get(i) != null) {
+                  models.get(i).showRefreshedPage(refreshedPages.get(i), pageChangeCounts[i]);
+                }
+              }
+            } catch (InterruptedException | ExecutionException ex) {
+              logger.log(Level.WARNING, "Failed to refresh the issues", ex);
+            }
+          }
+        }.execute();
+      }
+    });
+    refreshTimer.setRepeats(true);
+    refreshTimer.start();
+  }
+
+  // The application still works without the store, it just has to hit the network more
+  private PageStore getPageStore(File storeDirectory) {
+    try {
+      return new PageStore(storeDirectory);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Failed to open the page store, pages won't be persisted", ex);
+      return null;
+    }
+  }
+
   private JPanel getContentContainer() {
     JPanel contentPanel = new JPanel(new BorderLayout());
     contentPanel.setBorder(BorderFactory.createEmptyBorder(MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH));
     return contentPanel;
   }
 
-  private JScrollPane getIssueDisplay() {
-    final JTable issueTable = new JTable(tableModel);
+  private JTable getIssueTable() {
+    final JTable issueTable = new JTable();
     issueTable.getTableHeader().setReorderingAllowed(false);
     issueTable.getTableHeader().setResizingAllowed(false);
     issueTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -118,34 +415,318 @@ public class ApplicationFrame extends JFrame {
       @Override
       public void mouseClicked(MouseEvent e) {
         if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 1) {
-          Issue issue = tableModel.getIssueAt(issueTable.getSelectedRow());
-          try {
-            logger.log(Level.INFO, "Retrieving comments for the issue {0}", issue.getNumber());
-            List<Comment> comments = commentCache.get(issue);
-            new IssueDetailsFrame(issue, comments).setVisible(true);
-          } catch (IOException ex) {
-            logger.log(Level.SEVERE, "Failed to retrieve comments for the issue " + issue.getNumber(), ex);
-          }
+          showIssueDetails(tableModel.getIssueAt(issueTable.getSelectedRow()));
+        }
+      }
+
+      @Override
+      public void mouseExited(MouseEvent e) {
+        commentPrefetcher.setHoveredIssue(null);
+      }
+    });
+
+    // The issue under the pointer (or selected with the keyboard) is the one most likely to be opened
+    issueTable.addMouseMotionListener(new MouseMotionAdapter() {
+      @Override
+      public void mouseMoved(MouseEvent e) {
+        int rowIndex = issueTable.rowAtPoint(e.getPoint());
+        commentPrefetcher.setHoveredIssue(rowIndex < 0 ? null : tableModel.getIssueAt(rowIndex));
+      }
+    });
+    issueTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+      @Override
+      public void valueChanged(ListSelectionEvent e) {
+        int rowIndex = issueTable.getSelectedRow();
+        if (!e.getValueIsAdjusting()) {
+          commentPrefetcher.setSelectedIssue(rowIndex < 0 ? null : tableModel.getIssueAt(rowIndex));
         }
       }
     });
 
+    return issueTable;
+  }
+
+  // Setting a model creates new columns, so this is needed whenever the repository changes
+  private void setColumnWidths(JTable issueTable) {
     TableColumn descriptionColumn = issueTable.getColumnModel().getColumn(1);
     descriptionColumn.setMaxWidth(400);
     descriptionColumn.setPreferredWidth(400);
+  }
+
+  // The list is only shown when there's more than one repository to pick from
+  private JComboBox<String> getRepositoryBox() {
+    List<String> repositories = repositoryRegistry.getRepositories();
+    final JComboBox<String> box = new JComboBox<>(repositories.toArray(new String[repositories.size()]));
+    box.setVisible(repositories.size() > 1);
+    box.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        String repository = (String) box.getSelectedItem();
+        if (tableModels.get(repository) != tableModel) {
+          showRepository(repository);
+        }
+      }
+    });
+    return box;
+  }
+
+  // Opens the details frame right away and fills in the comments as they arrive
+  private void showIssueDetails(final Issue issue) {
+    final long clickTime = System.nanoTime();
+    final IssueDetailsFrame detailsFrame = new IssueDetailsFrame(issue);
+    detailsFrame.setVisible(true);
+
+    logger.log(Level.INFO, "Retrieving comments for the issue {0}", issue.getNumber());
+    final boolean cached = commentCache.isCached(issue);
+    new SwingWorker<List<Comment>, List<Comment>>() {
+      @Override
+      protected List<Comment> doInBackground() throws IOException {
+        return commentCache.get(issue, new Consumer<List<Comment>>() {
+          @Override
+          public void accept(List<Comment> comments) {
+            publish(comments);
+          }
+        });
+      }
+
+      @Override
+      protected void process(List<List<Comment>> pages) {
+        for (List<Comment> comments : pages) {
+          detailsFrame.addComments(comments);
+        }
+      }
 
-    return new JScrollPane(issueTable);
+      @Override
+      protected void done() {
+        try {
+          List<Comment> comments = get();
+          detailsFrame.setCommentsLoaded();
+          recordWhenPainted(commentsRenderTimer, clickTime);
+          if (cached) {
+            refreshComments(issue, comments, detailsFrame);
+          }
+        } catch (InterruptedException | ExecutionException ex) {
+          logger.log(Level.SEVERE, "Failed to retrieve comments for the issue " + issue.getNumber(), ex);
+          detailsFrame.setCommentsFailed();
+        }
+      }
+    }.execute();
+  }
+
+  // Cached comments are shown right away, but they may be out of date, so they're revalidated
+  // (which is cheap since unchanged pages return 304) and replaced if they have changed
+  private void refreshComments(final Issue issue, final List<Comment> comments, final IssueDetailsFrame detailsFrame) {
+    new SwingWorker<List<Comment>, Void>() {
+      @Override
+      protected List<Comment> doInBackground() throws IOException {
+        return commentCache.refresh(issue);
+      }
+
+      @Override
+      protected void done() {
+        try {
+          List<Comment> refreshedComments = get();
+          if (haveChanged(comments, refreshedComments) && detailsFrame.isDisplayable()) {
+            logger.log(Level.FINE, "The comments of the issue {0} have changed", issue.getNumber());
+            detailsFrame.setComments(refreshedComments);
+          }
+        } catch (InterruptedException | ExecutionException ex) {
+          logger.log(Level.WARNING, "Failed to refresh the comments of the issue " + issue.getNumber(), ex);
+        }
+      }
+    }.execute();
+  }
+
+  // Comments don't implement equals, so they're compared by id and body (i.e. edits count as changes)
+  private boolean haveChanged(List<Comment> comments, List<Comment> refreshedComments) {
+    if (comments.size() != refreshedComments.size()) {
+      return true;
+    }
+    for (int i = 0; i < comments.size(); i++) {
+      Comment comment = comments.get(i);
+      Comment refreshedComment = refreshedComments.get(i);
+      if (comment.getId() != refreshedComment.getId() || !comment.getBody().equals(refreshedComment.getBody())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Searches the issues retrieved so far, or shows the current page again if the query is empty
+  private void search(final String query) {
+    final int search = ++searchCount;
+    if (query.trim().isEmpty()) {
+      tableModel.clearSearchResults();
+      searchLabel.setText("");
+      previousButton.setEnabled(tableModel.hasPreviousPage());
+      nextButton.setEnabled(tableModel.hasNextPage());
+      return;
+    }
+
+    new SwingWorker<List<Issue>, Void>() {
+      @Override
+      protected List<Issue> doInBackground() {
+        return searchIndex.search(query);
+      }
+
+      @Override
+      protected void done() {
+        if (search != searchCount) {
+          return;
+        }
+
+        try {
+          List<Issue> results = get();
+          tableModel.showSearchResults(results);
+          searchLabel.setText(String.format("%d of %d issues", results.size(), searchIndex.getIssueCount()));
+          previousButton.setEnabled(false);
+          nextButton.setEnabled(false);
+        } catch (InterruptedException | ExecutionException ex) {
+          logger.log(Level.SEVERE, "Failed to search the issues", ex);
+        }
+      }
+    }.execute();
+  }
+
+  // Swing queues the repaint of a change before anything that's queued after the change
+  private void recordWhenPainted(final Histogram timer, final long startTime) {
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        timer.recordSince(startTime);
+      }
+    });
+  }
+
+  private void addStatusBarToggle() {
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0), STATUS_BAR_ACTION);
+    getRootPane().getActionMap().put(STATUS_BAR_ACTION, new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        toggleStatusBar();
+      }
+    });
+  }
+
+  // The metrics are only read while they're visible
+  private void toggleStatusBar() {
+    boolean visible = !statusLabel.isVisible();
+    if (visible) {
+      updateStatusBar();
+      statusTimer.start();
+    } else {
+      statusTimer.stop();
+    }
+    statusLabel.setVisible(visible);
+    getContentPane().revalidate();
+  }
+
+  private void updateStatusBar() {
+    MetricsRegistry metrics = MetricsRegistry.getDefault();
+    Histogram latencyTimer = metrics.timer(MetricsRegistry.HTTP_LATENCY);
+    Histogram responseBytesHistogram = metrics.getHistograms().get(MetricsRegistry.HTTP_RESPONSE_BYTES);
+    long responseBytes = responseBytesHistogram == null ? 0 : responseBytesHistogram.getSum();
+
+    statusLabel.setText(String.format("HTTP: %d requests (%d queued), p50 %s, p99 %s, %s  |  Parse: p50 %s  |  "
+            + "Cache hits: pages %s, comments %s (%d prefetched)  |  Painted: pages p50 %s, comments p50 %s",
+            metrics.counter(MetricsRegistry.HTTP_REQUESTS).getCount(), requestScheduler.getQueueDepth(),
+            formatMicros(latencyTimer.getPercentile50()), formatMicros(latencyTimer.getPercentile99()), formatBytes(responseBytes),
+            formatMicros(metrics.timer(MetricsRegistry.PARSE_TIME).getPercentile50()),
+            formatHitRatio(metrics.counter(MetricsRegistry.PAGE_CACHE_HITS), metrics.counter(MetricsRegistry.PAGE_CACHE_MISSES)),
+            formatHitRatio(metrics.counter(MetricsRegistry.COMMENT_CACHE_HITS), metrics.counter(MetricsRegistry.COMMENT_CACHE_MISSES)),
+            metrics.counter(MetricsRegistry.COMMENT_PREFETCHES).getCount(),
+            formatMicros(pageRenderTimer.getPercentile50()), formatMicros(commentsRenderTimer.getPercentile50())));
+  }
+
+  private String formatMicros(long micros) {
+    return String.format("%.1f ms", micros / 1000.0);
+  }
+
+  private String formatBytes(long bytes) {
+    return bytes < 1024 * 1024 ? String.format("%.1f KB", bytes / 1024.0) : String.format("%.1f MB", bytes / (1024.0 * 1024));
+  }
+
+  private String formatHitRatio(Counter hitCounter, Counter missCounter) {
+    long hitCount = hitCounter.getCount();
+    long lookupCount = hitCount + missCounter.getCount();
+    return lookupCount == 0 ? "-" : String.format("%.0f%%", 100.0 * hitCount / lookupCount);
+  }
+
+  private JLabel getStatusLabel() {
+    JLabel label = new JLabel(" ");
+    label.setFont(label.getFont().deriveFont(Font.PLAIN, 11f));
+    label.setBorder(BorderFactory.createEmptyBorder(5, 0, 0, 0));
+    label.setVisible(false);
+    return label;
+  }
+
+  private JPanel getBottomPanel() {
+    JPanel bottomPanel = new JPanel(new BorderLayout());
+    bottomPanel.add(getSearchPanel(), BorderLayout.CENTER);
+    bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+    return bottomPanel;
+  }
+
+  private JPanel getSearchPanel() {
+    JLabel label = new JLabel("Search: ");
+    label.setLabelFor(searchField);
+
+    JPanel searchPanel = new JPanel(new BorderLayout());
+    searchPanel.add(label, BorderLayout.LINE_START);
+    searchPanel.add(searchField, BorderLayout.CENTER);
+    searchPanel.add(searchLabel, BorderLayout.LINE_END);
+    searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 0, 0, 0));
+    return searchPanel;
+  }
+
+  // Waits for a pause in typing before searching
+  private JTextField getSearchField() {
+    final JTextField field = new JTextField();
+    field.setToolTipText("Words to find; end a word with * to match its prefix or quote words to match a phrase");
+
+    final Timer searchTimer = new Timer(SEARCH_DELAY, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        search(field.getText());
+      }
+    });
+    searchTimer.setRepeats(false);
+
+    field.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        searchTimer.restart();
+      }
+    });
+    return field;
   }
 
   private JPanel getButtonPanel() {
     JPanel buttonPanel = new JPanel(new BorderLayout());
     buttonPanel.add(previousButton, BorderLayout.LINE_START);
-    buttonPanel.add(loadingLabel, BorderLayout.CENTER);
+    buttonPanel.add(getCenterPanel(), BorderLayout.CENTER);
     buttonPanel.add(nextButton, BorderLayout.LINE_END);
     buttonPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 5, 0));
     return buttonPanel;
   }
 
+  private JPanel getCenterPanel() {
+    JPanel centerPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+    centerPanel.add(repositoryBox);
+    centerPanel.add(loadingLabel);
+    return centerPanel;
+  }
+
   private JLabel getLoadingLabel() {
     JLabel label = new JLabel("Loading...");
     label.setFont(new Font("Arial", Font.BOLD, 16));
@@ -160,14 +741,41 @@ public class ApplicationFrame extends JFrame {
     button.addActionListener(new ActionListener() {
       @Override
       public void actionPerformed(ActionEvent e) {
+        // Populates the previous page in the background, since it may have to be read from 
+        // the page store or retrieved again once it has been evicted from the cache
         logger.log(Level.INFO, "Loading the previous page of issues...");
-        try {
-          boolean hasPreviousPage = tableModel.pageLeft();
-          previousButton.setEnabled(hasPreviousPage);
-          nextButton.setEnabled(true);
-        } catch (IOException ex) {
-          logger.log(Level.SEVERE, "Failed to get previous issue page", ex);
-        }
+        final long clickTime = System.nanoTime();
+        final IssueTableModel model = tableModel;
+        nextButton.setEnabled(false);
+        previousButton.setEnabled(false);
+        loadingLabel.setVisible(true);
+        new SwingWorker<List<Issue>, Void>() {
+          @Override
+          protected List<Issue> doInBackground() throws IOException {
+            logger.log(Level.FINE, "Retrieving the previous page of issues in the background...");
+            return model.loadPreviousPage();
+          }
+
+          @Override
+          protected void done() {
+            logger.log(Level.FINE, "Retrieved the previous page of issues");
+            try {
+              model.showPage(get());
+              boolean hasPreviousPage = model.hasPreviousPage();
+
+              // Another repository may have been picked in the meantime
+              if (model != tableModel) {
+                return;
+              }
+              previousButton.setEnabled(hasPreviousPage && !model.isShowingSearchResults());
+              nextButton.setEnabled(!model.isShowingSearchResults());
+              loadingLabel.setVisible(false);
+              recordWhenPainted(pageRenderTimer, clickTime);
+            } catch (InterruptedException | ExecutionException ex) {
+              logger.log(Level.SEVERE, "Failed to get previous issue page", ex);
+            }
+          }
+        }.execute();
       }
     });
     return button;
@@ -180,23 +788,33 @@ public class ApplicationFrame extends JFrame {
       public void actionPerformed(ActionEvent e) {
         // Populates the next page in the background
         logger.log(Level.INFO, "Loading the next page of issues...");
-        new SwingWorker<Boolean, Void>() {
+        final long clickTime = System.nanoTime();
+        final IssueTableModel model = tableModel;
+        nextButton.setEnabled(false);
+        previousButton.setEnabled(false);
+        loadingLabel.setVisible(true);
+        new SwingWorker<List<Issue>, Void>() {
           @Override
-          protected Boolean doInBackground() throws IOException {
+          protected List<Issue> doInBackground() throws IOException {
             logger.log(Level.FINE, "Retrieving the next page of issues in the background...");
-            nextButton.setEnabled(false);
-            previousButton.setEnabled(false);
-            loadingLabel.setVisible(true);
-            return tableModel.pageRight();
+            return model.loadNextPage();
           }
 
           @Override
           protected void done() {
             logger.log(Level.FINE, "Retrieved the next page of issues");
             try {
-              nextButton.setEnabled(get());
-              previousButton.setEnabled(true);
+              model.showPage(get());
+              boolean hasNextPage = model.hasNextPage();
+
+              // Another repository may have been picked in the meantime
+              if (model != tableModel) {
+                return;
+              }
+              nextButton.setEnabled(hasNextPage && !model.isShowingSearchResults());
+              previousButton.setEnabled(!model.isShowingSearchResults());
               loadingLabel.setVisible(false);
+              recordWhenPainted(pageRenderTimer, clickTime);
             } catch (InterruptedException | ExecutionException ex) {
               logger.log(Level.SEVERE, "Failed to get next issue page", ex);
             }
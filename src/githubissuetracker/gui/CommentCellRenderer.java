@@ -0,0 +1,151 @@
+package githubissuetracker.gui;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+import javax.swing.ListCellRenderer;
+import javax.swing.border.Border;
+
+/**
+ * The CommentCellRenderer class draws the posts (i.e. the issue description and its
+ * comments) in the comment list of the IssueDetailsFrame. A single renderer component
+ * is reused for every post, so the number of Swing components (and the fonts, borders
+ * and date format that go with them) doesn't grow with the number of comments.
+ * 
+ * Wrapping a long post to measure its height is expensive, and the list asks for the 
+ * height of every post whenever comments are appended. The height of each post is 
+ * therefore remembered, and the text is only set when a post is actually painted.
+ *
+ * @author justinsvegliato
+ */
+public class CommentCellRenderer extends JPanel implements ListCellRenderer<CommentCellRenderer.Post> {
+
+  /**
+   * The Post class holds what's displayed for a single post in the list.
+   */
+  public static class Post {
+
+    private final String author;
+    private final String body;
+    private final Date date;
+
+    // The height of the post when it was last wrapped at the given width
+    private int layoutWidth = -1;
+    private int layoutHeight;
+
+    /**
+     * Creates a new Post.
+     *
+     * @param author the login of the user who wrote the post
+     * @param body the text of the post
+     * @param date the date the post was created
+     */
+    public Post(String author, String body, Date date) {
+      this.author = author;
+      this.body = body;
+      this.date = date;
+    }
+
+  }
+
+  private static final int MARGIN_WIDTH = 10;
+  private static final Font AUTHOR_FONT = new Font("Helvetica", 0, 18);
+  private static final Font BODY_FONT = new Font("Helvetica", 0, 14);
+  private static final Border MARGIN_BORDER = BorderFactory.createEmptyBorder(MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH);
+  private static final Border BODY_BORDER = BorderFactory.createCompoundBorder(
+          BorderFactory.createMatteBorder(1, 0, 1, 0, Color.LIGHT_GRAY), MARGIN_BORDER);
+
+  // Renderers are only used on the event dispatch thread, so sharing the format is safe
+  private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMMMM d, y 'at' h:mm a");
+
+  private final JLabel authorLabel = new JLabel();
+  private final JTextArea bodyTextArea = new JTextArea();
+  private final int defaultWidth;
+
+  private Post currentPost;
+  private int currentWidth;
+  private boolean textApplied;
+
+  /**
+   * Creates a new CommentCellRenderer.
+   *
+   * @param defaultWidth the width to wrap the text at before the list has been laid out
+   */
+  public CommentCellRenderer(int defaultWidth) {
+    this.defaultWidth = defaultWidth;
+
+    setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+
+    authorLabel.setFont(AUTHOR_FONT);
+    authorLabel.setBorder(MARGIN_BORDER);
+    authorLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+    add(authorLabel);
+
+    bodyTextArea.setFont(BODY_FONT);
+    bodyTextArea.setLineWrap(true);
+    bodyTextArea.setWrapStyleWord(true);
+    bodyTextArea.setEditable(false);
+    bodyTextArea.setBorder(BODY_BORDER);
+    bodyTextArea.setAlignmentX(Component.LEFT_ALIGNMENT);
+    add(bodyTextArea);
+  }
+
+  @Override
+  public Component getListCellRendererComponent(JList<? extends Post> list, Post post, int index,
+          boolean isSelected, boolean cellHasFocus) {
+    currentPost = post;
+    currentWidth = list.getWidth() > 0 ? list.getWidth() : defaultWidth;
+    textApplied = false;
+
+    if (post.layoutWidth != currentWidth) {
+      applyText();
+
+      // The text area only reports the height of the wrapped text once it knows its width
+      bodyTextArea.setSize(currentWidth, Short.MAX_VALUE);
+      invalidate();
+      post.layoutHeight = super.getPreferredSize().height;
+      post.layoutWidth = currentWidth;
+    }
+
+    // The layout caches the sizes of the previous post, so it has to be reset for this one
+    invalidate();
+    setBackground(list.getBackground());
+    return this;
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (currentPost == null) {
+      return super.getPreferredSize();
+    }
+    return new Dimension(currentWidth, currentPost.layoutHeight);
+  }
+
+  // The renderer is only laid out right before it paints a post
+  @Override
+  public void doLayout() {
+    applyText();
+    super.doLayout();
+  }
+
+  private void applyText() {
+    if (textApplied || currentPost == null) {
+      return;
+    }
+
+    authorLabel.setText(String.format("%s posted on %s", currentPost.author, dateFormat.format(currentPost.date)));
+    String text = currentPost.body == null || currentPost.body.isEmpty() ? "No description provided" : currentPost.body;
+    bodyTextArea.setText(text);
+    textApplied = true;
+  }
+
+}
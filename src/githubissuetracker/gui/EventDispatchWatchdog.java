@@ -0,0 +1,160 @@
+package githubissuetracker.gui;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+/**
+ * The EventDispatchWatchdog class measures how long the event dispatch thread is blocked.
+ * It regularly posts an empty task to the event queue and times how long the task takes
+ * to run. Any stall longer than the threshold is logged along with what the event
+ * dispatch thread was doing at the time, which makes it easy to spot work that should
+ * be moved to a background thread.
+ *
+ * @author justinsvegliato
+ */
+public class EventDispatchWatchdog {
+
+  private static final Logger logger = Logger.getLogger(EventDispatchWatchdog.class.getName());
+  private static final long DEFAULT_THRESHOLD_MILLIS = 100;
+  private static final long PROBE_INTERVAL_MILLIS = 50;
+
+  private final long thresholdMillis;
+  private final AtomicLong stallCount = new AtomicLong();
+  private final AtomicLong totalStallMillis = new AtomicLong();
+  private final AtomicLong maximumStallMillis = new AtomicLong();
+
+  private volatile Thread dispatchThread;
+  private volatile boolean running = false;
+
+  /**
+   * Creates a new EventDispatchWatchdog that reports stalls longer than 100 ms.
+   */
+  public EventDispatchWatchdog() {
+    this(DEFAULT_THRESHOLD_MILLIS);
+  }
+
+  /**
+   * Creates a new EventDispatchWatchdog.
+   *
+   * @param thresholdMillis the shortest stall that's reported
+   */
+  public EventDispatchWatchdog(long thresholdMillis) {
+    this.thresholdMillis = thresholdMillis;
+  }
+
+  /**
+   * Starts watching the event dispatch thread on a daemon thread.
+   */
+  public synchronized void start() {
+    if (running) {
+      return;
+    }
+
+    running = true;
+    Thread watchdogThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        watch();
+      }
+    }, "EventDispatchWatchdog");
+    watchdogThread.setDaemon(true);
+    watchdogThread.start();
+  }
+
+  /**
+   * Stops watching the event dispatch thread.
+   */
+  public synchronized void stop() {
+    running = false;
+  }
+
+  /**
+   * Gets the number of stalls longer than the threshold.
+   *
+   * @return the number of stalls
+   */
+  public long getStallCount() {
+    return stallCount.get();
+  }
+
+  /**
+   * Gets the total time the event dispatch thread spent in stalls longer than the threshold.
+   *
+   * @return the total time in milliseconds
+   */
+  public long getTotalStallMillis() {
+    return totalStallMillis.get();
+  }
+
+  /**
+   * Gets the longest stall seen so far.
+   *
+   * @return the longest stall in milliseconds
+   */
+  public long getMaximumStallMillis() {
+    return maximumStallMillis.get();
+  }
+
+  private void watch() {
+    while (running) {
+      try {
+        probe();
+        Thread.sleep(PROBE_INTERVAL_MILLIS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void probe() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    long startTime = System.nanoTime();
+    SwingUtilities.invokeLater(new Runnable() {
+      @Override
+      public void run() {
+        dispatchThread = Thread.currentThread();
+        latch.countDown();
+      }
+    });
+
+    // Grabs the stack of the event dispatch thread while it's still stuck
+    StackTraceElement[] stackTrace = null;
+    if (!latch.await(thresholdMillis, TimeUnit.MILLISECONDS)) {
+      Thread thread = dispatchThread;
+      if (thread != null) {
+        stackTrace = thread.getStackTrace();
+      }
+      latch.await();
+    }
+
+    long stallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    if (stallMillis >= thresholdMillis) {
+      record(stallMillis, stackTrace);
+    }
+  }
+
+  private void record(long stallMillis, StackTraceElement[] stackTrace) {
+    stallCount.incrementAndGet();
+    totalStallMillis.addAndGet(stallMillis);
+
+    long maximum = maximumStallMillis.get();
+    while (stallMillis > maximum && !maximumStallMillis.compareAndSet(maximum, stallMillis)) {
+      maximum = maximumStallMillis.get();
+    }
+
+    logger.log(Level.WARNING, "The event dispatch thread was blocked for {0} ms", stallMillis);
+    if (stackTrace != null && logger.isLoggable(Level.FINE)) {
+      StringBuilder builder = new StringBuilder("The event dispatch thread was stuck at:");
+      for (StackTraceElement element : stackTrace) {
+        builder.append(System.lineSeparator()).append("\tat ").append(element);
+      }
+      logger.log(Level.FINE, builder.toString());
+    }
+  }
+
+}
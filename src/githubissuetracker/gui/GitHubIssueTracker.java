@@ -1,8 +1,12 @@
 package githubissuetracker.gui;
 
+import githubissuetracker.util.MetricsRegistry;
 import githubissuetracker.util.UrlConnectionHandler;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -46,10 +50,14 @@ public class GitHubIssueTracker {
 
   private static final Logger logger = Logger.getLogger(GitHubIssueTracker.class.getName());  
   private static final String PROPERTIES_PATH = "githubissuetracker/config/github.properties";
+  private static final String DEFAULT_STORE_DIRECTORY = ".githubissuetracker";
+  private static final String REPOSITORY_SEPARATOR = ",";
+  private static final String MAX_CONNECTIONS = "8";
   
-  private static String OWNER;
-  private static String REPOSITORY;
+  private static List<String> REPOSITORIES;
   private static String AUTHENTICATION_TOKEN;
+  private static File STORE_DIRECTORY;
+  private static boolean GRAPHQL;
     
   // Loads the properties file
   static {
@@ -60,9 +68,10 @@ public class GitHubIssueTracker {
     
     try {            
       githubProperties.load(inputStream);
-      OWNER = githubProperties.getProperty("owner");
-      REPOSITORY = githubProperties.getProperty("repository");
+      REPOSITORIES = getRepositories(githubProperties);
       AUTHENTICATION_TOKEN = githubProperties.getProperty("authenticationToken");      
+      STORE_DIRECTORY = getStoreDirectory(githubProperties.getProperty("storeDirectory"));
+      GRAPHQL = "graphql".equalsIgnoreCase(githubProperties.getProperty("api", "rest").trim());
     } catch (IOException ex) {
       logger.log(Level.SEVERE, "Failed to load GitHub API properties", ex);
     } finally {
@@ -88,13 +97,49 @@ public class GitHubIssueTracker {
       logger.log(Level.WARNING, "Failed to set the look and feel of the user interface", ex);
     }
     
+    // Logs whenever the user interface freezes for longer than 100 ms
+    new EventDispatchWatchdog().start();
+    
+    // Keeps as many connections alive as the RequestScheduler sends requests at once, which
+    // has to be set before the first connection is opened
+    if (System.getProperty("http.maxConnections") == null) {
+      System.setProperty("http.maxConnections", MAX_CONNECTIONS);
+    }
+    
+    // Makes the metrics available to JConsole and other JMX clients
+    MetricsRegistry.getDefault().enableJmx();
+    
     SwingUtilities.invokeLater(new Runnable() {
       @Override
       public void run() {
         logger.log(Level.INFO, "The application thread has started");        
-        new ApplicationFrame(OWNER, REPOSITORY, AUTHENTICATION_TOKEN).setVisible(true);
+        new ApplicationFrame(REPOSITORIES, AUTHENTICATION_TOKEN, STORE_DIRECTORY, GRAPHQL).setVisible(true);
       }
     });
   }
+
+  // The repositories are a comma-separated list of "owner/name", or the owner and repository
+  // properties if there's no list
+  private static List<String> getRepositories(Properties githubProperties) {
+    List<String> repositories = new ArrayList<>();
+    for (String repository : githubProperties.getProperty("repositories", "").split(REPOSITORY_SEPARATOR)) {
+      if (!repository.trim().isEmpty()) {
+        repositories.add(repository.trim());
+      }
+    }
+    
+    if (repositories.isEmpty()) {
+      repositories.add(githubProperties.getProperty("owner") + "/" + githubProperties.getProperty("repository"));
+    }
+    return repositories;
+  }
+
+  // Defaults to a directory in the user's home directory if none is configured
+  private static File getStoreDirectory(String path) {
+    if (path == null || path.trim().isEmpty()) {
+      return new File(System.getProperty("user.home"), DEFAULT_STORE_DIRECTORY);
+    }
+    return new File(path.trim());
+  }
   
 }
\ No newline at end of file
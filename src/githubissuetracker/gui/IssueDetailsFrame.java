@@ -5,28 +5,29 @@ import githubissuetracker.models.Issue;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.util.List;
 import java.util.logging.Logger;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
+import javax.swing.DefaultListModel;
+import javax.swing.DefaultListSelectionModel;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
 import javax.swing.ScrollPaneConstants;
-import javax.swing.SwingUtilities;
-import javax.swing.border.Border;
 
 /**
- * The IssueDetailsFrame displays data associated with a given issue.
+ * The IssueDetailsFrame displays data associated with a given issue. The frame can be
+ * shown before the comments have been retrieved; they're appended with addComments as 
+ * they arrive.
  * 
  * @author justinsvegliato
  */
@@ -37,6 +38,9 @@ public class IssueDetailsFrame extends JFrame {
   private static final int FRAME_WIDTH = 950;
   private static final int FRAME_HEIGHT = 550;
   private static final int MARGIN_WIDTH = 10;
+
+  private final DefaultListModel<CommentCellRenderer.Post> commentModel = new DefaultListModel<>();
+  private final JLabel statusLabel = new JLabel("Loading comments...");
   
   /**
    * Creates a new IssueDetailsFrame.
@@ -45,6 +49,18 @@ public class IssueDetailsFrame extends JFrame {
    * @param comments the comments to be displayed
    */
   public IssueDetailsFrame(Issue issue, List<Comment> comments) {
+    this(issue);
+    addComments(comments);
+    setCommentsLoaded();
+  }
+
+  /**
+   * Creates a new IssueDetailsFrame that only shows the issue itself until comments are
+   * added with addComments.
+   * 
+   * @param issue the issue to display data for
+   */
+  public IssueDetailsFrame(Issue issue) {
     super(FRAME_TITLE);
     
     setSize(FRAME_WIDTH, FRAME_HEIGHT);
@@ -53,9 +69,52 @@ public class IssueDetailsFrame extends JFrame {
     setContentPane(getContentContainer());
     
     add(getHeaderPanel(issue), BorderLayout.PAGE_START);        
-    add(getCommentPanel(issue, comments), BorderLayout.CENTER);    
+    add(getCommentPanel(issue), BorderLayout.CENTER);    
     add(getButtonPanel(), BorderLayout.PAGE_END);
   }
+
+  /**
+   * Appends comments to the bottom of the frame. This must be called on the event 
+   * dispatch thread.
+   * 
+   * @param comments the comments to be appended
+   */
+  public void addComments(List<Comment> comments) {
+    for (Comment comment : comments) {
+      commentModel.addElement(new CommentCellRenderer.Post(comment.getUser().getLogin(), comment.getBody(), 
+              comment.getCreatedAt()));
+    }
+  }
+
+  /**
+   * Replaces the comments shown in the frame (i.e. with the comments of a refresh). This 
+   * must be called on the event dispatch thread.
+   * 
+   * @param comments the comments to be shown
+   */
+  public void setComments(List<Comment> comments) {
+    // The first post is the issue itself
+    while (commentModel.size() > 1) {
+      commentModel.remove(commentModel.size() - 1);
+    }
+    addComments(comments);
+  }
+
+  /**
+   * Indicates that every comment has been added. This must be called on the event 
+   * dispatch thread.
+   */
+  public void setCommentsLoaded() {
+    statusLabel.setVisible(false);
+  }
+
+  /**
+   * Indicates that the comments couldn't be retrieved. This must be called on the 
+   * event dispatch thread.
+   */
+  public void setCommentsFailed() {
+    statusLabel.setText("Failed to load the comments");
+  }
   
   private JPanel getContentContainer() {
     BorderLayout layoutManager = new BorderLayout();
@@ -84,61 +143,33 @@ public class IssueDetailsFrame extends JFrame {
     return headerPanel;
   } 
       
-  private JScrollPane getCommentPanel(Issue issue, List<Comment> comments) {
-    JPanel commentsPanel = new JPanel();
-    commentsPanel.setLayout(new BoxLayout(commentsPanel, BoxLayout.Y_AXIS));
-    
-    // Creates a panel for the original post (i.e. the description)
-    commentsPanel.add(getCommentPanel(issue.getUser().getLogin(), issue.getBody(), issue.getCreatedAt()));
+  // Only the visible comments are laid out and painted since the list uses a single renderer
+  private JScrollPane getCommentPanel(Issue issue) {
+    // The first post is the original post (i.e. the description)
+    commentModel.addElement(new CommentCellRenderer.Post(issue.getUser().getLogin(), issue.getBody(), issue.getCreatedAt()));
     
-    // Creates all of the other comments
-    for (Comment comment : comments) {
-      commentsPanel.add(getCommentPanel(comment.getUser().getLogin(), comment.getBody(), comment.getCreatedAt()));
-    }      
-    
-    final JScrollPane commentsScroller = new JScrollPane(commentsPanel);
-    commentsScroller.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
-    
-    // Sets the scroll pane to the first comment
-    SwingUtilities.invokeLater(new Runnable() {
+    final JList<CommentCellRenderer.Post> commentList = new JList<>(commentModel);
+    commentList.setCellRenderer(new CommentCellRenderer(FRAME_WIDTH - 4 * MARGIN_WIDTH));
+    commentList.setFocusable(false);
+    commentList.setSelectionModel(new DefaultListSelectionModel() {
       @Override
-      public void run() { 
-        commentsScroller.getVerticalScrollBar().setValue(0);
+      public void setSelectionInterval(int index0, int index1) {
+        // The posts aren't selectable
       }
     });
-
-    return commentsScroller;
-  }
-  
-  private JPanel getCommentPanel(String author, String comment, Date date) {
-    JPanel commentPanel = new JPanel();
-    commentPanel.setLayout(new BoxLayout(commentPanel, BoxLayout.Y_AXIS));
     
-    Border marginBorder = BorderFactory.createEmptyBorder(MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH, MARGIN_WIDTH);
-    Border lineBorder = BorderFactory.createMatteBorder(1, 0, 1, 0, Color.LIGHT_GRAY);
-    Border compoundBorder = BorderFactory.createCompoundBorder(lineBorder, marginBorder);    
- 
-    // Creates a label that contains the comment's author
-    SimpleDateFormat dateFormat = new SimpleDateFormat("MMMMM d, y 'at' h:mm a" );
-    String authorLabelText = String.format("%s posted on %s", author, dateFormat.format(date));
-    JLabel authorLabel = new JLabel(authorLabelText);
-    authorLabel.setFont(new Font("Helvetica", 0, 18));
-    authorLabel.setMinimumSize(new Dimension(commentPanel.getWidth(), 0));
-    authorLabel.setBorder(marginBorder);
-    commentPanel.add(authorLabel);
-    
-    // Creates a text area that contains the comment
-    String text = comment.isEmpty() ? "No description provided" : comment;
-    JTextArea commentTextArea = new JTextArea(text);
-    commentTextArea.setFont(new Font("Helvetica", 0, 14));
-    commentTextArea.setMinimumSize(new Dimension(commentPanel.getWidth(), 0));
-    commentTextArea.setLineWrap(true);
-    commentTextArea.setWrapStyleWord(true);
-    commentTextArea.setEditable(false);    
-    commentTextArea.setBorder(compoundBorder);
-    commentPanel.add(commentTextArea);
+    // The row heights depend on the width of the list, so they're recomputed once it's known
+    commentList.addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentResized(ComponentEvent e) {
+        commentList.setFixedCellHeight(0);
+        commentList.setFixedCellHeight(-1);
+      }
+    });
     
-    return commentPanel;
+    JScrollPane commentsScroller = new JScrollPane(commentList);
+    commentsScroller.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+    return commentsScroller;
   }
   
   private JPanel getButtonPanel() {
@@ -152,8 +183,12 @@ public class IssueDetailsFrame extends JFrame {
       }
     });
     
-    JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-    buttonPanel.add(closeButton);
+    statusLabel.setFont(new Font("Helvetica", Font.ITALIC, 14));
+    statusLabel.setForeground(Color.GRAY);
+    
+    JPanel buttonPanel = new JPanel(new BorderLayout());
+    buttonPanel.add(statusLabel, BorderLayout.LINE_START);
+    buttonPanel.add(closeButton, BorderLayout.LINE_END);
     
     return buttonPanel;
   }
@@ -2,13 +2,26 @@ package githubissuetracker.gui;
 
 import githubissuetracker.core.GitHubPageNavigator;
 import githubissuetracker.models.Issue;
+import githubissuetracker.models.IssueTable;
+import githubissuetracker.models.UserDictionary;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import javax.swing.table.AbstractTableModel;
 
 /**
  * The IssueTableModel class contains all of the issues to be displayed
- * in the GUI.
+ * in the GUI. The rows are rendered straight from an IssueTable, which stores the 
+ * issues column by column and shares the authors between every page.
+ * 
+ * Like every Swing model, the model must only be changed on the event dispatch thread.
+ * Retrieving a page sends requests, though, so each change is made in two steps: one 
+ * of the load methods retrieves the page in the background (i.e. in the doInBackground 
+ * method of a SwingWorker), and then showPage or showRefreshedPage shows it on the event
+ * dispatch thread (i.e. in the done method).
  * 
  * @author justinsvegliato
  */
@@ -20,7 +33,12 @@ public class IssueTableModel extends AbstractTableModel {
 
   private final GitHubPageNavigator<Issue> navigator;
 
-  private List<Issue> currentPage = null;
+  private final UserDictionary users = new UserDictionary();
+
+  // Only the rows are kept, since the navigator already caches the pages themselves
+  private int pageChangeCount = 0;
+  private IssueTable currentRows = null;
+  private IssueTable searchResults = null;
 
   /**
    * Creates a new IssueTableModel.
@@ -33,7 +51,8 @@ public class IssueTableModel extends AbstractTableModel {
 
   @Override
   public int getRowCount() {
-    return navigator.getPageSize();
+    IssueTable rows = getRows();
+    return rows == null ? 0 : rows.size();
   }
 
   @Override
@@ -57,43 +76,158 @@ public class IssueTableModel extends AbstractTableModel {
   }
   
   /**
-   * Populates the table with the initial page of issues.
+   * Retrieves the initial page of issues, which is shown with showPage. This can be called
+   * on any thread.
    * 
-   * @return true if there were any entries, otherwise false
+   * @return the initial page
    * @throws IOException if the data can't be loaded
    */
-  public boolean populate() throws IOException {
-    currentPage = navigator.initialize();
-    fireTableDataChanged();
-    return !currentPage.isEmpty();
+  public List<Issue> loadInitialPage() throws IOException {
+    return navigator.initialize();
+  }
+
+  /**
+   * Retrieves the page of issues after the current one, which is shown with showPage. 
+   * This can be called on any thread.
+   * 
+   * @return the next page, or null if there's none
+   * @throws IOException if the data can't be loaded
+   */
+  public List<Issue> loadNextPage() throws IOException {
+    return navigator.hasNextPage() ? navigator.getNextPage() : null;
+  }
+
+  /**
+   * Retrieves the page of issues before the current one, which is shown with showPage. 
+   * This can be called on any thread.
+   * 
+   * @return the previous page, or null if there's none
+   * @throws IOException if the data can't be loaded
+   */
+  public List<Issue> loadPreviousPage() throws IOException {
+    return navigator.hasPreviousPage() ? navigator.getPreviousPage() : null;
   }
 
   /**
-   * Loads the table with the next page of issues.
+   * Revalidates the loaded pages of issues and retrieves the current page if it has 
+   * changed, which is shown with showRefreshedPage. This can be called on any thread.
    * 
-   * @return true if there's another page left after the page just loaded
+   * @return the current page, which may or may not have changed
    * @throws IOException if the data can't be loaded
    */
-  public boolean pageLeft() throws IOException {
-    if (navigator.hasPreviousPage()) {
-      currentPage = navigator.getPreviousPage();
+  public List<Issue> loadRefreshedPage() throws IOException {
+    return navigator.refresh();
+  }
+
+  /**
+   * Shows the given page of issues, which was retrieved with one of the load methods. 
+   * This must be called on the event dispatch thread.
+   * 
+   * @param page the page to show, or null to keep the current page
+   */
+  public void showPage(List<Issue> page) {
+    if (page != null && !isCurrentPage(page)) {
+      setCurrentPage(page);
       fireTableDataChanged();
     }
-    return navigator.hasPreviousPage();
   }
 
   /**
-   * Loads the table with the previous page of issues.
+   * Shows the page retrieved by loadRefreshedPage unless another page has been shown 
+   * since the refresh started, since the refreshed page would be older than it. This 
+   * must be called on the event dispatch thread.
    * 
-   * @return true if there's a page before the page just loaded
-   * @throws IOException if the data can't be loaded
+   * @param page the refreshed page
+   * @param pageChangeCount the value of getPageChangeCount when the refresh started
+   */
+  public void showRefreshedPage(List<Issue> page, int pageChangeCount) {
+    if (pageChangeCount == this.pageChangeCount) {
+      showPage(page);
+    }
+  }
+
+  /**
+   * Replaces the issues with the same id as the given (i.e. synced) issues, on the current
+   * page and in the search results. The issues stay where they are until the page is 
+   * refreshed. This must be called on the event dispatch thread.
+   * 
+   * @param updatedIssues the issues that have been added or updated
+   */
+  public void showUpdatedIssues(List<Issue> updatedIssues) {
+    if (updatedIssues.isEmpty()) {
+      return;
+    }
+    
+    Map<Integer, Issue> issuesById = new HashMap<>();
+    for (Issue issue : updatedIssues) {
+      issuesById.put(issue.getId(), issue);
+    }
+
+    // The page is the same page, so a refresh that's in progress can still replace it
+    boolean changed = replaceIssues(currentRows, issuesById);
+    changed |= replaceIssues(searchResults, issuesById);
+    if (changed) {
+      fireTableDataChanged();
+    }
+  }
+
+  /**
+   * Gets the number of times the current page has been replaced.
+   * 
+   * @return the number of page changes
+   */
+  public int getPageChangeCount() {
+    return pageChangeCount;
+  }
+
+
+  /**
+   * Shows the given search results instead of the current page until clearSearchResults 
+   * is called. The current page keeps being paged and refreshed in the meantime.
+   * 
+   * @param results the issues to show
+   */
+  public void showSearchResults(List<Issue> results) {
+    searchResults = new IssueTable(users);
+    searchResults.addAll(results);
+    fireTableDataChanged();
+  }
+
+  /**
+   * Shows the current page again after showSearchResults.
    */
-  public boolean pageRight() throws IOException {
-    if (navigator.hasNextPage()) {
-      currentPage = navigator.getNextPage();
+  public void clearSearchResults() {
+    if (searchResults != null) {
+      searchResults = null;
       fireTableDataChanged();
     }
-    return navigator.hasNextPage();
+  }
+
+  /**
+   * Returns true if search results are shown instead of the current page.
+   * 
+   * @return true if search results are shown
+   */
+  public boolean isShowingSearchResults() {
+    return searchResults != null;
+  }
+
+  /**
+   * Returns true if the query has a page after the current page.
+   * 
+   * @return true if there's another page
+   */
+  public boolean hasNextPage() {
+    return currentRows != null && navigator.hasNextPage();
+  }
+
+  /**
+   * Returns true if the query has a page before the current page.
+   * 
+   * @return true if there's another page
+   */
+  public boolean hasPreviousPage() {
+    return currentRows != null && navigator.hasPreviousPage();
   }
 
   /**
@@ -103,16 +237,69 @@ public class IssueTableModel extends AbstractTableModel {
    * @return the issue at the specified row
    */
   public Issue getIssueAt(int rowIndex) {
-    return currentPage.get(rowIndex);
+    return getRows().getIssue(rowIndex);
+  }
+
+  /**
+   * Gets the issues in the table (i.e. the current page or the search results).
+   *
+   * @return the issues, in row order
+   */
+  public List<Issue> getIssues() {
+    IssueTable rows = getRows();
+    List<Issue> issues = new ArrayList<>();
+    for (int rowIndex = 0; rows != null && rowIndex < rows.size(); rowIndex++) {
+      issues.add(rows.getIssue(rowIndex));
+    }
+    return issues;
+  }
+
+  private void setCurrentPage(List<Issue> page) {
+    IssueTable rows = new IssueTable(users);
+    rows.addAll(page);
+    currentRows = rows;
+    pageChangeCount++;
+  }
+
+  // A page is the current page if it has the same issues in the same order, none of them updated
+  private boolean isCurrentPage(List<Issue> page) {
+    if (currentRows == null || currentRows.size() != page.size()) {
+      return false;
+    }
+    for (int row = 0; row < page.size(); row++) {
+      Issue issue = page.get(row);
+      if (currentRows.getId(row) != issue.getId() || !Objects.equals(currentRows.getUpdatedAt(row), issue.getUpdatedAt())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Returns true if any of the rows have been replaced
+  private boolean replaceIssues(IssueTable rows, Map<Integer, Issue> issuesById) {
+    boolean replaced = false;
+    for (int row = 0; rows != null && row < rows.size(); row++) {
+      Issue issue = issuesById.get(rows.getId(row));
+      if (issue != null) {
+        rows.set(row, issue);
+        replaced = true;
+      }
+    }
+    return replaced;
+  }
+
+  private IssueTable getRows() {
+    return searchResults != null ? searchResults : currentRows;
   }
 
   private Object getIssueFieldAt(int rowIndex, int columnIndex) {
-    Issue issue = currentPage.get(rowIndex);
+    IssueTable rows = getRows();
     switch (columnIndex) {
       case 0:
-        return issue.getTitle();
+        return rows.getTitle(rowIndex);
       case 1:
-        return issue.getBody().isEmpty() ? "No description provided" : issue.getBody();
+        String body = rows.getBody(rowIndex);
+        return body == null || body.isEmpty() ? "No description provided" : body;
     }
     return UNKNOWN_FIELD_VALUE;
   }
@@ -1,21 +1,46 @@
 package githubissuetracker.mappers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import static githubissuetracker.mappers.GitHubMapper.mapper;
 import githubissuetracker.models.Comment;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
- * The CommentMapper class converts text to a list of Comment objects.
+ * The CommentMapper class converts text (or a stream of text) to a list of Comment objects.
  * 
  * @author justinsvegliato
  */
 public class CommentMapper extends GitHubMapper<Comment> {
 
+  private static final ObjectReader reader = mapper.reader(new TypeReference<List<Comment>>() {});
+
+  /**
+   * Creates a new CommentMapper that decodes everything as it's read.
+   */
+  public CommentMapper() {
+    super();
+  }
+
+  /**
+   * Creates a new CommentMapper.
+   * 
+   * @param lazyBodies true to keep the bodies encoded until they're accessed
+   */
+  public CommentMapper(boolean lazyBodies) {
+    super(lazyBodies);
+  }
+
   @Override
   public List<Comment> map(String data) throws IOException {
-    return mapper.readValue(data, new TypeReference<List<Comment>>() {});
+    return read(reader, data);
+  }
+
+  @Override
+  public List<Comment> map(InputStream data) throws IOException {
+    return read(reader, data);
   }
 
 }
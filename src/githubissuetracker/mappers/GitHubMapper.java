@@ -1,16 +1,55 @@
 package githubissuetracker.mappers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import githubissuetracker.models.LazyText;
+import githubissuetracker.models.User;
+import githubissuetracker.models.UserDictionary;
+import githubissuetracker.util.Histogram;
+import githubissuetracker.util.MetricsRegistry;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 /**
  * The GitHubMapper class handles converting data from text to an object. The 
  * subclasses will provide their own map() functions with a concrete class (rather
- * than just a generic type T).
+ * than just a generic type T). Each subclass should build its ObjectReader once from 
+ * the shared mapper and reuse it, since readers are immutable and thread-safe.
+ * 
+ * Optionally, the mappers decode bodies lazily. The data is then read into a buffer 
+ * before it's parsed, and every LazyText field (i.e. the body of an issue or a comment) 
+ * keeps the raw bytes of its JSON string instead of a decoded String. Jackson skips 
+ * over those strings without decoding them at all. The buffer is reused by every page
+ * that's read on the same thread, since it would otherwise cost several times as much
+ * garbage as the page itself (and more than decoding the bodies right away).
+ * 
+ * The authors are interned as they're read: every issue and comment of the same author
+ * that a mapper reads shares a single User (see UserDictionary), rather than holding an
+ * identical copy each.
  * 
  * @author justinsvegliato
  * @param <T> the type to convert the text to
@@ -20,14 +59,60 @@ public abstract class GitHubMapper<T> {
   /**
    * The mapper to be used by children of GitHubMapper. Theses are settings
    * that should be common to all children given the format of the GitHub API.
+   * Dates are parsed (and written as text, see RecordWriter) with java.time rather than
+   * a shared SimpleDateFormat since the mappers are used by several threads at once.
    */
   protected static final ObjectMapper mapper = new ObjectMapper() {
     {
       setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES);
-      setDateFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'"));
+      registerModule(new SimpleModule()
+              .addDeserializer(Date.class, new TimestampDeserializer())
+              .addSerializer(Date.class, new TimestampSerializer())
+              .addDeserializer(LazyText.class, new LazyTextDeserializer())
+              .setDeserializerModifier(new BeanDeserializerModifier() {
+                @Override
+                public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, 
+                        BeanDescription description, JsonDeserializer<?> deserializer) {
+                  return description.getBeanClass() == User.class ? new InterningUserDeserializer(deserializer) 
+                          : deserializer;
+                }
+              }));
       configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
   };
+
+  private static final String BUFFER_ATTRIBUTE = "githubissuetracker.buffer";
+  private static final String USERS_ATTRIBUTE = "githubissuetracker.users";
+  private static final int INITIAL_BUFFER_SIZE = 256 * 1024;
+  private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+  private static final Histogram parseTimer = MetricsRegistry.getDefault().timer(MetricsRegistry.PARSE_TIME);
+
+  // The buffer each thread reads its pages into, unless a page was too big to keep around
+  private static final ThreadLocal<byte[]> readBuffers = new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[INITIAL_BUFFER_SIZE];
+    }
+  };
+
+  private final boolean lazyBodies;
+  private final UserDictionary users = new UserDictionary();
+
+  /**
+   * Creates a new GitHubMapper that decodes everything as it's read.
+   */
+  protected GitHubMapper() {
+    this(false);
+  }
+
+  /**
+   * Creates a new GitHubMapper.
+   * 
+   * @param lazyBodies true to keep bodies encoded until they're accessed
+   */
+  protected GitHubMapper(boolean lazyBodies) {
+    this.lazyBodies = lazyBodies;
+  }
   
   /**
    * Maps the given data to a list of objects since nobody likes dealing
@@ -39,4 +124,232 @@ public abstract class GitHubMapper<T> {
    */
   public abstract List<T> map(String data) throws IOException;
 
+  /**
+   * Maps the data read from the given stream to a list of objects. Unlike map(String), 
+   * the data is parsed as it is read, so the raw text is never held in memory. The
+   * stream is closed once the data has been read.
+   * 
+   * @param data the stream to read the data from
+   * @return a list of objects
+   * @throws IOException if the data can't be read or converted to an object
+   */
+  public abstract List<T> map(InputStream data) throws IOException;
+
+  /**
+   * Converts a list of objects back to data that map() can read. This is what's
+   * used to store pages on disk.
+   * 
+   * @param entries the objects to be converted
+   * @return the data
+   * @throws IOException if the objects can't be converted
+   */
+  public byte[] write(List<T> entries) throws IOException {
+    return mapper.writeValueAsBytes(entries);
+  }
+
+  /**
+   * Reads the given data with the given reader, keeping the bodies encoded if this
+   * mapper decodes them lazily.
+   * 
+   * @param <R> the type of the result
+   * @param reader the reader for the type of the result
+   * @param data the data to be read
+   * @return the result
+   * @throws IOException if the data can't be converted to an object
+   */
+  protected <R> R read(ObjectReader reader, String data) throws IOException {
+    if (!lazyBodies) {
+      long startTime = System.nanoTime();
+      try {
+        return reader.withAttribute(USERS_ATTRIBUTE, users).readValue(data);
+      } finally {
+        parseTimer.recordSince(startTime);
+      }
+    }
+    byte[] buffer = data.getBytes(StandardCharsets.UTF_8);
+    return readBuffer(reader, buffer, buffer.length);
+  }
+
+  /**
+   * Reads the data from the given stream with the given reader, keeping the bodies 
+   * encoded if this mapper decodes them lazily. The stream is closed once the data has 
+   * been read.
+   * 
+   * @param <R> the type of the result
+   * @param reader the reader for the type of the result
+   * @param data the stream to read the data from
+   * @return the result
+   * @throws IOException if the data can't be read or converted to an object
+   */
+  protected <R> R read(ObjectReader reader, InputStream data) throws IOException {
+    if (!lazyBodies) {
+      long startTime = System.nanoTime();
+      try (JsonParser parser = mapper.getFactory().createParser(data)) {
+        return reader.withAttribute(USERS_ATTRIBUTE, users).readValue(parser);
+      } finally {
+        parseTimer.recordSince(startTime);
+      }
+    }
+
+    // The bodies are slices of the data, so all of it has to be in memory first
+    byte[] buffer = readBuffers.get();
+    int length = 0;
+    try (InputStream in = data) {
+      int count;
+      while ((count = in.read(buffer, length, buffer.length - length)) != -1) {
+        length += count;
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+      }
+    }
+
+    // The bodies copy their bytes out of the buffer, so it can be reused right away
+    if (buffer.length <= MAX_KEPT_BUFFER_SIZE) {
+      readBuffers.set(buffer);
+    }
+    return readBuffer(reader, buffer, length);
+  }
+
+  private <R> R readBuffer(ObjectReader reader, byte[] buffer, int length) throws IOException {
+    long startTime = System.nanoTime();
+    try (JsonParser parser = mapper.getFactory().createParser(buffer, 0, length)) {
+      return reader.withAttribute(BUFFER_ATTRIBUTE, buffer).withAttribute(USERS_ATTRIBUTE, users).readValue(parser);
+    } finally {
+      parseTimer.recordSince(startTime);
+    }
+  }
+
+  // Keeps the raw bytes of the string if the buffer being parsed is available
+  private static class LazyTextDeserializer extends StdScalarDeserializer<LazyText> {
+
+    private LazyTextDeserializer() {
+      super(LazyText.class);
+    }
+
+    @Override
+    public LazyText deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      Object buffer = context.getAttribute(BUFFER_ATTRIBUTE);
+      if (parser.getCurrentToken() != JsonToken.VALUE_STRING || !(buffer instanceof byte[])) {
+        return LazyText.of(parser.getValueAsString());
+      }
+
+      // The location of a value in an object is that of its field name, so that's skipped
+      byte[] data = (byte[]) buffer;
+      int start = findOpeningQuote(data, (int) parser.getTokenLocation().getByteOffset()) + 1;
+      int end = findClosingQuote(data, start);
+      int next = skipWhitespace(data, end + 1);
+      if (next < data.length && data[next] == ':') {
+        start = findOpeningQuote(data, next) + 1;
+        end = findClosingQuote(data, start);
+      }
+      return LazyText.fromJson(data, start, end);
+    }
+
+    private int findOpeningQuote(byte[] data, int start) throws IOException {
+      for (int i = start; i < data.length; i++) {
+        if (data[i] == '"') {
+          return i;
+        }
+      }
+      throw new IOException("No string at offset " + start);
+    }
+
+    private int skipWhitespace(byte[] data, int start) {
+      int i = start;
+      while (i < data.length && (data[i] == ' ' || data[i] == '\t' || data[i] == '\n' || data[i] == '\r')) {
+        i++;
+      }
+      return i;
+    }
+
+    // Neither quotes nor backslashes occur inside multi-byte UTF-8 sequences. A quote is
+    // escaped if it's preceded by an odd number of backslashes, which is checked only for
+    // the (rare) quotes rather than for every byte.
+    private int findClosingQuote(byte[] data, int start) throws IOException {
+      for (int i = start; i < data.length; i++) {
+        if (data[i] == '"') {
+          int backslashes = 0;
+          while (i - backslashes > start && data[i - backslashes - 1] == '\\') {
+            backslashes++;
+          }
+          if (backslashes % 2 == 0) {
+            return i;
+          }
+        }
+      }
+      throw new IOException("Unterminated string at offset " + start);
+    }
+
+  }
+
+  // Writes dates in GitHub's format (i.e. "2015-06-01T12:00:00Z") unless timestamps are asked for
+  private static class TimestampSerializer extends StdScalarSerializer<Date> {
+
+    private TimestampSerializer() {
+      super(Date.class);
+    }
+
+    @Override
+    public void serialize(Date date, JsonGenerator generator, SerializerProvider provider) throws IOException {
+      if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+        generator.writeNumber(date.getTime());
+      } else {
+        generator.writeString(DateTimeFormatter.ISO_INSTANT.format(date.toInstant().truncatedTo(ChronoUnit.SECONDS)));
+      }
+    }
+
+  }
+
+  // Reads a user as usual and swaps it for the copy of the same author read before, if any
+  private static class InterningUserDeserializer extends DelegatingDeserializer {
+
+    private InterningUserDeserializer(JsonDeserializer<?> deserializer) {
+      super(deserializer);
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> deserializer) {
+      return new InterningUserDeserializer(deserializer);
+    }
+
+    @Override
+    public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      Object user = super.deserialize(parser, context);
+      Object users = context.getAttribute(USERS_ATTRIBUTE);
+      if (user instanceof User && users instanceof UserDictionary) {
+        return ((UserDictionary) users).intern((User) user);
+      }
+      return user;
+    }
+
+  }
+
+  // Parses GitHub's ISO 8601 timestamps (i.e. "2015-06-01T12:00:00Z") without any shared state
+  private static class TimestampDeserializer extends StdScalarDeserializer<Date> {
+
+    private TimestampDeserializer() {
+      super(Date.class);
+    }
+
+    @Override
+    public Date deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+        return _parseDate(parser, context);
+      }
+      
+      String text = parser.getText().trim();
+      if (text.isEmpty()) {
+        return null;
+      }
+      
+      try {
+        return Date.from(Instant.parse(text));
+      } catch (DateTimeParseException ex) {
+        throw context.weirdStringException(text, Date.class, "expected an ISO 8601 timestamp");
+      }
+    }
+
+  }
+
 }
@@ -1,20 +1,45 @@
 package githubissuetracker.mappers;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import githubissuetracker.models.Issue;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
- * The IssueMapper class converts text to a list of Issue objects.
+ * The IssueMapper class converts text (or a stream of text) to a list of Issue objects.
  * 
  * @author justinsvegliato
  */
 public class IssueMapper extends GitHubMapper<Issue> {
 
+  private static final ObjectReader reader = mapper.reader(new TypeReference<List<Issue>>() {});
+
+  /**
+   * Creates a new IssueMapper that decodes everything as it's read.
+   */
+  public IssueMapper() {
+    super();
+  }
+
+  /**
+   * Creates a new IssueMapper.
+   * 
+   * @param lazyBodies true to keep the bodies encoded until they're accessed
+   */
+  public IssueMapper(boolean lazyBodies) {
+    super(lazyBodies);
+  }
+
   @Override
   public List<Issue> map(String data) throws IOException {
-    return mapper.readValue(data, new TypeReference<List<Issue>>() {});
+    return read(reader, data);
+  }
+
+  @Override
+  public List<Issue> map(InputStream data) throws IOException {
+    return read(reader, data);
   }
 
 }
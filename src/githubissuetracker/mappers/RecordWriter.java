@@ -0,0 +1,83 @@
+package githubissuetracker.mappers;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The RecordWriter class writes objects to a stream as newline-delimited JSON (i.e. one
+ * JSON object per line). The objects are converted with the same conventions as the
+ * mappers (i.e. "created_at" rather than "createdAt"), except that dates are written in
+ * GitHub's own format rather than as timestamps.
+ *
+ * Records can be written from several threads at once. Each record is converted on the
+ * calling thread and written in one piece, so the lines of different records are never
+ * mixed up.
+ *
+ * @author justinsvegliato
+ */
+public class RecordWriter implements Closeable {
+
+  // The mappers write dates with an immutable java.time formatter once timestamps are off,
+  // rather than a DateFormat (which Jackson would clone for every record)
+  private static final ObjectWriter writer = GitHubMapper.mapper.writer()
+          .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private final OutputStream out;
+
+  // Guarded by this
+  private long recordCount = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates a new RecordWriter. The stream should be buffered.
+   *
+   * @param out the stream to write the records to
+   */
+  public RecordWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes a record.
+   *
+   * @param record the object to write
+   * @throws IOException if the record can't be converted or written
+   */
+  public void write(Object record) throws IOException {
+    byte[] line = writer.writeValueAsBytes(record);
+    synchronized (this) {
+      if (closed) {
+        throw new IOException("The writer has been closed");
+      }
+      out.write(line);
+      out.write('\n');
+      recordCount++;
+    }
+  }
+
+  /**
+   * Gets the number of records written so far.
+   *
+   * @return the record count
+   */
+  public synchronized long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Flushes and closes the stream.
+   *
+   * @throws IOException if the stream can't be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      out.close();
+    }
+  }
+
+}
@@ -1,5 +1,6 @@
 package githubissuetracker.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Date;
 
 /**
@@ -11,7 +12,7 @@ import java.util.Date;
 public class Comment {
 
   private int id;
-  private String body;
+  private LazyText body;
   private User user;
   private Date createdAt;
 
@@ -35,6 +36,16 @@ public class Comment {
    * @return the comment text
    */
   public String getBody() {
+    return body == null ? null : body.toString();
+  }
+
+  /**
+   * Gets the comment text without decoding it (i.e. to weigh or index it).
+   * 
+   * @return the comment text, or null if there's none
+   */
+  @JsonIgnore
+  public LazyText getBodyText() {
     return body;
   }
 
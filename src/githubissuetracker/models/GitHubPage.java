@@ -5,7 +5,8 @@ import java.util.List;
 /**
  * The GitHubPage class represents the fields of a page retrieved from the GitHub API. 
  * This includes not only the data from the request body, but the navigation links 
- * retrieved from the request header.
+ * retrieved from the request header. The page also keeps the validators (i.e. the ETag 
+ * and Last-Modified headers) so that it can be revalidated with a conditional request.
  *
  * @author justinsvegliato
  * @param <T> the type of data in the request body
@@ -13,11 +14,14 @@ import java.util.List;
 public class GitHubPage<T> {
 
   private final int id;
+  private final String url;
   private final String firstPageUrl;
   private final String previousPageUrl;
   private final String nextPageUrl;
   private final String lastPageUrl;
   private final List<T> entries;
+  private final String entityTag;
+  private final String lastModified;
 
   /**
    * Creates a new GitHubPage class.
@@ -31,12 +35,33 @@ public class GitHubPage<T> {
    */
   public GitHubPage(int id, String firstPageUrl, String previousPageUrl, String nextPageUrl, 
           String lastPageUrl, List<T> entries) {
+    this(id, null, firstPageUrl, previousPageUrl, nextPageUrl, lastPageUrl, entries, null, null);
+  }
+
+  /**
+   * Creates a new GitHubPage class that can be revalidated.
+   *
+   * @param id the id of the page
+   * @param url the URL the page was retrieved from
+   * @param firstPageUrl the URL of the first page
+   * @param previousPageUrl the URL of the previous page
+   * @param nextPageUrl the URL of the next page
+   * @param lastPageUrl the URL of the last page
+   * @param entries the data retrieved from the page
+   * @param entityTag the ETag header of the response, or null if there wasn't one
+   * @param lastModified the Last-Modified header of the response, or null if there wasn't one
+   */
+  public GitHubPage(int id, String url, String firstPageUrl, String previousPageUrl, String nextPageUrl, 
+          String lastPageUrl, List<T> entries, String entityTag, String lastModified) {
     this.id = id;
+    this.url = url;
     this.firstPageUrl = firstPageUrl;
     this.previousPageUrl = previousPageUrl;
     this.nextPageUrl = nextPageUrl;
     this.lastPageUrl = lastPageUrl;
     this.entries = entries;
+    this.entityTag = entityTag;
+    this.lastModified = lastModified;
   }
 
   /**
@@ -48,6 +73,15 @@ public class GitHubPage<T> {
     return id;
   }
 
+  /**
+   * Gets the URL the page was retrieved from.
+   * 
+   * @return the URL, or null if it isn't known
+   */
+  public String getUrl() {
+    return url;
+  }
+
   /**
    * Gets the URL of the first page.
    * 
@@ -93,4 +127,24 @@ public class GitHubPage<T> {
     return entries;
   }
 
+  /**
+   * Gets the ETag of the page. This is sent in the If-None-Match header when the page
+   * is revalidated.
+   * 
+   * @return the ETag, or null if the response didn't have one
+   */
+  public String getEntityTag() {
+    return entityTag;
+  }
+
+  /**
+   * Gets the time that the page was last modified. This is sent in the If-Modified-Since
+   * header when the page is revalidated.
+   * 
+   * @return the Last-Modified header, or null if the response didn't have one
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
 }
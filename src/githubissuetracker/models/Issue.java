@@ -1,5 +1,6 @@
 package githubissuetracker.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Date;
 
 /**
@@ -13,16 +14,34 @@ public class Issue {
   private int id;
   private int number;
   private String title;
-  private String body;
+  private LazyText body;
   private User user;
   private String commentsUrl;
+  private int comments;
   private Date createdAt;
+  private Date updatedAt;
+  private String state;
 
   /**
    * Creates a new Issue.
    */
   public Issue() {}
 
+  // Used by IssueTable to materialize the issues it stores column by column
+  Issue(int id, int number, String title, LazyText body, User user, String commentsUrl, int comments, 
+          Date createdAt, Date updatedAt, String state) {
+    this.id = id;
+    this.number = number;
+    this.title = title;
+    this.body = body;
+    this.user = user;
+    this.commentsUrl = commentsUrl;
+    this.comments = comments;
+    this.createdAt = createdAt;
+    this.updatedAt = updatedAt;
+    this.state = state;
+  }
+
   /**
    * Gets the id of this issue.
    *
@@ -56,6 +75,16 @@ public class Issue {
    * @return the issue description
    */
   public String getBody() {
+    return body == null ? null : body.toString();
+  }
+
+  /**
+   * Gets the description of this issue without decoding it (i.e. to weigh or index it).
+   *
+   * @return the issue description, or null if there's none
+   */
+  @JsonIgnore
+  public LazyText getBodyText() {
     return body;
   }
 
@@ -68,6 +97,15 @@ public class Issue {
     return commentsUrl;
   }
 
+  /**
+   * Gets the number of comments on this issue (as of when it was retrieved).
+   *
+   * @return the comment count
+   */
+  public int getComments() {
+    return comments;
+  }
+
   /**
    * Gets the creation date of this issue.
    *
@@ -77,6 +115,24 @@ public class Issue {
     return createdAt;
   }
 
+  /**
+   * Gets the date this issue was last updated (i.e. edited, commented on or closed).
+   *
+   * @return the update date
+   */
+  public Date getUpdatedAt() {
+    return updatedAt;
+  }
+
+  /**
+   * Gets the state of this issue (i.e. "open" or "closed").
+   *
+   * @return the issue state
+   */
+  public String getState() {
+    return state;
+  }
+
   /**
    * Gets the user who posted this issue.
    *
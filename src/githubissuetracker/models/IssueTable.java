@@ -0,0 +1,270 @@
+package githubissuetracker.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IssueTable class stores issues column by column rather than as an Issue object
+ * each. The numeric fields are kept in primitive arrays, the authors in a UserDictionary
+ * and the state as a single byte, so a large number of bulk-loaded issues takes far less
+ * memory than the objects Jackson creates for them. The strings (i.e. the title and the
+ * description) are shared with the issues that were added, not copied, and descriptions
+ * that haven't been decoded yet (see LazyText) are only decoded when they're asked for.
+ *
+ * Timestamps are stored as unsigned seconds since the epoch, which is the precision the
+ * GitHub API uses, and reach until 2106. An Issue object is only created when an issue
+ * is asked for (see getIssue and asList).
+ *
+ * The table isn't thread-safe; it's meant to be filled once and then read, or guarded by
+ * whoever keeps it up to date.
+ *
+ * @author justinsvegliato
+ */
+public class IssueTable {
+
+  private static final int INITIAL_CAPACITY = 32;
+  private static final int NO_TIMESTAMP = -1;
+  private static final String[] STATES = {null, "open", "closed"};
+
+  private final UserDictionary users;
+
+  private int size = 0;
+  private int[] ids = new int[INITIAL_CAPACITY];
+  private int[] numbers = new int[INITIAL_CAPACITY];
+  private int[] userIndexes = new int[INITIAL_CAPACITY];
+  private int[] commentCounts = new int[INITIAL_CAPACITY];
+  private int[] createdTimes = new int[INITIAL_CAPACITY];
+  private int[] updatedTimes = new int[INITIAL_CAPACITY];
+  private byte[] states = new byte[INITIAL_CAPACITY];
+  private String[] titles = new String[INITIAL_CAPACITY];
+  private LazyText[] bodies = new LazyText[INITIAL_CAPACITY];
+  private String[] commentsUrls = new String[INITIAL_CAPACITY];
+
+  /**
+   * Creates a new IssueTable with a user dictionary of its own.
+   */
+  public IssueTable() {
+    this(new UserDictionary());
+  }
+
+  /**
+   * Creates a new IssueTable that shares the given user dictionary, so that tables with
+   * the same authors store each of them only once.
+   *
+   * @param users the dictionary the authors are stored in
+   */
+  public IssueTable(UserDictionary users) {
+    this.users = users;
+  }
+
+  /**
+   * Appends issues to the table.
+   *
+   * @param issues the issues to add
+   */
+  public void addAll(List<Issue> issues) {
+    ensureCapacity(size + issues.size());
+    for (Issue issue : issues) {
+      add(issue);
+    }
+  }
+
+  /**
+   * Appends an issue to the table.
+   *
+   * @param issue the issue to add
+   */
+  public void add(Issue issue) {
+    ensureCapacity(size + 1);
+    size++;
+    set(size - 1, issue);
+  }
+
+  /**
+   * Replaces the issue in the given row (i.e. with a newer copy of it).
+   *
+   * @param row the row of the issue
+   * @param issue the issue to store in its place
+   */
+  public void set(int row, Issue issue) {
+    checkRow(row);
+    ids[row] = issue.getId();
+    numbers[row] = issue.getNumber();
+    userIndexes[row] = users.add(issue.getUser());
+    commentCounts[row] = issue.getComments();
+    createdTimes[row] = toSeconds(issue.getCreatedAt());
+    updatedTimes[row] = toSeconds(issue.getUpdatedAt());
+    states[row] = toStateCode(issue.getState());
+    titles[row] = issue.getTitle();
+    bodies[row] = issue.getBodyText();
+    commentsUrls[row] = issue.getCommentsUrl();
+  }
+
+  /**
+   * Gets the number of issues in the table.
+   *
+   * @return the number of issues
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the id of the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the issue id
+   */
+  public int getId(int row) {
+    checkRow(row);
+    return ids[row];
+  }
+
+  /**
+   * Gets the number of the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the issue number
+   */
+  public int getNumber(int row) {
+    checkRow(row);
+    return numbers[row];
+  }
+
+  /**
+   * Gets the title of the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the issue title
+   */
+  public String getTitle(int row) {
+    checkRow(row);
+    return titles[row];
+  }
+
+  /**
+   * Gets the description of the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the issue description
+   */
+  public String getBody(int row) {
+    checkRow(row);
+    return bodies[row] == null ? null : bodies[row].toString();
+  }
+
+  /**
+   * Gets the user who posted the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the user, which is shared by every issue of the same author
+   */
+  public User getUser(int row) {
+    checkRow(row);
+    return users.get(userIndexes[row]);
+  }
+
+  /**
+   * Gets the creation date of the issue in the given row.
+   *
+   * @param row the row of the issue
+   * @return the creation date
+   */
+  public Date getCreatedAt(int row) {
+    checkRow(row);
+    return toDate(createdTimes[row]);
+  }
+
+  /**
+   * Gets the date the issue in the given row was last updated.
+   *
+   * @param row the row of the issue
+   * @return the update date
+   */
+  public Date getUpdatedAt(int row) {
+    checkRow(row);
+    return toDate(updatedTimes[row]);
+  }
+
+  /**
+   * Creates an Issue with the fields of the given row. A new object is created every
+   * time, so callers that need an issue repeatedly should keep it.
+   *
+   * @param row the row of the issue
+   * @return the issue
+   */
+  public Issue getIssue(int row) {
+    checkRow(row);
+    return new Issue(ids[row], numbers[row], titles[row], bodies[row], users.get(userIndexes[row]),
+            commentsUrls[row], commentCounts[row], toDate(createdTimes[row]), toDate(updatedTimes[row]), STATES[states[row]]);
+  }
+
+  /**
+   * Gets a read-only list view of the table. The issues are created as they're accessed.
+   *
+   * @return the issues of the table
+   */
+  public List<Issue> asList() {
+    return new AbstractList<Issue>() {
+      @Override
+      public Issue get(int index) {
+        return getIssue(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{size=[%d], users=[%d]}", size, users.size());
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of range (size " + size + ")");
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= ids.length) {
+      return;
+    }
+
+    int newCapacity = Math.max(capacity, ids.length * 2);
+    ids = Arrays.copyOf(ids, newCapacity);
+    numbers = Arrays.copyOf(numbers, newCapacity);
+    userIndexes = Arrays.copyOf(userIndexes, newCapacity);
+    commentCounts = Arrays.copyOf(commentCounts, newCapacity);
+    createdTimes = Arrays.copyOf(createdTimes, newCapacity);
+    updatedTimes = Arrays.copyOf(updatedTimes, newCapacity);
+    states = Arrays.copyOf(states, newCapacity);
+    titles = Arrays.copyOf(titles, newCapacity);
+    bodies = Arrays.copyOf(bodies, newCapacity);
+    commentsUrls = Arrays.copyOf(commentsUrls, newCapacity);
+  }
+
+  private int toSeconds(Date date) {
+    return date == null ? NO_TIMESTAMP : (int) TimeUnit.MILLISECONDS.toSeconds(date.getTime());
+  }
+
+  private Date toDate(int seconds) {
+    return seconds == NO_TIMESTAMP ? null : new Date(TimeUnit.SECONDS.toMillis(Integer.toUnsignedLong(seconds)));
+  }
+
+  private byte toStateCode(String state) {
+    for (byte code = 1; code < STATES.length; code++) {
+      if (STATES[code].equals(state)) {
+        return code;
+      }
+    }
+    return 0;
+  }
+
+}
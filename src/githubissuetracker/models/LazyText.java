@@ -0,0 +1,281 @@
+package githubissuetracker.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The LazyText class holds a piece of text (i.e. the body of an issue or a comment) that
+ * may not have been decoded yet. The mappers can keep a body as the raw bytes of the
+ * JSON string it was read from (still UTF-8 encoded and escaped), which is cheaper to
+ * read than a String and takes half the memory for plain text. The bytes are decoded
+ * the first time the text is asked for with toString, and the String then takes their
+ * place, so a body is decoded at most once. Anything that only needs to look at the text
+ * once (i.e. the search index) can read it with chars instead, which decodes it on the
+ * fly without creating (or keeping) the String.
+ *
+ * The text may be decoded by several threads at once, which at worst decodes it twice.
+ *
+ * @author justinsvegliato
+ */
+public class LazyText {
+
+  private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+  private final int rawLength;
+
+  // The bytes are dropped once they've been decoded, so the text is read before the bytes
+  private volatile String text;
+  private volatile byte[] encodedText;
+
+  private LazyText(String text, byte[] encodedText) {
+    this.text = text;
+    this.encodedText = encodedText;
+    this.rawLength = text != null ? text.length() : encodedText.length;
+  }
+
+  /**
+   * Creates a LazyText from text that has already been decoded.
+   *
+   * @param text the text
+   * @return the LazyText, or null if the text is null
+   */
+  public static LazyText of(String text) {
+    return text == null ? null : new LazyText(text, null);
+  }
+
+  /**
+   * Creates a LazyText from the contents of a JSON string. The bytes are copied, so the
+   * buffer they're taken from isn't retained.
+   *
+   * @param buffer the UTF-8 encoded JSON
+   * @param start the offset of the first byte after the opening quote
+   * @param end the offset of the closing quote
+   * @return the LazyText
+   */
+  public static LazyText fromJson(byte[] buffer, int start, int end) {
+    return new LazyText(null, Arrays.copyOfRange(buffer, start, end));
+  }
+
+  /**
+   * Returns true if the text is empty. This doesn't decode the text.
+   *
+   * @return true if the text is empty
+   */
+  public boolean isEmpty() {
+    return rawLength == 0;
+  }
+
+  /**
+   * Gets the length of the text as it was read, which is cheap to weigh it by: the
+   * number of encoded bytes of text that was read lazily, or the number of characters of
+   * text that was decoded right away. This doesn't decode the text.
+   *
+   * @return the raw length of the text
+   */
+  public int getRawLength() {
+    return rawLength;
+  }
+
+  /**
+   * Gets the characters of the text one at a time (i.e. like CharSequence.chars). Text
+   * that hasn't been decoded yet is decoded as it's read, and isn't kept.
+   *
+   * @return an iterator over the characters of the text
+   */
+  public PrimitiveIterator.OfInt chars() {
+    String decodedText = text;
+    if (decodedText != null) {
+      return decodedText.chars().iterator();
+    }
+    byte[] data = encodedText;
+    return data != null ? new CharIterator(data) : text.chars().iterator();
+  }
+
+  /**
+   * Gets the hash code the decoded text would have (i.e. toString().hashCode()) without
+   * decoding it into a String.
+   *
+   * @return the hash code of the text
+   */
+  public int getTextHashCode() {
+    String decodedText = text;
+    if (decodedText != null) {
+      return decodedText.hashCode();
+    }
+
+    int hashCode = 0;
+    PrimitiveIterator.OfInt chars = chars();
+    while (chars.hasNext()) {
+      hashCode = 31 * hashCode + chars.nextInt();
+    }
+    return hashCode;
+  }
+
+  /**
+   * Decodes the text, the first time it's asked for.
+   *
+   * @return the text
+   */
+  @Override
+  public String toString() {
+    String decodedText = text;
+    if (decodedText == null) {
+      byte[] data = encodedText;
+      if (data == null) {
+        return text;
+      }
+      decodedText = decode(data);
+      text = decodedText;
+      encodedText = null;
+    }
+    return decodedText;
+  }
+
+  // Decodes the UTF-8 between the escape sequences in bulk and the escape sequences by hand
+  private static String decode(byte[] data) {
+    int escape = indexOf(data, (byte) '\\', 0);
+    if (escape < 0) {
+      return new String(data, StandardCharsets.UTF_8);
+    }
+
+    StringBuilder builder = new StringBuilder(data.length);
+    int start = 0;
+    while (escape >= 0) {
+      builder.append(new String(data, start, escape - start, StandardCharsets.UTF_8));
+
+      byte type = data[escape + 1];
+      start = escape + 2;
+      switch (type) {
+        case 'b':
+          builder.append('\b');
+          break;
+        case 'f':
+          builder.append('\f');
+          break;
+        case 'n':
+          builder.append('\n');
+          break;
+        case 'r':
+          builder.append('\r');
+          break;
+        case 't':
+          builder.append('\t');
+          break;
+        case 'u':
+          // Surrogate pairs are written as two escapes, which simply decode to two chars
+          builder.append((char) Integer.parseInt(new String(data, start, 4, StandardCharsets.US_ASCII), 16));
+          start += 4;
+          break;
+        default:
+          // i.e. \" \\ and \/
+          builder.append((char) type);
+          break;
+      }
+
+      escape = indexOf(data, (byte) '\\', start);
+    }
+
+    builder.append(new String(data, start, data.length - start, StandardCharsets.UTF_8));
+    return builder.toString();
+  }
+
+  private static int indexOf(byte[] data, byte value, int start) {
+    for (int i = start; i < data.length; i++) {
+      if (data[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // Decodes the UTF-8 and the escape sequences one character at a time, the same way as decode
+  private static class CharIterator implements PrimitiveIterator.OfInt {
+
+    private final byte[] data;
+    private int offset = 0;
+    private char pendingLowSurrogate = 0;
+
+    private CharIterator(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return pendingLowSurrogate != 0 || offset < data.length;
+    }
+
+    @Override
+    public int nextInt() {
+      if (pendingLowSurrogate != 0) {
+        char c = pendingLowSurrogate;
+        pendingLowSurrogate = 0;
+        return c;
+      }
+      if (offset >= data.length) {
+        throw new NoSuchElementException();
+      }
+
+      int b = data[offset++];
+      if (b == '\\') {
+        return nextEscaped();
+      }
+      if (b >= 0) {
+        return b;
+      }
+
+      // The length of a sequence is given by the leading ones of its first byte
+      int length;
+      int codePoint;
+      if ((b & 0xE0) == 0xC0) {
+        length = 1;
+        codePoint = b & 0x1F;
+      } else if ((b & 0xF0) == 0xE0) {
+        length = 2;
+        codePoint = b & 0x0F;
+      } else if ((b & 0xF8) == 0xF0) {
+        length = 3;
+        codePoint = b & 0x07;
+      } else {
+        return REPLACEMENT_CHARACTER;
+      }
+      for (int i = 0; i < length; i++) {
+        if (offset >= data.length || (data[offset] & 0xC0) != 0x80) {
+          return REPLACEMENT_CHARACTER;
+        }
+        codePoint = (codePoint << 6) | (data[offset++] & 0x3F);
+      }
+
+      if (Character.isSupplementaryCodePoint(codePoint)) {
+        pendingLowSurrogate = Character.lowSurrogate(codePoint);
+        return Character.highSurrogate(codePoint);
+      }
+      return codePoint;
+    }
+
+    private int nextEscaped() {
+      byte type = data[offset++];
+      switch (type) {
+        case 'b':
+          return '\b';
+        case 'f':
+          return '\f';
+        case 'n':
+          return '\n';
+        case 'r':
+          return '\r';
+        case 't':
+          return '\t';
+        case 'u':
+          int c = Integer.parseInt(new String(data, offset, 4, StandardCharsets.US_ASCII), 16);
+          offset += 4;
+          return c;
+        default:
+          return type;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+package githubissuetracker.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The UserDictionary class keeps a single copy of every user. The GitHub API repeats the
+ * author of every issue and comment, so a few hundred authors turn into thousands of
+ * identical User objects. Each user is instead stored once and referred to by its index.
+ * 
+ * @author justinsvegliato
+ */
+public class UserDictionary {
+
+  /** The index that stands for a missing user */
+  public static final int NO_USER = -1;
+
+  private final List<User> users = new ArrayList<>();
+  private final Map<String, Integer> indexesByLogin = new HashMap<>();
+
+  /**
+   * Adds a user to the dictionary if a user with the same login isn't in it yet.
+   * 
+   * @param user the user to add, or null
+   * @return the index of the user, or NO_USER if the user is null
+   */
+  public synchronized int add(User user) {
+    if (user == null || user.getLogin() == null) {
+      return NO_USER;
+    }
+
+    Integer index = indexesByLogin.get(user.getLogin());
+    if (index == null) {
+      index = users.size();
+      users.add(user);
+      indexesByLogin.put(user.getLogin(), index);
+    }
+    return index;
+  }
+
+  /**
+   * Gets the user in the dictionary with the same login as the given user, adding the
+   * given user if there's none yet. The mappers use this to share a single User between
+   * every issue and comment of the same author as they're read.
+   * 
+   * @param user the user to look up, or null
+   * @return the user in the dictionary, or the given user if it has no login
+   */
+  public synchronized User intern(User user) {
+    int index = add(user);
+    return index == NO_USER ? user : users.get(index);
+  }
+
+  /**
+   * Gets the user with the given index.
+   * 
+   * @param index the index returned when the user was added
+   * @return the user, or null if the index is NO_USER
+   */
+  public synchronized User get(int index) {
+    return index == NO_USER ? null : users.get(index);
+  }
+
+  /**
+   * Gets the number of distinct users in the dictionary.
+   * 
+   * @return the number of users
+   */
+  public synchronized int size() {
+    return users.size();
+  }
+
+}
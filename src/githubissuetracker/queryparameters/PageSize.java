@@ -0,0 +1,44 @@
+package githubissuetracker.queryparameters;
+
+/**
+ * The PageSize class represents the "per_page" query parameter in the GitHub API. It
+ * sets the number of entries on each page, which is 30 by default and at most 100.
+ * Larger pages mean fewer requests to retrieve the same data, while smaller pages
+ * arrive sooner.
+ * 
+ * @author justinsvegliato
+ */
+public class PageSize implements QueryParameter {
+
+  /** The number of entries on a page if no page size is given */
+  public static final int DEFAULT_SIZE = 30;
+
+  /** The largest page size that GitHub allows */
+  public static final int MAXIMUM_SIZE = 100;
+
+  private static final String PARAMETER_NAME = "per_page";
+  private final String parameterValue;
+
+  /**
+   * Creates a new PageSize parameter (i.e. "?per_page=100").
+   * 
+   * @param size the number of entries on each page, from 1 to 100
+   */
+  public PageSize(int size) {
+    if (size < 1 || size > MAXIMUM_SIZE) {
+      throw new IllegalArgumentException("The page size must be between 1 and " + MAXIMUM_SIZE);
+    }
+    this.parameterValue = Integer.toString(size);
+  }
+
+  @Override
+  public String getParameterName() {
+    return PARAMETER_NAME;
+  }
+
+  @Override
+  public String getParameterValue() {
+    return parameterValue;
+  }
+
+}
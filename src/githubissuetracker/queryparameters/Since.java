@@ -0,0 +1,38 @@
+package githubissuetracker.queryparameters;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * The Since class represents the "since" query parameter in the GitHub API. It limits
+ * the results to the data updated at or after the given time. Unlike the other query
+ * parameters, its value isn't one of a fixed set, so it's a class rather than an enum.
+ * 
+ * @author justinsvegliato
+ */
+public class Since implements QueryParameter {
+
+  private static final String PARAMETER_NAME = "since";
+  private final String parameterValue;
+
+  /**
+   * Creates a new Since parameter (i.e. "?since=2015-06-01T12:00:00Z").
+   * 
+   * @param timestamp the earliest update time of the data to be retrieved
+   */
+  public Since(Date timestamp) {
+    // Rounding down keeps the parameter inclusive and the timestamp free of fractions
+    this.parameterValue = timestamp.toInstant().truncatedTo(ChronoUnit.SECONDS).toString();
+  }
+
+  @Override
+  public String getParameterName() {
+    return PARAMETER_NAME;
+  }
+
+  @Override
+  public String getParameterValue() {
+    return parameterValue;
+  }
+
+}
@@ -0,0 +1,66 @@
+package githubissuetracker.util;
+
+import java.util.Collection;
+
+/**
+ * The Cache interface represents a bounded key-value store that keeps the most useful
+ * entries and evicts the rest. This lets the navigators and the comment cache hold on 
+ * to data without letting the heap grow forever during long sessions.
+ *
+ * @author justinsvegliato
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public interface Cache<K, V> {
+
+  /**
+   * Gets the value stored for the given key.
+   *
+   * @param key the key
+   * @return the value, or null if the key isn't cached (or has expired)
+   */
+  public V get(K key);
+
+  /**
+   * Stores a value for the given key, evicting other entries if the cache is full.
+   *
+   * @param key the key
+   * @param value the value
+   */
+  public void put(K key, V value);
+
+  /**
+   * Removes the value stored for the given key.
+   *
+   * @param key the key
+   * @return the value that was removed, or null if there wasn't one
+   */
+  public V remove(K key);
+
+  /**
+   * Gets a snapshot of the values currently in the cache.
+   *
+   * @return the values
+   */
+  public Collection<V> values();
+
+  /**
+   * Gets the number of entries currently in the cache.
+   *
+   * @return the number of entries
+   */
+  public int size();
+
+  /**
+   * Removes every entry from the cache.
+   */
+  public void clear();
+
+  /**
+   * Gets the hit, miss and eviction counts of the cache.
+   *
+   * @return the statistics
+   */
+  public CacheStatistics getStatistics();
+
+}
@@ -0,0 +1,68 @@
+package githubissuetracker.util;
+
+/**
+ * The CacheStatistics class is a snapshot of the counters of a Cache.
+ *
+ * @author justinsvegliato
+ */
+public class CacheStatistics {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+
+  /**
+   * Creates a new CacheStatistics.
+   *
+   * @param hitCount the number of lookups that found a value
+   * @param missCount the number of lookups that didn't find a value
+   * @param evictionCount the number of entries removed to make room or because they expired
+   */
+  public CacheStatistics(long hitCount, long missCount, long evictionCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+  }
+
+  /**
+   * Gets the number of lookups that found a value.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of lookups that didn't find a value.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Gets the number of entries removed to make room or because they expired.
+   *
+   * @return the eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Gets the fraction of lookups that found a value.
+   *
+   * @return the hit ratio, or 0 if there haven't been any lookups
+   */
+  public double getHitRatio() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{hits=[%d], misses=[%d], evictions=[%d]}", hitCount, missCount, evictionCount);
+  }
+}
@@ -0,0 +1,46 @@
+package githubissuetracker.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Counter class counts events (i.e. cache hits or requests). It's cheap to update
+ * from many threads at once.
+ *
+ * @author justinsvegliato
+ */
+public class Counter implements CounterMBean {
+
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Adds one to the count.
+   */
+  public void increment() {
+    count.increment();
+  }
+
+  /**
+   * Adds the given amount to the count.
+   *
+   * @param amount the amount to add
+   */
+  public void add(long amount) {
+    count.add(amount);
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public void reset() {
+    count.reset();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{count=[%d]}", getCount());
+  }
+
+}
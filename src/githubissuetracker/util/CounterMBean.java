@@ -0,0 +1,22 @@
+package githubissuetracker.util;
+
+/**
+ * The CounterMBean interface is the management interface of a Counter.
+ *
+ * @author justinsvegliato
+ */
+public interface CounterMBean {
+
+  /**
+   * Gets the current count.
+   *
+   * @return the count
+   */
+  public long getCount();
+
+  /**
+   * Sets the count back to 0.
+   */
+  public void reset();
+
+}
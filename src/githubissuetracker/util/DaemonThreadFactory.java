@@ -0,0 +1,34 @@
+package githubissuetracker.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The DaemonThreadFactory class creates the daemon threads used for background work
+ * (i.e. prefetching pages or loading comments). Daemon threads never keep the 
+ * application alive after the user closes the window.
+ *
+ * @author justinsvegliato
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+  private final String name;
+  private final AtomicInteger threadCount = new AtomicInteger();
+
+  /**
+   * Creates a new DaemonThreadFactory.
+   *
+   * @param name the name of the threads, which is suffixed with a thread number
+   */
+  public DaemonThreadFactory(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+}
@@ -0,0 +1,34 @@
+package githubissuetracker.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The Gauge class reports a value that's owned by another object (i.e. the depth of a
+ * queue), which is read whenever the gauge is. Unlike a counter, nothing is recorded.
+ *
+ * @author justinsvegliato
+ */
+public class Gauge implements GaugeMBean {
+
+  private final LongSupplier valueSupplier;
+
+  /**
+   * Creates a new Gauge.
+   *
+   * @param valueSupplier the supplier of the current value
+   */
+  public Gauge(LongSupplier valueSupplier) {
+    this.valueSupplier = valueSupplier;
+  }
+
+  @Override
+  public long getValue() {
+    return valueSupplier.getAsLong();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{value=[%d]}", getValue());
+  }
+
+}
@@ -0,0 +1,17 @@
+package githubissuetracker.util;
+
+/**
+ * The GaugeMBean interface is the management interface of a Gauge.
+ *
+ * @author justinsvegliato
+ */
+public interface GaugeMBean {
+
+  /**
+   * Gets the current value.
+   *
+   * @return the value
+   */
+  public long getValue();
+
+}
@@ -0,0 +1,208 @@
+package githubissuetracker.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The HedgingTransport class cuts off the slow tail of interactive requests. If a request
+ * takes longer than 95% of the recent requests, a second copy is sent and whichever
+ * answers first is used. This costs a few extra requests, so background requests (which
+ * nobody is waiting on) are never hedged, and neither is anything once the remaining rate
+ * limit budget drops below 500 requests (where the RequestScheduler starts pacing).
+ *
+ * The latencies are those of the round trip over the network alone, so the transport has
+ * to sit below the RequestScheduler (i.e. between it and the UrlConnectionTransport). Above
+ * it, the time a request waits in the queue (or is paced) would be counted as latency and
+ * hedged, and the copy would have to wait in the queue too. Down here, the scheduler sees
+ * a single request whose response is the winner, and the loser is closed as it arrives.
+ *
+ * @author justinsvegliato
+ */
+public class HedgingTransport implements HttpTransport {
+
+  private static final Logger logger = Logger.getLogger(HedgingTransport.class.getName());
+  private static final int LATENCY_SAMPLE_SIZE = 200;
+  private static final int MIN_LATENCY_SAMPLES = 20;
+  private static final double HEDGE_PERCENTILE = 0.95;
+  private static final int MIN_REMAINING_REQUESTS = 500;
+
+  private final HttpTransport transport;
+  private final ExecutorService executor;
+  private final AtomicLong hedgeCount = new AtomicLong();
+
+  // The most recent latencies in a ring buffer, guarded by itself
+  private final long[] latencySamples = new long[LATENCY_SAMPLE_SIZE];
+  private int latencySampleCount = 0;
+
+  // The budget as last reported by GitHub, or -1 if it's unknown (i.e. there's no rate limit)
+  private volatile int remainingRequests = ResponseHeaders.UNKNOWN;
+
+  /**
+   * Creates a new HedgingTransport.
+   *
+   * @param transport the transport that actually sends the requests
+   */
+  public HedgingTransport(HttpTransport transport) {
+    this.transport = transport;
+    this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("HedgingTransport-hedge"));
+  }
+
+  @Override
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+          throws IOException {
+    return send(url, requestHeaders, null, priority);
+  }
+
+  @Override
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    return send(url, requestHeaders, body, priority);
+  }
+
+  /**
+   * Gets the number of requests that were slow enough to be hedged.
+   *
+   * @return the number of hedged requests
+   */
+  public long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * Gets the latency a request has to exceed before it's hedged.
+   *
+   * @return the 95th percentile of the recent latencies in milliseconds, or -1 if too few
+   *     requests have been timed
+   */
+  public long getHedgeThresholdMillis() {
+    long[] samples;
+    synchronized (latencySamples) {
+      if (latencySampleCount < MIN_LATENCY_SAMPLES) {
+        return -1;
+      }
+      samples = Arrays.copyOf(latencySamples, Math.min(latencySampleCount, LATENCY_SAMPLE_SIZE));
+    }
+
+    Arrays.sort(samples);
+    return samples[(int) Math.ceil(HEDGE_PERCENTILE * samples.length) - 1];
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{hedges=[%d], threshold=[%d]}", getHedgeCount(), getHedgeThresholdMillis());
+  }
+
+  // A request without a body is a GET, otherwise it's a POST
+  private HttpResponse send(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    long thresholdMillis = getHedgeThresholdMillis();
+    int remaining = remainingRequests;
+    if (priority != RequestPriority.INTERACTIVE || thresholdMillis < 0
+            || (remaining != ResponseHeaders.UNKNOWN && remaining < MIN_REMAINING_REQUESTS)) {
+      return sendTimed(url, requestHeaders, body, priority);
+    }
+    return sendHedged(thresholdMillis, url, requestHeaders, body, priority);
+  }
+
+  // Sends the request, and sends it again if it hasn't been answered within the threshold
+  private HttpResponse sendHedged(long thresholdMillis, final String url, final Map<String, String> requestHeaders,
+          final byte[] body, final RequestPriority priority) throws IOException {
+    // Only the first successful copy is returned, so the other one closes its own response
+    final AtomicBoolean answered = new AtomicBoolean(false);
+    Callable<HttpResponse> request = new Callable<HttpResponse>() {
+      @Override
+      public HttpResponse call() throws IOException {
+        HttpResponse response = sendTimed(url, requestHeaders, body, priority);
+        if (!answered.compareAndSet(false, true)) {
+          response.close();
+          return null;
+        }
+        return response;
+      }
+    };
+
+    CompletionService<HttpResponse> completionService = new ExecutorCompletionService<>(executor);
+    Future<HttpResponse> original = completionService.submit(request);
+    Future<HttpResponse> hedge = null;
+    int pendingRequests = 1;
+
+    IOException failure = null;
+    try {
+      Future<HttpResponse> completedRequest = completionService.poll(thresholdMillis, TimeUnit.MILLISECONDS);
+      if (completedRequest == null) {
+        logger.log(Level.FINE, "No response from {0} within {1} ms, hedging", new Object[] {url, thresholdMillis});
+        hedgeCount.incrementAndGet();
+        hedge = completionService.submit(request);
+        pendingRequests++;
+      }
+
+      while (pendingRequests > 0) {
+        if (completedRequest == null) {
+          completedRequest = completionService.take();
+        }
+        pendingRequests--;
+
+        try {
+          HttpResponse response = completedRequest.get();
+          if (response != null) {
+            return response;
+          }
+        } catch (ExecutionException ex) {
+          failure = ex.getCause() instanceof IOException ? (IOException) ex.getCause()
+                  : new IOException("Failed to retrieve " + url, ex.getCause());
+        }
+        completedRequest = null;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + url);
+    } finally {
+      // The loser closes its response if it still arrives, since nobody will take it
+      answered.set(true);
+      original.cancel(true);
+      if (hedge != null) {
+        hedge.cancel(true);
+      }
+    }
+
+    throw failure;
+  }
+
+  private HttpResponse sendTimed(String url, Map<String, String> requestHeaders, byte[] body,
+          RequestPriority priority) throws IOException {
+    long startTime = System.nanoTime();
+    HttpResponse response = body == null ? transport.get(url, requestHeaders, priority)
+            : transport.post(url, requestHeaders, body, priority);
+    if (response.isSuccessful()) {
+      recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    int remaining = new ResponseHeaders(response).getRateLimitRemaining();
+    if (remaining != ResponseHeaders.UNKNOWN) {
+      remainingRequests = remaining;
+    }
+    return response;
+  }
+
+  private void recordLatency(long latencyMillis) {
+    synchronized (latencySamples) {
+      latencySamples[latencySampleCount % LATENCY_SAMPLE_SIZE] = latencyMillis;
+      latencySampleCount++;
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+package githubissuetracker.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Histogram class records the distribution of non-negative values (i.e. latencies or
+ * sizes) in a fixed amount of memory, in the same way as an HDR histogram. Values below
+ * 128 get a bucket each. Above that, every power of two is split into 64 buckets, so a
+ * percentile is never off by more than about 1.6% of its value however large it is. A
+ * value is recorded with a single atomic increment, so many threads can record at once
+ * without locking.
+ *
+ * The percentiles are reported as the highest value of their bucket (but never more than
+ * the maximum recorded), so they err on the side of being too high.
+ *
+ * @author justinsvegliato
+ */
+public class Histogram implements HistogramMBean {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+  private final String unit;
+  private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Creates a new Histogram.
+   *
+   * @param unit the unit of the recorded values (i.e. "us" or "bytes")
+   */
+  public Histogram(String unit) {
+    this.unit = unit;
+  }
+
+  /**
+   * Records a value. Negative values are recorded as 0.
+   *
+   * @param value the value
+   */
+  public void record(long value) {
+    long boundedValue = Math.max(value, 0);
+    bucketCounts.incrementAndGet(getBucket(boundedValue));
+    sum.add(boundedValue);
+
+    long currentMax = max.get();
+    while (boundedValue > currentMax && !max.compareAndSet(currentMax, boundedValue)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Records the time that has passed since the given time in microseconds.
+   *
+   * @param startNanos the start time as returned by System.nanoTime
+   */
+  public void recordSince(long startNanos) {
+    record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+  }
+
+  /**
+   * Gets the value below which the given percentage of the recorded values fall.
+   *
+   * @param percentile the percentile (between 0 and 100)
+   * @return the value at the percentile, or 0 if nothing has been recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long totalCount = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      counts[bucket] = bucketCounts.get(bucket);
+      totalCount += counts[bucket];
+    }
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    long targetCount = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+    long cumulativeCount = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      cumulativeCount += counts[bucket];
+      if (cumulativeCount >= targetCount) {
+        return Math.min(getHighestValue(bucket), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  @Override
+  public String getUnit() {
+    return unit;
+  }
+
+  @Override
+  public long getCount() {
+    long count = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      count += bucketCounts.get(bucket);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the sum of the recorded values (i.e. the total number of bytes).
+   *
+   * @return the sum
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public double getMean() {
+    long count = getCount();
+    return count == 0 ? 0 : (double) sum.sum() / count;
+  }
+
+  @Override
+  public long getMax() {
+    return max.get();
+  }
+
+  @Override
+  public long getPercentile50() {
+    return getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getPercentile90() {
+    return getValueAtPercentile(90);
+  }
+
+  @Override
+  public long getPercentile99() {
+    return getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getPercentile999() {
+    return getValueAtPercentile(99.9);
+  }
+
+  /**
+   * Discards every recorded value. Values recorded while the histogram is being reset may
+   * or may not be kept.
+   */
+  @Override
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      bucketCounts.set(bucket, 0);
+    }
+    sum.reset();
+    max.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{count=[%d], p50=[%d], p99=[%d], max=[%d], unit=[%s]}",
+            getCount(), getPercentile50(), getPercentile99(), getMax(), unit);
+  }
+
+  // Small values map to themselves, larger ones to 64 buckets per power of two
+  private static int getBucket(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) ((value >>> shift) - SUB_BUCKET_HALF_COUNT);
+  }
+
+  private static long getHighestValue(int bucket) {
+    if (bucket < SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+    long subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    long highestValue = ((subBucket + 1) << shift) - 1;
+    return highestValue < 0 ? Long.MAX_VALUE : highestValue;
+  }
+
+}
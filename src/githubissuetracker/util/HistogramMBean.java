@@ -0,0 +1,72 @@
+package githubissuetracker.util;
+
+/**
+ * The HistogramMBean interface is the management interface of a Histogram, which
+ * exposes its summary statistics as JMX attributes.
+ *
+ * @author justinsvegliato
+ */
+public interface HistogramMBean {
+
+  /**
+   * Gets the unit of the recorded values (i.e. "us" or "bytes").
+   *
+   * @return the unit
+   */
+  public String getUnit();
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getCount();
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return the mean, or 0 if nothing has been recorded
+   */
+  public double getMean();
+
+  /**
+   * Gets the largest recorded value.
+   *
+   * @return the maximum, or 0 if nothing has been recorded
+   */
+  public long getMax();
+
+  /**
+   * Gets the median of the recorded values.
+   *
+   * @return the 50th percentile
+   */
+  public long getPercentile50();
+
+  /**
+   * Gets the 90th percentile of the recorded values.
+   *
+   * @return the 90th percentile
+   */
+  public long getPercentile90();
+
+  /**
+   * Gets the 99th percentile of the recorded values.
+   *
+   * @return the 99th percentile
+   */
+  public long getPercentile99();
+
+  /**
+   * Gets the 99.9th percentile of the recorded values.
+   *
+   * @return the 99.9th percentile
+   */
+  public long getPercentile999();
+
+  /**
+   * Discards every recorded value.
+   */
+  public void reset();
+
+}
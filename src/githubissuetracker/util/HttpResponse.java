@@ -0,0 +1,111 @@
+package githubissuetracker.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The HttpResponse class holds the status, the headers and the (already decompressed) 
+ * body of a response returned by an HttpTransport. Header names are case insensitive.
+ *
+ * @author justinsvegliato
+ */
+public class HttpResponse implements Closeable {
+
+  private final int statusCode;
+  private final Map<String, List<String>> headerFields;
+  private final InputStream body;
+
+  /**
+   * Creates a new HttpResponse.
+   *
+   * @param statusCode the HTTP status code
+   * @param headerFields the response headers
+   * @param body the response body
+   */
+  public HttpResponse(int statusCode, Map<String, List<String>> headerFields, InputStream body) {
+    this.statusCode = statusCode;
+    this.headerFields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (Map.Entry<String, List<String>> headerField : headerFields.entrySet()) {
+      // HttpURLConnection stores the status line under a null key
+      if (headerField.getKey() != null) {
+        this.headerFields.put(headerField.getKey(), headerField.getValue());
+      }
+    }
+    this.body = body;
+  }
+
+  /**
+   * Gets the HTTP status code.
+   *
+   * @return the status code
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * Returns true if the status code is in the 2xx range.
+   *
+   * @return true if the request succeeded
+   */
+  public boolean isSuccessful() {
+    return statusCode >= 200 && statusCode < 300;
+  }
+
+  /**
+   * Gets every value of the given header.
+   *
+   * @param name the name of the header
+   * @return the values, or an empty list if the header isn't present
+   */
+  public List<String> getHeaderValues(String name) {
+    List<String> values = headerFields.get(name);
+    return values == null ? Collections.<String>emptyList() : values;
+  }
+
+  /**
+   * Gets the first value of the given header.
+   *
+   * @param name the name of the header
+   * @return the value, or null if the header isn't present
+   */
+  public String getHeaderField(String name) {
+    List<String> values = headerFields.get(name);
+    return values == null || values.isEmpty() ? null : values.get(0);
+  }
+
+  /**
+   * Gets every header of the response.
+   *
+   * @return the headers
+   */
+  public Map<String, List<String>> getHeaderFields() {
+    return Collections.unmodifiableMap(headerFields);
+  }
+
+  /**
+   * Gets the body of the response.
+   *
+   * @return the body
+   */
+  public InputStream getBody() {
+    return body;
+  }
+
+  /**
+   * Closes the body. The body should be read to the end first so that the underlying
+   * connection can be reused.
+   *
+   * @throws IOException if the body can't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    body.close();
+  }
+
+}
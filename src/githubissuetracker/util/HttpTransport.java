@@ -0,0 +1,44 @@
+package githubissuetracker.util;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The HttpTransport interface represents the layer that actually sends requests to the
+ * GitHub API. Everything that talks to GitHub goes through a transport, which makes it 
+ * easy to swap out how requests are sent (or to wrap a transport to add behavior to 
+ * every request).
+ *
+ * @author justinsvegliato
+ */
+public interface HttpTransport {
+
+  /**
+   * Sends a GET request to the given URL. Unlike URLConnection, a response is returned
+   * for every status code, so callers must check the status of the response.
+   *
+   * @param url the URL to request
+   * @param requestHeaders the headers to send with the request
+   * @param priority how urgently the response is needed
+   * @return the response, which must be closed once its body has been read
+   * @throws IOException if the request can't be sent or the response can't be read
+   */
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority) 
+          throws IOException;
+
+  /**
+   * Sends a POST request with the given body to the given URL. This is only used for
+   * read-only queries (i.e. to the GraphQL API), so it's as safe to send again as a GET.
+   * Like get, a response is returned for every status code.
+   *
+   * @param url the URL to send the request to
+   * @param requestHeaders the headers to send with the request
+   * @param body the body of the request
+   * @param priority how urgently the response is needed
+   * @return the response, which must be closed once its body has been read
+   * @throws IOException if the request can't be sent or the response can't be read
+   */
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority) 
+          throws IOException;
+
+}
@@ -0,0 +1,193 @@
+package githubissuetracker.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The LruCache class is a Cache that evicts the least recently used entries once the total
+ * weight of its entries exceeds a maximum. By default, every entry weighs 1 (so the maximum
+ * is just an entry count), but a Weigher can be given to bound the cache by an estimate
+ * of its size in bytes instead. Entries can optionally expire after a fixed time to live.
+ *
+ * All of the methods are synchronized since the cache is shared with background threads.
+ *
+ * @author justinsvegliato
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+
+  /**
+   * The Weigher interface estimates how much room a value takes up in the cache.
+   *
+   * @param <V> the type of the values
+   */
+  public interface Weigher<V> {
+
+    /**
+     * Gets the weight of the given value.
+     *
+     * @param value the value
+     * @return the weight, which must not be negative
+     */
+    public long weigh(V value);
+
+  }
+
+  private static final long NO_EXPIRATION = 0;
+
+  // Iterates from the least to the most recently used entry
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final long maximumWeight;
+  private final long timeToLiveMillis;
+  private final Weigher<? super V> weigher;
+
+  private long totalWeight = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  /**
+   * Creates a new LruCache that holds at most the given number of entries.
+   *
+   * @param maximumSize the maximum number of entries
+   */
+  public LruCache(int maximumSize) {
+    this(maximumSize, NO_EXPIRATION, null);
+  }
+
+  /**
+   * Creates a new LruCache.
+   *
+   * @param maximumWeight the maximum total weight of the entries
+   * @param timeToLiveMillis the time after which an entry expires, or 0 if entries never expire
+   * @param weigher the weigher of the values, or null to give every entry a weight of 1
+   */
+  public LruCache(long maximumWeight, long timeToLiveMillis, Weigher<? super V> weigher) {
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("The maximum weight must be positive");
+    }
+    if (timeToLiveMillis < 0) {
+      throw new IllegalArgumentException("The time to live must not be negative");
+    }
+    this.maximumWeight = maximumWeight;
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.weigher = weigher;
+  }
+
+  @Override
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      missCount++;
+      return null;
+    }
+
+    if (isExpired(entry)) {
+      removeEntry(key);
+      evictionCount++;
+      missCount++;
+      return null;
+    }
+
+    hitCount++;
+    return entry.value;
+  }
+
+  @Override
+  public synchronized void put(K key, V value) {
+    long weight = weigher == null ? 1 : weigher.weigh(value);
+    Entry<V> previousEntry = entries.put(key, new Entry<>(value, weight, System.currentTimeMillis()));
+    if (previousEntry != null) {
+      totalWeight -= previousEntry.weight;
+    }
+    totalWeight += weight;
+    evict();
+  }
+
+  @Override
+  public synchronized V remove(K key) {
+    Entry<V> entry = removeEntry(key);
+    return entry == null ? null : entry.value;
+  }
+
+  @Override
+  public synchronized Collection<V> values() {
+    List<V> values = new ArrayList<>(entries.size());
+    for (Entry<V> entry : entries.values()) {
+      if (!isExpired(entry)) {
+        values.add(entry.value);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+    totalWeight = 0;
+  }
+
+  @Override
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(hitCount, missCount, evictionCount);
+  }
+
+  /**
+   * Gets the total weight of the entries in the cache.
+   *
+   * @return the total weight
+   */
+  public synchronized long getTotalWeight() {
+    return totalWeight;
+  }
+
+  // Removes the least recently used entries until the cache fits again. The newest
+  // entry is always kept, even if it's heavier than the maximum on its own.
+  private void evict() {
+    Iterator<Entry<V>> iterator = entries.values().iterator();
+    while (totalWeight > maximumWeight && entries.size() > 1) {
+      Entry<V> entry = iterator.next();
+      iterator.remove();
+      totalWeight -= entry.weight;
+      evictionCount++;
+    }
+  }
+
+  private Entry<V> removeEntry(K key) {
+    Entry<V> entry = entries.remove(key);
+    if (entry != null) {
+      totalWeight -= entry.weight;
+    }
+    return entry;
+  }
+
+  private boolean isExpired(Entry<V> entry) {
+    return timeToLiveMillis != NO_EXPIRATION && System.currentTimeMillis() - entry.creationTime > timeToLiveMillis;
+  }
+
+  private static class Entry<V> {
+
+    private final V value;
+    private final long weight;
+    private final long creationTime;
+
+    private Entry(V value, long weight, long creationTime) {
+      this.value = value;
+      this.weight = weight;
+      this.creationTime = creationTime;
+    }
+
+  }
+
+}
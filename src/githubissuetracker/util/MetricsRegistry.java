@@ -0,0 +1,288 @@
+package githubissuetracker.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The MetricsRegistry class holds the counters and histograms that the application
+ * records as it runs, by name. A metric is created the first time it's asked for and
+ * the same one is returned from then on, so every part of the application can look a
+ * metric up by its name rather than having it handed down. The metrics that the
+ * application records are named by the constants below. Timers are histograms of
+ * microseconds. Gauges report a value owned by another object whenever they're read, so
+ * they're registered by that object (and a later registration replaces an earlier one).
+ *
+ * Once JMX is enabled, every metric (including the ones created later) is registered
+ * with the platform MBean server under the "githubissuetracker" domain, so it can be
+ * watched with tools like JConsole or VisualVM.
+ *
+ * @author justinsvegliato
+ */
+public class MetricsRegistry {
+
+  /**
+   * The number of HTTP requests sent.
+   */
+  public static final String HTTP_REQUESTS = "http.requests";
+
+  /**
+   * The number of HTTP requests that failed without a response (i.e. timeouts).
+   */
+  public static final String HTTP_FAILURES = "http.failures";
+
+  /**
+   * The time from sending an HTTP request until the response headers have arrived.
+   */
+  public static final String HTTP_LATENCY = "http.latency";
+
+  /**
+   * The number of bytes of each HTTP response body as sent over the network (i.e. before
+   * it's decompressed), recorded when the body is closed.
+   */
+  public static final String HTTP_RESPONSE_BYTES = "http.responseBytes";
+
+  /**
+   * The time it takes to deserialize a page. Pages that are parsed as they're read from
+   * the network include the time spent waiting for the data.
+   */
+  public static final String PARSE_TIME = "parse.time";
+
+  /**
+   * The number of pages that were found in the page cache of a navigator.
+   */
+  public static final String PAGE_CACHE_HITS = "pageCache.hits";
+
+  /**
+   * The number of pages that weren't found in the page cache of a navigator.
+   */
+  public static final String PAGE_CACHE_MISSES = "pageCache.misses";
+
+  /**
+   * The number of comment threads that were found in the comment cache.
+   */
+  public static final String COMMENT_CACHE_HITS = "commentCache.hits";
+
+  /**
+   * The number of comment threads that weren't found in the comment cache.
+   */
+  public static final String COMMENT_CACHE_MISSES = "commentCache.misses";
+
+  /**
+   * The number of comment threads that were retrieved ahead of time, before their issue
+   * was opened.
+   */
+  public static final String COMMENT_PREFETCHES = "commentCache.prefetches";
+
+  /**
+   * The time from clicking a page button until the page of issues has been painted.
+   */
+  public static final String PAGE_RENDER_TIME = "ui.pageRender";
+
+  /**
+   * The time from clicking an issue until its comments have been painted.
+   */
+  public static final String COMMENTS_RENDER_TIME = "ui.commentsRender";
+
+  /**
+   * The number of requests waiting in the RequestScheduler to be sent.
+   */
+  public static final String SCHEDULER_QUEUE_DEPTH = "scheduler.queueDepth";
+
+  /**
+   * The number of requests the RequestScheduler has sent that haven't been answered yet.
+   */
+  public static final String SCHEDULER_ACTIVE_REQUESTS = "scheduler.activeRequests";
+
+  /**
+   * The number of requests left in the current rate limit window, or -1 if it isn't known.
+   */
+  public static final String SCHEDULER_REMAINING_REQUESTS = "scheduler.remainingRequests";
+
+  private static final Logger logger = Logger.getLogger(MetricsRegistry.class.getName());
+  private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+  private static final String JMX_DOMAIN = "githubissuetracker";
+  private static final String OBJECT_NAME_TEMPLATE = "%s:type=%s,name=%s";
+  private static final String MICROSECONDS = "us";
+
+  private final ConcurrentMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final ConcurrentMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+  private final ConcurrentMap<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+  // Guarded by this
+  private MBeanServer mbeanServer = null;
+
+  /**
+   * Gets the registry that the application records its metrics in.
+   *
+   * @return the default registry
+   */
+  public static MetricsRegistry getDefault() {
+    return defaultRegistry;
+  }
+
+  /**
+   * Gets the counter with the given name, creating it if it doesn't exist yet.
+   *
+   * @param name the name of the counter
+   * @return the counter
+   */
+  public Counter counter(String name) {
+    Counter counter = counters.get(name);
+    if (counter != null) {
+      return counter;
+    }
+
+    counter = new Counter();
+    Counter existingCounter = counters.putIfAbsent(name, counter);
+    if (existingCounter != null) {
+      return existingCounter;
+    }
+    register("Counter", name, counter);
+    return counter;
+  }
+
+  /**
+   * Gets the histogram with the given name, creating it with the given unit if it doesn't
+   * exist yet.
+   *
+   * @param name the name of the histogram
+   * @param unit the unit of the recorded values (i.e. "bytes")
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String unit) {
+    Histogram histogram = histograms.get(name);
+    if (histogram != null) {
+      return histogram;
+    }
+
+    histogram = new Histogram(unit);
+    Histogram existingHistogram = histograms.putIfAbsent(name, histogram);
+    if (existingHistogram != null) {
+      return existingHistogram;
+    }
+    register("Histogram", name, histogram);
+    return histogram;
+  }
+
+  /**
+   * Gets the timer with the given name (i.e. a histogram of microseconds), creating it
+   * if it doesn't exist yet. Durations are recorded with Histogram.recordSince.
+   *
+   * @param name the name of the timer
+   * @return the timer
+   */
+  public Histogram timer(String name) {
+    return histogram(name, MICROSECONDS);
+  }
+
+  /**
+   * Registers a gauge that reads its value from the given supplier, replacing the gauge 
+   * with the same name if there is one.
+   *
+   * @param name the name of the gauge
+   * @param valueSupplier the supplier of the current value
+   * @return the gauge
+   */
+  public Gauge gauge(String name, LongSupplier valueSupplier) {
+    Gauge gauge = new Gauge(valueSupplier);
+    gauges.put(name, gauge);
+    replace("Gauge", name, gauge);
+    return gauge;
+  }
+
+  /**
+   * Gets every counter by its name.
+   *
+   * @return the counters, sorted by name
+   */
+  public Map<String, Counter> getCounters() {
+    return Collections.unmodifiableMap(counters);
+  }
+
+  /**
+   * Gets every histogram (and timer) by its name.
+   *
+   * @return the histograms, sorted by name
+   */
+  public Map<String, Histogram> getHistograms() {
+    return Collections.unmodifiableMap(histograms);
+  }
+
+  /**
+   * Gets every gauge by its name.
+   *
+   * @return the gauges, sorted by name
+   */
+  public Map<String, Gauge> getGauges() {
+    return Collections.unmodifiableMap(gauges);
+  }
+
+  /**
+   * Registers every metric with the platform MBean server, as well as every metric that's
+   * created from now on.
+   */
+  public synchronized void enableJmx() {
+    if (mbeanServer != null) {
+      return;
+    }
+
+    mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+      register("Counter", counter.getKey(), counter.getValue());
+    }
+    for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+      register("Histogram", histogram.getKey(), histogram.getValue());
+    }
+    for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+      register("Gauge", gauge.getKey(), gauge.getValue());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{counters=[%s], histograms=[%s], gauges=[%s]}", counters, histograms, gauges);
+  }
+
+  // Unlike the other metrics, a gauge that's registered again replaces the earlier one
+  private synchronized void replace(String type, String name, Object metric) {
+    if (mbeanServer == null) {
+      return;
+    }
+
+    try {
+      ObjectName objectName = new ObjectName(String.format(OBJECT_NAME_TEMPLATE, JMX_DOMAIN, type, name));
+      if (mbeanServer.isRegistered(objectName)) {
+        mbeanServer.unregisterMBean(objectName);
+      }
+    } catch (JMException ex) {
+      logger.log(Level.WARNING, "Failed to unregister the metric " + name + " from JMX", ex);
+    }
+    register(type, name, metric);
+  }
+
+  // A metric that fails to register is still recorded, it just can't be watched over JMX
+  private synchronized void register(String type, String name, Object metric) {
+    if (mbeanServer == null) {
+      return;
+    }
+
+    try {
+      ObjectName objectName = new ObjectName(String.format(OBJECT_NAME_TEMPLATE, JMX_DOMAIN, type, name));
+      if (!mbeanServer.isRegistered(objectName)) {
+        mbeanServer.registerMBean(metric, objectName);
+      }
+    } catch (JMException ex) {
+      logger.log(Level.WARNING, "Failed to register the metric " + name + " with JMX", ex);
+    }
+  }
+
+}
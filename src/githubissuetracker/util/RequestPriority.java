@@ -0,0 +1,17 @@
+package githubissuetracker.util;
+
+/**
+ * The RequestPriority enum represents how urgently a request is needed. Transports that
+ * queue requests (i.e. the RequestScheduler) send interactive requests first.
+ * 
+ * @author justinsvegliato
+ */
+public enum RequestPriority {
+
+  /** A request that the user is waiting on (i.e. the current page or an opened issue) */
+  INTERACTIVE,
+
+  /** A request that nobody is waiting on yet (i.e. prefetching or refreshing) */
+  BACKGROUND
+
+}
@@ -0,0 +1,330 @@
+package githubissuetracker.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The ResponseHeaders class holds the metadata that GitHub sends in the headers of a
+ * response: the pagination links, the rate limit and the cache validators. The headers
+ * are parsed once when the object is created, so each subsystem can simply ask for what
+ * it needs (i.e. the page navigator for the links and validators and the request
+ * scheduler for the rate limit).
+ *
+ * The Link header (i.e. {@code <https://...&page=2>; rel="next", <https://...&page=5>; rel="last"})
+ * is tokenized in a single pass into a map from each relation type to its URL. Every
+ * value of the header is parsed, parameters other than rel are skipped, and if a
+ * relation type occurs more than once the first URL wins. Malformed links are ignored.
+ *
+ * @author justinsvegliato
+ */
+public class ResponseHeaders {
+
+  /**
+   * The value of the numeric fields that aren't present (or aren't numbers).
+   */
+  public static final int UNKNOWN = -1;
+
+  /**
+   * The relation type of the first page.
+   */
+  public static final String FIRST = "first";
+
+  /**
+   * The relation type of the previous page.
+   */
+  public static final String PREVIOUS = "prev";
+
+  /**
+   * The relation type of the next page.
+   */
+  public static final String NEXT = "next";
+
+  /**
+   * The relation type of the last page.
+   */
+  public static final String LAST = "last";
+
+  private static final String LINK_HEADER = "Link";
+  private static final String RATE_LIMIT_HEADER = "X-RateLimit-Limit";
+  private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+  private static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+  private static final String RETRY_AFTER_HEADER = "Retry-After";
+  private static final String ENTITY_TAG_HEADER = "ETag";
+  private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+  private static final String RELATION_PARAMETER = "rel";
+
+  private final Map<String, String> links;
+  private final int rateLimit;
+  private final int rateLimitRemaining;
+  private final long rateLimitReset;
+  private final int retryAfter;
+  private final String entityTag;
+  private final String lastModified;
+
+  /**
+   * Parses the headers of the given response.
+   *
+   * @param response the response
+   */
+  public ResponseHeaders(HttpResponse response) {
+    this.links = parseLinks(response.getHeaderValues(LINK_HEADER));
+    this.rateLimit = parseInt(response.getHeaderField(RATE_LIMIT_HEADER));
+    this.rateLimitRemaining = parseInt(response.getHeaderField(RATE_LIMIT_REMAINING_HEADER));
+    this.rateLimitReset = parseLong(response.getHeaderField(RATE_LIMIT_RESET_HEADER));
+    this.retryAfter = parseInt(response.getHeaderField(RETRY_AFTER_HEADER));
+    this.entityTag = response.getHeaderField(ENTITY_TAG_HEADER);
+    this.lastModified = response.getHeaderField(LAST_MODIFIED_HEADER);
+  }
+
+  /**
+   * Parses the values of a Link header into a map from each relation type (in lower case)
+   * to its URL.
+   *
+   * @param values the values of the Link header
+   * @return the links, or an empty map if there are none
+   */
+  public static Map<String, String> parseLinks(List<String> values) {
+    if (values.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, String> links = new HashMap<>();
+    for (String value : values) {
+      if (value != null) {
+        parseLinks(value, links);
+      }
+    }
+    return Collections.unmodifiableMap(links);
+  }
+
+  /**
+   * Gets the URL of the given relation type (i.e. "next").
+   *
+   * @param relation the relation type
+   * @return the URL, or null if there's no link of that type
+   */
+  public String getLink(String relation) {
+    return links.get(relation.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Gets every link of the Link header.
+   *
+   * @return a map from each relation type to its URL
+   */
+  public Map<String, String> getLinks() {
+    return links;
+  }
+
+  /**
+   * Gets the URL of the first page.
+   *
+   * @return the URL, or null if there's no such link
+   */
+  public String getFirstPageUrl() {
+    return links.get(FIRST);
+  }
+
+  /**
+   * Gets the URL of the previous page.
+   *
+   * @return the URL, or null if there's no such link
+   */
+  public String getPreviousPageUrl() {
+    return links.get(PREVIOUS);
+  }
+
+  /**
+   * Gets the URL of the next page.
+   *
+   * @return the URL, or null if there's no such link
+   */
+  public String getNextPageUrl() {
+    return links.get(NEXT);
+  }
+
+  /**
+   * Gets the URL of the last page.
+   *
+   * @return the URL, or null if there's no such link
+   */
+  public String getLastPageUrl() {
+    return links.get(LAST);
+  }
+
+  /**
+   * Gets the number of requests allowed per rate limit window.
+   *
+   * @return the rate limit, or UNKNOWN
+   */
+  public int getRateLimit() {
+    return rateLimit;
+  }
+
+  /**
+   * Gets the number of requests remaining in the current rate limit window.
+   *
+   * @return the remaining requests, or UNKNOWN
+   */
+  public int getRateLimitRemaining() {
+    return rateLimitRemaining;
+  }
+
+  /**
+   * Gets the time the current rate limit window resets.
+   *
+   * @return the reset time in seconds since the epoch, or UNKNOWN
+   */
+  public long getRateLimitReset() {
+    return rateLimitReset;
+  }
+
+  /**
+   * Gets the number of seconds GitHub asks the client to wait before the next request.
+   *
+   * @return the delay in seconds, or UNKNOWN
+   */
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+
+  /**
+   * Gets the entity tag of the response.
+   *
+   * @return the entity tag, or null if there isn't one
+   */
+  public String getEntityTag() {
+    return entityTag;
+  }
+
+  /**
+   * Gets the last modification date of the response (as sent by GitHub).
+   *
+   * @return the last modification date, or null if there isn't one
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{links=[%s], rateLimit=[%d], rateLimitRemaining=[%d], rateLimitReset=[%d], retryAfter=[%d], entityTag=[%s], lastModified=[%s]}",
+            links.keySet(), rateLimit, rateLimitRemaining, rateLimitReset, retryAfter, entityTag, lastModified);
+  }
+
+  // Walks over the value once: a URL in angle brackets followed by parameters separated by
+  // semicolons, with the links themselves separated by commas (which can't occur unquoted
+  // in a parameter but can occur in the URL)
+  private static void parseLinks(String value, Map<String, String> links) {
+    int length = value.length();
+    int i = 0;
+    while (i < length) {
+      int urlStart = value.indexOf('<', i);
+      if (urlStart < 0) {
+        return;
+      }
+      int urlEnd = value.indexOf('>', urlStart + 1);
+      if (urlEnd < 0) {
+        return;
+      }
+
+      String url = value.substring(urlStart + 1, urlEnd).trim();
+      i = urlEnd + 1;
+
+      // Parameters until the end of this link
+      while (i < length && value.charAt(i) != ',') {
+        if (value.charAt(i) != ';') {
+          i++;
+          continue;
+        }
+
+        int nameStart = skipWhitespace(value, i + 1);
+        int nameEnd = nameStart;
+        while (nameEnd < length && isTokenChar(value.charAt(nameEnd))) {
+          nameEnd++;
+        }
+
+        int valueStart = skipWhitespace(value, nameEnd);
+        if (valueStart >= length || value.charAt(valueStart) != '=') {
+          i = valueStart;
+          continue;
+        }
+        valueStart = skipWhitespace(value, valueStart + 1);
+
+        int valueEnd;
+        if (valueStart < length && value.charAt(valueStart) == '"') {
+          valueStart++;
+          valueEnd = value.indexOf('"', valueStart);
+          if (valueEnd < 0) {
+            valueEnd = length;
+          }
+          i = Math.min(valueEnd + 1, length);
+        } else {
+          valueEnd = valueStart;
+          while (valueEnd < length && isTokenChar(value.charAt(valueEnd))) {
+            valueEnd++;
+          }
+          i = valueEnd;
+        }
+
+        if (value.regionMatches(true, nameStart, RELATION_PARAMETER, 0, RELATION_PARAMETER.length())
+                && nameEnd - nameStart == RELATION_PARAMETER.length()) {
+          addRelations(value, valueStart, valueEnd, url, links);
+        }
+      }
+    }
+  }
+
+  // A relation can hold several space separated types (i.e. rel="next last")
+  private static void addRelations(String value, int start, int end, String url, Map<String, String> links) {
+    int i = start;
+    while (i < end) {
+      while (i < end && Character.isWhitespace(value.charAt(i))) {
+        i++;
+      }
+      int typeStart = i;
+      while (i < end && !Character.isWhitespace(value.charAt(i))) {
+        i++;
+      }
+      if (i > typeStart) {
+        String type = value.substring(typeStart, i).toLowerCase(Locale.ROOT);
+        if (!links.containsKey(type)) {
+          links.put(type, url);
+        }
+      }
+    }
+  }
+
+  private static int skipWhitespace(String value, int start) {
+    int i = start;
+    while (i < value.length() && Character.isWhitespace(value.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isTokenChar(char c) {
+    return c > ' ' && c != ';' && c != ',' && c != '=' && c != '"' && c != '<' && c != '>';
+  }
+
+  private static int parseInt(String value) {
+    long parsedValue = parseLong(value);
+    return parsedValue >= Integer.MIN_VALUE && parsedValue <= Integer.MAX_VALUE ? (int) parsedValue : UNKNOWN;
+  }
+
+  private static long parseLong(String value) {
+    if (value == null) {
+      return UNKNOWN;
+    }
+
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException ex) {
+      return UNKNOWN;
+    }
+  }
+
+}
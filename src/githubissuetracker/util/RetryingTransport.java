@@ -0,0 +1,142 @@
+package githubissuetracker.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The RetryingTransport class makes another transport resilient to flaky networks. Since
+ * every request is either a GET or a read-only query that's posted (i.e. to the GraphQL
+ * API), it's always safe to send it again. Requests that fail with an IOException or a
+ * 5xx status are retried after a jittered exponential backoff. The jitter keeps clients
+ * that failed together from retrying together. If a 5xx response says how long to wait
+ * with Retry-After, the retry waits at least that long. Timeouts are retried like any
+ * other failure, but a request whose thread has been interrupted isn't.
+ *
+ * The transport sits above the RequestScheduler, so every retry waits for its turn (and
+ * the rate limit) like any other request. Slow requests are hedged below the scheduler
+ * instead (see HedgingTransport).
+ *
+ * @author justinsvegliato
+ */
+public class RetryingTransport implements HttpTransport {
+
+  private static final Logger logger = Logger.getLogger(RetryingTransport.class.getName());
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+  private static final long DEFAULT_MAX_DELAY_MILLIS = 8000;
+
+  private final HttpTransport transport;
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  private final AtomicLong retryCount = new AtomicLong();
+
+  /**
+   * Creates a new RetryingTransport that makes up to 3 attempts, starting with a 500 ms
+   * backoff.
+   *
+   * @param transport the transport that actually sends the requests
+   */
+  public RetryingTransport(HttpTransport transport) {
+    this(transport, DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+  }
+
+  /**
+   * Creates a new RetryingTransport.
+   *
+   * @param transport the transport that actually sends the requests
+   * @param maxAttempts the maximum number of attempts per request (including the first)
+   * @param baseDelayMillis the longest backoff after the first failed attempt, which doubles
+   *     after every further failure
+   * @param maxDelayMillis the longest backoff after any failed attempt
+   */
+  public RetryingTransport(HttpTransport transport, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("At least one attempt must be allowed");
+    }
+
+    this.transport = transport;
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  @Override
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+          throws IOException {
+    return execute(url, requestHeaders, null, priority);
+  }
+
+  @Override
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    return execute(url, requestHeaders, body, priority);
+  }
+
+  // A request without a body is a GET, otherwise it's a POST
+  private HttpResponse execute(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+          throws IOException {
+    for (int attempt = 1; ; attempt++) {
+      int retryAfter = ResponseHeaders.UNKNOWN;
+      try {
+        HttpResponse response = body == null ? transport.get(url, requestHeaders, priority) 
+                : transport.post(url, requestHeaders, body, priority);
+        if (!isRetryable(response.getStatusCode()) || attempt >= maxAttempts) {
+          return response;
+        }
+
+        logger.log(Level.WARNING, "Attempt {0} to retrieve {1} failed (HTTP {2}), retrying",
+                new Object[] {attempt, url, response.getStatusCode()});
+        retryAfter = new ResponseHeaders(response).getRetryAfter();
+        response.close();
+      } catch (IOException ex) {
+        // A SocketTimeoutException is an InterruptedIOException too, but only an interrupt ends the retries
+        if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+          throw ex;
+        }
+        logger.log(Level.WARNING, "Attempt " + attempt + " to retrieve " + url + " failed, retrying", ex);
+      }
+
+      retryCount.incrementAndGet();
+      sleep(getBackoffMillis(attempt, retryAfter));
+    }
+  }
+
+  /**
+   * Gets the number of requests that were sent again after a failure.
+   *
+   * @return the number of retries
+   */
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  // Full jitter: a random delay up to the exponentially growing cap, but no less than Retry-After
+  private long getBackoffMillis(int attempt, int retryAfter) {
+    long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+    long backoffMillis = ThreadLocalRandom.current().nextLong(cap + 1);
+    return retryAfter == ResponseHeaders.UNKNOWN ? backoffMillis : Math.max(backoffMillis, retryAfter * 1000L);
+  }
+
+  private boolean isRetryable(int statusCode) {
+    return statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR || statusCode == HttpURLConnection.HTTP_BAD_GATEWAY
+            || statusCode == HttpURLConnection.HTTP_UNAVAILABLE || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+  }
+
+  private void sleep(long millis) throws IOException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+}
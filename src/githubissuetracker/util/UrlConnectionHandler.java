@@ -1,21 +1,26 @@
 package githubissuetracker.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The UrlHandler class provides functions that deals with connecting to and 
  * receiving data from URLs. While this class currently only has two functions, 
- * it would grow over time as the complexity of the system grows.
+ * it would grow over time as the complexity of the system grows. Requests to the 
+ * GitHub API go through an HttpTransport (see UrlConnectionTransport), which uses
+ * these functions to open its connections.
  *
  * @author justinsvegliato
  */
 public class UrlConnectionHandler {
 
+  private static final int READ_BUFFER_SIZE = 8192;
+
   // The constructor is private to prevent instantation
   private UrlConnectionHandler() {
     throw new AssertionError();
@@ -29,15 +34,16 @@ public class UrlConnectionHandler {
    * @throws IOException if a connection can't be established
    */
   public static String getUrlText(URLConnection connection) throws IOException {
-    BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
     // We use a builder here since there might be a lot of data. Generically, 
-    // builders are must faster than string concatenation. That said, I wonder
-    // if the compiler creates a builder automatically.
+    // builders are must faster than string concatenation. The data is copied in
+    // chunks rather than lines so that line breaks in the data are preserved.
     StringBuilder builder = new StringBuilder();
-    String line;
-    while ((line = in.readLine()) != null) {
-      builder.append(line);
+    try (Reader in = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+      char[] buffer = new char[READ_BUFFER_SIZE];
+      int length;
+      while ((length = in.read(buffer)) != -1) {
+        builder.append(buffer, 0, length);
+      }
     }
 
     return builder.toString();
@@ -0,0 +1,208 @@
+package githubissuetracker.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The UrlConnectionTransport class sends requests with HttpURLConnection. It asks for
+ * compressed responses (and decompresses them), applies connect and read timeouts, and
+ * keeps connections alive. HttpURLConnection pools idle keep-alive connections for the
+ * whole JVM, so every transport shares the same pool as long as each response body is
+ * read to the end and closed. The size of the pool per host is set by the standard
+ * "http.maxConnections" system property.
+ *
+ * Every request is recorded in the default MetricsRegistry: its latency (until the
+ * response headers arrive) and the size of its body as sent over the network.
+ *
+ * @author justinsvegliato
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+  private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+  private static final int DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+  private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+  private static final String BYTES = "bytes";
+
+  private static final Counter requestCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.HTTP_REQUESTS);
+  private static final Counter failureCounter = MetricsRegistry.getDefault().counter(MetricsRegistry.HTTP_FAILURES);
+  private static final Histogram latencyTimer = MetricsRegistry.getDefault().timer(MetricsRegistry.HTTP_LATENCY);
+  private static final Histogram responseBytesHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.HTTP_RESPONSE_BYTES, BYTES);
+
+  private final String authenticationToken;
+  private final int connectTimeoutMillis;
+  private final int readTimeoutMillis;
+
+  /**
+   * Creates a new UrlConnectionTransport with the default timeouts.
+   *
+   * @param authenticationToken the token used to authenticate GitHub requests
+   */
+  public UrlConnectionTransport(String authenticationToken) {
+    this(authenticationToken, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Creates a new UrlConnectionTransport.
+   *
+   * @param authenticationToken the token used to authenticate GitHub requests
+   * @param connectTimeoutMillis the time to wait for a connection, or 0 to wait forever
+   * @param readTimeoutMillis the time to wait for data, or 0 to wait forever
+   */
+  public UrlConnectionTransport(String authenticationToken, int connectTimeoutMillis, int readTimeoutMillis) {
+    this.authenticationToken = authenticationToken;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  @Override
+  public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority) 
+          throws IOException {
+    requestCounter.increment();
+    long startTime = System.nanoTime();
+    try {
+      return send(url, requestHeaders, null);
+    } catch (IOException | RuntimeException ex) {
+      failureCounter.increment();
+      throw ex;
+    } finally {
+      latencyTimer.recordSince(startTime);
+    }
+  }
+
+  @Override
+  public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority) 
+          throws IOException {
+    requestCounter.increment();
+    long startTime = System.nanoTime();
+    try {
+      return send(url, requestHeaders, body);
+    } catch (IOException | RuntimeException ex) {
+      failureCounter.increment();
+      throw ex;
+    } finally {
+      latencyTimer.recordSince(startTime);
+    }
+  }
+
+  // A request without a body is a GET, otherwise it's a POST
+  private HttpResponse send(String url, Map<String, String> requestHeaders, byte[] requestBody) throws IOException {
+    URLConnection connection = UrlConnectionHandler.getAuthenticatedUrlConnection(url, authenticationToken);
+    connection.setConnectTimeout(connectTimeoutMillis);
+    connection.setReadTimeout(readTimeoutMillis);
+    connection.setRequestProperty("Accept-Encoding", ACCEPTED_ENCODINGS);
+    for (Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
+      connection.setRequestProperty(requestHeader.getKey(), requestHeader.getValue());
+    }
+
+    if (requestBody != null) {
+      if (connection instanceof HttpURLConnection) {
+        ((HttpURLConnection) connection).setRequestMethod("POST");
+        ((HttpURLConnection) connection).setFixedLengthStreamingMode(requestBody.length);
+      }
+      connection.setDoOutput(true);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(requestBody);
+      }
+    }
+
+    int statusCode = HttpURLConnection.HTTP_OK;
+    InputStream body;
+    if (connection instanceof HttpURLConnection) {
+      HttpURLConnection httpConnection = (HttpURLConnection) connection;
+      statusCode = httpConnection.getResponseCode();
+
+      // The error stream has to be used for 4xx and 5xx responses (and it can be null)
+      body = statusCode >= HttpURLConnection.HTTP_BAD_REQUEST ? httpConnection.getErrorStream() : httpConnection.getInputStream();
+    } else {
+      body = connection.getInputStream();
+    }
+
+    if (body == null) {
+      body = new ByteArrayInputStream(new byte[0]);
+    }
+    body = new CountingInputStream(body);
+
+    // Responses like 304 Not Modified have no body to decompress
+    if (statusCode != HttpURLConnection.HTTP_NOT_MODIFIED && statusCode != HttpURLConnection.HTTP_NO_CONTENT) {
+      body = decompress(body, connection.getContentEncoding());
+    }
+
+    return new HttpResponse(statusCode, connection.getHeaderFields(), body);
+  }
+
+  private InputStream decompress(InputStream body, String contentEncoding) throws IOException {
+    if (contentEncoding == null) {
+      return body;
+    }
+
+    switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+      case "gzip":
+        return new GZIPInputStream(body);
+      case "deflate":
+        return new InflaterInputStream(body);
+      default:
+        return body;
+    }
+  }
+
+  // Records the number of bytes read from the network once the body is closed
+  private static class CountingInputStream extends FilterInputStream {
+
+    private long byteCount = 0;
+    private boolean closed = false;
+
+    private CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+      if (value != -1) {
+        byteCount++;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      if (count > 0) {
+        byteCount += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+      long skippedCount = super.skip(count);
+      byteCount += skippedCount;
+      return skippedCount;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        responseBytesHistogram.record(byteCount);
+      }
+      super.close();
+    }
+
+  }
+
+}
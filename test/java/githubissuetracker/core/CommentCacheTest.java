@@ -0,0 +1,161 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the CommentCache against the stub server.
+ *
+ * @author justinsvegliato
+ */
+public class CommentCacheTest {
+
+  private static final String OWNER = "rails";
+  private static final String REPOSITORY = "rails";
+
+  private StubGitHubServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(OWNER + "/" + REPOSITORY, 30);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void sharesPrefetchedComments() throws IOException {
+    GitHubApiHandler apiHandler = createApiHandler(server.rewrite(new UrlConnectionTransport("")));
+    Issue issue = getCommentedIssue(apiHandler);
+    CommentCache commentCache = new CommentCache(apiHandler);
+
+    server.resetCounts();
+    assertTrue(commentCache.prefetch(issue));
+    int requestCount = server.getRequestCount();
+    assertEquals(server.getCommentCount(issue.getNumber()), commentCache.get(issue).size());
+    assertEquals(requestCount, server.getRequestCount());
+    assertFalse(commentCache.prefetch(issue));
+  }
+
+  @Test(timeout = 10000)
+  public void doesNotWaitForPrefetchesHeldBackByTheRateLimit() throws Exception {
+    // After the issues, the budget is down to the reserve that background requests leave
+    // for the user, so the prefetch is held until the reset
+    server.setRateLimit(101, 60000);
+    GitHubApiHandler apiHandler = createApiHandler(new RequestScheduler(server.rewrite(new UrlConnectionTransport(""))));
+    final Issue issue = getCommentedIssue(apiHandler);
+    final CommentCache commentCache = new CommentCache(apiHandler);
+
+    final AtomicReference<Exception> prefetchFailure = new AtomicReference<>();
+    Thread prefetcher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          commentCache.prefetch(issue);
+        } catch (IOException ex) {
+          prefetchFailure.set(ex);
+        }
+      }
+    });
+    prefetcher.start();
+    Thread.sleep(200);
+
+    long startTime = System.currentTimeMillis();
+    assertEquals(server.getCommentCount(issue.getNumber()), commentCache.get(issue).size());
+    assertTrue(System.currentTimeMillis() - startTime < 5000);
+
+    // The prefetch was interrupted rather than left waiting for the reset
+    prefetcher.join();
+    assertTrue(String.valueOf(prefetchFailure.get()), prefetchFailure.get() instanceof IOException);
+    assertTrue(commentCache.isCached(issue));
+  }
+
+  @Test(timeout = 10000)
+  public void retrievesTheCommentsOnceForConcurrentCallers() throws Exception {
+    GitHubApiHandler apiHandler = createApiHandler(server.rewrite(new UrlConnectionTransport("")));
+    final Issue issue = getCommentedIssue(apiHandler);
+
+    server.resetCounts();
+    new CommentCache(apiHandler).get(issue);
+    int requestCount = server.getRequestCount();
+
+    // The second caller asks while the first is still waiting on the slow server
+    server.resetCounts();
+    server.setLatencyMillis(300);
+    final CommentCache commentCache = new CommentCache(apiHandler);
+    final AtomicReference<List<Comment>> firstComments = new AtomicReference<>();
+    Thread firstCaller = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          firstComments.set(commentCache.get(issue));
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }
+    });
+    firstCaller.start();
+    Thread.sleep(100);
+
+    List<Comment> secondComments = commentCache.get(issue);
+    firstCaller.join();
+    assertEquals(server.getCommentCount(issue.getNumber()), secondComments.size());
+    assertEquals(secondComments, firstComments.get());
+    assertEquals(requestCount, server.getRequestCount());
+  }
+
+  @Test
+  public void sharesTheLoaderThreadsBetweenCaches() throws Exception {
+    GitHubApiHandler apiHandler = createApiHandler(server.rewrite(new UrlConnectionTransport("")));
+    Issue issue = getCommentedIssue(apiHandler);
+
+    List<CompletableFuture<List<Comment>>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      futures.add(new CommentCache(apiHandler).getAsync(issue));
+    }
+    for (CompletableFuture<List<Comment>> future : futures) {
+      assertEquals(server.getCommentCount(issue.getNumber()), future.get().size());
+    }
+
+    int loaderCount = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("CommentCache-loader")) {
+        loaderCount++;
+      }
+    }
+    assertTrue("There were " + loaderCount + " loader threads", loaderCount <= 4);
+  }
+
+  private GitHubApiHandler createApiHandler(HttpTransport transport) {
+    return new GitHubApiHandler(transport, null);
+  }
+
+  private Issue getCommentedIssue(GitHubApiHandler apiHandler) throws IOException {
+    for (Issue issue : apiHandler.getIssues(OWNER, REPOSITORY).initialize()) {
+      if (issue.getComments() > 0) {
+        return issue;
+      }
+    }
+    throw new IllegalStateException("None of the issues have comments");
+  }
+
+}
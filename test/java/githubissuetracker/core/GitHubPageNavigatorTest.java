@@ -0,0 +1,160 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.GitHubPage;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the GitHubPageNavigator against the stub server.
+ *
+ * @author justinsvegliato
+ */
+public class GitHubPageNavigatorTest {
+
+  private static final String REPOSITORY = "rails/rails";
+  private static final String QUERY_URL = "https://api.github.com/repos/rails/rails/issues?per_page=30";
+  private static final String LARGE_REPOSITORY = "synthetic/large";
+  private static final String LARGE_QUERY_URL = "https://api.github.com/repos/synthetic/large/issues?per_page=100";
+  private static final int PARALLELISM = 4;
+
+  private StubGitHubServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, 200);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void pagesThroughEveryIssueInOrder() throws IOException {
+    GitHubPageNavigator<Issue> navigator = createNavigator(server.rewrite(new UrlConnectionTransport("")));
+
+    List<Issue> issues = navigator.initialize();
+    int expectedNumber = 200;
+    int pageCount = 1;
+    while (true) {
+      for (Issue issue : issues) {
+        assertEquals(expectedNumber--, issue.getNumber());
+      }
+      if (!navigator.hasNextPage()) {
+        break;
+      }
+      issues = navigator.getNextPage();
+      pageCount++;
+    }
+
+    assertEquals(0, expectedNumber);
+    assertEquals(7, pageCount);
+    assertEquals(7, server.getRequestCount());
+  }
+
+  @Test
+  public void servesPrefetchedPagesWithoutAnotherRequest() throws Exception {
+    GitHubPageNavigator<Issue> navigator = createNavigator(server.rewrite(new UrlConnectionTransport("")));
+    navigator.enablePrefetching(2);
+
+    navigator.initialize();
+    waitForRequests(3);
+    assertEquals(170, navigator.getNextPage().get(0).getNumber());
+    waitForRequests(4);
+    assertEquals(140, navigator.getNextPage().get(0).getNumber());
+
+    // Showing the second and third pages prefetched the fourth and fifth, and every page
+    // was requested exactly once
+    waitForRequests(5);
+    navigator.close();
+    assertEquals(5, server.getRequestCount());
+  }
+
+  @Test(timeout = 10000)
+  public void doesNotWaitForPrefetchesHeldBackByTheRateLimit() throws IOException {
+    // After the first page, the budget is down to the reserve that background requests
+    // leave for the user, so the prefetch of the second page is held until the reset
+    server.setRateLimit(101, 60000);
+    RequestScheduler scheduler = new RequestScheduler(server.rewrite(new UrlConnectionTransport("")));
+    GitHubPageNavigator<Issue> navigator = createNavigator(scheduler);
+    navigator.enablePrefetching(1);
+
+    navigator.initialize();
+    long startTime = System.currentTimeMillis();
+    List<Issue> issues = navigator.getNextPage();
+
+    assertEquals(170, issues.get(0).getNumber());
+    assertTrue(System.currentTimeMillis() - startTime < 5000);
+    navigator.close();
+  }
+
+  @Test(timeout = 120000)
+  public void streamsAHundredThousandIssuesInBoundedMemory() throws IOException {
+    server.addRepository(LARGE_REPOSITORY, 100000);
+    GitHubPageNavigator<Issue> navigator = new GitHubPageNavigator<>(LARGE_QUERY_URL, 
+            server.rewrite(new UrlConnectionTransport("")), new IssueMapper(), null, 
+            new LruCache<Integer, GitHubPage<Issue>>(10));
+
+    // Holding on to every issue would take well over a hundred megabytes, while the ten 
+    // cached pages take a few
+    final long baselineBytes = getUsedHeap();
+    final long[] maximumGrowthBytes = new long[1];
+    final int[] pageCount = new int[1];
+    long issueCount = navigator.forEachPage(PARALLELISM, new Consumer<List<Issue>>() {
+      @Override
+      public void accept(List<Issue> issues) {
+        if (++pageCount[0] % 100 == 0) {
+          maximumGrowthBytes[0] = Math.max(maximumGrowthBytes[0], getUsedHeap() - baselineBytes);
+        }
+      }
+    });
+
+    assertEquals(100000, issueCount);
+    assertEquals(1000, pageCount[0]);
+    assertTrue("Sent " + server.getMaxActiveRequests() + " requests at once", server.getMaxActiveRequests() <= PARALLELISM);
+    assertTrue("The heap grew by " + maximumGrowthBytes[0] + " bytes", maximumGrowthBytes[0] < 32 * 1024 * 1024);
+  }
+
+  private GitHubPageNavigator<Issue> createNavigator(HttpTransport transport) {
+    return new GitHubPageNavigator<>(QUERY_URL, transport, new IssueMapper(), null,
+            new LruCache<Integer, GitHubPage<Issue>>(50));
+  }
+
+  private void waitForRequests(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getRequestCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+  }
+
+  // The heap as the collection left it, since the other threads keep allocating right after it
+  private static long getUsedHeap() {
+    System.gc();
+    long usedHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+        usedHeap += pool.getCollectionUsage().getUsed();
+      }
+    }
+    return usedHeap;
+  }
+
+}
@@ -0,0 +1,165 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.GitHubPage;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.LruCache;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the GraphQLTransport against the stub server, whose GraphQL endpoint serves the
+ * same issues and comments as its REST endpoints.
+ *
+ * @author justinsvegliato
+ */
+public class GraphQLTransportTest {
+
+  private static final String OWNER = "rails";
+  private static final String REPOSITORY = "rails";
+  private static final String QUERY_URL = "https://api.github.com/repos/rails/rails/issues?per_page=30";
+  private static final int ISSUE_COUNT = 100;
+  private static final int EMBEDDED_COMMENT_COUNT = 20;
+
+  private StubGitHubServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(OWNER + "/" + REPOSITORY, ISSUE_COUNT);
+
+    // Some threads fit in the embedded comments, some continue on one page, some on two
+    server.setMaxComments(44);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void retrievesTheSameIssuesAndCommentsAsTheRestApi() throws IOException {
+    GitHubApiHandler restHandler = new GitHubApiHandler(createTransport(), null);
+    GitHubApiHandler graphQLHandler = new GitHubApiHandler(createGraphQLTransport(), null);
+
+    List<Issue> restIssues = restHandler.getIssues(OWNER, REPOSITORY).getAllPages(1);
+    List<Issue> graphQLIssues = graphQLHandler.getIssues(OWNER, REPOSITORY).getAllPages(1);
+    assertEquals(ISSUE_COUNT, restIssues.size());
+    assertEquals(restIssues.size(), graphQLIssues.size());
+
+    for (int i = 0; i < restIssues.size(); i++) {
+      Issue restIssue = restIssues.get(i);
+      Issue graphQLIssue = graphQLIssues.get(i);
+      assertEquals(restIssue.getId(), graphQLIssue.getId());
+      assertEquals(restIssue.getNumber(), graphQLIssue.getNumber());
+      assertEquals(restIssue.getTitle(), graphQLIssue.getTitle());
+      assertEquals(restIssue.getBody(), graphQLIssue.getBody());
+      assertEquals(restIssue.getState(), graphQLIssue.getState());
+      assertEquals(restIssue.getCreatedAt(), graphQLIssue.getCreatedAt());
+      assertEquals(restIssue.getUpdatedAt(), graphQLIssue.getUpdatedAt());
+      assertEquals(restIssue.getComments(), graphQLIssue.getComments());
+      assertEquals(restIssue.getUser().getId(), graphQLIssue.getUser().getId());
+      assertEquals(restIssue.getUser().getLogin(), graphQLIssue.getUser().getLogin());
+
+      List<Comment> restComments = restHandler.getComments(restIssue).getAllPages(1);
+      List<Comment> graphQLComments = graphQLHandler.getComments(graphQLIssue).getAllPages(1);
+      assertEquals(restIssue.getComments(), restComments.size());
+      assertEquals(restComments.size(), graphQLComments.size());
+      for (int j = 0; j < restComments.size(); j++) {
+        assertEquals(restComments.get(j).getId(), graphQLComments.get(j).getId());
+        assertEquals(restComments.get(j).getBody(), graphQLComments.get(j).getBody());
+        assertEquals(restComments.get(j).getCreatedAt(), graphQLComments.get(j).getCreatedAt());
+        assertEquals(restComments.get(j).getUser().getLogin(), graphQLComments.get(j).getUser().getLogin());
+      }
+    }
+  }
+
+  @Test
+  public void retrievesTheFirstCommentsWithTheIssues() throws IOException {
+    GitHubApiHandler apiHandler = new GitHubApiHandler(createGraphQLTransport(), null);
+    List<Issue> issues = apiHandler.getIssues(OWNER, REPOSITORY).initialize();
+    assertEquals(1, server.getRequestCount());
+
+    // Only the threads that are longer than the embedded comments need another request,
+    // which continues from the cursor of the last embedded comment (empty threads don't)
+    int longThreadCount = 0;
+    int emptyThreadCount = 0;
+    for (Issue issue : issues) {
+      if (issue.getComments() > EMBEDDED_COMMENT_COUNT) {
+        longThreadCount++;
+      } else if (issue.getComments() == 0) {
+        emptyThreadCount++;
+      }
+      assertEquals(issue.getComments(), apiHandler.getComments(issue).getAllPages(1).size());
+    }
+    assertTrue(longThreadCount > 0 && emptyThreadCount > 0);
+    assertEquals(1 + longThreadCount, server.getRequestCount());
+
+    // The REST API needs a request for every thread, and two for the longest ones
+    server.resetCounts();
+    GitHubApiHandler restHandler = new GitHubApiHandler(createTransport(), null);
+    for (Issue issue : restHandler.getIssues(OWNER, REPOSITORY).initialize()) {
+      restHandler.getComments(issue).getAllPages(1);
+    }
+    assertTrue(server.getRequestCount() > 1 + issues.size() / 2);
+  }
+
+  @Test
+  public void pagesBackAndForthWithCursors() throws IOException {
+    // With a single cached page, every page is requested with the cursor of its neighbour
+    GitHubPageNavigator<Issue> navigator = new GitHubPageNavigator<>(QUERY_URL, createGraphQLTransport(), 
+            new IssueMapper(), null, new LruCache<Integer, GitHubPage<Issue>>(1));
+
+    List<List<Integer>> pages = new ArrayList<>();
+    pages.add(getNumbers(navigator.initialize()));
+    while (navigator.hasNextPage()) {
+      pages.add(getNumbers(navigator.getNextPage()));
+    }
+
+    int expectedNumber = ISSUE_COUNT;
+    for (List<Integer> page : pages) {
+      for (int number : page) {
+        assertEquals(expectedNumber--, number);
+      }
+    }
+    assertEquals(0, expectedNumber);
+    assertEquals(4, pages.size());
+    assertEquals(4, server.getRequestCount());
+
+    for (int i = pages.size() - 2; i >= 0; i--) {
+      assertTrue(navigator.hasPreviousPage());
+      assertEquals(pages.get(i), getNumbers(navigator.getPreviousPage()));
+    }
+    assertFalse(navigator.hasPreviousPage());
+    assertEquals(7, server.getRequestCount());
+  }
+
+  private HttpTransport createTransport() {
+    return server.rewrite(new UrlConnectionTransport(""));
+  }
+
+  private HttpTransport createGraphQLTransport() {
+    return new GraphQLTransport(createTransport(), server.getGraphQLUrl(), EMBEDDED_COMMENT_COUNT);
+  }
+
+  private List<Integer> getNumbers(List<Issue> issues) {
+    List<Integer> numbers = new ArrayList<>();
+    for (Issue issue : issues) {
+      numbers.add(issue.getNumber());
+    }
+    return numbers;
+  }
+
+}
@@ -0,0 +1,174 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the IssueSynchronizer against the stub server.
+ *
+ * @author justinsvegliato
+ */
+public class IssueSynchronizerTest {
+
+  private static final String OWNER = "rails";
+  private static final String REPOSITORY = "rails";
+  private static final int ISSUE_COUNT = 250;
+
+  // The stub updated issue n at n hours after the start of 2015
+  private static final Date LATEST_UPDATE = Date.from(Instant.parse("2015-01-11T10:00:00Z"));
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private StubGitHubServer server;
+  private final List<String> sentUrls = Collections.synchronizedList(new ArrayList<String>());
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(OWNER + "/" + REPOSITORY, ISSUE_COUNT);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test
+  public void onlyAsksForTheIssuesUpdatedSinceTheLastSync() throws IOException {
+    IssueSynchronizer synchronizer = createSynchronizer(null);
+
+    // The first sync walks every issue
+    assertEquals(ISSUE_COUNT, synchronizer.sync().size());
+    assertFalse(sentUrls.get(0).contains("since="));
+    assertEquals(LATEST_UPDATE, synchronizer.getLastSyncTime());
+
+    // The latest issue is retrieved again since "since" is inclusive, but it hasn't changed
+    sentUrls.clear();
+    server.updateIssue(OWNER + "/" + REPOSITORY, 10);
+    List<Issue> changedIssues = synchronizer.sync();
+
+    assertEquals(1, sentUrls.size());
+    assertTrue(sentUrls.get(0), sentUrls.get(0).contains("since=2015-01-11T10:00:00Z"));
+    assertEquals(1, changedIssues.size());
+    assertEquals(10, changedIssues.get(0).getNumber());
+    assertTrue(synchronizer.getLastSyncTime().after(LATEST_UPDATE));
+
+    List<Issue> issues = synchronizer.getIssues();
+    assertEquals(ISSUE_COUNT, issues.size());
+    assertEquals(changedIssues.get(0).getTitle(), issues.get(0).getTitle());
+    assertEquals(synchronizer.getLastSyncTime(), issues.get(0).getUpdatedAt());
+  }
+
+  @Test
+  public void neverReplacesANewerCopyWithAnOlderOne() throws IOException {
+    // A lagging replica can answer the second sync with an older copy of an issue
+    final Deque<String> pages = new ArrayDeque<>(Arrays.asList(
+            "[" + getIssue(1, "new title", 2) + "]",
+            "[" + getIssue(2, "second issue", 2) + "," + getIssue(1, "old title", 1) + "]"));
+    HttpTransport transport = new HttpTransport() {
+      @Override
+      public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority) {
+        byte[] body = pages.removeFirst().getBytes(StandardCharsets.UTF_8);
+        return new HttpResponse(200, Collections.<String, List<String>>emptyMap(), new ByteArrayInputStream(body));
+      }
+
+      @Override
+      public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    IssueSynchronizer synchronizer = new IssueSynchronizer(transport, OWNER, REPOSITORY, null);
+
+    assertEquals(1, synchronizer.sync().size());
+    List<Issue> changedIssues = synchronizer.sync();
+
+    assertEquals(1, changedIssues.size());
+    assertEquals(2, changedIssues.get(0).getId());
+    assertEquals(2, synchronizer.getIssues().size());
+    for (Issue issue : synchronizer.getIssues()) {
+      assertFalse(issue.getTitle().equals("old title"));
+    }
+  }
+
+  @Test
+  public void continuesFromTheSavedState() throws IOException {
+    File stateFile = new File(folder.getRoot(), "rails-rails.sync");
+    IssueSynchronizer synchronizer = createSynchronizer(stateFile);
+    synchronizer.sync();
+
+    // Nothing but the state itself is left behind in the directory
+    assertEquals(Collections.singletonList(stateFile.getName()), Arrays.asList(folder.getRoot().list()));
+
+    sentUrls.clear();
+    IssueSynchronizer restoredSynchronizer = createSynchronizer(stateFile);
+    assertEquals(synchronizer.getLastSyncTime(), restoredSynchronizer.getLastSyncTime());
+    assertEquals(getIds(synchronizer.getIssues()), getIds(restoredSynchronizer.getIssues()));
+    assertEquals(0, sentUrls.size());
+
+    assertTrue(restoredSynchronizer.sync().isEmpty());
+    assertEquals(1, sentUrls.size());
+    assertTrue(sentUrls.get(0), sentUrls.get(0).contains("since="));
+  }
+
+  private IssueSynchronizer createSynchronizer(File stateFile) {
+    final HttpTransport transport = server.rewrite(new UrlConnectionTransport(""));
+    HttpTransport recordingTransport = new HttpTransport() {
+      @Override
+      public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+              throws IOException {
+        sentUrls.add(URLDecoder.decode(url, StandardCharsets.UTF_8.name()));
+        return transport.get(url, requestHeaders, priority);
+      }
+
+      @Override
+      public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+              throws IOException {
+        sentUrls.add(url);
+        return transport.post(url, requestHeaders, body, priority);
+      }
+    };
+    return new IssueSynchronizer(recordingTransport, OWNER, REPOSITORY, stateFile);
+  }
+
+  private String getIssue(int id, String title, int day) {
+    return String.format("{\"id\":%d,\"number\":%d,\"title\":\"%s\",\"user\":{\"login\":\"author\"},"
+            + "\"updated_at\":\"2015-03-%02dT08:00:00Z\"}", id, id, title, day);
+  }
+
+  private List<Integer> getIds(List<Issue> issues) {
+    List<Integer> ids = new ArrayList<>();
+    for (Issue issue : issues) {
+      ids.add(issue.getId());
+    }
+    return ids;
+  }
+
+}
@@ -0,0 +1,144 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.GitHubPage;
+import githubissuetracker.models.Issue;
+import githubissuetracker.testing.Fixtures;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the PageStore.
+ *
+ * @author justinsvegliato
+ */
+public class PageStoreTest {
+
+  private static final String QUERY_URL = "https://api.github.com/repos/rails/rails/issues?per_page=30";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final IssueMapper mapper = new IssueMapper();
+  private List<Issue> issues;
+
+  @Before
+  public void setUp() throws IOException {
+    issues = mapper.map(new ByteArrayInputStream(Fixtures.read(Fixtures.ISSUES_30)));
+  }
+
+  @Test
+  public void loadsWhatWasSaved() throws IOException {
+    PageStore store = new PageStore(folder.getRoot());
+    store.save(QUERY_URL, createPage(1), mapper);
+
+    GitHubPage<Issue> page = store.load(QUERY_URL, 1, mapper);
+    assertEquals(30, page.getEntries().size());
+    assertEquals(issues.get(0).getTitle(), page.getEntries().get(0).getTitle());
+    assertEquals("\"etag\"", page.getEntityTag());
+    assertNull(store.load(QUERY_URL, 2, mapper));
+  }
+
+  @Test
+  public void savesTheSamePageFromManyThreadsAtOnce() throws Exception {
+    final PageStore store = new PageStore(folder.getRoot());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> saves = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        saves.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            store.save(QUERY_URL, createPage(1), mapper);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> save : saves) {
+        save.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertNotNull(store.load(QUERY_URL, 1, mapper));
+    assertEquals(1, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void evictsThePagesWrittenLongestAgo() throws IOException {
+    PageStore store = new PageStore(folder.getRoot());
+    store.save(QUERY_URL, createPage(1), mapper);
+    long pageBytes = store.getStoredBytes();
+    setAge(1, 10);
+
+    // Room for three pages
+    store = new PageStore(folder.getRoot(), pageBytes * 3 + pageBytes / 2, 0);
+    for (int id = 2; id <= 6; id++) {
+      store.save(QUERY_URL, createPage(id), mapper);
+      setAge(id, 6 - id);
+    }
+    store.evict();
+
+    assertTrue(store.getStoredBytes() <= pageBytes * 3 + pageBytes / 2);
+    assertNull(store.load(QUERY_URL, 1, mapper));
+    assertNull(store.load(QUERY_URL, 2, mapper));
+    assertNotNull(store.load(QUERY_URL, 6, mapper));
+  }
+
+  @Test
+  public void ignoresAndDeletesExpiredPages() throws IOException {
+    PageStore store = new PageStore(folder.getRoot(), Long.MAX_VALUE, 60000);
+    store.save(QUERY_URL, createPage(1), mapper);
+    store.save(QUERY_URL, createPage(2), mapper);
+    setAge(1, 2);
+
+    assertNull(store.load(QUERY_URL, 1, mapper));
+    assertNotNull(store.load(QUERY_URL, 2, mapper));
+
+    new PageStore(folder.getRoot(), Long.MAX_VALUE, 60000);
+    assertEquals(1, folder.getRoot().list().length);
+  }
+
+  @Test
+  public void deletesTemporaryFilesLeftBehindByACrash() throws IOException {
+    File temporaryFile = folder.newFile("0123-1.page-42.tmp");
+    temporaryFile.setLastModified(System.currentTimeMillis() - 2 * 3600000);
+    File recentTemporaryFile = folder.newFile("0123-1.page-43.tmp");
+
+    new PageStore(folder.getRoot());
+    assertTrue(!temporaryFile.exists());
+    assertTrue(recentTemporaryFile.exists());
+  }
+
+  private GitHubPage<Issue> createPage(int id) {
+    return new GitHubPage<>(id, QUERY_URL + "&page=" + id, null, null, null, null, issues, "\"etag\"", null);
+  }
+
+  // Makes the page look like it was written the given number of minutes ago
+  private void setAge(int id, int minutes) {
+    long modifiedTime = System.currentTimeMillis() - minutes * 60000L - 1000;
+    for (File file : folder.getRoot().listFiles()) {
+      if (file.getName().endsWith("-" + id + ".page")) {
+        assertTrue(file.setLastModified(modifiedTime));
+      }
+    }
+  }
+
+}
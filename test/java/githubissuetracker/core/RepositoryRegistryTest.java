@@ -0,0 +1,180 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.models.Issue;
+import githubissuetracker.queryparameters.SortCriteria;
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the RepositoryRegistry against the stub server.
+ *
+ * @author justinsvegliato
+ */
+public class RepositoryRegistryTest {
+
+  private static final String REPOSITORY = "rails/rails";
+  private static final String HUGE_REPOSITORY = "synthetic/huge";
+  private static final int HUGE_PAGE_COUNT = 400;
+  private static final int SMALL_REPOSITORY_COUNT = 49;
+  private static final int SMALL_PAGE_COUNT = 3;
+  private static final int PAGE_SIZE = 30;
+  private static final int MAX_CONCURRENT_REQUESTS = 8;
+
+  private StubGitHubServer server;
+  private RepositoryRegistry registry;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, 500);
+    GitHubApiHandler apiHandler = new GitHubApiHandler(server.rewrite(new UrlConnectionTransport("")), null);
+    registry = new RepositoryRegistry(apiHandler, 0, SortCriteria.UPDATED);
+  }
+
+  @After
+  public void tearDown() {
+    registry.close();
+    server.close();
+  }
+
+  @Test
+  public void syncsNothingBeforeTheFirstPageIsLoaded() throws IOException {
+    registry.add(REPOSITORY);
+
+    assertTrue(registry.sync(REPOSITORY).isEmpty());
+    assertEquals(0, server.getRequestCount());
+  }
+
+  @Test
+  public void syncsOnlyTheIssuesUpdatedSinceTheFirstPage() throws IOException {
+    registry.add(REPOSITORY).initialize();
+    server.resetCounts();
+
+    // The latest issue of the first page is retrieved again, but it hasn't changed
+    assertTrue(registry.sync(REPOSITORY).isEmpty());
+    assertEquals(1, server.getRequestCount());
+
+    server.updateIssue(REPOSITORY, 150);
+    int number = server.addIssue(REPOSITORY);
+    List<Issue> updatedIssues = registry.sync(REPOSITORY);
+
+    assertEquals(2, updatedIssues.size());
+    assertEquals(number, updatedIssues.get(0).getNumber());
+    assertEquals(150, updatedIssues.get(1).getNumber());
+    assertEquals(2, server.getRequestCount());
+    assertTrue(registry.sync(REPOSITORY).isEmpty());
+  }
+
+  @Test(timeout = 60000)
+  public void sharesTheFetchEngineFairlyBetweenFiftyRepositories() throws Exception {
+    server.setLatencyMillis(20);
+    server.addRepository(HUGE_REPOSITORY, HUGE_PAGE_COUNT * PAGE_SIZE);
+    for (int i = 0; i < SMALL_REPOSITORY_COUNT; i++) {
+      server.addRepository(getSmallRepository(i), SMALL_PAGE_COUNT * PAGE_SIZE);
+    }
+    final RequestScheduler scheduler = new RequestScheduler(server.rewrite(new UrlConnectionTransport("")), 
+            MAX_CONCURRENT_REQUESTS, 0, 0);
+    final RepositoryRegistry sharedRegistry = new RepositoryRegistry(new GitHubApiHandler(scheduler, null), 0);
+    ExecutorService executor = Executors.newCachedThreadPool();
+
+    try {
+      // The huge repository is retrieved in the background with a wide window, so the
+      // scheduler is already full of its requests by the time the others ask for theirs
+      final long startTime = System.currentTimeMillis();
+      Future<Long> hugeDuration = executor.submit(new Callable<Long>() {
+        @Override
+        public Long call() throws IOException {
+          List<Issue> issues = sharedRegistry.add(HUGE_REPOSITORY).getAllPages(64, null, RequestPriority.BACKGROUND);
+          assertEquals(HUGE_PAGE_COUNT * PAGE_SIZE, issues.size());
+          return System.currentTimeMillis() - startTime;
+        }
+      });
+      long deadline = System.currentTimeMillis() + 5000;
+      while (scheduler.getQueueDepth() < 32 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+
+      // Every other repository shows its first page and then retrieves the rest of it
+      int hugeRequestsBefore = server.getRequestCount(HUGE_REPOSITORY);
+      final long smallStartTime = System.currentTimeMillis();
+      List<Future<long[]>> smallLatencies = new ArrayList<>();
+      for (int i = 0; i < SMALL_REPOSITORY_COUNT; i++) {
+        final String fullName = getSmallRepository(i);
+        smallLatencies.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() throws IOException {
+            GitHubPageNavigator<Issue> navigator = sharedRegistry.add(fullName);
+            navigator.initialize();
+            long firstPageLatency = System.currentTimeMillis() - smallStartTime;
+            List<Issue> issues = navigator.getAllPages(2, null, RequestPriority.BACKGROUND);
+            assertEquals(SMALL_PAGE_COUNT * PAGE_SIZE, issues.size());
+            return new long[] {firstPageLatency, System.currentTimeMillis() - smallStartTime};
+          }
+        }));
+      }
+
+      List<Long> firstPageLatencies = new ArrayList<>();
+      List<Long> allPagesLatencies = new ArrayList<>();
+      for (Future<long[]> latencies : smallLatencies) {
+        firstPageLatencies.add(latencies.get()[0]);
+        allPagesLatencies.add(latencies.get()[1]);
+      }
+      int hugeRequestsDuring = server.getRequestCount(HUGE_REPOSITORY) - hugeRequestsBefore;
+      boolean doneBeforeHugeRepository = !hugeDuration.isDone();
+      long totalMillis = hugeDuration.get();
+      Collections.sort(firstPageLatencies);
+      Collections.sort(allPagesLatencies);
+
+      // Each repository only sent its own pages, and no more requests were sent at once
+      // than the shared scheduler allows
+      int smallRequestCount = SMALL_REPOSITORY_COUNT * SMALL_PAGE_COUNT;
+      for (int i = 0; i < SMALL_REPOSITORY_COUNT; i++) {
+        assertEquals(SMALL_PAGE_COUNT, server.getRequestCount(getSmallRepository(i)));
+      }
+      assertEquals(HUGE_PAGE_COUNT + smallRequestCount, server.getRequestCount());
+      assertTrue(server.getMaxActiveRequests() <= MAX_CONCURRENT_REQUESTS);
+
+      // Taking turns, the huge repository sent no more requests than all of the others
+      // together while they were retrieving theirs, and they were done long before it
+      String report = String.format("%d requests in %d ms (%.0f per second), first page p50 %d ms, "
+              + "all pages p50 %d ms, p90 %d ms, max %d ms, %d requests of the huge repository in between", 
+              server.getRequestCount(), totalMillis, server.getRequestCount() * 1000.0 / totalMillis, 
+              getPercentile(firstPageLatencies, 50), getPercentile(allPagesLatencies, 50), 
+              getPercentile(allPagesLatencies, 90), getPercentile(allPagesLatencies, 100), hugeRequestsDuring);
+      assertTrue(report, hugeRequestsDuring <= smallRequestCount);
+      assertTrue(report, doneBeforeHugeRepository);
+    } finally {
+      executor.shutdownNow();
+      sharedRegistry.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void doesNotSyncUntrackedRepositories() throws IOException {
+    registry.sync("sinatra/sinatra");
+  }
+
+  private String getSmallRepository(int index) {
+    return "synthetic/small" + index;
+  }
+
+  private long getPercentile(List<Long> sortedValues, int percentile) {
+    return sortedValues.get(Math.max(0, (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1));
+  }
+
+}
@@ -0,0 +1,176 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.testing.StubGitHubServer;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.MetricsRegistry;
+import githubissuetracker.util.RequestPriority;
+import githubissuetracker.util.UrlConnectionTransport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the RequestScheduler against the stub server.
+ *
+ * @author justinsvegliato
+ */
+public class RequestSchedulerTest {
+
+  private static final String LARGE_REPOSITORY = "rails/rails";
+  private static final String SMALL_REPOSITORY = "sinatra/sinatra";
+
+  private StubGitHubServer server;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(LARGE_REPOSITORY, 3000);
+    server.addRepository(SMALL_REPOSITORY, 200);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    server.close();
+  }
+
+  @Test(timeout = 20000)
+  public void pacesRequestsOnceTheBudgetIsLow() throws Exception {
+    // Every response leaves less than the pacing threshold, so the requests are spread out
+    // over the rest of the two (to three) second window instead of being sent at once
+    server.setRateLimit(20, 2000);
+    RequestScheduler scheduler = new RequestScheduler(server.rewrite(new UrlConnectionTransport("")), 8, 0, 50);
+
+    // The budget is only known once the first response has arrived
+    assertEquals(200, (int) submit(scheduler, LARGE_REPOSITORY, 1, RequestPriority.INTERACTIVE).get());
+    server.resetCounts();
+    List<Future<Integer>> statusCodes = new ArrayList<>();
+    for (int page = 2; page <= 11; page++) {
+      statusCodes.add(submit(scheduler, LARGE_REPOSITORY, page, RequestPriority.INTERACTIVE));
+    }
+    for (Future<Integer> statusCode : statusCodes) {
+      assertEquals(200, (int) statusCode.get());
+    }
+
+    List<Long> requestTimes = server.getRequestTimes();
+    long span = requestTimes.get(requestTimes.size() - 1) - requestTimes.get(0);
+    assertTrue("The requests were sent within " + span + " ms", span >= 600);
+    assertEquals(0, server.getRejectedCount());
+  }
+
+  @Test(timeout = 20000)
+  public void sendsUnpacedRequestsAtOnce() throws Exception {
+    server.setRateLimit(5000, 60000);
+    RequestScheduler scheduler = new RequestScheduler(server.rewrite(new UrlConnectionTransport("")), 8, 0, 50);
+
+    List<Future<Integer>> statusCodes = new ArrayList<>();
+    for (int page = 1; page <= 10; page++) {
+      statusCodes.add(submit(scheduler, LARGE_REPOSITORY, page, RequestPriority.INTERACTIVE));
+    }
+    for (Future<Integer> statusCode : statusCodes) {
+      assertEquals(200, (int) statusCode.get());
+    }
+
+    List<Long> requestTimes = server.getRequestTimes();
+    long span = requestTimes.get(requestTimes.size() - 1) - requestTimes.get(0);
+    assertTrue("The requests were spread over " + span + " ms", span < 500);
+  }
+
+  @Test(timeout = 20000)
+  public void letsRepositoriesTakeTurns() throws Exception {
+    final List<String> sentUrls = Collections.synchronizedList(new ArrayList<String>());
+    final HttpTransport transport = server.rewrite(new UrlConnectionTransport(""));
+    HttpTransport recordingTransport = new HttpTransport() {
+      @Override
+      public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+              throws IOException {
+        sentUrls.add(url);
+        return transport.get(url, requestHeaders, priority);
+      }
+
+      @Override
+      public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+              throws IOException {
+        sentUrls.add(url);
+        return transport.post(url, requestHeaders, body, priority);
+      }
+    };
+    server.setLatencyMillis(20);
+    RequestScheduler scheduler = new RequestScheduler(recordingTransport, 1, 0, 0);
+
+    // The large repository queues all of its pages before the small one asks for any
+    List<Future<Integer>> statusCodes = new ArrayList<>();
+    for (int page = 1; page <= 20; page++) {
+      statusCodes.add(submit(scheduler, LARGE_REPOSITORY, page, RequestPriority.BACKGROUND));
+    }
+    waitForQueueDepth(scheduler, 19);
+    for (int page = 1; page <= 4; page++) {
+      statusCodes.add(submit(scheduler, SMALL_REPOSITORY, page, RequestPriority.BACKGROUND));
+    }
+    for (Future<Integer> statusCode : statusCodes) {
+      assertEquals(200, (int) statusCode.get());
+    }
+
+    // Taking turns, the small repository is done after at most one request of the large
+    // one per request of its own (and the one that was already being sent)
+    int lastSmallIndex = 0;
+    for (int i = 0; i < sentUrls.size(); i++) {
+      if (sentUrls.get(i).contains(SMALL_REPOSITORY)) {
+        lastSmallIndex = i;
+      }
+    }
+    assertEquals(24, sentUrls.size());
+    assertTrue("The small repository was done after " + (lastSmallIndex + 1) + " requests", lastSmallIndex < 10);
+  }
+
+  @Test(timeout = 20000)
+  public void reportsItsStateAsGauges() throws Exception {
+    server.setRateLimit(100, 60000);
+    RequestScheduler scheduler = new RequestScheduler(server.rewrite(new UrlConnectionTransport("")));
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    scheduler.registerMetrics(metricsRegistry);
+
+    assertEquals(-1, metricsRegistry.getGauges().get(MetricsRegistry.SCHEDULER_REMAINING_REQUESTS).getValue());
+    assertEquals(200, (int) submit(scheduler, LARGE_REPOSITORY, 1, RequestPriority.INTERACTIVE).get());
+
+    assertEquals(99, metricsRegistry.getGauges().get(MetricsRegistry.SCHEDULER_REMAINING_REQUESTS).getValue());
+    assertEquals(0, metricsRegistry.getGauges().get(MetricsRegistry.SCHEDULER_QUEUE_DEPTH).getValue());
+    assertEquals(0, metricsRegistry.getGauges().get(MetricsRegistry.SCHEDULER_ACTIVE_REQUESTS).getValue());
+  }
+
+  private Future<Integer> submit(final HttpTransport transport, String repository, int page,
+          final RequestPriority priority) {
+    final String url = "https://api.github.com/repos/" + repository + "/issues?per_page=30&page=" + page;
+    return executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws IOException {
+        try (HttpResponse response = transport.get(url, Collections.<String, String>emptyMap(), priority)) {
+          return response.getStatusCode();
+        }
+      }
+    });
+  }
+
+  private void waitForQueueDepth(RequestScheduler scheduler, int queueDepth) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (scheduler.getQueueDepth() < queueDepth && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+package githubissuetracker.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.mappers.CommentMapper;
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.models.Comment;
+import githubissuetracker.models.Issue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the SearchIndex with issues and comments mapped from JSON.
+ *
+ * @author justinsvegliato
+ */
+public class SearchIndexTest {
+
+  private final IssueMapper issueMapper = new IssueMapper(true);
+  private final CommentMapper commentMapper = new CommentMapper(true);
+
+  @Test
+  public void ranksTitleMatchesFirst() throws IOException {
+    SearchIndex index = new SearchIndex();
+    index.addIssues(issueMapper.map("[" + getIssue(1, "Crash on startup", "Nothing else", 1) + ","
+            + getIssue(2, "Slow query", "It may crash too", 1) + "]"));
+
+    assertEquals(listOf(1, 2), getIds(index.search("crash")));
+    assertEquals(listOf(2), getIds(index.search("crash slow")));
+    assertEquals(listOf(1), getIds(index.search("\"on startup\"")));
+    assertEquals(listOf(1), getIds(index.search("star*")));
+  }
+
+  @Test
+  public void skipsCommentsThatHaveNotChanged() throws IOException {
+    SearchIndex index = new SearchIndex();
+    Issue issue = issueMapper.map("[" + getIssue(1, "Title", "Body", 1) + "]").get(0);
+
+    index.setComments(issue, getComments("first reply", "second reply"));
+    int unitCount = index.getUnitCount();
+    index.setComments(issue, getComments("first reply", "second reply"));
+    assertEquals(unitCount, index.getUnitCount());
+
+    // An edited comment is a change, though
+    index.setComments(issue, getComments("first reply", "edited reply"));
+    assertTrue(index.getUnitCount() > unitCount);
+    assertEquals(listOf(1), getIds(index.search("edited")));
+    assertEquals(listOf(), getIds(index.search("second")));
+  }
+
+  @Test
+  public void compactsIssuesThatHaveBeenIndexedAgain() throws IOException {
+    SearchIndex index = new SearchIndex();
+    index.addIssues(issueMapper.map(getIssues(5000, "original", 1)));
+    int unitCount = index.getUnitCount();
+
+    // Every issue is indexed again, which leaves more deleted units than live ones behind
+    index.addIssues(issueMapper.map(getIssues(5000, "updated", 2)));
+    assertEquals(unitCount, index.getUnitCount());
+    assertEquals(5000, index.getIssueCount());
+
+    assertEquals(0, index.search("original").size());
+    assertEquals(5000, index.search("updated").size());
+    assertEquals(listOf(42), getIds(index.search("\"issue 42 updated\"")));
+    assertEquals("issue 42 updated", index.getIssue(42).getTitle());
+  }
+
+  @Test
+  public void skipsIssuesThatHaveNotBeenUpdated() throws IOException {
+    SearchIndex index = new SearchIndex();
+    index.addIssues(issueMapper.map(getIssues(100, "original", 1)));
+    int unitCount = index.getUnitCount();
+
+    index.addIssues(issueMapper.map(getIssues(100, "original", 1)));
+    assertEquals(unitCount, index.getUnitCount());
+  }
+
+  private String getIssues(int count, String word, int day) {
+    StringBuilder builder = new StringBuilder("[");
+    for (int id = 1; id <= count; id++) {
+      builder.append(id > 1 ? "," : "").append(getIssue(id, "issue " + id + " " + word, "body " + word, day));
+    }
+    return builder.append("]").toString();
+  }
+
+  private String getIssue(int id, String title, String body, int day) {
+    return String.format("{\"id\":%d,\"number\":%d,\"title\":\"%s\",\"body\":\"%s\",\"user\":{\"login\":\"author%d\"},"
+            + "\"updated_at\":\"2015-03-%02dT08:00:00Z\"}", id, id, title, body, id % 10, day);
+  }
+
+  private List<Comment> getComments(String... bodies) throws IOException {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < bodies.length; i++) {
+      builder.append(i > 0 ? "," : "")
+              .append(String.format("{\"id\":%d,\"body\":\"%s\",\"user\":{\"login\":\"commenter\"}}", i + 1, bodies[i]));
+    }
+    return commentMapper.map(builder.append("]").toString());
+  }
+
+  private List<Integer> getIds(List<Issue> issues) {
+    List<Integer> ids = new ArrayList<>();
+    for (Issue issue : issues) {
+      ids.add(issue.getId());
+    }
+    return ids;
+  }
+
+  private List<Integer> listOf(Integer... ids) {
+    List<Integer> list = new ArrayList<>();
+    for (Integer id : ids) {
+      list.add(id);
+    }
+    return list;
+  }
+
+}
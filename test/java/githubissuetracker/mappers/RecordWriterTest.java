@@ -0,0 +1,84 @@
+package githubissuetracker.mappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.models.Issue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+/**
+ * Tests the RecordWriter with issues mapped from JSON.
+ *
+ * @author justinsvegliato
+ */
+public class RecordWriterTest {
+
+  private final IssueMapper issueMapper = new IssueMapper(true);
+
+  @Test
+  public void writesDatesInGitHubsFormat() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (RecordWriter writer = new RecordWriter(out)) {
+      writer.write(getIssues(1).get(0));
+    }
+
+    String line = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    assertTrue(line, line.contains("\"updated_at\":\"2015-03-01T08:00:00Z\""));
+    assertEquals(getIssues(1).get(0).getUpdatedAt(), issueMapper.map("[" + line + "]").get(0).getUpdatedAt());
+  }
+
+  @Test
+  public void writesTheSameDatesFromSeveralThreads() throws Exception {
+    final List<Issue> issues = getIssues(28);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final RecordWriter writer = new RecordWriter(out);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          for (int j = 0; j < 50; j++) {
+            for (Issue issue : issues) {
+              writer.write(issue);
+            }
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    writer.close();
+
+    String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+    assertEquals(4 * 50 * issues.size(), lines.length);
+    for (String line : lines) {
+      Issue issue = issueMapper.map("[" + line + "]").get(0);
+      String day = String.format("2015-03-%02dT08:00:00Z", issue.getId());
+      assertTrue(line, line.contains("\"updated_at\":\"" + day + "\""));
+    }
+  }
+
+  private List<Issue> getIssues(int count) throws IOException {
+    StringBuilder builder = new StringBuilder("[");
+    for (int id = 1; id <= count; id++) {
+      builder.append(id > 1 ? "," : "").append(String.format("{\"id\":%d,\"number\":%d,\"title\":\"issue %d\","
+              + "\"user\":{\"login\":\"author\"},\"updated_at\":\"2015-03-%02dT08:00:00Z\"}", id, id, id, id));
+    }
+    return issueMapper.map(builder.append("]").toString());
+  }
+
+}
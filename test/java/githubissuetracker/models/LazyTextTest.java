@@ -0,0 +1,62 @@
+package githubissuetracker.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import githubissuetracker.mappers.IssueMapper;
+import githubissuetracker.testing.Fixtures;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import org.junit.Test;
+
+/**
+ * Tests the LazyText against the bodies of the recorded issues, which have escape
+ * sequences, accented letters, Japanese and emoji in them.
+ *
+ * @author justinsvegliato
+ */
+public class LazyTextTest {
+
+  @Test
+  public void readsTheSameTextAsJackson() throws IOException {
+    List<Issue> eagerIssues = mapIssues(false);
+    List<Issue> lazyIssues = mapIssues(true);
+
+    assertEquals(eagerIssues.size(), lazyIssues.size());
+    for (int i = 0; i < eagerIssues.size(); i++) {
+      String body = eagerIssues.get(i).getBody();
+      LazyText lazyBody = lazyIssues.get(i).getBodyText();
+
+      assertEquals(body, readChars(lazyBody));
+      assertEquals(body.hashCode(), lazyBody.getTextHashCode());
+      assertEquals(body, lazyBody.toString());
+    }
+  }
+
+  @Test
+  public void decodesTheTextOnce() throws IOException {
+    LazyText body = mapIssues(true).get(0).getBodyText();
+    int rawLength = body.getRawLength();
+
+    String text = body.toString();
+    assertSame(text, body.toString());
+    assertEquals(text, readChars(body));
+    assertEquals(rawLength, body.getRawLength());
+  }
+
+  private List<Issue> mapIssues(boolean lazyBodies) throws IOException {
+    return new IssueMapper(lazyBodies).map(new ByteArrayInputStream(Fixtures.read(Fixtures.ISSUES_100)));
+  }
+
+  private String readChars(LazyText text) {
+    StringBuilder builder = new StringBuilder();
+    PrimitiveIterator.OfInt chars = text.chars();
+    while (chars.hasNext()) {
+      builder.append((char) chars.nextInt());
+    }
+    return builder.toString();
+  }
+
+}
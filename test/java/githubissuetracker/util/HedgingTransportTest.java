@@ -0,0 +1,132 @@
+package githubissuetracker.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.core.RequestScheduler;
+import githubissuetracker.testing.StubGitHubServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the HedgingTransport below a RequestScheduler against the stub server, with
+ * slow responses injected.
+ *
+ * @author justinsvegliato
+ */
+public class HedgingTransportTest {
+
+  private static final String REPOSITORY = "rails/rails";
+
+  private StubGitHubServer server;
+  private HedgingTransport hedgingTransport;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository(REPOSITORY, 3000);
+    hedgingTransport = new HedgingTransport(server.rewrite(new UrlConnectionTransport("")));
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    server.close();
+  }
+
+  @Test(timeout = 20000)
+  public void hedgesASlowResponse() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(hedgingTransport);
+    warmUp(scheduler, 0);
+
+    server.slowNext(1, 3000);
+    long startTime = System.currentTimeMillis();
+    assertEquals(200, get(scheduler, 1, RequestPriority.INTERACTIVE));
+
+    assertTrue(System.currentTimeMillis() - startTime < 2000);
+    assertEquals(1, hedgingTransport.getHedgeCount());
+    assertEquals(0, scheduler.getActiveRequests());
+  }
+
+  @Test(timeout = 20000)
+  public void doesNotHedgeTheTimeSpentInTheQueue() throws Exception {
+    // Requests are sent one at a time, so most of them wait in the queue far longer than
+    // the round trip takes, which isn't any slower than before
+    RequestScheduler scheduler = new RequestScheduler(hedgingTransport, 1, 0, 0);
+    warmUp(scheduler, 50);
+    server.setLatencyMillis(20);
+
+    List<Future<Integer>> statusCodes = new ArrayList<>();
+    for (int page = 1; page <= 10; page++) {
+      statusCodes.add(submit(scheduler, page, RequestPriority.INTERACTIVE));
+    }
+    for (Future<Integer> statusCode : statusCodes) {
+      assertEquals(200, (int) statusCode.get());
+    }
+
+    assertEquals(0, hedgingTransport.getHedgeCount());
+  }
+
+  @Test(timeout = 20000)
+  public void doesNotHedgeBackgroundRequests() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(hedgingTransport);
+    warmUp(scheduler, 0);
+
+    server.slowNext(1, 1000);
+    assertEquals(200, get(scheduler, 1, RequestPriority.BACKGROUND));
+
+    assertEquals(0, hedgingTransport.getHedgeCount());
+  }
+
+  @Test(timeout = 20000)
+  public void doesNotHedgeOnceTheBudgetIsLow() throws Exception {
+    // The scheduler doesn't pace, so only the hedging holds back
+    server.setRateLimit(300, 60000);
+    RequestScheduler scheduler = new RequestScheduler(hedgingTransport, 8, 0, 0);
+    warmUp(scheduler, 0);
+    server.resetCounts();
+
+    server.slowNext(1, 1000);
+    assertEquals(200, get(scheduler, 1, RequestPriority.INTERACTIVE));
+
+    assertEquals(0, hedgingTransport.getHedgeCount());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  // Times enough requests with the given latency for hedging to start
+  private void warmUp(HttpTransport transport, long latencyMillis) throws Exception {
+    server.setLatencyMillis(latencyMillis);
+    for (int page = 1; page <= 20; page++) {
+      assertEquals(200, get(transport, page, RequestPriority.INTERACTIVE));
+    }
+    assertTrue(hedgingTransport.getHedgeThresholdMillis() >= latencyMillis);
+  }
+
+  private int get(HttpTransport transport, int page, RequestPriority priority) throws Exception {
+    return submit(transport, page, priority).get();
+  }
+
+  private Future<Integer> submit(final HttpTransport transport, int page, final RequestPriority priority) {
+    final String url = "https://api.github.com/repos/" + REPOSITORY + "/issues?per_page=30&page=" + page;
+    return executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws IOException {
+        try (HttpResponse response = transport.get(url, Collections.<String, String>emptyMap(), priority)) {
+          return response.getStatusCode();
+        }
+      }
+    });
+  }
+
+}
@@ -0,0 +1,101 @@
+package githubissuetracker.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the percentiles the Histogram reports.
+ *
+ * @author justinsvegliato
+ */
+public class HistogramTest {
+
+  @Test
+  public void reportsZeroWhenEmpty() {
+    Histogram histogram = new Histogram("us");
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    assertEquals(0, histogram.getValueAtPercentile(100));
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void reportsASingleSampleAtEveryPercentile() {
+    Histogram histogram = new Histogram("us");
+    histogram.record(1000);
+
+    // The bucket of 1000 goes up to 1007, but no percentile is above the maximum
+    assertEquals(1, histogram.getCount());
+    assertEquals(1000, histogram.getValueAtPercentile(0));
+    assertEquals(1000, histogram.getPercentile50());
+    assertEquals(1000, histogram.getPercentile999());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(1000, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void keepsSmallValuesExact() {
+    Histogram histogram = new Histogram("us");
+    for (int value = 0; value < 128; value++) {
+      histogram.record(value);
+    }
+
+    assertEquals(63, histogram.getPercentile50());
+    assertEquals(127, histogram.getValueAtPercentile(100));
+    assertEquals(0, histogram.getValueAtPercentile(0));
+  }
+
+  @Test
+  public void reportsTheHighestValueOfABucket() {
+    // 128 and 129 share the first bucket that holds more than one value, and 130 starts the next
+    Histogram histogram = new Histogram("us");
+    histogram.record(127);
+    histogram.record(128);
+    histogram.record(130);
+
+    assertEquals(127, histogram.getValueAtPercentile(33));
+    assertEquals(129, histogram.getValueAtPercentile(66));
+    assertEquals(130, histogram.getValueAtPercentile(100));
+
+    histogram.record(129);
+    assertEquals(129, histogram.getValueAtPercentile(75));
+  }
+
+  @Test
+  public void staysWithinItsPrecisionForLargeValues() {
+    Histogram histogram = new Histogram("bytes");
+    for (long value = 1; value <= 1000000; value++) {
+      histogram.record(value * 1000);
+    }
+
+    long median = histogram.getPercentile50();
+    assertTrue("The median was " + median, median >= 500000000L && median <= 500000000L * 1.016);
+    assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void recordsNegativeValuesAsZero() {
+    Histogram histogram = new Histogram("us");
+    histogram.record(-5);
+    histogram.record(5);
+
+    assertEquals(0, histogram.getValueAtPercentile(50));
+    assertEquals(5, histogram.getSum());
+  }
+
+  @Test
+  public void discardsEverythingOnReset() {
+    Histogram histogram = new Histogram("us");
+    histogram.record(42);
+    histogram.reset();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile99());
+  }
+
+}
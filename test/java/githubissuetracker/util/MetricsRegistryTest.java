@@ -0,0 +1,102 @@
+package githubissuetracker.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the MetricsRegistry, its counters and their registration with JMX.
+ *
+ * @author justinsvegliato
+ */
+public class MetricsRegistryTest {
+
+  // The platform MBean server is shared by every test, so the names are unique to this one
+  private static final String COUNTER_NAME = "test.counter";
+  private static final String HISTOGRAM_NAME = "test.histogram";
+  private static final String GAUGE_NAME = "test.gauge";
+
+  private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  @After
+  public void tearDown() throws Exception {
+    for (ObjectName objectName : mbeanServer.queryNames(new ObjectName("githubissuetracker:name=test.*,*"), null)) {
+      mbeanServer.unregisterMBean(objectName);
+    }
+  }
+
+  @Test
+  public void countsIncrementsFromSeveralThreads() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    final Counter counter = registry.counter(COUNTER_NAME);
+    assertSame(counter, registry.counter(COUNTER_NAME));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          for (int j = 0; j < 10000; j++) {
+            counter.increment();
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    counter.add(5);
+    assertEquals(40005, counter.getCount());
+    assertEquals(40005, registry.getCounters().get(COUNTER_NAME).getCount());
+    counter.reset();
+    assertEquals(0, counter.getCount());
+  }
+
+  @Test
+  public void registersEveryMetricWithJmx() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter(COUNTER_NAME).add(3);
+    registry.enableJmx();
+
+    // Metrics created after JMX was enabled are registered too
+    Histogram histogram = registry.timer(HISTOGRAM_NAME);
+    histogram.record(100);
+    histogram.record(200);
+    registry.gauge(GAUGE_NAME, new LongSupplier() {
+      @Override
+      public long getAsLong() {
+        return 7;
+      }
+    });
+
+    assertEquals(3L, mbeanServer.getAttribute(getObjectName("Counter", COUNTER_NAME), "Count"));
+    assertEquals(2L, mbeanServer.getAttribute(getObjectName("Histogram", HISTOGRAM_NAME), "Count"));
+    assertEquals(200L, mbeanServer.getAttribute(getObjectName("Histogram", HISTOGRAM_NAME), "Max"));
+    assertEquals("us", mbeanServer.getAttribute(getObjectName("Histogram", HISTOGRAM_NAME), "Unit"));
+    assertEquals(7L, mbeanServer.getAttribute(getObjectName("Gauge", GAUGE_NAME), "Value"));
+
+    mbeanServer.invoke(getObjectName("Counter", COUNTER_NAME), "reset", null, null);
+    assertEquals(0, registry.counter(COUNTER_NAME).getCount());
+  }
+
+  private ObjectName getObjectName(String type, String name) throws Exception {
+    return new ObjectName("githubissuetracker:type=" + type + ",name=" + name);
+  }
+
+}
@@ -0,0 +1,78 @@
+package githubissuetracker.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import githubissuetracker.testing.StubGitHubServer;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the RetryingTransport against the stub server, with timeouts and server errors
+ * injected.
+ *
+ * @author justinsvegliato
+ */
+public class RetryingTransportTest {
+
+  private static final String URL = "https://api.github.com/repos/rails/rails/issues?per_page=30&page=1";
+  private static final int READ_TIMEOUT_MILLIS = 500;
+
+  private StubGitHubServer server;
+  private RetryingTransport retryingTransport;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StubGitHubServer();
+    server.addRepository("rails/rails", 100);
+    HttpTransport transport = new UrlConnectionTransport("", 1000, READ_TIMEOUT_MILLIS);
+    retryingTransport = new RetryingTransport(server.rewrite(transport), 3, 10, 100);
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  @Test(timeout = 10000)
+  public void retriesAReadTimeout() throws IOException {
+    server.slowNext(1, 3 * READ_TIMEOUT_MILLIS);
+
+    assertEquals(200, get());
+    assertEquals(1, retryingTransport.getRetryCount());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test(timeout = 10000)
+  public void waitsAsLongAsRetryAfterSays() throws IOException {
+    server.failNext(1, 503, 1);
+
+    long startTime = System.currentTimeMillis();
+    assertEquals(200, get());
+    long elapsedMillis = System.currentTimeMillis() - startTime;
+
+    assertTrue("Retried after " + elapsedMillis + " ms", elapsedMillis >= 1000);
+    assertEquals(1, retryingTransport.getRetryCount());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test(timeout = 10000)
+  public void returnsTheLastFailureOnceTheAttemptsRunOut() throws IOException {
+    server.failNext(5, 502);
+
+    assertEquals(502, get());
+    assertEquals(2, retryingTransport.getRetryCount());
+    assertEquals(3, server.getRequestCount());
+  }
+
+  private int get() throws IOException {
+    try (HttpResponse response = retryingTransport.get(URL, Collections.<String, String>emptyMap(), 
+            RequestPriority.INTERACTIVE)) {
+      return response.getStatusCode();
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+package githubissuetracker.testing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Fixtures class reads the recorded responses the tests and benchmarks parse. They're
+ * pages of issues and comments in the shape the GitHub REST API (v3) returns them, with
+ * every field GitHub sends (not just the ones the models keep), so that parsing them
+ * costs what parsing a real page does.
+ *
+ * The fixtures are recorded from the StubGitHubServer, which makes them reproducible and
+ * keeps them free of real users' data. Running this class records them again.
+ *
+ * @author justinsvegliato
+ */
+public final class Fixtures {
+
+  /**
+   * The first page of 30 issues.
+   */
+  public static final String ISSUES_30 = "issues-30.json";
+
+  /**
+   * The first page of 100 issues.
+   */
+  public static final String ISSUES_100 = "issues-100.json";
+
+  /**
+   * The first page of 30 comments of an issue.
+   */
+  public static final String COMMENTS_30 = "comments-30.json";
+
+  /**
+   * The 100 comments of an issue.
+   */
+  public static final String COMMENTS_100 = "comments-100.json";
+
+  /**
+   * The Link header values of a page in the middle of a query, as GitHub sends them.
+   */
+  public static final List<String> LINK_HEADER = Arrays.asList(
+          "<https://api.github.com/repositories/8514/issues?state=open&sort=updated&direction=desc&per_page=100&page=4>; rel=\"next\", "
+          + "<https://api.github.com/repositories/8514/issues?state=open&sort=updated&direction=desc&per_page=100&page=14>; rel=\"last\", "
+          + "<https://api.github.com/repositories/8514/issues?state=open&sort=updated&direction=desc&per_page=100&page=1>; rel=\"first\", "
+          + "<https://api.github.com/repositories/8514/issues?state=open&sort=updated&direction=desc&per_page=100&page=2>; rel=\"prev\"");
+
+  /**
+   * The repository the fixtures were recorded from.
+   */
+  public static final String REPOSITORY = "rails/rails";
+
+  /**
+   * The number of issues in the repository the fixtures were recorded from.
+   */
+  public static final int ISSUE_COUNT = 1400;
+
+  /**
+   * The issue whose comments were recorded, which has 100 of them.
+   */
+  public static final int COMMENTED_ISSUE = 72;
+
+  private static final String DIRECTORY = "/fixtures/";
+
+  private Fixtures() {
+  }
+
+  /**
+   * Reads the given fixture.
+   *
+   * @param name the name of the fixture (i.e. ISSUES_30)
+   * @return the recorded response body
+   */
+  public static byte[] read(String name) {
+    try (InputStream in = Fixtures.class.getResourceAsStream(DIRECTORY + name)) {
+      if (in == null) {
+        throw new IllegalArgumentException("No such fixture: " + name);
+      }
+      return readAll(in);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Records the fixtures again.
+   *
+   * @param args the directory to record the fixtures to
+   * @throws IOException if the fixtures can't be recorded
+   */
+  public static void main(String[] args) throws IOException {
+    Path directory = Paths.get(args.length > 0 ? args[0] : "testFixtures/resources/fixtures");
+    try (StubGitHubServer server = new StubGitHubServer()) {
+      server.addRepository(REPOSITORY, ISSUE_COUNT);
+      server.setMaxComments(100);
+      String issuesUrl = server.getBaseUrl() + "/repos/" + REPOSITORY + "/issues?state=open&sort=updated&direction=desc&per_page=";
+      String commentsUrl = server.getBaseUrl() + "/repos/" + REPOSITORY + "/issues/" + COMMENTED_ISSUE + "/comments?per_page=";
+      record(issuesUrl + 30, directory.resolve(ISSUES_30));
+      record(issuesUrl + 100, directory.resolve(ISSUES_100));
+      record(commentsUrl + 30, directory.resolve(COMMENTS_30));
+      record(commentsUrl + 100, directory.resolve(COMMENTS_100));
+    }
+  }
+
+  private static void record(String url, Path file) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try (InputStream in = connection.getInputStream()) {
+      Files.createDirectories(file.getParent());
+      Files.write(file, readAll(in));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int length;
+    while ((length = in.read(chunk)) != -1) {
+      buffer.write(chunk, 0, length);
+    }
+    return buffer.toByteArray();
+  }
+
+}
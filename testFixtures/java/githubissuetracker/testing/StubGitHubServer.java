@@ -0,0 +1,1046 @@
+package githubissuetracker.testing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import githubissuetracker.util.DaemonThreadFactory;
+import githubissuetracker.util.HttpResponse;
+import githubissuetracker.util.HttpTransport;
+import githubissuetracker.util.RequestPriority;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The StubGitHubServer class is an in-process stand-in for the GitHub API that the tests
+ * and benchmarks run against, so that they work offline and repeatably. It serves the
+ * issues and comments of any number of synthetic repositories over loopback HTTP, in the
+ * same shape as the REST API (v3) and the GraphQL API (v4):
+ *
+ * (1) Issue lists are sorted by the time they were last updated (newest first), paged
+ *     with per_page and page, filtered with since, and linked with Link headers. Every
+ *     response has an ETag, and a matching If-None-Match is answered with 304.
+ * (2) Optionally, a rate limit is enforced the way GitHub does: every response reports
+ *     the budget in the X-RateLimit headers, 304s are free, and requests beyond the limit
+ *     are rejected with 403 until the window is reset.
+ * (3) Faults can be injected: added latency, slow responses, error statuses, and
+ *     connections that are dropped without a response.
+ * (4) Bodies are compressed with gzip if the client accepts it, and the bandwidth can be
+ *     limited so that the size of a response matters.
+ *
+ * The application builds URLs for https://api.github.com, so its transport has to be
+ * wrapped with rewrite() to send them here instead. Every request is counted.
+ *
+ * @author justinsvegliato
+ */
+public class StubGitHubServer implements Closeable {
+
+  private static final String GITHUB_API_URL = "https://api.github.com";
+  private static final Pattern ISSUES_PATH_PATTERN = Pattern.compile("^/repos/([^/]+)/([^/]+)/issues(?:/(\\d+)/comments)?/?$");
+  private static final long BASE_TIME_MILLIS = Instant.parse("2015-01-01T00:00:00Z").toEpochMilli();
+  private static final long HOUR_MILLIS = 3600000;
+  private static final int DEFAULT_PAGE_SIZE = 30;
+  private static final int MAXIMUM_PAGE_SIZE = 100;
+  private static final int USER_COUNT = 40;
+  private static final String[] WORDS = {"the", "issue", "rails", "crash", "when", "calling", "render", "with", "a",
+    "nil", "partial", "regression", "since", "4.2", "stack", "trace", "below", "expected", "behavior", "actual",
+    "steps", "to", "reproduce", "`ActiveRecord::Base`", "migration", "fails", "on", "PostgreSQL", "naïve", "café",
+    "\"quoted\"", "back\\slash", "日本語", "thanks!", "👍", "please", "review", "patch", "attached", "https://github.com"};
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  // Otherwise the headers and the body go out in separate segments, and every response
+  // waits for a delayed ACK (40 ms on Linux) before its body is sent
+  static {
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+  private static final JsonFactory jsonFactory = mapper.getFactory();
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String baseUrl;
+  private final Map<String, Repository> repositories = new ConcurrentHashMap<>();
+
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger notModifiedCount = new AtomicInteger();
+  private final AtomicInteger rejectedCount = new AtomicInteger();
+  private final AtomicInteger faultCount = new AtomicInteger();
+  private final AtomicInteger activeRequests = new AtomicInteger();
+  private final AtomicInteger maxActiveRequests = new AtomicInteger();
+  private final Map<String, AtomicInteger> repositoryRequestCounts = new ConcurrentHashMap<>();
+  // The exchange the handler thread is serving until it stops counting as active
+  private final ThreadLocal<HttpExchange> activeExchange = new ThreadLocal<>();
+  private final List<Long> requestTimes = Collections.synchronizedList(new ArrayList<Long>());
+
+  private volatile long latencyMillis = 0;
+  private volatile long bytesPerSecond = 0;
+  private volatile int maxComments = 20;
+
+  // The faults and the rate limit are guarded by this
+  private final Random random = new Random(42);
+  private double failureRate = 0;
+  private int failureStatus = 502;
+  private int failuresLeft = 0;
+  private int failureRetryAfter = 0;
+  private int dropsLeft = 0;
+  private double slowRate = 0;
+  private int slowLeft = 0;
+  private long slowMillis = 0;
+  private int rateLimit = 0;
+  private long rateLimitWindowMillis = 0;
+  private int remainingRequests = 0;
+  private long resetTimeMillis = 0;
+
+  /**
+   * Creates a new StubGitHubServer and starts it on a free loopback port.
+   *
+   * @throws IOException if the server can't be started
+   */
+  public StubGitHubServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    executor = Executors.newCachedThreadPool(new DaemonThreadFactory("StubGitHubServer"));
+    server.setExecutor(executor);
+    server.createContext("/repos/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        serve(exchange, false);
+      }
+    });
+    server.createContext("/graphql", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        serve(exchange, true);
+      }
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Adds a repository with issues numbered 1 to issueCount, or replaces one. Issue n was
+   * created and last updated n hours after the start of 2015.
+   *
+   * @param fullName the full name of the repository (i.e. "owner/name")
+   * @param issueCount the number of issues
+   */
+  public void addRepository(String fullName, int issueCount) {
+    repositories.put(fullName, new Repository(repositories.size() + 1, issueCount));
+  }
+
+  /**
+   * Updates the given issue, which changes its title and moves it to the front of the
+   * issue list. It's reported by since queries from now on.
+   *
+   * @param fullName the full name of the repository
+   * @param number the number of the issue
+   */
+  public void updateIssue(String fullName, int number) {
+    getRepository(fullName).update(number);
+  }
+
+  /**
+   * Adds a new issue to the given repository.
+   *
+   * @param fullName the full name of the repository
+   * @return the number of the new issue
+   */
+  public int addIssue(String fullName) {
+    return getRepository(fullName).addIssue();
+  }
+
+  /**
+   * Gets the URL of the server (i.e. "http://127.0.0.1:12345").
+   *
+   * @return the base URL
+   */
+  public String getBaseUrl() {
+    return baseUrl;
+  }
+
+  /**
+   * Gets the URL of the GraphQL endpoint.
+   *
+   * @return the GraphQL URL
+   */
+  public String getGraphQLUrl() {
+    return baseUrl + "/graphql";
+  }
+
+  /**
+   * Wraps the given transport so that its requests for the GitHub API are sent to this
+   * server instead.
+   *
+   * @param transport the transport that actually sends the requests
+   * @return the redirecting transport
+   */
+  public HttpTransport rewrite(final HttpTransport transport) {
+    return new HttpTransport() {
+      @Override
+      public HttpResponse get(String url, Map<String, String> requestHeaders, RequestPriority priority)
+              throws IOException {
+        return transport.get(url.replace(GITHUB_API_URL, baseUrl), requestHeaders, priority);
+      }
+
+      @Override
+      public HttpResponse post(String url, Map<String, String> requestHeaders, byte[] body, RequestPriority priority)
+              throws IOException {
+        return transport.post(url.replace(GITHUB_API_URL, baseUrl), requestHeaders, body, priority);
+      }
+    };
+  }
+
+  /**
+   * Sets the time every request takes before it's answered.
+   *
+   * @param latencyMillis the latency in milliseconds
+   */
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  /**
+   * Sets the rate at which response bodies are sent, so that the size of a response 
+   * (i.e. whether it's compressed) adds to the time it takes like it would over a network.
+   *
+   * @param bytesPerSecond the bandwidth in bytes per second, or 0 for no limit
+   */
+  public void setBandwidth(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /**
+   * Sets the largest number of comments an issue has. Issue n has (n * 7) % (max + 1).
+   *
+   * @param maxComments the largest number of comments
+   */
+  public void setMaxComments(int maxComments) {
+    this.maxComments = maxComments;
+  }
+
+  /**
+   * Gets the number of comments the given issue has.
+   *
+   * @param number the number of the issue
+   * @return the number of comments
+   */
+  public int getCommentCount(int number) {
+    return (int) ((number * 7L) % (maxComments + 1));
+  }
+
+  /**
+   * Enforces a rate limit of the given number of requests per window.
+   *
+   * @param limit the number of requests per window, or 0 for no limit
+   * @param windowMillis the length of a window
+   */
+  public synchronized void setRateLimit(int limit, long windowMillis) {
+    rateLimit = limit;
+    rateLimitWindowMillis = windowMillis;
+    remainingRequests = limit;
+    resetTimeMillis = 0;
+  }
+
+  /**
+   * Answers the next requests with the given status (i.e. 502) instead.
+   *
+   * @param count the number of requests to fail
+   * @param statusCode the status to answer with
+   */
+  public synchronized void failNext(int count, int statusCode) {
+    failNext(count, statusCode, 0);
+  }
+
+  /**
+   * Answers the next requests with the given status (i.e. 503) and a Retry-After header
+   * instead.
+   *
+   * @param count the number of requests to fail
+   * @param statusCode the status to answer with
+   * @param retryAfterSeconds the delay to ask for with Retry-After, or 0 for no header
+   */
+  public synchronized void failNext(int count, int statusCode, int retryAfterSeconds) {
+    failuresLeft = count;
+    failureStatus = statusCode;
+    failureRetryAfter = retryAfterSeconds;
+  }
+
+  /**
+   * Closes the connection of the next requests without answering them.
+   *
+   * @param count the number of requests to drop
+   */
+  public synchronized void dropNext(int count) {
+    dropsLeft = count;
+  }
+
+  /**
+   * Answers the given fraction of the requests with 502 Bad Gateway.
+   *
+   * @param failureRate the fraction of requests to fail, from 0 to 1
+   */
+  public synchronized void setFailureRate(double failureRate) {
+    this.failureRate = failureRate;
+  }
+
+  /**
+   * Delays the next requests by the given time on top of the latency.
+   *
+   * @param count the number of requests to delay
+   * @param slowMillis the extra delay
+   */
+  public synchronized void slowNext(int count, long slowMillis) {
+    this.slowLeft = count;
+    this.slowMillis = slowMillis;
+  }
+
+  /**
+   * Delays the given fraction of the requests by the given time on top of the latency.
+   *
+   * @param slowRate the fraction of requests to delay, from 0 to 1
+   * @param slowMillis the extra delay
+   */
+  public synchronized void setSlowRate(double slowRate, long slowMillis) {
+    this.slowRate = slowRate;
+    this.slowMillis = slowMillis;
+  }
+
+  /**
+   * Gets the number of requests received, including the rejected and failed ones.
+   *
+   * @return the number of requests
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of requests received for the given repository.
+   *
+   * @param fullName the full name of the repository
+   * @return the number of requests
+   */
+  public int getRequestCount(String fullName) {
+    AtomicInteger count = repositoryRequestCounts.get(fullName);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Gets the number of requests answered with 304 Not Modified.
+   *
+   * @return the number of 304 responses
+   */
+  public int getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Gets the number of requests rejected because of the rate limit.
+   *
+   * @return the number of 403 responses
+   */
+  public int getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * Gets the number of requests that were failed or dropped on purpose.
+   *
+   * @return the number of injected faults
+   */
+  public int getFaultCount() {
+    return faultCount.get();
+  }
+
+  /**
+   * Gets the largest number of requests that were being answered at once.
+   *
+   * @return the peak concurrency
+   */
+  public int getMaxActiveRequests() {
+    return maxActiveRequests.get();
+  }
+
+  /**
+   * Gets the times the requests were received at.
+   *
+   * @return the times in milliseconds since the epoch, in the order they were received
+   */
+  public List<Long> getRequestTimes() {
+    synchronized (requestTimes) {
+      return new ArrayList<>(requestTimes);
+    }
+  }
+
+  /**
+   * Resets the request counters.
+   */
+  public void resetCounts() {
+    requestCount.set(0);
+    notModifiedCount.set(0);
+    rejectedCount.set(0);
+    faultCount.set(0);
+    maxActiveRequests.set(0);
+    repositoryRequestCounts.clear();
+    requestTimes.clear();
+  }
+
+  /**
+   * Stops the server.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void serve(HttpExchange exchange, boolean graphQL) throws IOException {
+    requestCount.incrementAndGet();
+    requestTimes.add(System.currentTimeMillis());
+    int active = activeRequests.incrementAndGet();
+    activeExchange.set(exchange);
+    while (true) {
+      int max = maxActiveRequests.get();
+      if (active <= max || maxActiveRequests.compareAndSet(max, active)) {
+        break;
+      }
+    }
+
+    try {
+      byte[] requestBody = readAll(exchange.getRequestBody());
+      sleep(latencyMillis + getExtraDelay());
+
+      Fault fault = takeFault();
+      if (fault == Fault.DROP) {
+        faultCount.incrementAndGet();
+        exchange.getResponseBody().close();
+        exchange.close();
+        return;
+      }
+      if (fault == Fault.FAIL) {
+        faultCount.incrementAndGet();
+        addRetryAfterHeader(exchange);
+        send(exchange, failureStatus, "{\"message\":\"Server Error\"}".getBytes(StandardCharsets.UTF_8), null);
+        return;
+      }
+
+      Response response = graphQL ? serveGraphQL(requestBody) : serveRest(exchange);
+      if (response == null) {
+        send(exchange, 404, "{\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8), null);
+        return;
+      }
+
+      String entityTag = getEntityTag(response.body);
+      exchange.getResponseHeaders().add("ETag", entityTag);
+      if (!graphQL && entityTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModifiedCount.incrementAndGet();
+        addRateLimitHeaders(exchange, false);
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+
+      if (!addRateLimitHeaders(exchange, true)) {
+        rejectedCount.incrementAndGet();
+        send(exchange, 403, "{\"message\":\"API rate limit exceeded\"}".getBytes(StandardCharsets.UTF_8), null);
+        return;
+      }
+      send(exchange, 200, encode(exchange, response.body), response.link);
+    } finally {
+      markInactive(exchange);
+    }
+  }
+
+  // The client can send its next request as soon as the last byte of the response is written 
+  // (i.e. before the handler returns), so the request stops counting as active before that
+  private void markInactive(HttpExchange exchange) {
+    if (activeExchange.get() == exchange) {
+      activeExchange.remove();
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private Response serveRest(HttpExchange exchange) throws IOException {
+    Matcher matcher = ISSUES_PATH_PATTERN.matcher(exchange.getRequestURI().getPath());
+    if (!matcher.matches()) {
+      return null;
+    }
+    String fullName = matcher.group(1) + "/" + matcher.group(2);
+    Repository repository = repositories.get(fullName);
+    if (repository == null) {
+      return null;
+    }
+    countRequest(fullName);
+
+    String query = exchange.getRequestURI().getRawQuery();
+    Map<String, String> parameters = parseParameters(query);
+    int pageSize = Math.min(getInt(parameters, "per_page", DEFAULT_PAGE_SIZE), MAXIMUM_PAGE_SIZE);
+    int page = Math.max(getInt(parameters, "page", 1), 1);
+
+    int[] order;
+    int total;
+    int number = matcher.group(3) == null ? -1 : Integer.parseInt(matcher.group(3));
+    synchronized (repository) {
+      order = repository.order;
+      total = number >= 0 ? getCommentCount(number)
+              : repository.countUpdatedSince(parameters.containsKey("since") ? parseTime(parameters.get("since")) : 0);
+    }
+
+    int from = Math.min((page - 1) * pageSize, total);
+    int to = Math.min(from + pageSize, total);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (JsonGenerator generator = jsonFactory.createGenerator(body)) {
+      generator.writeStartArray();
+      for (int i = from; i < to; i++) {
+        if (number >= 0) {
+          writeRestComment(generator, repository, fullName, number, i);
+        } else {
+          writeRestIssue(generator, repository, fullName, order[i]);
+        }
+      }
+      generator.writeEndArray();
+    }
+
+    int lastPage = Math.max((total + pageSize - 1) / pageSize, 1);
+    String pageUrl = baseUrl + exchange.getRequestURI().getPath() + "?" + withoutPage(query);
+    List<String> links = new ArrayList<>();
+    if (page < lastPage) {
+      links.add(String.format("<%spage=%d>; rel=\"next\"", pageUrl, page + 1));
+      links.add(String.format("<%spage=%d>; rel=\"last\"", pageUrl, lastPage));
+    }
+    if (page > 1) {
+      links.add(String.format("<%spage=%d>; rel=\"first\"", pageUrl, 1));
+      links.add(String.format("<%spage=%d>; rel=\"prev\"", pageUrl, page - 1));
+    }
+    return new Response(body.toByteArray(), links.isEmpty() ? null : String.join(", ", links));
+  }
+
+  // Only the queries the GraphQLTransport sends are understood
+  private Response serveGraphQL(byte[] requestBody) throws IOException {
+    JsonNode request = mapper.readTree(requestBody);
+    String query = request.path("query").asText();
+    JsonNode variables = request.path("variables");
+    String fullName = variables.path("owner").asText() + "/" + variables.path("name").asText();
+    Repository repository = repositories.get(fullName);
+    if (repository == null || !query.contains("databaseId")) {
+      return null;
+    }
+    countRequest(fullName);
+
+    boolean issues = query.contains("issues(");
+    int number = variables.path("number").asInt();
+    int[] order;
+    int total;
+    synchronized (repository) {
+      order = repository.order;
+      total = issues ? repository.countUpdatedSince(variables.hasNonNull("since")
+              ? parseTime(variables.get("since").asText()) : 0) : getCommentCount(number);
+    }
+
+    int from;
+    int to;
+    if (variables.hasNonNull("before")) {
+      to = decodeCursor(variables.get("before").asText());
+      from = Math.max(0, to - variables.path("last").asInt());
+    } else {
+      from = variables.hasNonNull("after") ? decodeCursor(variables.get("after").asText()) + 1 : 0;
+      to = Math.min(total, from + variables.path("first").asInt());
+    }
+    int embeddedComments = variables.path("commentCount").asInt();
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (JsonGenerator generator = jsonFactory.createGenerator(body)) {
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("data");
+      generator.writeObjectFieldStart("repository");
+      if (issues) {
+        generator.writeObjectFieldStart("issues");
+      } else {
+        generator.writeObjectFieldStart("issue");
+        generator.writeObjectFieldStart("comments");
+      }
+      writePageInfo(generator, from, to, total);
+      generator.writeArrayFieldStart("nodes");
+      for (int i = from; i < to; i++) {
+        if (issues) {
+          writeGraphQLIssue(generator, repository, order[i], embeddedComments);
+        } else {
+          writeGraphQLComment(generator, repository, number, i);
+        }
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+      if (!issues) {
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    return new Response(body.toByteArray(), null);
+  }
+
+  private void writeRestIssue(JsonGenerator generator, Repository repository, String fullName, int number)
+          throws IOException {
+    String issueUrl = GITHUB_API_URL + "/repos/" + fullName + "/issues/" + number;
+    generator.writeStartObject();
+    generator.writeStringField("url", issueUrl);
+    generator.writeStringField("repository_url", GITHUB_API_URL + "/repos/" + fullName);
+    generator.writeStringField("labels_url", issueUrl + "/labels{/name}");
+    generator.writeStringField("comments_url", issueUrl + "/comments");
+    generator.writeStringField("events_url", issueUrl + "/events");
+    generator.writeStringField("html_url", "https://github.com/" + fullName + "/issues/" + number);
+    generator.writeNumberField("id", repository.getIssueId(number));
+    generator.writeStringField("node_id", "MDU6SXNzdWU" + repository.getIssueId(number));
+    generator.writeNumberField("number", number);
+    generator.writeStringField("title", repository.getTitle(number));
+    writeRestUser(generator, "user", number % USER_COUNT);
+    generator.writeArrayFieldStart("labels");
+    if (number % 3 == 0) {
+      generator.writeStartObject();
+      generator.writeNumberField("id", 107191);
+      generator.writeStringField("name", "activerecord");
+      generator.writeStringField("color", "0b02e1");
+      generator.writeBooleanField("default", false);
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+    generator.writeStringField("state", "open");
+    generator.writeBooleanField("locked", false);
+    generator.writeNullField("assignee");
+    generator.writeArrayFieldStart("assignees");
+    generator.writeEndArray();
+    generator.writeNullField("milestone");
+    generator.writeNumberField("comments", getCommentCount(number));
+    generator.writeStringField("created_at", formatTime(getCreatedAt(number)));
+    generator.writeStringField("updated_at", formatTime(repository.getUpdatedAt(number)));
+    generator.writeNullField("closed_at");
+    generator.writeStringField("author_association", "CONTRIBUTOR");
+    generator.writeStringField("body", getText(number, 0));
+    generator.writeEndObject();
+  }
+
+  private void writeRestComment(JsonGenerator generator, Repository repository, String fullName, int number, int index)
+          throws IOException {
+    int id = repository.getCommentId(number, index);
+    generator.writeStartObject();
+    generator.writeStringField("url", GITHUB_API_URL + "/repos/" + fullName + "/issues/comments/" + id);
+    generator.writeStringField("html_url", "https://github.com/" + fullName + "/issues/" + number + "#issuecomment-" + id);
+    generator.writeStringField("issue_url", GITHUB_API_URL + "/repos/" + fullName + "/issues/" + number);
+    generator.writeNumberField("id", id);
+    generator.writeStringField("node_id", "MDEyOklzc3VlQ29tbWVudA" + id);
+    writeRestUser(generator, "user", (number + index) % USER_COUNT);
+    generator.writeStringField("created_at", formatTime(getCreatedAt(number) + (index + 1) * 60000L));
+    generator.writeStringField("updated_at", formatTime(getCreatedAt(number) + (index + 1) * 60000L));
+    generator.writeStringField("author_association", "MEMBER");
+    generator.writeStringField("body", getText(number, index + 1));
+    generator.writeEndObject();
+  }
+
+  private void writeRestUser(JsonGenerator generator, String field, int user) throws IOException {
+    String login = "contributor" + user;
+    generator.writeObjectFieldStart(field);
+    generator.writeStringField("login", login);
+    generator.writeNumberField("id", 1000 + user);
+    generator.writeStringField("node_id", "MDQ6VXNlcj" + (1000 + user));
+    generator.writeStringField("avatar_url", "https://avatars.githubusercontent.com/u/" + (1000 + user) + "?v=3");
+    generator.writeStringField("gravatar_id", "");
+    generator.writeStringField("url", GITHUB_API_URL + "/users/" + login);
+    generator.writeStringField("html_url", "https://github.com/" + login);
+    generator.writeStringField("type", "User");
+    generator.writeBooleanField("site_admin", false);
+    generator.writeEndObject();
+  }
+
+  // The GraphQL transport renames the fields with aliases, so they come back in REST style
+  private void writeGraphQLIssue(JsonGenerator generator, Repository repository, int number, int embeddedComments)
+          throws IOException {
+    int commentCount = getCommentCount(number);
+    int shownComments = Math.min(embeddedComments, commentCount);
+    generator.writeStartObject();
+    generator.writeNumberField("id", repository.getIssueId(number));
+    generator.writeNumberField("number", number);
+    generator.writeStringField("title", repository.getTitle(number));
+    generator.writeStringField("body", getText(number, 0));
+    generator.writeStringField("state", "OPEN");
+    generator.writeStringField("created_at", formatTime(getCreatedAt(number)));
+    generator.writeStringField("updated_at", formatTime(repository.getUpdatedAt(number)));
+    writeGraphQLUser(generator, number % USER_COUNT);
+    generator.writeObjectFieldStart("comments");
+    generator.writeNumberField("totalCount", commentCount);
+    generator.writeObjectFieldStart("pageInfo");
+    generator.writeBooleanField("hasNextPage", shownComments < commentCount);
+    if (shownComments > 0) {
+      generator.writeStringField("endCursor", encodeCursor(shownComments - 1));
+    } else {
+      generator.writeNullField("endCursor");
+    }
+    generator.writeEndObject();
+    generator.writeArrayFieldStart("nodes");
+    for (int i = 0; i < shownComments; i++) {
+      writeGraphQLComment(generator, repository, number, i);
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  private void writeGraphQLComment(JsonGenerator generator, Repository repository, int number, int index)
+          throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField("id", repository.getCommentId(number, index));
+    generator.writeStringField("body", getText(number, index + 1));
+    generator.writeStringField("created_at", formatTime(getCreatedAt(number) + (index + 1) * 60000L));
+    writeGraphQLUser(generator, (number + index) % USER_COUNT);
+    generator.writeEndObject();
+  }
+
+  private void writeGraphQLUser(JsonGenerator generator, int user) throws IOException {
+    generator.writeObjectFieldStart("user");
+    generator.writeStringField("login", "contributor" + user);
+    generator.writeNumberField("id", 1000 + user);
+    generator.writeEndObject();
+  }
+
+  private void writePageInfo(JsonGenerator generator, int from, int to, int total) throws IOException {
+    generator.writeObjectFieldStart("pageInfo");
+    generator.writeBooleanField("hasNextPage", to < total);
+    generator.writeBooleanField("hasPreviousPage", from > 0);
+    if (to > from) {
+      generator.writeStringField("startCursor", encodeCursor(from));
+      generator.writeStringField("endCursor", encodeCursor(to - 1));
+    } else {
+      generator.writeNullField("startCursor");
+      generator.writeNullField("endCursor");
+    }
+    generator.writeEndObject();
+  }
+
+  // Markdown-ish text of varying length, with escapes and multi-byte characters
+  private String getText(int number, int index) {
+    Random text = new Random(number * 1009L + index);
+    int length = 40 + text.nextInt(index == 0 ? 1500 : 600);
+    StringBuilder builder = new StringBuilder(length + 16);
+    while (builder.length() < length) {
+      builder.append(WORDS[text.nextInt(WORDS.length)]);
+      builder.append(text.nextInt(12) == 0 ? "\r\n\r\n" : " ");
+    }
+    return builder.toString();
+  }
+
+  private long getCreatedAt(int number) {
+    return BASE_TIME_MILLIS + number * HOUR_MILLIS;
+  }
+
+  private synchronized long getExtraDelay() {
+    if (slowLeft > 0) {
+      slowLeft--;
+      return slowMillis;
+    }
+    return slowRate > 0 && random.nextDouble() < slowRate ? slowMillis : 0;
+  }
+
+  private synchronized Fault takeFault() {
+    if (dropsLeft > 0) {
+      dropsLeft--;
+      return Fault.DROP;
+    }
+    if (failuresLeft > 0) {
+      failuresLeft--;
+      return Fault.FAIL;
+    }
+    if (failureRate > 0 && random.nextDouble() < failureRate) {
+      failureStatus = 502;
+      failureRetryAfter = 0;
+      return Fault.FAIL;
+    }
+    return null;
+  }
+
+  private synchronized void addRetryAfterHeader(HttpExchange exchange) {
+    if (failureRetryAfter > 0) {
+      exchange.getResponseHeaders().add("Retry-After", String.valueOf(failureRetryAfter));
+    }
+  }
+
+  // Returns false if the request is over the limit
+  private synchronized boolean addRateLimitHeaders(HttpExchange exchange, boolean counted) {
+    if (rateLimit <= 0) {
+      return true;
+    }
+
+    long now = System.currentTimeMillis();
+    if (now >= resetTimeMillis) {
+      remainingRequests = rateLimit;
+      resetTimeMillis = ((now + rateLimitWindowMillis) / 1000 + 1) * 1000;
+    }
+    boolean allowed = !counted || remainingRequests > 0;
+    if (counted && allowed) {
+      remainingRequests--;
+    }
+
+    exchange.getResponseHeaders().add("X-RateLimit-Limit", String.valueOf(rateLimit));
+    exchange.getResponseHeaders().add("X-RateLimit-Remaining", String.valueOf(remainingRequests));
+    exchange.getResponseHeaders().add("X-RateLimit-Reset", String.valueOf(resetTimeMillis / 1000));
+    return allowed;
+  }
+
+  private void countRequest(String fullName) {
+    AtomicInteger count = repositoryRequestCounts.get(fullName);
+    if (count == null) {
+      repositoryRequestCounts.putIfAbsent(fullName, new AtomicInteger());
+      count = repositoryRequestCounts.get(fullName);
+    }
+    count.incrementAndGet();
+  }
+
+  private void send(HttpExchange exchange, int statusCode, byte[] body, String link) throws IOException {
+    exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+    if (link != null) {
+      exchange.getResponseHeaders().add("Link", link);
+    }
+    exchange.sendResponseHeaders(statusCode, body.length);
+    if (bytesPerSecond > 0) {
+      sleep(body.length * 1000L / bytesPerSecond);
+    }
+    markInactive(exchange);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  // Compresses the body with gzip if the client accepts it, like GitHub does
+  private byte[] encode(HttpExchange exchange, byte[] body) throws IOException {
+    String acceptedEncodings = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    if (acceptedEncodings == null || !acceptedEncodings.contains("gzip")) {
+      return body;
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+      gzipOut.write(body);
+    }
+    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+    return out.toByteArray();
+  }
+
+  private Repository getRepository(String fullName) {
+    Repository repository = repositories.get(fullName);
+    if (repository == null) {
+      throw new IllegalArgumentException("No such repository: " + fullName);
+    }
+    return repository;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int length;
+    while ((length = in.read(chunk)) != -1) {
+      buffer.write(chunk, 0, length);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static void sleep(long millis) {
+    if (millis <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Map<String, String> parseParameters(String query) throws IOException {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String parameter : query.split("&")) {
+      int assignment = parameter.indexOf('=');
+      if (assignment > 0) {
+        parameters.put(parameter.substring(0, assignment),
+                URLDecoder.decode(parameter.substring(assignment + 1), StandardCharsets.UTF_8.name()));
+      }
+    }
+    return parameters;
+  }
+
+  private static String withoutPage(String query) {
+    StringBuilder builder = new StringBuilder();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        if (!parameter.isEmpty() && !parameter.startsWith("page=")) {
+          builder.append(parameter).append('&');
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+  private static int getInt(Map<String, String> parameters, String name, int defaultValue) {
+    String value = parameters.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+
+  private static String formatTime(long millis) {
+    return Instant.ofEpochMilli(millis).toString();
+  }
+
+  private static long parseTime(String text) {
+    return Instant.parse(text).toEpochMilli();
+  }
+
+  private static String encodeCursor(int index) {
+    return Base64.getEncoder().encodeToString(("cursor:v2:" + index).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static int decodeCursor(String cursor) {
+    return Integer.parseInt(new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8).substring(10));
+  }
+
+  private static String getEntityTag(byte[] body) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1").digest(body);
+      StringBuilder builder = new StringBuilder("\"");
+      for (byte b : hash) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.append('"').toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  private enum Fault {
+    DROP, FAIL
+  }
+
+  private static class Response {
+
+    private final byte[] body;
+    private final String link;
+
+    private Response(byte[] body, String link) {
+      this.body = body;
+      this.link = link;
+    }
+
+  }
+
+  // The issues of a repository in the order of their last update, newest first
+  private static class Repository {
+
+    private final int index;
+    private int issueCount;
+    private long[] updatedAt;
+    private int[] revisions;
+    private int[] order;
+    private long clock;
+
+    private Repository(int index, int issueCount) {
+      this.index = index;
+      this.issueCount = issueCount;
+      this.updatedAt = new long[issueCount + 1];
+      this.revisions = new int[issueCount + 1];
+      this.order = new int[issueCount];
+      for (int number = 1; number <= issueCount; number++) {
+        updatedAt[number] = BASE_TIME_MILLIS + number * HOUR_MILLIS;
+        order[issueCount - number] = number;
+      }
+      this.clock = BASE_TIME_MILLIS + (issueCount + 1) * HOUR_MILLIS;
+    }
+
+    private int getIssueId(int number) {
+      return index * 1000000 + number;
+    }
+
+    private int getCommentId(int number, int index) {
+      return (int) ((getIssueId(number) * 128L + index) % Integer.MAX_VALUE);
+    }
+
+    private synchronized String getTitle(int number) {
+      String title = "Issue " + number + " in repository " + index;
+      return revisions[number] == 0 ? title : title + " (revision " + revisions[number] + ")";
+    }
+
+    private synchronized long getUpdatedAt(int number) {
+      return updatedAt[number];
+    }
+
+    private synchronized void update(int number) {
+      clock += HOUR_MILLIS;
+      updatedAt[number] = clock;
+      revisions[number]++;
+
+      // Copied so that the pages being written keep a consistent order
+      int[] newOrder = new int[issueCount];
+      newOrder[0] = number;
+      int next = 1;
+      for (int other : order) {
+        if (other != number) {
+          newOrder[next++] = other;
+        }
+      }
+      order = newOrder;
+    }
+
+    private synchronized int addIssue() {
+      issueCount++;
+      updatedAt = Arrays.copyOf(updatedAt, issueCount + 1);
+      revisions = Arrays.copyOf(revisions, issueCount + 1);
+      int[] newOrder = new int[issueCount];
+      System.arraycopy(order, 0, newOrder, 1, order.length);
+      order = newOrder;
+      order[0] = issueCount;
+      updatedAt[issueCount] = clock;
+      update(issueCount);
+      return issueCount;
+    }
+
+    // The issues updated since the given time come first in the order
+    private int countUpdatedSince(long sinceMillis) {
+      int low = 0;
+      int high = order.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (updatedAt[order[middle]] >= sinceMillis) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+  }
+
+}